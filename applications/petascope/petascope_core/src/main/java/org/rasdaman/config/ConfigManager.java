@@ -120,6 +120,8 @@ public class ConfigManager {
     public static boolean XML_VALIDATION = false;
     // Only used when testing OGC CITE
     public static boolean OGC_CITE_OUTPUT_OPTIMIZATION = false;
+    // Keep a gzip compressed copy of the cached GetCapabilities documents for clients accepting it
+    public static boolean GZIP_GET_CAPABILITIES = true;
     
     public static String DEFAULT_DIR_TMP = "/tmp";
     // Tomcat user will create this folder
@@ -147,12 +149,23 @@ public class ConfigManager {
     public static String RASDAMAN_RETRY_ATTEMPTS = "5";
     // Time in seconds between each re-connect attempt
     public static String RASDAMAN_RETRY_TIMEOUT = "10";
+    // Maximum number of pooled read-only rasdaman sessions open per user (0 disables pooling)
+    public static int RASDAMAN_CONNECTION_POOL_SIZE = 0;
+    // Time in milliseconds after which an idle pooled rasdaman session is closed
+    // (configured in seconds in petascope.properties)
+    public static long RASDAMAN_CONNECTION_POOL_MAX_IDLE_TIME = 60000;
+    // Maximum number of rasql queries of multipart WCPS requests executed concurrently (1 runs them one by one)
+    public static int MAX_PARALLEL_MULTIPART_QUERIES = 4;
     
     private static final String APPLICATION_PROPERTIES = "application.properties";
     public static String PETASCOPE_VERSION = "";
 
     /* ***** SECORE configuration ***** */
     public static List<String> SECORE_URLS;
+    // Maximum number of CRS definitions (and of CRS comparisons) resolved via SECORE kept in memory
+    public static int MAX_CRS_CACHE_SIZE = 1000;
+    // File to store the resolved CRS definitions across restarts (empty disables it)
+    public static String CRS_CACHE_SNAPSHOT_FILE = "";
 
     /* ***** AJP connector configuration for embedded tomcat ***** */
     public static int EMBEDDED_AJP_PORT = 0;
@@ -169,6 +182,18 @@ public class ConfigManager {
 
     /* ***** WMS configuration ***** */
     public static long MAX_WMS_CACHE_SIZE = 100000000; // 100 MB (in bytes)
+    // Directory to store WMS GetMap responses across restarts (empty = only cache in memory)
+    public static String WMS_DISK_CACHE_DIR = "";
+    public static long MAX_WMS_DISK_CACHE_SIZE = 1000000000; // 1 GB (in bytes)
+    
+    /* ***** WCPS configuration ***** */
+    // Maximum number of translated WCPS queries kept in memory (0 disables the cache)
+    public static int MAX_WCPS_TRANSLATION_CACHE_SIZE = 1000;
+    
+    /* ***** WCS-T configuration ***** */
+    // Maximum size of a remote file for UpdateCoverage which is sent to rasdaman from memory,
+    // larger files are downloaded to WCST_TMP_DIR and uploaded from there by the rasql client
+    public static long MAX_WCST_IN_MEMORY_FILE_SIZE = 100000000; // 100 MB (in bytes)
     
     /* ***** Demo web pages ***** */
     public static String STATIC_HTML_DIR_PATH = "";
@@ -196,6 +221,13 @@ public class ConfigManager {
     
     // How much memory in bytes to allow to cache WMS results
     private static final String KEY_MAX_WMS_CACHE_SIZE = "max_wms_cache_size";
+    // Where and how much to cache WMS results on disk
+    private static final String KEY_WMS_DISK_CACHE_DIR = "wms_disk_cache_dir";
+    private static final String KEY_MAX_WMS_DISK_CACHE_SIZE = "max_wms_disk_cache_size";
+    // How many translated WCPS queries to cache
+    private static final String KEY_MAX_WCPS_TRANSLATION_CACHE_SIZE = "max_wcps_translation_cache_size";
+    // How large remote files for WCS-T UpdateCoverage may be to be kept in memory
+    private static final String KEY_MAX_WCST_IN_MEMORY_FILE_SIZE = "max_wcst_in_memory_file_size";
 
     /* ***** Rasdaman configuration ***** */
     private static final String KEY_RASDAMAN_DATABASE = "rasdaman_database";
@@ -207,18 +239,25 @@ public class ConfigManager {
     private static final String KEY_RASDAMAN_RETRY_TIMEOUT = "rasdaman_retry_timeout";
     private static final String KEY_RASDAMAN_RETRY_ATTEMPTS = "rasdaman_retry_attempts";
     private static final String KEY_RASDAMAN_BIN_PATH = "rasdaman_bin_path";
+    private static final String KEY_RASDAMAN_CONNECTION_POOL_SIZE = "rasdaman_connection_pool_size";
+    private static final String KEY_RASDAMAN_CONNECTION_POOL_MAX_IDLE_TIME = "rasdaman_connection_pool_max_idle_time";
+    private static final String KEY_MAX_PARALLEL_MULTIPART_QUERIES = "max_parallel_multipart_queries";
     
     /* ***** Petascope uploaded file configuration ***** */
     private static final String KEY_UPLOADED_FILE_DIR_TMP = "uploaded_files_dir_tmp";
 
     /* ***** SECORE configuration ***** */
     private static final String KEY_SECORE_URLS = "secore_urls";
+    private static final String KEY_MAX_CRS_CACHE_SIZE = "max_crs_cache_size";
+    private static final String KEY_CRS_CACHE_SNAPSHOT_FILE = "crs_cache_snapshot_file";
 
     /* ***** WCS configuration ***** */
     // validate XML POST input request with XML Schema (not set to true when OGC CITE testing)
     private static final String KEY_XML_VALIDATION = "xml_validation";
     // Only used for OGC CITE test as it will optimize output from WCS to bypass some test cases (xml_validation must set to false).
     private static final String KEY_OGC_CITE_OUTPUT_OPTIMIZATION = "ogc_cite_output_optimization";
+    // Send gzip compressed GetCapabilities documents to clients which accept it
+    private static final String KEY_GZIP_GET_CAPABILITIES = "gzip_get_capabilities";
 
     private static final String KEY_ALLOW_WRITE_REQUESTS_FROM = "allow_write_requests_from";
     public static final String PUBLIC_WRITE_REQUESTS_FROM = "*";
@@ -394,11 +433,48 @@ public class ConfigManager {
                     "Value for key '" + KEY_MAX_WMS_CACHE_SIZE + "' must be positive integer. Given '" + valueMaxWMSCacheSize + "'.");
         }
         
+        WMS_DISK_CACHE_DIR = getOptionalPropertyValue(KEY_WMS_DISK_CACHE_DIR, "").trim();
+        String valueMaxWMSDiskCacheSize = getOptionalPropertyValue(KEY_MAX_WMS_DISK_CACHE_SIZE, String.valueOf(MAX_WMS_DISK_CACHE_SIZE)).trim();
+        try {
+            MAX_WMS_DISK_CACHE_SIZE = new Long(valueMaxWMSDiskCacheSize);
+            if (MAX_WMS_DISK_CACHE_SIZE <= 0) {
+                throw new NumberFormatException();
+            }
+        } catch (NumberFormatException ex) {
+            throw new PetascopeException(ExceptionCode.InvalidPropertyValue, 
+                    "Value for key '" + KEY_MAX_WMS_DISK_CACHE_SIZE + "' must be positive integer. Given '" + valueMaxWMSDiskCacheSize + "'.");
+        }
+        
+        String valueMaxWCPSTranslationCacheSize = getOptionalPropertyValue(KEY_MAX_WCPS_TRANSLATION_CACHE_SIZE, 
+                                                                          String.valueOf(MAX_WCPS_TRANSLATION_CACHE_SIZE)).trim();
+        try {
+            MAX_WCPS_TRANSLATION_CACHE_SIZE = Integer.parseInt(valueMaxWCPSTranslationCacheSize);
+            if (MAX_WCPS_TRANSLATION_CACHE_SIZE < 0) {
+                throw new NumberFormatException();
+            }
+        } catch (NumberFormatException ex) {
+            throw new PetascopeException(ExceptionCode.InvalidPropertyValue, 
+                    "Value for key '" + KEY_MAX_WCPS_TRANSLATION_CACHE_SIZE + "' must be non-negative integer. Given '" + valueMaxWCPSTranslationCacheSize + "'.");
+        }
+        
+        String valueMaxWCSTInMemoryFileSize = getOptionalPropertyValue(KEY_MAX_WCST_IN_MEMORY_FILE_SIZE, 
+                                                                       String.valueOf(MAX_WCST_IN_MEMORY_FILE_SIZE)).trim();
+        try {
+            MAX_WCST_IN_MEMORY_FILE_SIZE = Long.parseLong(valueMaxWCSTInMemoryFileSize);
+            if (MAX_WCST_IN_MEMORY_FILE_SIZE < 0 || MAX_WCST_IN_MEMORY_FILE_SIZE > Integer.MAX_VALUE - 8) {
+                throw new NumberFormatException();
+            }
+        } catch (NumberFormatException ex) {
+            throw new PetascopeException(ExceptionCode.InvalidPropertyValue, 
+                    "Value for key '" + KEY_MAX_WCST_IN_MEMORY_FILE_SIZE + "' must be non-negative integer less than 2 GB. Given '" + valueMaxWCSTInMemoryFileSize + "'.");
+        }
+        
         /* ***** WCS configuration ***** */
         // XML-encoded request schema validation for input request in XML POST
         XML_VALIDATION = Boolean.parseBoolean(get(KEY_XML_VALIDATION));
         // Only used when testing OGC CITE (with xml_validation is set to false)
         OGC_CITE_OUTPUT_OPTIMIZATION = Boolean.parseBoolean(get(KEY_OGC_CITE_OUTPUT_OPTIMIZATION));
+        GZIP_GET_CAPABILITIES = Boolean.parseBoolean(getOptionalPropertyValue(KEY_GZIP_GET_CAPABILITIES, String.valueOf(GZIP_GET_CAPABILITIES)).trim());
         
         try {
             String allowWriteRequestsFrom = get(KEY_ALLOW_WRITE_REQUESTS_FROM);
@@ -464,6 +540,39 @@ public class ConfigManager {
         RASDAMAN_RETRY_TIMEOUT = get(KEY_RASDAMAN_RETRY_TIMEOUT);
         RASDAMAN_RETRY_ATTEMPTS = get(KEY_RASDAMAN_RETRY_ATTEMPTS);
         RASDAMAN_BIN_PATH = get(KEY_RASDAMAN_BIN_PATH);
+        
+        String value = getOptionalPropertyValue(KEY_RASDAMAN_CONNECTION_POOL_SIZE, String.valueOf(RASDAMAN_CONNECTION_POOL_SIZE));
+        try {
+            RASDAMAN_CONNECTION_POOL_SIZE = Integer.parseInt(value);
+            if (RASDAMAN_CONNECTION_POOL_SIZE < 0) {
+                throw new NumberFormatException();
+            }
+        } catch (NumberFormatException ex) {
+            throw new PetascopeException(ExceptionCode.InvalidPropertyValue, 
+                    "Value for key '" + KEY_RASDAMAN_CONNECTION_POOL_SIZE + "' must be non-negative integer. Given '" + value + "'.");
+        }
+        
+        value = getOptionalPropertyValue(KEY_RASDAMAN_CONNECTION_POOL_MAX_IDLE_TIME, String.valueOf(RASDAMAN_CONNECTION_POOL_MAX_IDLE_TIME / 1000));
+        try {
+            RASDAMAN_CONNECTION_POOL_MAX_IDLE_TIME = Long.parseLong(value) * 1000;
+            if (RASDAMAN_CONNECTION_POOL_MAX_IDLE_TIME <= 0) {
+                throw new NumberFormatException();
+            }
+        } catch (NumberFormatException ex) {
+            throw new PetascopeException(ExceptionCode.InvalidPropertyValue, 
+                    "Value for key '" + KEY_RASDAMAN_CONNECTION_POOL_MAX_IDLE_TIME + "' must be positive integer. Given '" + value + "'.");
+        }
+        
+        value = getOptionalPropertyValue(KEY_MAX_PARALLEL_MULTIPART_QUERIES, String.valueOf(MAX_PARALLEL_MULTIPART_QUERIES));
+        try {
+            MAX_PARALLEL_MULTIPART_QUERIES = Integer.parseInt(value);
+            if (MAX_PARALLEL_MULTIPART_QUERIES <= 0) {
+                throw new NumberFormatException();
+            }
+        } catch (NumberFormatException ex) {
+            throw new PetascopeException(ExceptionCode.InvalidPropertyValue, 
+                    "Value for key '" + KEY_MAX_PARALLEL_MULTIPART_QUERIES + "' must be positive integer. Given '" + value + "'.");
+        }
     }
     
     private void initSecoreSettings() throws PetascopeException {
@@ -472,6 +581,18 @@ public class ConfigManager {
             log.error("Failed loading secore urls from petascope.properties");
             throw new RuntimeException("Failed loading secore urls from petascope.properties");
         }
+        
+        String valueMaxCrsCacheSize = getOptionalPropertyValue(KEY_MAX_CRS_CACHE_SIZE, String.valueOf(MAX_CRS_CACHE_SIZE)).trim();
+        try {
+            MAX_CRS_CACHE_SIZE = Integer.parseInt(valueMaxCrsCacheSize);
+            if (MAX_CRS_CACHE_SIZE <= 0) {
+                throw new NumberFormatException();
+            }
+        } catch (NumberFormatException ex) {
+            throw new PetascopeException(ExceptionCode.InvalidPropertyValue, 
+                    "Value for key '" + KEY_MAX_CRS_CACHE_SIZE + "' must be positive integer. Given '" + valueMaxCrsCacheSize + "'.");
+        }
+        CRS_CACHE_SNAPSHOT_FILE = getOptionalPropertyValue(KEY_CRS_CACHE_SNAPSHOT_FILE, CRS_CACHE_SNAPSHOT_FILE).trim();
     }
     
     private void initTempUploadDirs() throws PetascopeException {
@@ -24,12 +24,12 @@ package org.rasdaman.domain.cis;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Collections;
 import javax.persistence.*;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import petascope.util.BigDecimalUtil;
+import petascope.core.CoefficientList;
 import petascope.core.Pair;
 import petascope.exceptions.ExceptionCode;
 import petascope.exceptions.PetascopeException;
@@ -76,17 +76,28 @@ public class IrregularAxis extends GeoAxis implements Serializable {
         UPDATE_EXISTING
     }
 
-
-
     // Ordered sequence of direct positions (coefficients) along this axis
     // NOTE: Postgresql can set precision and scale defined, it will use only use 2 numbers for scale 
     //       e.g: 19.3434534534534534533333333....33 -> 19.34
     //       However, SQLite does not support and it is stripped to only eights numbers after the "." 
     //       and will have wrong calculations, so we use String to store BigDecimal
+    // NOTE: legacy storage with one row per coefficient, the coefficients are moved to packedDirectPositions
+    // by the Liquibase changelog (see PackIrregularAxisDirectPositionsChange); they are still read when
+    // Liquibase did not run, and removed from this table when the coefficients of the axis are changed.
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "irregular_axis_direct_positions")
     @OrderColumn
-    private List<String> directPositions;
+    private List<String> directPositions = new ArrayList<>();
+    
+    @Column(name = "direct_positions_packed")
+    @Lob
+    // NOTE: all coefficients separated by spaces in one column (see CoefficientList.encode()), 
+    // as time series coverages can have hundreds of thousands of coefficients.
+    private String packedDirectPositions;
+    
+    // Decoded coefficients, created only once per (cached) coverage
+    @Transient
+    private volatile CoefficientList coefficients;
 
     public IrregularAxis() {
 
@@ -94,51 +105,58 @@ public class IrregularAxis extends GeoAxis implements Serializable {
 
     public IrregularAxis(List<String> directPositions, String axisLabel, String uomLabel, String srsName, String lowerBound, String upperBound, String resolution) {
         super(axisLabel, uomLabel, srsName, lowerBound, upperBound, resolution);
-        this.directPositions = directPositions;
-    }
-    
-    public List<String> getDirectPositions() {
-        return this.directPositions;
+        this.setCoefficients(CoefficientList.parse(directPositions));
     }
 
     /**
      * Ultility method to get direct positions in number
-     * @return 
+     * @return the immutable, compact list of coefficients
      */
-    public List<BigDecimal> getDirectPositionsAsNumbers() {
-        List<BigDecimal> bigDecimalList = new ArrayList<>();
-        for (String value : directPositions) {
-            bigDecimalList.add(new BigDecimal(value));
+    public CoefficientList getDirectPositionsAsNumbers() {
+        CoefficientList result = this.coefficients;
+        if (result == null) {
+            // NOTE: cached coverages are read by concurrent requests
+            synchronized (this) {
+                if (this.coefficients == null) {
+                    // NOTE: the persisted columns are not changed, so that reading a coverage does not make it dirty
+                    if (this.packedDirectPositions != null) {
+                        this.coefficients = CoefficientList.decode(this.packedDirectPositions);
+                    } else {
+                        // coverage persisted before the packed column was introduced
+                        this.coefficients = CoefficientList.parse(this.directPositions);
+                    }
+                }
+                result = this.coefficients;
+            }
         }
 
-        return bigDecimalList;
+        return result;
     }
 
     public void setDirectPositions(List<BigDecimal> directPositions) {
-        this.directPositions = new ArrayList<>();
-        for (BigDecimal value : directPositions) {
-            this.directPositions.add(value.toPlainString());
-        }
-
+        this.setCoefficients(CoefficientList.valueOf(directPositions));
     }
     
     /**
-     * Compare 2 big decimal numbers with a small epsilon to make sure the difference between numbers are acceptable.
-     * e.g: number1: 0.46666666666666666666666667, number2: 0.466666666666666666666666666666666666666666 are equal.
-     * 
-     * @param number1
-     * @param number2
-     * @return 
+     * Add a new coefficient which is lower than the lowest coefficient
+     */
+    public void addCoefficientToBottom(BigDecimal coefficient) {
+        this.setCoefficients(this.getDirectPositionsAsNumbers().prepend(coefficient));
+    }
+    
+    /**
+     * Add a new coefficient which is greater than the highest coefficient
      */
-    private boolean epsilonGreaterOrEqual(BigDecimal number1, BigDecimal number2) {
-        // number1 really greater than number2
-        if (number1.compareTo(number2.add(BigDecimalUtil.COEFFICIENT_DECIMAL_EPSILON)) >= 0) {
-            return true;
-        } else if (number1.subtract(number2).abs().compareTo(BigDecimalUtil.COEFFICIENT_DECIMAL_EPSILON) <= 0) {
-            // number1 not really greater than number2 but approximately
-            return true;
+    public void addCoefficientToTop(BigDecimal coefficient) {
+        this.setCoefficients(this.getDirectPositionsAsNumbers().append(coefficient));
+    }
+    
+    private synchronized void setCoefficients(CoefficientList coefficients) {
+        this.coefficients = coefficients;
+        this.packedDirectPositions = coefficients.encode();
+        if (this.directPositions != null) {
+            this.directPositions.clear();
         }
-        return false;
     }
     
     /**
@@ -197,39 +215,26 @@ public class IrregularAxis extends GeoAxis implements Serializable {
 
         Long minIndex = null;
         Long maxIndex = null;
-        boolean foundMinIndex = false;
-
-        Long i = Long.valueOf("0");
-
-        // coefficient in numbers for legacy coverages
-        for (BigDecimal coefficient : this.getDirectPositionsAsNumbers()) {
-            
-            // NOTE: from WCST_Import coefficient (especially DateTime from arrow) will return double and it can be larger than BigDecimal value calculated in Petascope.
-            // Therefore, we need to check this comparison with a small epsilon to make sure it is actually same number more or less.
-            // e.g: 
-            // coefficient: 0.04166666666666666666666666667
-            // input:       0.04166666666666666666666666666666666666666666666667
-            // find the min number which >= minInput
-            if (!foundMinIndex) {
-                if (this.epsilonGreaterOrEqual(coefficient, minInput)) {
-                    minIndex = i;
-                    foundMinIndex = true;
-                }
-            }
-            // find the max number which <= maxInput (as it is ascending list, so don't stop until coefficent > maxInput
-            if (this.epsilonGreaterOrEqual(maxInput, coefficient)) {
-                maxIndex = i;
-            }
-            // stop as it should find the minIndex and maxIndex already
-            if (this.epsilonGreaterOrEqual(coefficient, maxInput)) {
-                break;
-            }
-
-            i++;
+        CoefficientList coefficients = this.getDirectPositionsAsNumbers();
+        
+        // NOTE: from WCST_Import coefficient (especially DateTime from arrow) will return double and it can be larger than BigDecimal value calculated in Petascope.
+        // Therefore, we need to check this comparison with a small epsilon to make sure it is actually same number more or less.
+        // e.g: 
+        // coefficient: 0.04166666666666666666666666667
+        // input:       0.04166666666666666666666666666666666666666666666667
+        // find the min number which >= minInput
+        int index = coefficients.ceilingIndex(minInput.subtract(BigDecimalUtil.COEFFICIENT_DECIMAL_EPSILON));
+        if (index < coefficients.size()) {
+            minIndex = Long.valueOf(index);
+        }
+        // find the max number which <= maxInput
+        index = coefficients.floorIndex(maxInput.add(BigDecimalUtil.COEFFICIENT_DECIMAL_EPSILON));
+        if (index >= 0) {
+            maxIndex = Long.valueOf(index);
         }
         
         // Find the position of coefficient zero "0" in the list of direct positions.
-        i = this.getIndexOfCoefficientZero();
+        long i = this.getIndexOfCoefficientZero();
         
         // Then, the indices of input subset will need to rely on the index of fixed first coefficient (0).
         if (minIndex != null) {
@@ -246,7 +251,7 @@ public class IrregularAxis extends GeoAxis implements Serializable {
      * Get the fixed first slice (0) imported coefficient's index from list of directPositions
      */
     public long getIndexOfCoefficientZero() throws PetascopeException {
-        int ret = Collections.binarySearch(this.getDirectPositionsAsNumbers(), BigDecimal.ZERO);
+        int ret = this.getDirectPositionsAsNumbers().binarySearch(BigDecimal.ZERO);
         if (ret >= 0) {
             return ret;
         } else {
@@ -296,7 +301,7 @@ public class IrregularAxis extends GeoAxis implements Serializable {
      * @throws petascope.exceptions.WCSException
      */
     public CoefficientStatus validateCoefficient(boolean isInsitu, BigDecimal coefficient) throws WCSException {
-        long index = BigDecimalUtil.listContainsCoefficient(this.getDirectPositionsAsNumbers(), coefficient);
+        long index = this.getDirectPositionsAsNumbers().indexOf(coefficient, BigDecimalUtil.COEFFICIENT_DECIMAL_EPSILON);
         if (index == -1) {
             // Check if coefficient > the upperBound of axis, if it is not then it is added between other coeffcients which is not valid
             int numberOfCoefficients = this.getDirectPositionsAsNumbers().size();
@@ -331,13 +336,10 @@ public class IrregularAxis extends GeoAxis implements Serializable {
     public List<BigDecimal> getAllCoefficientsInInterval(BigDecimal minInput, BigDecimal maxInput) throws PetascopeException {
         // Find the min and max grid incides in the List of directPositions
         Pair<Long, Long> gridIndices = this.getGridIndices(minInput, maxInput);
-        List<BigDecimal> coefficients = new ArrayList<>();
-        for (Long i = gridIndices.fst; i <= gridIndices.snd; i++) {
-            BigDecimal coefficient = this.getDirectPositionsAsNumbers().get(i.intValue());
-            coefficients.add(coefficient);
+        if (gridIndices.fst > gridIndices.snd) {
+            return CoefficientList.EMPTY;
         }
-
-        return coefficients;
+        return this.getDirectPositionsAsNumbers().subList(gridIndices.fst.intValue(), gridIndices.snd.intValue() + 1);
     }
 
     // This is used for translating from geo domain to grid domain for irregular axis
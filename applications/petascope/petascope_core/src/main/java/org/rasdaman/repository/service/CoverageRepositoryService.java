@@ -23,11 +23,13 @@ package org.rasdaman.repository.service;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.ConcurrentSkipListMap;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -105,6 +107,15 @@ public class CoverageRepositoryService {
     // Any geo coverages which cannot project its geo bounding box to EPSG:4326 
     // will be ignored to not show warn log in petascope.log multiple times
     public static final Set<String> problemCoveragesExtentsCache = new HashSet<>();
+    
+    // Coverages whose extent could not be created because of an error (e.g: SECORE was not reachable),
+    // so it is not known yet if they have one; they are tried again next time
+    private static final Set<String> unknownCoveragesExtentsCache = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    
+    // coverage id -> version of its metadata, changed whenever the coverage is saved or deleted;
+    // used by caches of data derived from the metadata (e.g. translated WCPS queries)
+    private static final Map<String, Long> coverageVersionsMap = new ConcurrentHashMap<>();
+    private static final AtomicLong coverageVersionSequence = new AtomicLong();
 
     public CoverageRepositoryService() {
 
@@ -436,7 +447,9 @@ public class CoverageRepositoryService {
             if (!coveragesExtentsCacheMap.containsKey(coverageId)) {
                 try {
                     this.createCoverageExtent(coverageId);
+                    unknownCoveragesExtentsCache.remove(coverageId);
                 } catch (Exception ex) {
+                    unknownCoveragesExtentsCache.add(coverageId);
                     log.warn("Cannot create geo extents in EPSG:4326 for coverage '" + coverageId + "'. Reason: " + ex.getMessage(), ex);
                 }
             }
@@ -505,8 +518,10 @@ public class CoverageRepositoryService {
 
                 try {
                     // NOTE: cannot reproject every kind of EPSG:codes to EPSG:4326, but should not stop application for this.
-                    minLongLatList = CrsProjectionUtil.transform(xyAxesCRS, COVERAGES_EXTENT_TARGET_CRS_DEFAULT, xyMinArray);
-                    maxLongLatList = CrsProjectionUtil.transform(xyAxesCRS, COVERAGES_EXTENT_TARGET_CRS_DEFAULT, xyMaxArray);
+                    List<List<BigDecimal>> longLatLists = CrsProjectionUtil.transformPoints(xyAxesCRS, COVERAGES_EXTENT_TARGET_CRS_DEFAULT, 
+                                                                                            xyMinArray, xyMaxArray);
+                    minLongLatList = longLatLists.get(0);
+                    maxLongLatList = longLatLists.get(1);
 
                     // NOTE: EPSG:4326 cannot display outside of coordinates for lat(-90, 90), lon(-180, 180) and it should only contain 5 precisions.                
                     BigDecimal lonMin = minLongLatList.get(0).setScale(5, BigDecimal.ROUND_HALF_UP);
@@ -601,11 +616,14 @@ public class CoverageRepositoryService {
 
         localCoveragesCacheMap.put(coverageId, new Pair(coverage, true));
         problemCoveragesExtentsCache.remove(coverageId);
+        updateCoverageVersion(coverageId);
         
         try {
             // Also insert/update the coverage's extent in cache as the bounding box of XY axes can be extended by WCST_Import.
             this.createCoverageExtent(coverageId);
+            unknownCoveragesExtentsCache.remove(coverageId);
         } catch (SecoreException ex) {
+            unknownCoveragesExtentsCache.add(coverageId);
             log.warn("Cannot create coverage's extent for coverage '" + coverageId + "'. Reason: " + ex.getExceptionText());
         }
 
@@ -631,9 +649,47 @@ public class CoverageRepositoryService {
         entityManager.clear();
         
         problemCoveragesExtentsCache.remove(coverageId);
+        unknownCoveragesExtentsCache.remove(coverageId);
+        updateCoverageVersion(coverageId);
 
         log.debug("Coverage: " + coverage.getCoverageId() + " is removed from database.");
     }
+    
+    /**
+     * Return true if the extent of the coverage could not be created because of an error,
+     * so a WGS84 bounding box may be missing for it.
+     */
+    public static boolean isCoverageExtentUnknown(String coverageId) {
+        return unknownCoveragesExtentsCache.contains(coverageId);
+    }
+
+    /**
+     * Return true if the extent of any coverage could not be created because of an error.
+     */
+    public static boolean hasUnknownCoveragesExtents() {
+        return !unknownCoveragesExtentsCache.isEmpty();
+    }
+    
+    /**
+     * Return the version of the coverage's metadata, which changes whenever
+     * the coverage is saved or deleted (0 if it was not changed since petascope started).
+     */
+    public static long getCoverageVersion(String coverageId) {
+        Long version = coverageVersionsMap.get(coverageId);
+        return version == null ? 0 : version;
+    }
+    
+    /**
+     * Return the latest version given to any coverage; if it is the same
+     * before and after reading some coverages, none of them was changed in between.
+     */
+    public static long getLatestCoverageVersion() {
+        return coverageVersionSequence.get();
+    }
+    
+    private static void updateCoverageVersion(String coverageId) {
+        coverageVersionsMap.put(coverageId, coverageVersionSequence.incrementAndGet());
+    }
 
     /**
      * NOTE: Don't save coverage with fixed CRS (e.g:
@@ -22,6 +22,7 @@
 package org.rasdaman.repository.service;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import org.rasdaman.domain.owsmetadata.Address;
@@ -58,6 +59,8 @@ public class OWSMetadataRepostioryService {
 
     // cache the Ows Service metadata
     private static OwsServiceMetadata owsServiceMetadataCache;
+    // changed whenever the OWS service metadata is saved or deleted
+    private static final AtomicLong metadataVersion = new AtomicLong();
     
     @PersistenceContext
     EntityManager entityManager;
@@ -109,6 +112,7 @@ public class OWSMetadataRepostioryService {
     public OwsServiceMetadata save(OwsServiceMetadata owsServiceMetadata) {
         this.owsServiceMetadataRepository.save(owsServiceMetadata);
         owsServiceMetadataCache = owsServiceMetadata;
+        metadataVersion.incrementAndGet();
 
         return owsServiceMetadata;
     }
@@ -119,6 +123,15 @@ public class OWSMetadataRepostioryService {
     public void deleteAll() {
         this.owsServiceMetadataRepository.deleteAll();
         owsServiceMetadataCache = null;
+        metadataVersion.incrementAndGet();
+    }
+    
+    /**
+     * Return the version of the OWS service metadata, which changes whenever
+     * it is saved or deleted.
+     */
+    public static long getMetadataVersion() {
+        return metadataVersion.get();
     }
     
     /**
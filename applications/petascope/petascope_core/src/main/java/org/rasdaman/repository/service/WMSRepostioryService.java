@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import org.rasdaman.domain.wms.Layer;
@@ -66,6 +67,10 @@ public class WMSRepostioryService {
     // Cache all the metadata for WMS layers
     public static final Map<String, Layer> localLayersCacheMap = new ConcurrentSkipListMap<>();
     
+    // changed whenever a layer or style is saved or deleted; used by caches of 
+    // data derived from the layers (e.g. WMS GetCapabilities document)
+    private static final AtomicLong layersVersion = new AtomicLong();
+    
     /**
      * Check if a layer already exists from local loaded cache map
      */
@@ -203,6 +208,8 @@ public class WMSRepostioryService {
         entityManager.flush();
         entityManager.clear();
 
+        layersVersion.incrementAndGet();
+
         log.debug("WMS Layer: " + layer.getName() + " is persisted to database.");
     }
 
@@ -217,6 +224,8 @@ public class WMSRepostioryService {
         entityManager.flush();
         entityManager.clear();
 
+        layersVersion.incrementAndGet();
+
         log.debug("WMS Layer: " + layer.getName() + " is removed from database.");
     }
 
@@ -229,6 +238,8 @@ public class WMSRepostioryService {
         entityManager.flush();
         entityManager.clear();
 
+        layersVersion.incrementAndGet();
+
         log.debug("WMS Style: " + style.getName() + " is persited to database.");
     }
 
@@ -242,9 +253,19 @@ public class WMSRepostioryService {
         entityManager.flush();
         entityManager.clear();
 
+        layersVersion.incrementAndGet();
+
         log.debug("WMS Style: " + style.getName() + " is removed from database.");
     }
 
+    /**
+     * Return the version of the WMS layers and styles, which changes whenever
+     * one of them is saved or deleted.
+     */
+    public static long getLayersVersion() {
+        return layersVersion.get();
+    }
+
     // For migration only
     
     /**
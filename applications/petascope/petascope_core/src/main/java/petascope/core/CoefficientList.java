@@ -0,0 +1,234 @@
+/*
+ * This file is part of rasdaman community.
+ *
+ * Rasdaman community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Rasdaman community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU  General Public License for more details.
+ *
+ * You should have received a copy of the GNU  General Public License
+ * along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2003 - 2017 Peter Baumann / rasdaman GmbH.
+ *
+ * For more information please see <http://www.rasdaman.org>
+ * or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+package petascope.core;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable, ascending list of the coefficients (direct positions) of an
+ * irregular axis.
+ *
+ * Instead of one BigDecimal object per coefficient, the coefficients are
+ * stored as unscaled long values and their scales (e.g: 20.25 is 2025 with
+ * scale 2), so the exact BigDecimal of a coefficient is created only when it
+ * is accessed. Coefficients which do not fit in a long are stored as
+ * BigDecimals. As the list is sorted, lookups are done by binary search.
+ *
+ * Sublists share the arrays of their parent list.
+ */
+public class CoefficientList extends AbstractList<BigDecimal> implements RandomAccess, Serializable {
+
+    public static final CoefficientList EMPTY = new CoefficientList(new long[0], null, 0, null, 0, 0);
+
+    // unscaled values of the coefficients, null if they are stored as BigDecimals
+    private final long[] unscaledValues;
+    // scale of each coefficient, null if all have the same scale
+    private final byte[] scales;
+    private final int scale;
+    // coefficients which do not fit in unscaledValues
+    private final BigDecimal[] values;
+
+    // range of the arrays which belongs to this list
+    private final int offset;
+    private final int size;
+
+    private CoefficientList(long[] unscaledValues, byte[] scales, int scale, BigDecimal[] values, int offset, int size) {
+        this.unscaledValues = unscaledValues;
+        this.scales = scales;
+        this.scale = scale;
+        this.values = values;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    /**
+     * Create a compact list of the given coefficients, which must be sorted
+     * ascending.
+     */
+    public static CoefficientList valueOf(Collection<BigDecimal> coefficients) {
+        if (coefficients instanceof CoefficientList) {
+            return (CoefficientList) coefficients;
+        }
+        BigDecimal[] array = coefficients.toArray(new BigDecimal[coefficients.size()]);
+        if (array.length == 0) {
+            return EMPTY;
+        }
+
+        long[] unscaledValues = new long[array.length];
+        byte[] scales = new byte[array.length];
+        boolean sameScale = true;
+        for (int i = 0; i < array.length; i++) {
+            BigDecimal value = array[i];
+            if (value.unscaledValue().bitLength() > 63 || value.scale() < Byte.MIN_VALUE || value.scale() > Byte.MAX_VALUE) {
+                // cannot be stored as long
+                return new CoefficientList(null, null, 0, array, 0, array.length);
+            }
+            unscaledValues[i] = value.unscaledValue().longValue();
+            scales[i] = (byte) value.scale();
+            sameScale = sameScale && scales[i] == scales[0];
+        }
+
+        return new CoefficientList(unscaledValues, sameScale ? null : scales, scales[0], null, 0, array.length);
+    }
+
+    /**
+     * Create a compact list of coefficients from their string representations,
+     * e.g: as persisted in petascopedb.
+     */
+    public static CoefficientList parse(Collection<String> coefficients) {
+        BigDecimal[] array = new BigDecimal[coefficients.size()];
+        int i = 0;
+        for (String coefficient : coefficients) {
+            array[i++] = new BigDecimal(coefficient.trim());
+        }
+        return valueOf(Arrays.asList(array));
+    }
+
+    /**
+     * Decode the coefficients encoded by encode().
+     */
+    public static CoefficientList decode(String encodedCoefficients) {
+        String trimmed = encodedCoefficients.trim();
+        if (trimmed.isEmpty()) {
+            return EMPTY;
+        }
+        return parse(Arrays.asList(trimmed.split("\\s+")));
+    }
+
+    /**
+     * Encode the coefficients as one string, separated by spaces (e.g: to be
+     * persisted in one column instead of one row per coefficient).
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder(size * 8);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(this.get(i).toPlainString());
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public BigDecimal get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        int i = offset + index;
+        if (values != null) {
+            return values[i];
+        }
+        return BigDecimal.valueOf(unscaledValues[i], scales == null ? scale : scales[i]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public CoefficientList subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("From index: " + fromIndex + ", to index: " + toIndex + ", size: " + size);
+        }
+        return new CoefficientList(unscaledValues, scales, scale, values, offset + fromIndex, toIndex - fromIndex);
+    }
+
+    /**
+     * @return the index of the coefficient which is equal to value (by
+     * compareTo()), or (-(insertion point) - 1) if there is no such coefficient
+     */
+    public int binarySearch(BigDecimal value) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int result = this.get(middle).compareTo(value);
+            if (result < 0) {
+                low = middle + 1;
+            } else if (result > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * @return the index of the first coefficient which is greater than or
+     * equal to value, or size() if there is no such coefficient
+     */
+    public int ceilingIndex(BigDecimal value) {
+        int index = this.binarySearch(value);
+        return index >= 0 ? index : -(index + 1);
+    }
+
+    /**
+     * @return the index of the last coefficient which is less than or equal
+     * to value, or -1 if there is no such coefficient
+     */
+    public int floorIndex(BigDecimal value) {
+        int index = this.binarySearch(value);
+        return index >= 0 ? index : -(index + 1) - 1;
+    }
+
+    /**
+     * @return the index of the coefficient which is within [value - epsilon,
+     * value + epsilon], or -1 if there is no such coefficient
+     */
+    public int indexOf(BigDecimal value, BigDecimal epsilon) {
+        int index = this.ceilingIndex(value.subtract(epsilon));
+        if (index < size && this.get(index).compareTo(value.add(epsilon)) <= 0) {
+            return index;
+        }
+        return -1;
+    }
+
+    /**
+     * @return a new list with the given coefficient (lower than the first one) added before the first one
+     */
+    public CoefficientList prepend(BigDecimal coefficient) {
+        List<BigDecimal> coefficients = new ArrayList<>(size + 1);
+        coefficients.add(coefficient);
+        coefficients.addAll(this);
+        return valueOf(coefficients);
+    }
+
+    /**
+     * @return a new list with the given coefficient (greater than the last one) added after the last one
+     */
+    public CoefficientList append(BigDecimal coefficient) {
+        List<BigDecimal> coefficients = new ArrayList<>(size + 1);
+        coefficients.addAll(this);
+        coefficients.add(coefficient);
+        return valueOf(coefficients);
+    }
+}
@@ -121,31 +121,6 @@ public class BigDecimalUtil {
         return BigDecimalUtil.stripDecimalZeros(result);
     }
 
-    /**
-     * Check if a big decimal value is inside the list
-     * NOTE: we use a very small epsilon to add, subtract to the checking value
-     * as coefficients which was persisted in double is not as same as in BigDecimal
-     * especially for time axis:
-     * Double:     148654.0842592477
-     * BigDecimal: 148654.08425924768518518518518518518518518518518518518519        
-     * @param list
-     * @param value
-     * @return 
-     */
-    public static long listContainsCoefficient(List<BigDecimal> list, BigDecimal value) {
-        int counter = 0;
-        for (BigDecimal coeff : list) {
-            // if value is within [coefficient - epsilon, coefficient + epsilon], then value is considered the coefficient
-            // e.g: 
-            if ((coeff.subtract(COEFFICIENT_DECIMAL_EPSILON).compareTo(value) <= 0)
-                &&(coeff.add(COEFFICIENT_DECIMAL_EPSILON).compareTo(value) >= 0)) {
-                return counter;
-            }            
-            counter++;
-        }
-        return -1;
-    }
-
     /**
      * Convert list of String to list of BigDecimal values
      * @param values
@@ -0,0 +1,246 @@
+/*
+ * This file is part of rasdaman community.
+ *
+ * Rasdaman community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Rasdaman community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU  General Public License for more details.
+ *
+ * You should have received a copy of the GNU  General Public License
+ * along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2003 - 2017 Peter Baumann / rasdaman GmbH.
+ *
+ * For more information please see <http://www.rasdaman.org>
+ * or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+package petascope.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import org.rasdaman.config.ConfigManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import petascope.exceptions.ExceptionCode;
+import petascope.exceptions.PetascopeException;
+import petascope.exceptions.SecoreException;
+
+/**
+ * Thread-safe cache of values resolved via SECORE (e.g: CRS definitions, CRS
+ * equality tests).
+ *
+ * The cache is bounded by ConfigManager.MAX_CRS_CACHE_SIZE entries; when it is
+ * full, the least recently used entries are evicted first. Concurrent misses
+ * on the same key are collapsed: only the first request asks SECORE, the
+ * others wait for its result.
+ */
+public class CrsCache<K, V> {
+
+    private static final Logger log = LoggerFactory.getLogger(CrsCache.class);
+
+    /**
+     * Resolves a value which is not cached yet (e.g: by asking SECORE).
+     */
+    public interface Loader<V> {
+
+        V load() throws PetascopeException, SecoreException;
+    }
+
+    // used only in log messages, e.g: "CRS definitions"
+    private final String name;
+
+    // key -> value, in order of access (least recently used first)
+    private final LinkedHashMap<K, V> valuesMap = new LinkedHashMap<>(16, 0.75f, true);
+    // key -> load which is in progress, shared by all requests missing this key
+    private final ConcurrentMap<K, FutureTask<V>> loadsMap = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong collapsedMisses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong failedLoads = new AtomicLong();
+    private final AtomicLong totalLoadTime = new AtomicLong();
+    private final AtomicLong maxLoadTime = new AtomicLong();
+
+    public CrsCache(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Return the cached value of a key, or null if it is not cached.
+     */
+    public synchronized V getIfPresent(K key) {
+        return valuesMap.get(key);
+    }
+
+    /**
+     * Return the cached value of a key; if it is not cached, it is loaded by
+     * loader, or by the loader of a concurrent request missing the same key.
+     * A failed load is not cached, so the next request tries again.
+     */
+    public V get(K key, final Loader<V> loader) throws PetascopeException, SecoreException {
+        V value = this.getIfPresent(key);
+        if (value != null) {
+            hits.incrementAndGet();
+            return value;
+        }
+        misses.incrementAndGet();
+
+        FutureTask<V> newTask = new FutureTask<>(new Callable<V>() {
+            @Override
+            public V call() throws Exception {
+                return loader.load();
+            }
+        });
+        FutureTask<V> task = loadsMap.putIfAbsent(key, newTask);
+        if (task == null) {
+            // this request loads the value
+            task = newTask;
+            long start = System.currentTimeMillis();
+            try {
+                task.run();
+                this.recordLoad(key, task, System.currentTimeMillis() - start);
+            } finally {
+                loadsMap.remove(key, task);
+            }
+        } else {
+            collapsedMisses.incrementAndGet();
+        }
+
+        return this.getResult(task);
+    }
+
+    private void recordLoad(K key, FutureTask<V> task, long milliseconds) {
+        loads.incrementAndGet();
+        totalLoadTime.addAndGet(milliseconds);
+        long max = maxLoadTime.get();
+        while (milliseconds > max && !maxLoadTime.compareAndSet(max, milliseconds)) {
+            max = maxLoadTime.get();
+        }
+
+        try {
+            V value = task.get();
+            if (value != null) {
+                this.put(key, value);
+            }
+            log.debug("Resolved " + key + " for " + name + " cache in " + milliseconds + " ms.");
+        } catch (InterruptedException | ExecutionException ex) {
+            // the error is reported to the requests by getResult()
+            failedLoads.incrementAndGet();
+            log.debug("Failed resolving " + key + " for " + name + " cache in " + milliseconds + " ms.");
+        }
+    }
+
+    private V getResult(FutureTask<V> task) throws PetascopeException, SecoreException {
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new PetascopeException(ExceptionCode.InternalComponentError,
+                    "Interrupted while waiting for resolving " + name + ".", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof PetascopeException) {
+                throw (PetascopeException) cause;
+            } else if (cause instanceof SecoreException) {
+                throw (SecoreException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new PetascopeException(ExceptionCode.InternalComponentError,
+                    "Failed resolving " + name + ". Reason: " + cause.getMessage(), (Exception) cause);
+        }
+    }
+
+    public synchronized void put(K key, V value) {
+        valuesMap.put(key, value);
+        while (valuesMap.size() > Math.max(ConfigManager.MAX_CRS_CACHE_SIZE, 1)) {
+            K eldest = valuesMap.keySet().iterator().next();
+            valuesMap.remove(eldest);
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return a copy of the cached entries, e.g: to write them to a file
+     */
+    public synchronized Map<K, V> asMap() {
+        return new LinkedHashMap<>(valuesMap);
+    }
+
+    public synchronized void clear() {
+        valuesMap.clear();
+    }
+
+    public synchronized int size() {
+        return valuesMap.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of misses which waited for the load of a concurrent request
+     */
+    public long getCollapsedMisses() {
+        return collapsedMisses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getLoads() {
+        return loads.get();
+    }
+
+    public long getFailedLoads() {
+        return failedLoads.get();
+    }
+
+    /**
+     * @return the average time in ms to resolve a value, 0 if nothing was resolved yet
+     */
+    public long getAverageLoadTime() {
+        long count = loads.get();
+        return count == 0 ? 0 : totalLoadTime.get() / count;
+    }
+
+    public long getMaxLoadTime() {
+        return maxLoadTime.get();
+    }
+
+    @Override
+    public String toString() {
+        List<String> statistics = new ArrayList<>();
+        statistics.add(this.size() + " entries");
+        statistics.add(hits.get() + " hits");
+        statistics.add(misses.get() + " misses (" + collapsedMisses.get() + " collapsed)");
+        statistics.add(evictions.get() + " evictions");
+        statistics.add(loads.get() + " loads (" + failedLoads.get() + " failed)");
+        statistics.add("average load time " + this.getAverageLoadTime() + " ms");
+        statistics.add("max load time " + maxLoadTime.get() + " ms");
+        return name + " cache: " + ListUtil.join(statistics, ", ");
+    }
+}
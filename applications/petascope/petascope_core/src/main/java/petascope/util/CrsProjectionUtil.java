@@ -27,9 +27,11 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import javax.imageio.ImageIO;
 import org.apache.commons.io.FileUtils;
@@ -62,7 +64,14 @@ public class CrsProjectionUtil {
 
     // caches SpatialReference objects, as computing them is relatively expensive
     // cf. https://gdal.org/java/org/gdal/osr/SpatialReference.html#ImportFromEPSG-int-
-    private static Map<Integer, SpatialReference> srMap = new HashMap<>();
+    private static final ConcurrentMap<Integer, SpatialReference> srMap = new ConcurrentHashMap<>();
+    
+    // sourceEPSGCode:targetEPSGCode -> idle CoordinateTransformation objects, as creating them is expensive too.
+    // NOTE: a CoordinateTransformation must not be used by multiple threads at the same time, so each thread
+    // takes one from the pool and gives it back when it is done.
+    private static final ConcurrentMap<String, Queue<CoordinateTransformation>> transformationsPool = new ConcurrentHashMap<>();
+    // keep at most this number of idle objects per pair of CRSs, the others are released
+    private static final int MAX_IDLE_TRANSFORMATIONS = 16;
     
     // used by gdal vrt for gdalwarp
     private static final String DUMMY_PNG_FOR_GDAL_VRT_FILE_PATH = ConfigManager.DEFAULT_PETASCOPE_DIR_TMP + "/dummy_file_for_gdal.vrt.png";
@@ -79,39 +88,99 @@ public class CrsProjectionUtil {
      * @return List<BigDecimal> Locations transformed to targetCRS (defined at construction time).
      */
     public static List<BigDecimal> transform(String sourceCrs, String targetCrs, double[] sourceCoords) throws WCSException, PetascopeException {
+        return transformPoints(sourceCrs, targetCrs, sourceCoords).get(0);
+    }
+    
+    /**
+     * Transform multiple XY points from sourceCRS to targetCRS in one GDAL call
+     * (e.g: the min and max corners of a bounding box).
+     *
+     * @param sourceCrs source CRS of axis
+     * @param targetCrs target CRS to project
+     * @param sourcePoints the XY coordinates of each point, e.g. [xMin,yMin], [xMax,yMax].
+     * @return the XY coordinates of each point in targetCRS, in the same order as sourcePoints.
+     */
+    public static List<List<BigDecimal>> transformPoints(String sourceCrs, String targetCrs, double[]... sourcePoints) throws WCSException, PetascopeException {
         // e.g: 4326, 32633
         int sourceCode = CrsUtil.getEpsgCodeAsInt(sourceCrs);
         int targetCode = CrsUtil.getEpsgCodeAsInt(targetCrs);
         
-        // In case the input CRS is YX axes order with GDAL version >= 3
-        double[] adjustedSourceCoords = adjustCoordinatesByGdalVersion(sourceCoords, sourceCrs);
+        // NOTE: GDAL transforms the points in place, each one has 3 values: X, Y and another value which is not used
+        double[][] points = new double[sourcePoints.length][];
+        for (int i = 0; i < sourcePoints.length; i++) {
+            // In case the input CRS is YX axes order with GDAL version >= 3
+            double[] adjustedSourceCoords = adjustCoordinatesByGdalVersion(sourcePoints[i], sourceCrs);
+            points[i] = new double[] {adjustedSourceCoords[0], adjustedSourceCoords[1], 0};
+        }
 
         // Use gdal native library to transform the coordinates from source crs to target crs
-        CoordinateTransformation coordTrans = CoordinateTransformation.CreateCoordinateTransformation(
-                getSpatialReference(sourceCode), getSpatialReference(targetCode));
-        if (coordTrans == null) {
-            throw new PetascopeException(ExceptionCode.InternalComponentError,
-                    "Failed creating coordinate transformation from " + sourceCrs + " to " + targetCrs);
+        CoordinateTransformation coordTrans = borrowTransformation(sourceCode, targetCode);
+        try {
+            coordTrans.TransformPoints(points);
+        } finally {
+            returnTransformation(sourceCode, targetCode, coordTrans);
         }
-        // This will returns 3 values, translated X, translated Y and another value which is not used
-        double[] translatedCoords = coordTrans.TransformPoint(adjustedSourceCoords[0], adjustedSourceCoords[1]);
         
-        // In case the output CRS is YX axes order with GDAL version >= 3
-        double[] adjustedTranslatedCoords = adjustCoordinatesByGdalVersion(translatedCoords, targetCrs);
+        List<List<BigDecimal>> results = new ArrayList<>(points.length);
+        for (int i = 0; i < points.length; i++) {
+            // In case the output CRS is YX axes order with GDAL version >= 3
+            double[] adjustedTranslatedCoords = adjustCoordinatesByGdalVersion(points[i], targetCrs);
 
-        List<BigDecimal> ret = new ArrayList<>(sourceCoords.length);
-        // NOTE: projection can return NaN which means cannot reproject from sourceCRS to targetCRS
-        // e.g: EPSG:3577 (75042.7273594 5094865.55794) to EPSG:4326
-        for (int i = 0; i < adjustedTranslatedCoords.length; i++) {
-            Double value = adjustedTranslatedCoords[i];
-            if (Double.isNaN(value) || Double.isInfinite(value)) {
-                throw new PetascopeException(ExceptionCode.InternalComponentError, 
-                        "Failed reprojecting XY coordinates '" + Arrays.toString(sourceCoords) + 
-                                "' from sourceCrs '" + sourceCrs + "' to targetCRS '" + targetCrs + ", result is " + value);
+            List<BigDecimal> ret = new ArrayList<>(adjustedTranslatedCoords.length);
+            // NOTE: projection can return NaN which means cannot reproject from sourceCRS to targetCRS
+            // e.g: EPSG:3577 (75042.7273594 5094865.55794) to EPSG:4326
+            for (int j = 0; j < adjustedTranslatedCoords.length; j++) {
+                Double value = adjustedTranslatedCoords[j];
+                if (Double.isNaN(value) || Double.isInfinite(value)) {
+                    throw new PetascopeException(ExceptionCode.InternalComponentError, 
+                            "Failed reprojecting XY coordinates '" + Arrays.toString(sourcePoints[i]) + 
+                                    "' from sourceCrs '" + sourceCrs + "' to targetCRS '" + targetCrs + ", result is " + value);
+                }
+                ret.add(new BigDecimal(value.toString()));
             }
-            ret.add(new BigDecimal(value.toString()));
+            results.add(ret);
+        }
+        return results;
+    }
+    
+    /**
+     * Take an idle CoordinateTransformation between the given EPSG codes from
+     * the pool, or create a new one if there is no idle one.
+     */
+    private static CoordinateTransformation borrowTransformation(int sourceCode, int targetCode) throws PetascopeException {
+        Queue<CoordinateTransformation> idleTransformations = transformationsPool.get(sourceCode + ":" + targetCode);
+        CoordinateTransformation coordTrans = idleTransformations == null ? null : idleTransformations.poll();
+        if (coordTrans != null) {
+            return coordTrans;
+        }
+        
+        SpatialReference sourceSR = getSpatialReference(sourceCode);
+        SpatialReference targetSR = getSpatialReference(targetCode);
+        // the cached SpatialReference objects are shared by all threads
+        synchronized (srMap) {
+            coordTrans = CoordinateTransformation.CreateCoordinateTransformation(sourceSR, targetSR);
+        }
+        if (coordTrans == null) {
+            throw new PetascopeException(ExceptionCode.InternalComponentError,
+                    "Failed creating coordinate transformation from EPSG:" + sourceCode + " to EPSG:" + targetCode);
+        }
+        return coordTrans;
+    }
+    
+    /**
+     * Give a CoordinateTransformation back to the pool, so it can be used by other threads.
+     */
+    private static void returnTransformation(int sourceCode, int targetCode, CoordinateTransformation coordTrans) {
+        String key = sourceCode + ":" + targetCode;
+        Queue<CoordinateTransformation> idleTransformations = transformationsPool.get(key);
+        if (idleTransformations == null) {
+            transformationsPool.putIfAbsent(key, new ArrayBlockingQueue<CoordinateTransformation>(MAX_IDLE_TRANSFORMATIONS));
+            idleTransformations = transformationsPool.get(key);
+        }
+        if (!idleTransformations.offer(coordTrans)) {
+            // enough idle ones are kept already
+            coordTrans.delete();
         }
-        return ret;
     }
     
     /**
@@ -300,9 +369,14 @@ public class CrsProjectionUtil {
     public static SpatialReference getSpatialReference(int code) throws PetascopeException {
         SpatialReference ret = srMap.get(code);
         if (ret == null) {
-            ret = new SpatialReference();
-            ret.ImportFromEPSG(code);
-            srMap.put(code, ret);
+            synchronized (srMap) {
+                ret = srMap.get(code);
+                if (ret == null) {
+                    ret = new SpatialReference();
+                    ret.ImportFromEPSG(code);
+                    srMap.put(code, ret);
+                }
+            }
         }
         return ret;
     }
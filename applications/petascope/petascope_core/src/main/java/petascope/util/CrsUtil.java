@@ -29,6 +29,11 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -124,9 +129,10 @@ public class CrsUtil {
     
 
     /* CACHES: avoid EPSG db and SECORE redundant access */
-    private static Map<String, CrsDefinition> parsedCRSs = new HashMap<String, CrsDefinition>();        // CRS definitions
-    private static Map<List<String>, Boolean> crsComparisons = new HashMap<List<String>, Boolean>();        // CRS equality tests
-    private static Map<List<String>, Long[]> gridIndexConversions = new HashMap<List<String>, Long[]>();         // subset2gridIndex conversions
+    private static final CrsCache<String, CrsDefinition> parsedCRSs = new CrsCache<>("CRS definitions");        // CRS definitions
+    private static final CrsCache<List<String>, Boolean> crsComparisons = new CrsCache<>("CRS comparisons");        // CRS equality tests
+    // separates the fields of a CRS definition in a line of the snapshot file
+    private static final String SNAPSHOT_SEPARATOR = "\t";
 
     private static final Logger log = LoggerFactory.getLogger(CrsUtil.class);
 
@@ -227,19 +233,35 @@ public class CrsUtil {
      */
     // (!!) Always use decomposeUri() output to feed this method: it currently understands single CRSs.
     public static CrsDefinition getCrsDefinition(String givenCrsUri) throws PetascopeException, SecoreException {
-        CrsDefinition crs = null;
-        List<List<String>> axes = new ArrayList<>();
-
         // Remove any possible slicing suffixes:
         givenCrsUri = givenCrsUri.replaceAll(SLICED_AXIS_SEPARATOR + ".*$", "").trim();
         // NOTE: as opengis.net/def/crs/EPSG/0 now is not SECORE anymore (without fully resolved CRS definition),
         // it will use the default version instead
         givenCrsUri = givenCrsUri.replace(OPENGIS_EPSG_URI, OPENGIS_EPSG_URI_DEFAULT_VERSION);
 
-        // Check first if the definition is already in cache:
-        if (CrsUri.isCached(givenCrsUri)) {
-            return CrsUri.getCachedDefinition(givenCrsUri);
-        }
+        // Check first if the definition is already in cache, otherwise only one of the concurrent requests asks SECORE:
+        final String crsUri = givenCrsUri;
+        return parsedCRSs.get(crsUri, new CrsCache.Loader<CrsDefinition>() {
+            @Override
+            public CrsDefinition load() throws PetascopeException, SecoreException {
+                CrsDefinition crs = parseCrsDefinition(crsUri);
+                saveCrsDefinitionsSnapshot(crsUri, crs);
+                return crs;
+            }
+        });
+    }
+
+    /**
+     * Parse the GML definition of a CRS which is not cached yet.
+     *
+     * @param givenCrsUri The URI of the /atomic/ CRS without slicing suffixes.
+     * @return The parsed CRS definition
+     * @throws PetascopeException
+     * @throws SecoreException
+     */
+    private static CrsDefinition parseCrsDefinition(String givenCrsUri) throws PetascopeException, SecoreException {
+        CrsDefinition crs = null;
+        List<List<String>> axes = new ArrayList<>();
 
         // Check if the URI syntax is valid
         if (!CrsUri.isValid(givenCrsUri)) {
@@ -465,13 +487,100 @@ public class CrsUtil {
             crs.addAxis(axisMetadata.get(0), axisMetadata.get(1), axisMetadata.get(2));
         }
 
-        // Cache the crs definition by the CRS URI
-        parsedCRSs.put(givenCrsUri, crs);
+        // NOTE: the crs definition is cached by the CRS URI in getCrsDefinition()
         log.trace("CRS URI {} is added into cache for future (inter-requests) use.", givenCrsUri);
 
         return crs;
     }
 
+    /**
+     * Load the CRS definitions resolved before petascope was restarted from
+     * the snapshot file (crs_cache_snapshot_file in petascope.properties), so
+     * they do not need to be requested from SECORE again.
+     */
+    public static void loadCrsDefinitionsSnapshot() {
+        if (ConfigManager.CRS_CACHE_SNAPSHOT_FILE.isEmpty()) {
+            return;
+        }
+        Path snapshotPath = Paths.get(ConfigManager.CRS_CACHE_SNAPSHOT_FILE);
+        if (!Files.exists(snapshotPath)) {
+            return;
+        }
+
+        int count = 0;
+        try {
+            for (String line : Files.readAllLines(snapshotPath, StandardCharsets.UTF_8)) {
+                if (line.trim().isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                // uri, authority, version, code, type, datum origin, then direction, abbreviation and uom of each axis
+                String[] fields = line.split(SNAPSHOT_SEPARATOR, -1);
+                if (fields.length < 9 || (fields.length - 6) % 3 != 0) {
+                    log.warn("Ignored invalid line in CRS definitions snapshot file '" + snapshotPath + "': " + line);
+                    continue;
+                }
+                CrsDefinition crs = new CrsDefinition(fields[1], fields[2], fields[3], fields[4]);
+                if (!fields[5].isEmpty()) {
+                    crs.setDatumOrigin(fields[5]);
+                }
+                for (int i = 6; i < fields.length; i += 3) {
+                    crs.addAxis(fields[i], fields[i + 1], fields[i + 2]);
+                }
+                parsedCRSs.put(fields[0], crs);
+                count++;
+            }
+        } catch (IOException ex) {
+            log.warn("Cannot read CRS definitions snapshot file '" + snapshotPath + "'. Reason: " + ex.getMessage());
+        }
+        log.info("Loaded " + count + " CRS definitions from snapshot file '" + snapshotPath + "'.");
+    }
+
+    /**
+     * Write all cached CRS definitions and a newly resolved one to the
+     * snapshot file, if it is configured.
+     */
+    private static synchronized void saveCrsDefinitionsSnapshot(String newCrsUri, CrsDefinition newCrs) {
+        if (ConfigManager.CRS_CACHE_SNAPSHOT_FILE.isEmpty()) {
+            return;
+        }
+        Map<String, CrsDefinition> crsDefinitionsMap = parsedCRSs.asMap();
+        crsDefinitionsMap.put(newCrsUri, newCrs);
+
+        List<String> lines = new ArrayList<>();
+        lines.add("# CRS definitions resolved by petascope, do not edit.");
+        for (Map.Entry<String, CrsDefinition> entry : crsDefinitionsMap.entrySet()) {
+            CrsDefinition crs = entry.getValue();
+            List<String> fields = new ArrayList<>();
+            fields.addAll(Arrays.asList(entry.getKey(), crs.getAuthority(), crs.getVersion(), crs.getCode(), crs.getType(),
+                                        crs.getDatumOrigin() == null ? "" : crs.getDatumOrigin()));
+            for (CrsDefinition.Axis axis : crs.getAxes()) {
+                fields.addAll(Arrays.asList(axis.getDirection(), axis.getAbbreviation(), axis.getUoM()));
+            }
+            String line = ListUtil.join(fields, SNAPSHOT_SEPARATOR);
+            // a definition which cannot be written in one line is simply resolved again after restart
+            if (!line.contains("\n") && !line.contains("\r") && line.split(SNAPSHOT_SEPARATOR, -1).length == fields.size()) {
+                lines.add(line);
+            }
+        }
+
+        // write to a temporary file first, so a crash does not leave a truncated snapshot
+        Path snapshotPath = Paths.get(ConfigManager.CRS_CACHE_SNAPSHOT_FILE);
+        Path tmpPath = Paths.get(ConfigManager.CRS_CACHE_SNAPSHOT_FILE + ".tmp");
+        try {
+            Files.write(tmpPath, lines, StandardCharsets.UTF_8);
+            Files.move(tmpPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            log.warn("Cannot write CRS definitions snapshot file '" + snapshotPath + "'. Reason: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * @return the statistics of the CRS caches, e.g: to check the latency of SECORE
+     */
+    public static String getCachesStatistics() {
+        return parsedCRSs.toString() + "; " + crsComparisons.toString();
+    }
+
     /**
      * Try to build XML elements tree from CRS URI (try with all provided SECORE
      * configurations in petascope.properties if it still returns NULL for
@@ -1210,7 +1319,7 @@ public class CrsUtil {
          * @throws SecoreException
          */
         public static boolean isCached(String uri) throws PetascopeException, SecoreException {
-            if (parsedCRSs.containsKey(uri)) {
+            if (parsedCRSs.getIfPresent(uri) != null) {
                 return true;
             }
             log.trace(uri + " CRS needs to be parsed via resolver.");
@@ -1291,7 +1400,7 @@ public class CrsUtil {
          * @throws SecoreException
          * @return true if uri1 and uri2 point to the same GML definition
          */
-        public static boolean areEquivalent(String uri1, String uri2) throws PetascopeException, SecoreException {
+        public static boolean areEquivalent(final String uri1, final String uri2) throws PetascopeException, SecoreException {
             //return getAuthority(uri1).equals(getAuthority(uri2))
             //        && getVersion(uri1).equals(getVersion(uri2))
             //        &&    getCode(uri1).equals(getCode(uri2));
@@ -1309,36 +1418,32 @@ public class CrsUtil {
             List<String> URLs = new ArrayList<String>(2);
             URLs.addAll(Arrays.asList(uri1, uri2));
 
-            if (crsComparisons.containsKey(URLs)) {
-                // Comparison is cached                
-                return crsComparisons.get(URLs);
-            } else {
-                // New comparison: need to ask SECORE(s)
-                log.trace(getAuthority(uri1) + "(" + getVersion(uri1) + "):" + getCode(uri1) + "/"
-                        + getAuthority(uri2) + "(" + getVersion(uri2) + "):" + getCode(uri2) + " "
-                        + "comparison is *not* cached: need to ask SECORE.");
-                Boolean equal = null;
-                for (String resolverUri : ConfigManager.SECORE_URLS) {
-                    try {
-                        equal = checkEquivalence(resolverUri, uri1, uri2);
-                        break; // No need to check against any resolver
-                    } catch (SecoreException ex) {
-                        // Skip to next loop cycle: try with an other configured resolver URI.
-                        log.warn(ex.getMessage());
-                    } catch (PetascopeException ex) {
-                        throw ex;
+            return crsComparisons.get(URLs, new CrsCache.Loader<Boolean>() {
+                @Override
+                public Boolean load() throws PetascopeException, SecoreException {
+                    // New comparison: need to ask SECORE(s)
+                    log.trace(getAuthority(uri1) + "(" + getVersion(uri1) + "):" + getCode(uri1) + "/"
+                            + getAuthority(uri2) + "(" + getVersion(uri2) + "):" + getCode(uri2) + " "
+                            + "comparison is *not* cached: need to ask SECORE.");
+                    Boolean equal = null;
+                    for (String resolverUri : ConfigManager.SECORE_URLS) {
+                        try {
+                            equal = checkEquivalence(resolverUri, uri1, uri2);
+                            break; // No need to check against any resolver
+                        } catch (SecoreException ex) {
+                            // Skip to next loop cycle: try with an other configured resolver URI.
+                            log.warn(ex.getMessage());
+                        }
                     }
-                }
 
-                if (null == equal) {
-                    throw new SecoreException(ExceptionCode.InternalComponentError,
-                            "None of the configured CRS URIs resolvers seems available: please check network or add further fallback endpoints. Please see server logs for further info.");
-                }
+                    if (null == equal) {
+                        throw new SecoreException(ExceptionCode.InternalComponentError,
+                                "None of the configured CRS URIs resolvers seems available: please check network or add further fallback endpoints. Please see server logs for further info.");
+                    }
 
-                // cache the comparison
-                crsComparisons.put(URLs, equal);
-                return equal;
-            }
+                    return equal;
+                }
+            });
         }
 
         /**
@@ -1544,7 +1649,7 @@ public class CrsUtil {
          * @throws SecoreException
          */
         public static CrsDefinition getCachedDefinition(String uri) throws PetascopeException, SecoreException {
-            CrsDefinition crsDefinition = parsedCRSs.get(uri);
+            CrsDefinition crsDefinition = parsedCRSs.getIfPresent(uri);
             return crsDefinition;
         }
 
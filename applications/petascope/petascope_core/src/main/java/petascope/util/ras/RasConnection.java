@@ -0,0 +1,144 @@
+/*
+ * This file is part of rasdaman community.
+ *
+ * Rasdaman community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Rasdaman community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU  General Public License for more details.
+ *
+ * You should have received a copy of the GNU  General Public License
+ * along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2003 - 2014 Peter Baumann / rasdaman GmbH.
+ *
+ * For more information please see <http://www.rasdaman.org>
+ * or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+package petascope.util.ras;
+
+import org.odmg.Database;
+import org.rasdaman.config.ConfigManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import petascope.exceptions.ExceptionCode;
+import petascope.rasdaman.exceptions.RasdamanException;
+import rasj.RasImplementation;
+
+/**
+ * An opened database session to rasdaman (connected to rasmgr, database opened
+ * on a rasserver) which can execute several transactions one after another.
+ * A connection must be used only by one thread at a time.
+ */
+public class RasConnection {
+
+    private static final Logger log = LoggerFactory.getLogger(RasConnection.class);
+
+    private final RasImplementation impl;
+    private final Database db;
+    private final String username;
+    private final boolean rw;
+    // key of the pool which counts this connection against its limit, null if it is not pooled
+    private String poolKey;
+    // set to false when the session cannot be reused anymore (e.g. lost connection to rasserver)
+    private volatile boolean valid = true;
+    private volatile long lastUsedTime;
+
+    private RasConnection(RasImplementation impl, Database db, String username, boolean rw) {
+        this.impl = impl;
+        this.db = db;
+        this.username = username;
+        this.rw = rw;
+        this.lastUsedTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Connect to rasmgr with the given credentials and open the configured
+     * rasdaman database in read-only or read-write mode.
+     */
+    public static RasConnection open(String username, String password, boolean rw, String query) throws RasdamanException {
+        RasImplementation impl = new RasImplementation(ConfigManager.RASDAMAN_URL);
+        impl.setUserIdentification(username, password);
+
+        Database db = impl.newDatabase();
+        try {
+            db.open(ConfigManager.RASDAMAN_DATABASE,
+                    rw ? Database.OPEN_READ_WRITE : Database.OPEN_READ_ONLY);
+        } catch (Exception ex) {
+            log.error("Failed opening " + (rw ? "rw" : "ro") + " database connection to rasdaman: " + ex.getMessage());
+            throw new RasdamanException(ExceptionCode.RasdamanUnavailable, ex, query);
+        }
+
+        return new RasConnection(impl, db, username, rw);
+    }
+
+    /**
+     * Close the database and disconnect from rasmgr.
+     */
+    public void close() throws RasdamanException {
+        this.valid = false;
+        try {
+            db.close();
+        } catch (Exception ex) {
+            throw new RasdamanException("Failed closing rasdaman db connection: " + ex.getMessage(), null);
+        }
+    }
+
+    /**
+     * Close the connection and only log a warning if this fails, used when the
+     * connection is discarded anyway.
+     */
+    public void closeQuietly() {
+        try {
+            this.close();
+        } catch (RasdamanException ex) {
+            log.warn(ex.getExceptionText());
+        }
+    }
+
+    /**
+     * Mark this connection as not reusable, it will be closed instead of returned to the pool.
+     */
+    public void invalidate() {
+        this.valid = false;
+    }
+
+    /**
+     * @return true if the session was not invalidated and rasserver still answers the keep alive messages.
+     */
+    public boolean isAlive() {
+        return this.valid && this.impl.isConnectionAlive();
+    }
+
+    public void touch() {
+        this.lastUsedTime = System.currentTimeMillis();
+    }
+
+    public long getLastUsedTime() {
+        return lastUsedTime;
+    }
+
+    public RasImplementation getImplementation() {
+        return impl;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    String getPoolKey() {
+        return poolKey;
+    }
+
+    void setPoolKey(String poolKey) {
+        this.poolKey = poolKey;
+    }
+
+    public boolean isReadWrite() {
+        return rw;
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * This file is part of rasdaman community.
+ *
+ * Rasdaman community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Rasdaman community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU  General Public License for more details.
+ *
+ * You should have received a copy of the GNU  General Public License
+ * along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2003 - 2014 Peter Baumann / rasdaman GmbH.
+ *
+ * For more information please see <http://www.rasdaman.org>
+ * or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+package petascope.util.ras;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.rasdaman.config.ConfigManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import petascope.exceptions.ExceptionCode;
+import petascope.rasdaman.exceptions.RasdamanException;
+
+/**
+ * Bounded pool of read-only rasdaman sessions, so that consecutive queries
+ * (e.g. WMS GetMap tiles) do not have to connect to rasmgr and open the
+ * database on a rasserver for every query.
+ *
+ * Connections are kept per user; at most
+ * ConfigManager.RASDAMAN_CONNECTION_POOL_SIZE read-only connections (idle or
+ * in use) are open per user, as every opened session occupies one rasserver;
+ * further queries wait until a connection is returned. Connections idle
+ * for longer than ConfigManager.RASDAMAN_CONNECTION_POOL_MAX_IDLE_TIME are closed.
+ * Read-write connections are never pooled.
+ */
+public class RasConnectionPool {
+
+    private static final Logger log = LoggerFactory.getLogger(RasConnectionPool.class);
+
+    private static final RasConnectionPool instance = new RasConnectionPool();
+
+    // Maximum time in milliseconds to wait for a pooled connection when all connections of the user are in use
+    private static final long BORROW_TIMEOUT = 60000;
+    // How often in milliseconds a waiting query checks if a connection of the user was closed
+    private static final long BORROW_POLL_INTERVAL = 100;
+
+    // digest of the credentials -> read-only connections of the user
+    private final ConcurrentMap<String, UserConnections> userConnections = new ConcurrentHashMap<>();
+
+    private volatile ScheduledExecutorService evictionExecutor;
+
+    /* ***** Pool metrics ***** */
+    private final AtomicLong createdConnections = new AtomicLong();
+    private final AtomicLong reusedConnections = new AtomicLong();
+    private final AtomicLong closedConnections = new AtomicLong();
+    private final AtomicLong invalidConnections = new AtomicLong();
+
+    private RasConnectionPool() {
+    }
+
+    public static RasConnectionPool getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return true if read-only connections should be pooled.
+     */
+    public boolean isEnabled() {
+        return ConfigManager.RASDAMAN_CONNECTION_POOL_SIZE > 0;
+    }
+
+    /**
+     * Get an opened connection for the given user and access mode. A pooled
+     * read-only connection is returned if a healthy one is available, otherwise
+     * a new connection is opened; if the user has already the maximum number of
+     * read-only connections open, wait until one of them is returned.
+     */
+    public RasConnection borrowConnection(String username, String password, boolean rw, String query) throws RasdamanException {
+        if (rw || !this.isEnabled()) {
+            RasConnection connection = RasConnection.open(username, password, rw, query);
+            createdConnections.incrementAndGet();
+            return connection;
+        }
+
+        String key = getPoolKey(username, password);
+        UserConnections connections = this.getUserConnections(key);
+        long deadline = System.currentTimeMillis() + BORROW_TIMEOUT;
+        RasConnection connection = connections.idle.pollFirst();
+        while (true) {
+            if (connection != null) {
+                if (connection.isAlive()) {
+                    reusedConnections.incrementAndGet();
+                    connection.touch();
+                    return connection;
+                }
+                // e.g: rasserver was restarted, the keep alive failed
+                invalidConnections.incrementAndGet();
+                this.closeConnection(connection);
+            } else if (connections.openConnections.tryAcquire()) {
+                try {
+                    connection = RasConnection.open(username, password, rw, query);
+                } catch (RasdamanException ex) {
+                    connections.openConnections.release();
+                    throw ex;
+                }
+                connection.setPoolKey(key);
+                createdConnections.incrementAndGet();
+                return connection;
+            } else {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new RasdamanException(ExceptionCode.RasdamanUnavailable,
+                            "Timed out waiting for a free rasdaman connection of user '" + username + "' after "
+                            + (BORROW_TIMEOUT / 1000) + " seconds.", query);
+                }
+                try {
+                    // a connection of the user may also be closed instead of returned, so check the limit again regularly
+                    connection = connections.idle.pollFirst(Math.min(remaining, BORROW_POLL_INTERVAL), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new RasdamanException(ExceptionCode.RasdamanUnavailable,
+                            "Interrupted while waiting for a free rasdaman connection.", ex, query);
+                }
+                continue;
+            }
+            connection = connections.idle.pollFirst();
+        }
+    }
+
+    /**
+     * Return a connection after its transaction is finished. It is kept for
+     * reuse if it is a pooled read-only connection and still healthy,
+     * otherwise it is closed.
+     *
+     * @param reusable false if the connection is in an unknown state (e.g: the query failed with a connection error)
+     */
+    public void releaseConnection(RasConnection connection, boolean reusable) throws RasdamanException {
+        if (reusable && connection.getPoolKey() != null && this.isEnabled() && connection.isAlive()) {
+            connection.touch();
+            this.getUserConnections(connection.getPoolKey()).idle.offerFirst(connection);
+            this.startEvictionExecutor();
+            return;
+        }
+
+        closedConnections.incrementAndGet();
+        try {
+            connection.close();
+        } finally {
+            this.releasePermit(connection);
+        }
+    }
+
+    /**
+     * Stop the eviction of idle connections and close all idle connections, e.g: when petascope is stopped.
+     */
+    public void closeAll() {
+        synchronized (this) {
+            if (evictionExecutor != null) {
+                evictionExecutor.shutdownNow();
+                evictionExecutor = null;
+            }
+        }
+        for (UserConnections connections : userConnections.values()) {
+            RasConnection connection;
+            while ((connection = connections.idle.pollFirst()) != null) {
+                this.closeConnection(connection);
+            }
+        }
+    }
+
+    /**
+     * Close connections which have not been used for longer than the configured idle time,
+     * so that they do not occupy rasservers needed by other clients.
+     */
+    void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        for (UserConnections connections : userConnections.values()) {
+            Iterator<RasConnection> iterator = connections.idle.descendingIterator();
+            while (iterator.hasNext()) {
+                RasConnection connection = iterator.next();
+                boolean expired = now - connection.getLastUsedTime() > ConfigManager.RASDAMAN_CONNECTION_POOL_MAX_IDLE_TIME;
+                if ((expired || !connection.isAlive()) && connections.idle.removeFirstOccurrence(connection)) {
+                    this.closeConnection(connection);
+                }
+            }
+        }
+    }
+
+    public long getCreatedConnections() {
+        return createdConnections.get();
+    }
+
+    public long getReusedConnections() {
+        return reusedConnections.get();
+    }
+
+    public long getClosedConnections() {
+        return closedConnections.get();
+    }
+
+    public long getInvalidConnections() {
+        return invalidConnections.get();
+    }
+
+    public int getIdleConnectionsCount() {
+        int result = 0;
+        for (UserConnections connections : userConnections.values()) {
+            result += connections.idle.size();
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "rasdaman connection pool: created=" + this.getCreatedConnections()
+                + ", reused=" + this.getReusedConnections()
+                + ", closed=" + this.getClosedConnections()
+                + ", invalid=" + this.getInvalidConnections()
+                + ", idle=" + this.getIdleConnectionsCount();
+    }
+
+    private UserConnections getUserConnections(String key) {
+        UserConnections connections = userConnections.get(key);
+        if (connections == null) {
+            UserConnections newConnections = new UserConnections(ConfigManager.RASDAMAN_CONNECTION_POOL_SIZE);
+            connections = userConnections.putIfAbsent(key, newConnections);
+            if (connections == null) {
+                connections = newConnections;
+            }
+        }
+        return connections;
+    }
+
+    private void closeConnection(RasConnection connection) {
+        closedConnections.incrementAndGet();
+        connection.closeQuietly();
+        this.releasePermit(connection);
+    }
+
+    /**
+     * Allow the user of a closed pooled connection to open a new one.
+     */
+    private void releasePermit(RasConnection connection) {
+        String key = connection.getPoolKey();
+        if (key != null) {
+            connection.setPoolKey(null);
+            this.getUserConnections(key).openConnections.release();
+        }
+    }
+
+    /**
+     * The pool key is the SHA-256 hash of the credentials in hexadecimal, so
+     * that passwords are not kept in memory for the lifetime of the pool.
+     */
+    private static String getPoolKey(String username, String password) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            byte[] digest = messageDigest.digest((username + "\0" + password).getBytes("UTF-8"));
+            StringBuilder result = new StringBuilder();
+            for (byte b : digest) {
+                result.append(String.format("%02x", b));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException ex) {
+            // both are always supported by the JVM
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private void startEvictionExecutor() {
+        if (evictionExecutor == null) {
+            synchronized (this) {
+                if (evictionExecutor == null) {
+                    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "rasdaman-connection-pool-eviction");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                    long period = Math.max(1000, ConfigManager.RASDAMAN_CONNECTION_POOL_MAX_IDLE_TIME / 2);
+                    executor.scheduleWithFixedDelay(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                evictIdleConnections();
+                                log.debug(RasConnectionPool.this.toString());
+                            } catch (Exception ex) {
+                                log.warn("Failed evicting idle rasdaman connections. Reason: " + ex.getMessage());
+                            }
+                        }
+                    }, period, period, TimeUnit.MILLISECONDS);
+                    evictionExecutor = executor;
+                }
+            }
+        }
+    }
+
+    /**
+     * The idle read-only connections of a user, most recently used first, and
+     * the number of further read-only connections the user may open.
+     */
+    private static class UserConnections {
+
+        private final LinkedBlockingDeque<RasConnection> idle = new LinkedBlockingDeque<>();
+        private final Semaphore openConnections;
+
+        private UserConnections(int maxConnections) {
+            this.openConnections = new Semaphore(maxConnections);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * This file is part of rasdaman community.
+ *
+ * Rasdaman community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Rasdaman community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU  General Public License for more details.
+ *
+ * You should have received a copy of the GNU  General Public License
+ * along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2003 - 2014 Peter Baumann / rasdaman GmbH.
+ *
+ * For more information please see <http://www.rasdaman.org>
+ * or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+package petascope.util.ras;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import org.odmg.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import petascope.rasdaman.exceptions.RasdamanException;
+import rasj.RasStreamedMDD;
+import rasj.RasStreamedQueryResult;
+
+/**
+ * Result of a rasql query which is read from rasdaman while it is written to
+ * the client, instead of being materialized in memory first. The transaction
+ * and connection used by the query are kept open until the result is closed.
+ *
+ * As with RasUtil.getRasqlResultAsBytes(), only the last MDD / scalar of the
+ * result collection is returned.
+ */
+public class RasStreamedResult implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(RasStreamedResult.class);
+
+    /**
+     * Converts the result while it is written, e.g: to embed it in a GML
+     * coverage.
+     */
+    public interface Encoder {
+
+        /**
+         * @return a stream which writes the encoded result to os; it is closed
+         * when the whole result was written to it, which must not close os.
+         */
+        OutputStream encode(OutputStream os) throws IOException;
+    }
+
+    private final RasConnection connection;
+    private final Transaction tr;
+    private final RasStreamedQueryResult result;
+    private final String query;
+    // null if the result is returned as it is
+    private Encoder encoder;
+    private boolean closed = false;
+    // set to true once the complete result has been read from rasdaman
+    private boolean finished = false;
+
+    RasStreamedResult(RasConnection connection, Transaction tr, RasStreamedQueryResult result, String query) {
+        this.connection = connection;
+        this.tr = tr;
+        this.result = result;
+        this.query = query;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setEncoder(Encoder encoder) {
+        this.encoder = encoder;
+    }
+
+    /**
+     * Write the result to the given output stream, return the number of written bytes.
+     */
+    public synchronized long writeTo(OutputStream os) throws IOException {
+        OutputStream target = encoder != null ? encoder.encode(os) : os;
+        long writtenBytes = 0;
+        if (result.isMDDCollection()) {
+            RasStreamedMDD mdd = this.nextLastMDD();
+            if (mdd != null) {
+                writtenBytes = mdd.writeTo(target);
+            }
+        } else {
+            byte[] bytes = this.getScalarBytes();
+            target.write(bytes);
+            writtenBytes = bytes.length;
+        }
+        if (encoder != null) {
+            target.close();
+        }
+        os.flush();
+        finished = true;
+        
+        return writtenBytes;
+    }
+
+    /**
+     * Read the complete result in memory (only for results which cannot be streamed to the client directly).
+     */
+    public synchronized byte[] toByteArray() throws IOException {
+        byte[] bytes = new byte[0];
+        if (result.isMDDCollection()) {
+            RasStreamedMDD mdd = this.nextLastMDD();
+            if (mdd != null) {
+                bytes = mdd.readFully();
+            }
+        } else {
+            bytes = this.getScalarBytes();
+        }
+        finished = true;
+        
+        return this.encode(bytes);
+    }
+
+    private byte[] encode(byte[] bytes) throws IOException {
+        if (encoder == null) {
+            return bytes;
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length + 4096);
+        try (OutputStream target = encoder.encode(outputStream)) {
+            target.write(bytes);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Skip all MDDs of the result except the last one, which is returned (null if the collection is empty).
+     */
+    private RasStreamedMDD nextLastMDD() throws IOException {
+        int numberOfMDDs = result.getNumberOfMDDs();
+        RasStreamedMDD mdd = null;
+        for (int i = 0; i < numberOfMDDs; i++) {
+            // previous MDDs are skipped on the stream without being stored
+            mdd = result.nextMDD();
+        }
+        return mdd;
+    }
+
+    private byte[] getScalarBytes() {
+        byte[] bytes = new byte[0];
+        List<String> scalars = new RasQueryResult(result.getResult()).getScalars();
+        if (!scalars.isEmpty()) {
+            bytes = scalars.get(scalars.size() - 1).getBytes(Charset.forName("UTF-8"));
+        }
+        return bytes;
+    }
+
+    /**
+     * Finish the transaction and return the connection to the pool; the connection
+     * is reused only if the result was read completely. Otherwise the rest of the
+     * result is not read, the transaction is aborted and the connection closed.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        boolean reusable = false;
+        try {
+            result.close();
+            if (finished) {
+                tr.commit();
+            } else {
+                tr.abort();
+            }
+            reusable = finished;
+        } catch (Exception ex) {
+            log.warn("Failed closing rasdaman transaction of streamed query '" + query + "': " + ex.getMessage());
+        } finally {
+            try {
+                RasConnectionPool.getInstance().releaseConnection(connection, reusable);
+            } catch (RasdamanException ex) {
+                log.warn(ex.getExceptionText());
+            }
+        }
+    }
+
+    /**
+     * Read the result into a byte array and close it.
+     */
+    public static byte[] toByteArrayAndClose(RasStreamedResult streamedResult) throws IOException {
+        try {
+            return streamedResult.toByteArray();
+        } finally {
+            streamedResult.close();
+        }
+    }
+}
@@ -23,6 +23,12 @@ package petascope.util.ras;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -33,10 +39,13 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import org.odmg.Database;
 import org.odmg.ODMGException;
 import org.odmg.OQLQuery;
 import org.odmg.Transaction;
@@ -54,6 +63,7 @@ import petascope.util.ListUtil;
 import static petascope.util.ras.RasConstants.RASQL_VERSION;
 import rasj.RasImplementation;
 import rasj.odmg.RasBag;
+import rasj.odmg.RasOQLQuery;
 import static petascope.util.ras.RasConstants.RASQL_BOUND_SEPARATION;
 import static petascope.util.ras.RasConstants.RASQL_OPEN_SUBSETS;
 import static petascope.util.ras.RasConstants.RASQL_CLOSE_SUBSETS;
@@ -70,6 +80,10 @@ public class RasUtil {
 
     private static final Logger log = LoggerFactory.getLogger(RasUtil.class);
 
+    // decodes the results of asynchronous queries and completes them, as their commit/abort are blocking
+    // calls to rasdaman; created on first use, when the configured number of parallel queries is known
+    private static volatile ExecutorService asyncQueryExecutor;
+
     /**
      * Execute a RasQL query with configured credentials.
      */
@@ -77,16 +91,6 @@ public class RasUtil {
         return executeRasqlQuery(query, ConfigManager.RASDAMAN_USER, ConfigManager.RASDAMAN_PASS, false);
     }
     
-    private static void closeDB(Database db) throws RasdamanException {
-        if (db != null) {
-            try {
-                db.close();
-            } catch (Exception ex) {
-                throw new RasdamanException("Failed closing rasdaman db connection: " + ex.getMessage(), null);
-            }
-        }
-    }
-    
     private static void abortTR(Transaction tr) throws RasdamanException {
         if (tr != null) {
             try {
@@ -104,9 +108,24 @@ public class RasUtil {
         
         String mIntervals = "[0:" + (bytes.length - 1) + "]";
         // with cell length = 1 (byte)
-        RasGMArray rasGMArray = new RasGMArray(new RasMInterval(mIntervals), 1);
-        rasGMArray.setArray(bytes);
-        rasGMArray.setObjectTypeName("GreyString");
+        return createRasGMArray(mIntervals, 1, "GreyString", bytes);
+    }
+
+    /**
+     * Create a RasGMArray of an MDD type from its cell values, which are
+     * stored in big endian byte order (as sent by all Java clients), the last
+     * axis of the domain varying fastest.
+     *
+     * @param domain the spatial domain of the array, e.g: [0:9,0:19]
+     * @param cellSize the size of a cell in bytes
+     * @param mddType the rasdaman MDD type of the array, e.g: FloatImage
+     * @param cells the cell values
+     */
+    public static RasGMArray createRasGMArray(String domain, long cellSize, String mddType, byte[] cells) throws RasResultIsNoIntervalException {
+        // the cells are set afterwards, so they are not allocated twice
+        RasGMArray rasGMArray = new RasGMArray(new RasMInterval(domain), cellSize, false);
+        rasGMArray.setArray(cells);
+        rasGMArray.setObjectTypeName(mddType);
         
         return rasGMArray;
     }
@@ -132,18 +151,10 @@ public class RasUtil {
         final long start = System.currentTimeMillis();
         log.info("Executing rasql query: " + query);
 
-        RasImplementation impl = new RasImplementation(ConfigManager.RASDAMAN_URL);
-        impl.setUserIdentification(username, password);
-
-        Database db = impl.newDatabase();
-        try {
-            // open db
-            db.open(ConfigManager.RASDAMAN_DATABASE, 
-                    rw ? Database.OPEN_READ_WRITE : Database.OPEN_READ_ONLY);
-        } catch (Exception ex) {
-            log.error("Failed opening " + (rw ? "rw" : "ro") + " database connection to rasdaman: " + ex.getMessage());
-            throw new RasdamanException(ExceptionCode.RasdamanUnavailable, ex, query);
-        }
+        RasConnectionPool connectionPool = RasConnectionPool.getInstance();
+        // read-only connections are reused from the pool if possible
+        RasConnection connection = connectionPool.borrowConnection(username, password, rw, query);
+        RasImplementation impl = connection.getImplementation();
 
         Transaction tr = null;
         try {
@@ -152,7 +163,7 @@ public class RasUtil {
             tr.begin();
         } catch (Exception ex) {
             log.error("Failed opening " + (rw ? "rw" : "ro") + " transaction to rasdaman: " + ex.getMessage());
-            closeDB(db);
+            connectionPool.releaseConnection(connection, false);
             throw new RasdamanException(ExceptionCode.RasdamanUnavailable, ex, query);
         }
         
@@ -167,16 +178,21 @@ public class RasUtil {
             // not really supposed to ever throw an exception
             log.error("Failed creating query object: " + ex.getMessage());
             abortTR(tr);
-            closeDB(db);
+            connectionPool.releaseConnection(connection, false);
             throw new RasdamanException(ExceptionCode.InternalComponentError, ex, query);
         }
         
         Object ret = null;
+        // only reuse the connection if the transaction was finished properly
+        boolean reusable = false;
         try {
             ret = q.execute();
             tr.commit();
+            reusable = true;
         } catch (ODMGException ex) {
             abortTR(tr);
+            // query failed, but the session is still usable
+            reusable = true;
             if (ex.getMessage().contains("CREATE: Collection name exists already.")) {
                 throw new RasdamanCollectionExistsException(ExceptionCode.CollectionExists, query, ex);
             } else if (ex.getMessage().contains("Collection name is unknown.")) {
@@ -198,16 +214,209 @@ public class RasUtil {
                     ex.getMessage(), ex, query);
             }
         } finally {
-            closeDB(db);
+            connectionPool.releaseConnection(connection, reusable);
         }
 
         final long end = System.currentTimeMillis();
         final long totalTime = end - start;
         log.info("Rasql query executed in " + String.valueOf(totalTime) + " ms.");
+        if (connectionPool.isEnabled()) {
+            log.debug(connectionPool.toString());
+        }
 
         return ret;
     }
 
+    /**
+     * Executes a read-only rasql query with the configured credentials and returns
+     * its result as a stream; errors of the query are thrown by this method already,
+     * so that they can be reported before anything is written to the client.
+     * The returned result must be closed by the caller.
+     *
+     * @param query rasql query string
+     * @return the streamed result from query
+     */
+    public static RasStreamedResult executeRasqlQueryStreamed(String query) throws PetascopeException {
+        final long start = System.currentTimeMillis();
+        log.info("Executing streamed rasql query: " + query);
+
+        RasConnectionPool connectionPool = RasConnectionPool.getInstance();
+        RasConnection connection = connectionPool.borrowConnection(ConfigManager.RASDAMAN_USER, ConfigManager.RASDAMAN_PASS, false, query);
+        RasImplementation impl = connection.getImplementation();
+
+        Transaction tr = null;
+        try {
+            tr = impl.newTransaction();
+            tr.begin();
+        } catch (Exception ex) {
+            log.error("Failed opening ro transaction to rasdaman: " + ex.getMessage());
+            connectionPool.releaseConnection(connection, false);
+            throw new RasdamanException(ExceptionCode.RasdamanUnavailable, ex, query);
+        }
+
+        RasStreamedResult ret = null;
+        boolean reusable = false;
+        try {
+            OQLQuery q = impl.newOQLQuery();
+            q.create(query);
+            if (!(q instanceof RasOQLQuery)) {
+                throw new RasdamanException(ExceptionCode.InternalComponentError, 
+                        "Streaming query results is not supported by the rasdaman client implementation.", query);
+            }
+            ret = new RasStreamedResult(connection, tr, ((RasOQLQuery) q).executeStreamed(), query);
+        } catch (ODMGException ex) {
+            abortTR(tr);
+            reusable = true;
+            if (ex.getMessage().contains("Collection name is unknown.")) {
+                throw new RasdamanCollectionDoesNotExistException(ExceptionCode.CollectionDoesNotExist, query, ex);
+            } else {
+                throw new RasdamanException(ExceptionCode.RasdamanRequestFailed, ex.getMessage(), ex, query);
+            }
+        } catch (RasdamanException ex) {
+            abortTR(tr);
+            throw ex;
+        } catch (Exception ex) {
+            abortTR(tr);
+            throw new RasdamanException(ExceptionCode.RasdamanRequestFailed, ex.getMessage(), ex, query);
+        } finally {
+            if (ret == null) {
+                connectionPool.releaseConnection(connection, reusable);
+            }
+        }
+
+        log.info("Streamed rasql query started in " + String.valueOf(System.currentTimeMillis() - start) + " ms.");
+        return ret;
+    }
+
+    /**
+     * Executes a read-only rasql query with the configured credentials without waiting
+     * for its result, so that many queries can be run in parallel on the pooled
+     * connections without a thread blocked for each of them. The connection is given
+     * back to the pool when the returned future completes; cancelling the future aborts
+     * the query and closes the connection.
+     *
+     * @param query rasql query string
+     * @return the future result from query, failing with a RasdamanException
+     */
+    public static ListenableFuture<Object> executeRasqlQueryAsync(final String query) throws PetascopeException {
+        final long start = System.currentTimeMillis();
+        log.info("Executing asynchronous rasql query: " + query);
+
+        final RasConnectionPool connectionPool = RasConnectionPool.getInstance();
+        final RasConnection connection = connectionPool.borrowConnection(ConfigManager.RASDAMAN_USER, ConfigManager.RASDAMAN_PASS, false, query);
+        RasImplementation impl = connection.getImplementation();
+
+        final Transaction tr;
+        try {
+            tr = impl.newTransaction();
+            tr.begin();
+        } catch (Exception ex) {
+            log.error("Failed opening ro transaction to rasdaman: " + ex.getMessage());
+            connectionPool.releaseConnection(connection, false);
+            throw new RasdamanException(ExceptionCode.RasdamanUnavailable, ex, query);
+        }
+
+        final ListenableFuture<Object> queryResult;
+        try {
+            OQLQuery q = impl.newOQLQuery();
+            q.create(query);
+            if (!(q instanceof RasOQLQuery)) {
+                throw new RasdamanException(ExceptionCode.InternalComponentError,
+                        "Asynchronous query execution is not supported by the rasdaman client implementation.", query);
+            }
+            queryResult = ((RasOQLQuery) q).executeAsync(getAsyncQueryExecutor());
+        } catch (Exception ex) {
+            abortTR(tr);
+            connectionPool.releaseConnection(connection, ex instanceof ODMGException);
+            if (ex instanceof RasdamanException) {
+                throw (RasdamanException) ex;
+            }
+            throw new RasdamanException(ExceptionCode.RasdamanRequestFailed, ex.getMessage(), ex, query);
+        }
+
+        final SettableFuture<Object> ret = SettableFuture.create();
+        Futures.addCallback(queryResult, new FutureCallback<Object>() {
+            @Override
+            public void onSuccess(Object result) {
+                boolean reusable = false;
+                try {
+                    tr.commit();
+                    reusable = true;
+                    log.info("Asynchronous rasql query executed in " + String.valueOf(System.currentTimeMillis() - start) + " ms.");
+                    ret.set(result);
+                } catch (Exception ex) {
+                    ret.setException(new RasdamanException(ExceptionCode.RasdamanRequestFailed, ex.getMessage(), ex, query));
+                } finally {
+                    releaseConnectionQuietly(connectionPool, connection, reusable);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                // only a query rejected by rasdaman leaves the session usable
+                boolean reusable = t instanceof ODMGException;
+                try {
+                    abortTR(tr);
+                } catch (RasdamanException ex) {
+                    reusable = false;
+                    log.warn(ex.getMessage());
+                } finally {
+                    releaseConnectionQuietly(connectionPool, connection, reusable);
+                }
+                if (t instanceof ODMGException && t.getMessage().contains("Collection name is unknown.")) {
+                    ret.setException(new RasdamanCollectionDoesNotExistException(ExceptionCode.CollectionDoesNotExist, query, (ODMGException) t));
+                } else if (t instanceof Exception) {
+                    ret.setException(new RasdamanException(ExceptionCode.RasdamanRequestFailed, t.getMessage(), (Exception) t, query));
+                } else {
+                    ret.setException(t);
+                }
+            }
+        }, getAsyncQueryExecutor());
+
+        // cancelling the returned future cancels the query, whose callback releases the connection
+        ret.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (ret.isCancelled()) {
+                    queryResult.cancel(true);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+
+        return ret;
+    }
+
+    /**
+     * At most as many results of asynchronous queries are completed concurrently as queries can run in parallel.
+     */
+    private static ExecutorService getAsyncQueryExecutor() {
+        if (asyncQueryExecutor == null) {
+            synchronized (RasUtil.class) {
+                if (asyncQueryExecutor == null) {
+                    asyncQueryExecutor = Executors.newFixedThreadPool(ConfigManager.MAX_PARALLEL_MULTIPART_QUERIES, new ThreadFactory() {
+                        private final AtomicInteger threadCount = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "rasdaman-async-query-" + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                }
+            }
+        }
+        return asyncQueryExecutor;
+    }
+
+    private static void releaseConnectionQuietly(RasConnectionPool connectionPool, RasConnection connection, boolean reusable) {
+        try {
+            connectionPool.releaseConnection(connection, reusable);
+        } catch (RasdamanException ex) {
+            log.warn("Failed releasing rasdaman connection of asynchronous query. Reason: " + ex.getExceptionText());
+        }
+    }
+
     /**
      * Deletes an array from rasdaman.
      */
@@ -298,6 +507,18 @@ public class RasUtil {
         executeRasqlQuery(query, username, password, true);
     }
 
+    /**
+     * Inserts an array which is bound to the query as binary data instead of
+     * an array constant in the query string. e.g: "INSERT INTO PM10_2 VALUES
+     * $1 TILING ALIGNED [0:366, 0:500, 0:500]"
+     */
+    public static void executeInsertArrayStatement(String collectionName, RasGMArray values, String tiling, String username, String password) throws RasdamanException, PetascopeException {
+        String tilingClause = (tiling == null || tiling.isEmpty()) ? "" : TILING_KEYWORD + " " + tiling;
+        String query = TEMPLATE_INSERT_VALUES.replace(TOKEN_COLLECTION_NAME, collectionName)
+                .replace(TOKEN_VALUES, BOUND_ARRAY).replace(TOKEN_TILING, tilingClause);
+        executeRasqlQuery(query, username, password, true, values);
+    }
+
     /**
      * Insert an image to an existing collection by decoding file
      */
@@ -368,6 +589,19 @@ public class RasUtil {
         executeRasqlQuery(query, username, password, true);
     }
     
+    /**
+     * Update collection with a file on this machine, which the rasql client
+     * uploads as $1 of the query.
+     */
+    public static void executeUpdateUploadedFileStatement(String query, String filePath, String username, String password) throws PetascopeException {
+        try {
+            executeInsertUpdateFileStatement(query, filePath, username, password);
+        } catch (IOException ex) {
+            throw new PetascopeException(ExceptionCode.IOConnectionError,
+                                         "Cannot upload file '" + filePath + "' to rasdaman. Reason: " + ex.getMessage(), ex);
+        }
+    }
+
     public static void executeUpdateBytesStatement(String query, byte[] bytes, String username, String password) throws PetascopeException {
         RasGMArray rasGMArray;
         try {
@@ -380,6 +614,14 @@ public class RasUtil {
         executeRasqlQuery(query, username, password, true, rasGMArray);
     }
 
+    /**
+     * Update collection with an array which is bound to the query as $1 (e.g:
+     * created by createRasGMArray()).
+     */
+    public static void executeUpdateBytesStatement(String query, RasGMArray values, String username, String password) throws PetascopeException {
+        executeRasqlQuery(query, username, password, true, values);
+    }
+
     /**
      * Check if a rasql query is "select" query
      *
@@ -453,10 +695,24 @@ public class RasUtil {
      * Run a rasql query and return results as array of bytes
      */
     public static byte[] getRasqlResultAsBytes(String rasqlQuery) throws RasdamanException, PetascopeException {
-        byte[] result = new byte[0];
-        RasQueryResult res;
+        return toBytes(RasUtil.executeRasqlQuery(rasqlQuery));
+    }
 
-        res = new RasQueryResult(RasUtil.executeRasqlQuery(rasqlQuery));
+    /**
+     * Like getRasqlResultAsBytes(), but the query is executed with executeRasqlQueryAsync().
+     */
+    public static ListenableFuture<byte[]> getRasqlResultAsBytesAsync(String rasqlQuery) throws PetascopeException {
+        return Futures.transform(executeRasqlQueryAsync(rasqlQuery), new Function<Object, byte[]>() {
+            @Override
+            public byte[] apply(Object queryResult) {
+                return toBytes(queryResult);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private static byte[] toBytes(Object queryResult) {
+        byte[] result = new byte[0];
+        RasQueryResult res = new RasQueryResult(queryResult);
         if (!res.getMdds().isEmpty() || !res.getScalars().isEmpty()) {
             for (String s : res.getScalars()) {
                 result = s.getBytes(Charset.forName("UTF-8"));
@@ -517,6 +773,8 @@ public class RasUtil {
     private static final String TOKEN_COLLECTION_TYPE = "%collectionType%";
     private static final String TEMPLATE_CREATE_COLLECTION = "CREATE COLLECTION " + TOKEN_COLLECTION_NAME + " " + TOKEN_COLLECTION_TYPE;
     private static final String TOKEN_VALUES = "%values%";
+    // the first array bound to a query
+    public static final String BOUND_ARRAY = "$1";
     private static final String TOKEN_TILING = "%tiling%";
     private static final String TILING_KEYWORD = "TILING";
     private static final String RASDAMAN_TYPE = "%TYPE%";
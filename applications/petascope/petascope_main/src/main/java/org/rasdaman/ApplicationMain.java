@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Properties;
 import java.util.logging.Level;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
@@ -58,7 +59,10 @@ import petascope.core.GeoTransform;
 import petascope.exceptions.ExceptionCode;
 import petascope.exceptions.PetascopeException;
 import petascope.util.CrsProjectionUtil;
+import petascope.util.CrsUtil;
+import petascope.util.ras.RasConnectionPool;
 import petascope.util.ras.TypeRegistry;
+import petascope.wcps.parser.WcpsTranslator;
 import petascope.wcs2.parsers.request.xml.XMLAbstractParser;
 import static org.rasdaman.config.ConfigManager.STATIC_HTML_DIR_PATH;
 import org.rasdaman.repository.service.CoverageRepositoryService;
@@ -110,6 +114,8 @@ public class ApplicationMain extends SpringBootServletInitializer {
     private CoverageRepositoryService coverageRepositoryService;
     @Autowired
     private WMSRepostioryService wmsRepostioryService;
+    @Autowired
+    private WcpsTranslator wcpsTranslator;
 
     /**
      * Invoked when running Petascope (rasdaman.war) only in an external servlet container. 
@@ -267,8 +273,19 @@ public class ApplicationMain extends SpringBootServletInitializer {
             System.exit(ExitCode.SUCCESS.getExitCode());
         }
         
+        // CRS definitions are needed to load coverages, so they are loaded first
+        CrsUtil.loadCrsDefinitionsSnapshot();
         this.loadCoveragesToCaches(this.coverageRepositoryService);
         this.loadLayersToCaches(this.wmsRepostioryService);
+        this.warmUpWcpsParser(this.wcpsTranslator);
+    }
+    
+    /**
+     * Invoked when petascope is stopped to release the pooled rasdaman sessions.
+     */
+    @PreDestroy
+    private void preDestroy() {
+        RasConnectionPool.getInstance().closeAll();
     }
     
     /**
@@ -306,6 +323,23 @@ public class ApplicationMain extends SpringBootServletInitializer {
         new Thread(runnable).start();
     }
 
+    /**
+     * Run this background process to warm up the WCPS parser when petascope start
+     */
+    private void warmUpWcpsParser(final WcpsTranslator wcpsTranslator) {
+        Runnable runnable = new Runnable() {
+            public void run() {
+                try {
+                    log.debug("Warm up WCPS parser ...");
+                    wcpsTranslator.warmUp();
+                } catch (Exception ex) {
+                    log.error("Cannot warm up WCPS parser. Reason: " + ex.getMessage(), ex);
+                }
+            }
+        };
+        new Thread(runnable).start();
+    }
+
     /**
      * Return the exit code to user
      */
@@ -0,0 +1,114 @@
+/*
+  *  This file is part of rasdaman community.
+  *
+  *  Rasdaman community is free software: you can redistribute it and/or modify
+  *  it under the terms of the GNU General Public License as published by
+  *  the Free Software Foundation, either version 3 of the License, or
+  *  (at your option) any later version.
+  *
+  *  Rasdaman community is distributed in the hope that it will be useful,
+  *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+  *  See the GNU  General Public License for more details.
+  *
+  *  You should have received a copy of the GNU  General Public License
+  *  along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+  *
+  *  Copyright 2003 - 2017 Peter Baumann / rasdaman GmbH.
+  *
+  *  For more information please see <http://www.rasdaman.org>
+  *  or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+package org.rasdaman.migration.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.SetupException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import petascope.core.CoefficientList;
+
+/**
+ * Liquibase change (see db.changelog-v1.10.xml) which moves the coefficients of
+ * irregular axes persisted with one row per coefficient into the packed column
+ * of the axis, so that reading a coverage never has to migrate them.
+ */
+public class PackIrregularAxisDirectPositionsChange implements CustomTaskChange {
+
+    private static final Logger log = LoggerFactory.getLogger(PackIrregularAxisDirectPositionsChange.class);
+
+    private static final String SELECT_DIRECT_POSITIONS = "SELECT irregular_axis_id, irregular_axis_direct_positions "
+                                                        + "FROM irregular_axis_direct_positions ORDER BY irregular_axis_id, direct_positions_order";
+    // coefficients which were packed already are only removed from the legacy table
+    private static final String UPDATE_PACKED_DIRECT_POSITIONS = "UPDATE irregular_axis SET direct_positions_packed = ? "
+                                                               + "WHERE irregular_axis_id = ? AND direct_positions_packed IS NULL";
+    private static final String DELETE_DIRECT_POSITIONS = "DELETE FROM irregular_axis_direct_positions WHERE irregular_axis_id = ?";
+
+    private int migratedAxes = 0;
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+        try (Statement select = connection.createStatement();
+                PreparedStatement update = connection.prepareStatement(UPDATE_PACKED_DIRECT_POSITIONS);
+                PreparedStatement delete = connection.prepareStatement(DELETE_DIRECT_POSITIONS);
+                ResultSet resultSet = select.executeQuery(SELECT_DIRECT_POSITIONS)) {
+            Long axisId = null;
+            List<String> directPositions = new ArrayList<>();
+            while (resultSet.next()) {
+                long currentAxisId = resultSet.getLong(1);
+                if (axisId != null && axisId != currentAxisId) {
+                    this.packDirectPositions(update, delete, axisId, directPositions);
+                    directPositions.clear();
+                }
+                axisId = currentAxisId;
+                directPositions.add(resultSet.getString(2));
+            }
+            if (axisId != null) {
+                this.packDirectPositions(update, delete, axisId, directPositions);
+            }
+        } catch (SQLException ex) {
+            throw new CustomChangeException("Failed packing the coefficients of irregular axes. Reason: " + ex.getMessage(), ex);
+        }
+        log.info("Packed the coefficients of " + migratedAxes + " irregular axes.");
+    }
+
+    private void packDirectPositions(PreparedStatement update, PreparedStatement delete,
+                                     long axisId, List<String> directPositions) throws SQLException {
+        update.setString(1, CoefficientList.parse(directPositions).encode());
+        update.setLong(2, axisId);
+        update.executeUpdate();
+        delete.setLong(1, axisId);
+        delete.executeUpdate();
+        migratedAxes++;
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "Packed the coefficients of " + migratedAxes + " irregular axes.";
+    }
+
+    @Override
+    public void setUp() throws SetupException {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        return new ValidationErrors();
+    }
+}
@@ -49,6 +49,7 @@ import static petascope.core.KVPSymbols.WCS_SERVICE;
 import static petascope.core.KVPSymbols.WMS_SERVICE;
 import petascope.core.XMLSymbols;
 import petascope.core.response.MultipartResponse;
+import petascope.core.response.StreamedResponseParts;
 import petascope.core.response.Response;
 import petascope.exceptions.ExceptionCode;
 import petascope.exceptions.PetascopeException;
@@ -73,6 +74,8 @@ public abstract class AbstractController {
 
     @Autowired
     protected HttpServletResponse injectedHttpServletResponse;
+    @Autowired
+    protected HttpServletRequest injectedHttpServletRequest;
   
     @Resource
     // Spring finds all the subclass of AbstractHandler and injects to the list
@@ -97,6 +100,14 @@ public abstract class AbstractController {
     // All the returned bytes to clients up to this current request
     private static Long totalReturnedBytes = 0l;
     
+    // HTTP headers for revalidating and compressing cached results
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String HEADER_VARY = "Vary";
+    private static final String GZIP_ENCODING = "gzip";
+    
     /**
      * If an exception occurs when petascope starts, just defer it until web application can start and exception can be thrown via controllers
      * @throws PetascopeException 
@@ -325,6 +336,11 @@ public abstract class AbstractController {
      * Write the response as text or binary to the requesting client.
      */
     protected void writeResponseResult(Response response) throws IOException, PetascopeException {
+        if (response.getEntityTag() != null) {
+            // e.g: cached GetCapabilities document
+            this.writeCachedResponse(response);
+            return;
+        }
         // This one is needed as normally it write the result with HTTP:200, 
         // but for SOAP case when error message is enclosed in envelope, it can return HTTP:400, 404
         injectedHttpServletResponse.setStatus(response.getHTTPCode());
@@ -339,18 +355,65 @@ public abstract class AbstractController {
             else
                 writeSinglepartResponse(response, mimeType, os);
         } catch(Exception ex) {
-            if (ex.getMessage().contains("Connection reset by peer")) {
+            if (ex.getMessage() != null && ex.getMessage().contains("Connection reset by peer")) {
                 // e.g: when client sends a request to return large data and it cancels when the download is not finished yet
                 log.error("Lost connection to client.");
+            } else if (response.isStreamed()) {
+                // the response is already partially sent, so the error cannot be reported to the client anymore
+                log.error("Failed writing streamed result to client. Reason: " + ex.getMessage(), ex);
             }
         } finally {
             IOUtils.closeQuietly(os);
+            // Release the rasdaman connection of a streamed result
+            response.closeStreamedData();
             runGarbageCollectionIfNeeded(response);
             // Release the data occupied by byte[] right now
             response = null;
         }
     }
     
+    /**
+     * Write a cached single result with its ETag. Nothing is written if the
+     * client already has this version (If-None-Match header) and the gzip
+     * compressed copy is written if the client accepts it.
+     */
+    protected void writeCachedResponse(Response response) throws IOException, PetascopeException {
+        String acceptEncoding = injectedHttpServletRequest.getHeader(HEADER_ACCEPT_ENCODING);
+        boolean gzip = response.getGzippedData() != null 
+                       && acceptEncoding != null && acceptEncoding.toLowerCase().contains(GZIP_ENCODING);
+        // the compressed and uncompressed results must have different entity tags
+        String entityTag = "\"" + response.getEntityTag() + (gzip ? "-" + GZIP_ENCODING : "") + "\"";
+        injectedHttpServletResponse.setHeader(HEADER_ETAG, entityTag);
+        injectedHttpServletResponse.setHeader(HEADER_VARY, HEADER_ACCEPT_ENCODING);
+
+        String ifNoneMatch = injectedHttpServletRequest.getHeader(HEADER_IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.trim().equals("*") || ifNoneMatch.contains(entityTag))) {
+            injectedHttpServletResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] data = response.getDatas().get(0);
+        if (gzip) {
+            injectedHttpServletResponse.setHeader(HEADER_CONTENT_ENCODING, GZIP_ENCODING);
+            data = response.getGzippedData();
+        }
+        injectedHttpServletResponse.setStatus(response.getHTTPCode());
+        injectedHttpServletResponse.setContentType(getMimeType(response));
+        injectedHttpServletResponse.setContentLength(data.length);
+        OutputStream os = injectedHttpServletResponse.getOutputStream();
+        try {
+            IOUtils.write(data, os);
+        } catch (IOException ex) {
+            if (ex.getMessage() != null && ex.getMessage().contains("Connection reset by peer")) {
+                log.error("Lost connection to client.");
+            } else {
+                throw ex;
+            }
+        } finally {
+            IOUtils.closeQuietly(os);
+        }
+    }
+    
     protected String getMimeType(Response response) {
         String mimeType = response.getFormatType();
         // To display application/gml+xml in browser, change in HTTP response to text/xml
@@ -384,22 +447,38 @@ public abstract class AbstractController {
      * Write single result to output stream os. Does not do any checks, assumes
      * that response contains at least one result.
      */
-    protected void writeSinglepartResponse(Response response, String mimeType, OutputStream os) throws IOException {
+    protected void writeSinglepartResponse(Response response, String mimeType, OutputStream os) throws IOException, PetascopeException {
         injectedHttpServletResponse.setContentType(mimeType);
-        IOUtils.write(response.getDatas().get(0), os);
+        if (response.isStreamed()) {
+            // Pipe the result from rasdaman to the client chunk by chunk
+            response.getStreamedData().writeTo(os);
+        } else {
+            IOUtils.write(response.getDatas().get(0), os);
+        }
     }
     
     /**
      * Write multiple results to output stream os. Does not do any checks, assumes
      * that response contains at least one result.
      */
-    protected void writeMultipartResponse(Response response, String mimeType, OutputStream os) throws IOException {
+    protected void writeMultipartResponse(Response response, String mimeType, OutputStream os) throws IOException, PetascopeException {
         MultipartResponse multi;
         multi = new MultipartResponse(injectedHttpServletResponse);
-        for (byte[] data : response.getDatas()) {
-            multi.startPart(mimeType);
-            IOUtils.write(data, os);
-            multi.endPart();
+        StreamedResponseParts streamedParts = response.getStreamedParts();
+        if (streamedParts != null) {
+            // Write each part as soon as it is available, so only one part is kept in memory
+            byte[] data;
+            while ((data = streamedParts.next()) != null) {
+                multi.startPart(mimeType);
+                IOUtils.write(data, os);
+                multi.endPart();
+            }
+        } else {
+            for (byte[] data : response.getDatas()) {
+                multi.startPart(mimeType);
+                IOUtils.write(data, os);
+                multi.endPart();
+            }
         }
         multi.finish();
     }
@@ -411,8 +490,9 @@ public abstract class AbstractController {
         IOUtils.write("", os);
     }
     
-    private void runGarbageCollectionIfNeeded(Response response) {                           
-        if (response.hasDatas()) {
+    private void runGarbageCollectionIfNeeded(Response response) throws PetascopeException {                           
+        // NOTE: streamed results are not counted as they are never stored in memory
+        if (response.hasDatas() && !response.isStreamed()) {
             for (byte[] bytes : response.getDatas()) {
                 totalReturnedBytes += bytes.length;
             }
@@ -0,0 +1,175 @@
+/*
+ * This file is part of rasdaman community.
+ *
+ * Rasdaman community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Rasdaman community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU  General Public License for more details.
+ *
+ * You should have received a copy of the GNU  General Public License
+ * along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2003 - 2017 Peter Baumann / rasdaman GmbH.
+ *
+ * For more information please see <http://www.rasdaman.org>
+ * or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+package petascope.core.gml;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import petascope.exceptions.ExceptionCode;
+import petascope.exceptions.PetascopeException;
+import petascope.util.ras.RasStreamedResult;
+import static petascope.util.ras.RasConstants.RASQL_CLOSE_SUBSETS;
+import static petascope.util.ras.RasConstants.RASQL_OPEN_SUBSETS;
+
+/**
+ * Formatted GML coverage of a GetCoverage result, split around its pixel
+ * values, so that the JSON result of rasdaman can be converted to pixel
+ * values while it is written to the client, instead of building the whole
+ * document in memory.
+ *
+ * The template is built from the document with two placeholder tuples as
+ * pixel values: the text before the first tuple is the prefix, the text
+ * between them is the tuple separator (e.g: "," in a gml:tupleList of CIS 1.0,
+ * "</cis11:V>\n      <cis11:V>" in a DataBlock of CIS 1.1) and the text after the
+ * second one is the suffix.
+ */
+public class GMLCoverageTemplate implements RasStreamedResult.Encoder {
+
+    private static final String FIRST_TUPLE = "petascopeFirstTuple";
+    private static final String SECOND_TUPLE = "petascopeSecondTuple";
+    // pixel values to build the GML document of a template
+    public static final String PLACEHOLDER_PIXEL_VALUES = FIRST_TUPLE + "," + SECOND_TUPLE;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final byte[] prefix;
+    private final byte[] tupleSeparator;
+    private final byte[] suffix;
+
+    private GMLCoverageTemplate(byte[] prefix, byte[] tupleSeparator, byte[] suffix) {
+        this.prefix = prefix;
+        this.tupleSeparator = tupleSeparator;
+        this.suffix = suffix;
+    }
+
+    /**
+     * Split a formatted GML document built with PLACEHOLDER_PIXEL_VALUES.
+     */
+    public static GMLCoverageTemplate parse(String gml) throws PetascopeException {
+        int firstIndex = gml.indexOf(FIRST_TUPLE);
+        int secondIndex = gml.indexOf(SECOND_TUPLE, firstIndex + 1);
+        if (firstIndex < 0 || secondIndex < 0) {
+            throw new PetascopeException(ExceptionCode.InternalComponentError,
+                    "Pixel values placeholder not found in the GML coverage.");
+        }
+
+        // NOTE: bytes in the default charset, as XMLUtil.formatXML() results are returned to the client
+        return new GMLCoverageTemplate(gml.substring(0, firstIndex).getBytes(),
+                                       gml.substring(firstIndex + FIRST_TUPLE.length(), secondIndex).getBytes(),
+                                       gml.substring(secondIndex + SECOND_TUPLE.length()).getBytes());
+    }
+
+    /**
+     * @return a stream which writes the GML coverage to os, with the JSON
+     * result of rasdaman written to it as pixel values (e.g: [["1 2","3 4"]]
+     * as tuples 1 2,3 4); the suffix of the document is written when it is
+     * closed.
+     */
+    @Override
+    public OutputStream encode(OutputStream os) throws IOException {
+        return new TupleListOutputStream(os);
+    }
+
+    /**
+     * Removes the subset brackets and quotes of the rasdaman JSON and replaces
+     * the separators of the tuples by the tuple separator of the template.
+     */
+    private class TupleListOutputStream extends FilterOutputStream {
+
+        private static final byte QUOTE = '"';
+        private static final byte TUPLE_SEPARATOR = ',';
+
+        private final byte openSubset = (byte) RASQL_OPEN_SUBSETS.charAt(0);
+        private final byte closeSubset = (byte) RASQL_CLOSE_SUBSETS.charAt(0);
+
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int count = 0;
+        private boolean closed = false;
+
+        public TupleListOutputStream(OutputStream out) throws IOException {
+            super(out);
+            this.writeToBuffer(prefix);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            int end = offset + length;
+            for (int i = offset; i < end; i++) {
+                byte b = bytes[i];
+                if (b == openSubset || b == closeSubset || b == QUOTE) {
+                    continue;
+                }
+                if (b == TUPLE_SEPARATOR) {
+                    this.writeToBuffer(tupleSeparator);
+                } else {
+                    if (count == buffer.length) {
+                        this.flushBuffer();
+                    }
+                    buffer[count++] = b;
+                }
+            }
+        }
+
+        private void writeToBuffer(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.length - count) {
+                this.flushBuffer();
+                if (bytes.length > buffer.length) {
+                    out.write(bytes);
+                    return;
+                }
+            }
+            System.arraycopy(bytes, 0, buffer, count, bytes.length);
+            count += bytes.length;
+        }
+
+        private void flushBuffer() throws IOException {
+            if (count > 0) {
+                out.write(buffer, 0, count);
+                count = 0;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.flushBuffer();
+            out.flush();
+        }
+
+        /**
+         * Write the suffix of the document; the underlying stream is not closed.
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            this.writeToBuffer(suffix);
+            this.flush();
+        }
+    }
+}
@@ -22,10 +22,12 @@
 package petascope.core.gml;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.servlet.http.HttpServletRequest;
 import nu.xom.Attribute;
 import nu.xom.Element;
@@ -156,6 +158,9 @@ public class GMLGetCapabilitiesBuilder {
     @Autowired
     private HttpServletRequest httpServletRequest;
     
+    // version:coverageId -> (coverage version, wcs:CoverageSummary element built for it)
+    private static final Map<String, Pair<Long, Element>> coverageSummariesCache = new ConcurrentHashMap<>();
+    
     // WCS ows:profiles (i.e: the supported extensions for:) 
     // EncodeFormatExtensions
     private static final String GML_IDENTIFIER = "http://www.opengis.net/spec/GMLCOV/1.0/conf/gml";
@@ -656,6 +661,7 @@ public class GMLGetCapabilitiesBuilder {
         List<Pair<Coverage, Boolean>> importedCoveragePairs = this.persistedCoverageService.readAllLocalCoveragesBasicMetatata();
         this.persistedCoverageService.createAllCoveragesExtents();
 
+        Set<String> usedKeys = new HashSet<>();
         // Children elements (list of all imported coverage)
         for (Pair<Coverage, Boolean> coveragePair : importedCoveragePairs) {
             Coverage coverage = coveragePair.fst;
@@ -664,6 +670,17 @@ public class GMLGetCapabilitiesBuilder {
             if (version.equals(VersionManager.WCS_VERSION_20) && coverage.getCoverageType().equals(VALUE_GENERAL_GRID_COVERAGE)) {
                 continue;
             }
+            
+            // Reuse the summary built before if this coverage was not changed since then
+            String key = version + ":" + coverage.getCoverageId();
+            usedKeys.add(key);
+            long coverageVersion = CoverageRepositoryService.getCoverageVersion(coverage.getCoverageId());
+            Pair<Long, Element> cachedSummary = coverageSummariesCache.get(key);
+            if (cachedSummary != null && cachedSummary.fst == coverageVersion) {
+                contentsElement.appendChild(new Element(cachedSummary.snd));
+                continue;
+            }
+            
             // 1.1 CoverageSummary element
             Element coverageSummaryElement = new Element(XMLUtil.createXMLLabel(PREFIX_WCS, LABEL_COVERAGE_SUMMARY), this.getWCSNameSpace(version));
             contentsElement.appendChild(coverageSummaryElement);
@@ -714,6 +731,18 @@ public class GMLGetCapabilitiesBuilder {
             Element upperCornerElement = new Element(XMLUtil.createXMLLabel(PREFIX_OWS, LABEL_UPPER_CORNER_ASSOCIATE_ROLE), NAMESPACE_OWS);
             upperCornerElement.appendChild(envelopeByAxis.getUpperCornerRepresentation());
             boundingBox.appendChild(upperCornerElement);
+            
+            // A summary without the WGS84 bounding box is built again once the coverage's extent could be created
+            if (!CoverageRepositoryService.isCoverageExtentUnknown(coverage.getCoverageId())) {
+                coverageSummariesCache.put(key, new Pair<>(coverageVersion, new Element(coverageSummaryElement)));
+            }
+        }
+        
+        // Remove the summaries of deleted coverages
+        for (String key : coverageSummariesCache.keySet()) {
+            if (key.startsWith(version + ":") && !usedKeys.contains(key)) {
+                coverageSummariesCache.remove(key);
+            }
         }
 
         return contentsElement;
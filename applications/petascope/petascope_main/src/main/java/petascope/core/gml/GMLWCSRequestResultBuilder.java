@@ -41,6 +41,7 @@ import static petascope.core.XMLSymbols.PREFIX_XLINK;
 import static petascope.core.XMLSymbols.PREFIX_XSI;
 import petascope.exceptions.PetascopeException;
 import petascope.exceptions.SecoreException;
+import petascope.util.XMLUtil;
 import petascope.wcps.metadata.model.WcpsCoverageMetadata;
 
 /**
@@ -101,4 +102,15 @@ public class GMLWCSRequestResultBuilder {
         
         return rootElement;
     }
+    
+    /**
+     * Build the formatted result for WCS GetCoverage in GML without pixel values,
+     * they are written when the result of rasdaman is streamed through the template.
+     */
+    public GMLCoverageTemplate buildGetCoverageResultTemplate(WcpsCoverageMetadata wcpsCoverageMetadata) throws PetascopeException, SecoreException {
+        Element rootElement = this.buildGetCoverageResult(wcpsCoverageMetadata, GMLCoverageTemplate.PLACEHOLDER_PIXEL_VALUES);
+        String gml = XMLUtil.formatXML(rootElement.toXML());
+        
+        return GMLCoverageTemplate.parse(gml);
+    }
 }
@@ -80,14 +80,14 @@ import petascope.wcst.exceptions.WCSTWrongNumberOfRangeSetElements;
 import petascope.wcst.exceptions.WCSTWrongNumberOfTupleLists;
 import petascope.util.CrsUtil;
 import petascope.core.Pair;
-import petascope.util.StringUtil;
 import petascope.core.XMLSymbols;
 import static petascope.core.XMLSymbols.LABEL_GRID_COVERAGE;
 import static petascope.core.XMLSymbols.LABEL_RECTIFIED_GRID_COVERAGE;
 import static petascope.core.XMLSymbols.LABEL_REFERENCEABLE_GRID_COVERAGE;
 import petascope.core.gml.cis.AbstractGMLCISParserService;
-import petascope.util.ListUtil;
-import static petascope.util.ras.TypeResolverUtil.R_Abb_Float;
+import petascope.util.ras.RasUtil;
+import rasj.RasGMArray;
+import rasj.RasResultIsNoIntervalException;
 
 /**
  * Utilities for parsing parts of a coverage, from GML format.
@@ -866,15 +866,17 @@ public class GMLCIS10ParserService extends AbstractGMLCISParserService {
     }
 
     /**
-     * Parses a GML tuple list into a rasdaman constant.
+     * Parses a GML tuple list into a rasdaman array, which is bound to the
+     * insert / update query instead of being sent as array constant in it.
      *
      * @param dataBlock the dataBlock element
      * @param indexAxes
-     * @param typeSuffixes the suffix to be added to each point to indicate its
-     * rasdaman type (i.e. rasdaman Char 1 world be 1c, so the suffix is c)
-     * @return String representation of a rasdaman constant
+     * @param typeSuffixes the suffix of the rasdaman type of each band
+     * (i.e. rasdaman Char 1 world be 1c, so the suffix is c)
+     * @param mddType the rasdaman MDD type of the array
+     * @return the rasdaman array with the cell values of the tuple list
      */
-    public static String parseGMLTupleList(Element dataBlock, List<IndexAxis> indexAxes, List<String> typeSuffixes)
+    public static RasGMArray parseGMLTupleList(Element dataBlock, List<IndexAxis> indexAxes, List<String> typeSuffixes, String mddType)
             throws WCSTWrongNumberOfPixels, WCSTWrongNumberOfTupleLists, WCSException {
         //get the tuple list
         Elements tupleLists = dataBlock.getChildElements(XMLSymbols.LABEL_TUPLELIST, XMLSymbols.NAMESPACE_GML);
@@ -890,96 +892,28 @@ public class GMLCIS10ParserService extends AbstractGMLCISParserService {
         if (tupleLists.get(0).getAttribute(XMLSymbols.ATT_CS) != null) {
             cs = tupleLists.get(0).getAttributeValue(XMLSymbols.ATT_CS);
         }
-        //get the values
-        String values = StringUtil.trim(tupleLists.get(0).getValue().trim());
-        //get the points (inside <gml:tupleList> element of incoming GML)
-        String[] points = values.split(ts);
-        String interval = "";
-        String rasdamanValues = "";
-        //iterate through each dimension and add points to the rasdaman constant
-        //cells in the last dimension are separated by ,, all others by ;
+        //build the domain of the array, the last dimension varies fastest in the tuple list as in rasdaman
+        StringBuilder interval = new StringBuilder("[");
         long totalNumberOfPoints = 1;
-        long innerMostDimensionSize = 1;
         for (IndexAxis indexAxis : indexAxes) {
             totalNumberOfPoints *= (indexAxis.getUpperBound() - indexAxis.getLowerBound() + 1);
-            interval += indexAxis.getLowerBound() + RASDAMAN_INTERVAL_HILO_SEP + indexAxis.getUpperBound();
+            interval.append(indexAxis.getLowerBound()).append(RASDAMAN_INTERVAL_HILO_SEP).append(indexAxis.getUpperBound());
             //if not last, add sep
             if (indexAxis.getAxisOrder() != indexAxes.size() - 1) {
-                interval += RASDAMAN_INTERVAL_DIM_SEP;
-            } else {
-                //compute size of last dim
-                innerMostDimensionSize = indexAxis.getUpperBound() - indexAxis.getLowerBound() + 1;
+                interval.append(RASDAMAN_INTERVAL_DIM_SEP);
             }
         }
-        if (totalNumberOfPoints != points.length) {
-            throw new WCSTWrongNumberOfPixels();
-        }
-        //iterate through all points
-        for (int i = 0; i < totalNumberOfPoints; i++) {
-            rasdamanValues += parsePointValue(points[i], cs, typeSuffixes);
-            if (i != totalNumberOfPoints - 1) {
-                //add separator
-                if ((i + 1) % innerMostDimensionSize == 0) {
-                    //add dimension separator
-                    rasdamanValues += RASDAMAN_VALUES_DIM_SEP;
-                } else {
-                    //add cell separator
-                    rasdamanValues += RASDAMAN_VALUES_CELL_SEP;
-                }
-            }
-        }
-        
-        String result = TEMPLATE_RASDAMAN_CONSTANT.replace(TOKEN_INTERVAL, interval)
-                .replace(TOKEN_VALUES, rasdamanValues);
+        interval.append("]");
 
-        return result;
-    }
-    
-    /**
-     * Add data type suffix  (e.g: "0l" with "l" is suffix) if input value is not "NaN".
-     */
-    private static String addSuffix(String val, String suffix) {
-        if (containsNaNf(val) ||
-            (containsNaN(val) && !suffix.equals(R_Abb_Float))) {
-            return val;
-        } else {
-            String result = val + suffix;
-            if (suffix.contains(",")) {
-                // This is complex number, suffix is e.g: s,s, the result is special (e.g: complex(0s,0s) for CInt16)
-                String tmp[] = suffix.split(",");
-                result = "complex(" + val + tmp[0] + "," + val + tmp[1] + ")";
-            }
-            
-            return result;
-        }
-    }
+        //encode the points (inside <gml:tupleList> element of incoming GML) without splitting the text
+        GMLTupleListParser tupleListParser = new GMLTupleListParser(ts, cs, typeSuffixes);
+        byte[] cells = tupleListParser.parse(tupleLists.get(0).getValue(), totalNumberOfPoints);
 
-    /**
-     * Helper for parsing a point value.
-     * e.g: -999,-999,0 with data types (float,float,short) 
-     * return -999f,-999f,0s
-     */
-    private static String parsePointValue(String point, String separator, List<String> typeSuffixes) {
-        //multiband image
-        if (point.contains(separator)) {
-            String[] pointValues = point.split(separator);
-            List<String> addedSuffixValues = new ArrayList<>();
-            int i = 0;
-            for (String val : pointValues) {
-                String typeSuffix = typeSuffixes.get(i);
-                // e.g: {0c,0c,0c}
-                String addedValue = addSuffix(val, typeSuffix);
-                addedSuffixValues.add(addedValue);
-                
-                i++;
-            }
-            
-            String result = TEMPLATE_RASDAMAN_STRUCTURE.replace(TOKEN_STRUCTURE_CELL_VAL, ListUtil.join(addedSuffixValues, ","));
-            return result;
+        try {
+            return RasUtil.createRasGMArray(interval.toString(), tupleListParser.getCellSize(), mddType, cells);
+        } catch (RasResultIsNoIntervalException ex) {
+            throw new WCSException(ExceptionCode.InternalComponentError, "Invalid domain '" + interval + "' of gml:tupleList. Reason: " + ex.getMessage(), ex);
         }
-        // single band (e.g: 0c)
-        point = addSuffix(point, typeSuffixes.get(0));
-        return point;
     }
     
     /**
@@ -989,13 +923,6 @@ public class GMLCIS10ParserService extends AbstractGMLCISParserService {
         return StringUtils.containsIgnoreCase(point, NAN_NULL_VALUE);
     }
 
-    /**
-     * Check if input string contains NaNf as null value
-     */
-    private static boolean containsNaNf(String point) {
-        return StringUtils.containsIgnoreCase(point, NANF_NULL_VALUE);
-    }
-    
     /**
      * Check if input string contains "*"
      */
@@ -1035,18 +962,10 @@ public class GMLCIS10ParserService extends AbstractGMLCISParserService {
    
     private static final String DEFAULT_NO_OFFSET_VECTOR = "0";
     private static final String NAN_NULL_VALUE = "NaN";
-    private static final String NANF_NULL_VALUE = "NaNf";
     private static final String UNLIMITED_NULL_VALUE = "*";
     private static final String DEFAULT_TS = " ";
     private static final String DEFAULT_CS = ",";
-    private static final String TOKEN_INTERVAL = "%tokenInterval%";
-    private static final String TOKEN_VALUES = "%tokenValues%";
-    private static final String TEMPLATE_RASDAMAN_CONSTANT = "<[" + TOKEN_INTERVAL + "] " + TOKEN_VALUES + ">";
     private static final String RASDAMAN_INTERVAL_HILO_SEP = ":";
     private static final String RASDAMAN_INTERVAL_DIM_SEP = ",";
-    private static final String RASDAMAN_VALUES_CELL_SEP = ",";
-    private static final String RASDAMAN_VALUES_DIM_SEP = ";";
-    private static final String TOKEN_STRUCTURE_CELL_VAL = "%structureCellValue%";
-    private static final String TEMPLATE_RASDAMAN_STRUCTURE = "{" + TOKEN_STRUCTURE_CELL_VAL + "}";
 
 }
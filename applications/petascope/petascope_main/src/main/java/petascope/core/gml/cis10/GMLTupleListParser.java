@@ -0,0 +1,316 @@
+/*
+ * This file is part of rasdaman community.
+ *
+ * Rasdaman community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Rasdaman community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU  General Public License for more details.
+ *
+ * You should have received a copy of the GNU  General Public License
+ * along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2003 - 2017 Peter Baumann / rasdaman GmbH.
+ *
+ * For more information please see <http://www.rasdaman.org>
+ * or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+package petascope.core.gml.cis10;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.List;
+import petascope.exceptions.ExceptionCode;
+import petascope.exceptions.WCSException;
+import petascope.wcst.exceptions.WCSTWrongNumberOfPixels;
+import static petascope.util.ras.TypeResolverUtil.R_Abb_CFloat32;
+import static petascope.util.ras.TypeResolverUtil.R_Abb_CFloat64;
+import static petascope.util.ras.TypeResolverUtil.R_Abb_CInt16;
+import static petascope.util.ras.TypeResolverUtil.R_Abb_CInt32;
+import static petascope.util.ras.TypeResolverUtil.R_Abb_Char;
+import static petascope.util.ras.TypeResolverUtil.R_Abb_Double;
+import static petascope.util.ras.TypeResolverUtil.R_Abb_Float;
+import static petascope.util.ras.TypeResolverUtil.R_Abb_Long;
+import static petascope.util.ras.TypeResolverUtil.R_Abb_Octet;
+import static petascope.util.ras.TypeResolverUtil.R_Abb_Short;
+import static petascope.util.ras.TypeResolverUtil.R_Abb_ULong;
+import static petascope.util.ras.TypeResolverUtil.R_Abb_UShort;
+
+/**
+ * Tokenizer of the text of a gml:tupleList, which encodes each value directly
+ * as rasdaman cell (in big endian byte order, as sent by Java clients) into a
+ * buffer, instead of splitting the text into strings and building an array
+ * constant of them.
+ *
+ * e.g: "1 2,3 4" with ts="," cs=" " and band types (c, s) is encoded as the
+ * cells {1c, 2s}, {3c, 4s}.
+ */
+public class GMLTupleListParser {
+
+    // the separator of tuples and of the values in a tuple
+    private final String ts;
+    private final String cs;
+    // types of the values in a tuple
+    private final BandType[] bandTypes;
+    private final int cellSize;
+
+    public GMLTupleListParser(String ts, String cs, List<String> typeSuffixes) throws WCSException {
+        this.ts = ts;
+        this.cs = cs;
+        this.bandTypes = new BandType[typeSuffixes.size()];
+        int size = 0;
+        for (int i = 0; i < bandTypes.length; i++) {
+            bandTypes[i] = BandType.fromSuffix(typeSuffixes.get(i));
+            size += bandTypes[i].size;
+        }
+        this.cellSize = size;
+    }
+
+    /**
+     * @return the size in bytes of one encoded tuple
+     */
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Encode the tuples of a tupleList.
+     *
+     * @param tupleList text of the gml:tupleList element
+     * @param numberOfTuples the expected number of tuples
+     * @return the encoded tuples
+     */
+    public byte[] parse(String tupleList, long numberOfTuples) throws WCSException {
+        if (numberOfTuples * cellSize > Integer.MAX_VALUE - 8) {
+            throw new WCSException(ExceptionCode.InvalidRequest, "Too many values (" + numberOfTuples
+                    + ") to be given as gml:tupleList, please provide them as file reference instead.");
+        }
+        byte[] cells = new byte[(int) (numberOfTuples * cellSize)];
+        ByteBuffer buffer = ByteBuffer.wrap(cells);
+
+        long tuples = 0;
+        int end = tupleList.length();
+        while (end > 0 && Character.isWhitespace(tupleList.charAt(end - 1))) {
+            end--;
+        }
+        int position = skipWhitespaces(tupleList, 0, end, null);
+        while (position < end) {
+            if (tuples == numberOfTuples) {
+                // more tuples than cells
+                throw new WCSTWrongNumberOfPixels();
+            }
+            int tupleEnd = tupleList.indexOf(ts, position);
+            if (tupleEnd < 0 || tupleEnd > end) {
+                tupleEnd = end;
+            }
+            this.parseTuple(tupleList, position, tupleEnd, buffer);
+            tuples++;
+            // e.g: ts=" ", then only line breaks can be skipped after it
+            position = tupleEnd == end ? end : skipWhitespaces(tupleList, tupleEnd + ts.length(), end, ts);
+        }
+        if (tuples != numberOfTuples) {
+            throw new WCSTWrongNumberOfPixels();
+        }
+
+        return cells;
+    }
+
+    /**
+     * Encode the values of the tuple in [start, end) of the tupleList.
+     */
+    private void parseTuple(String tupleList, int start, int end, ByteBuffer buffer) throws WCSException {
+        int position = start;
+        for (int i = 0; i < bandTypes.length; i++) {
+            position = skipWhitespaces(tupleList, position, end, null);
+            boolean lastBand = i == bandTypes.length - 1;
+            int separator = lastBand ? end : tupleList.indexOf(cs, position);
+            if (separator < 0 || separator >= end && !lastBand) {
+                throw new WCSException(ExceptionCode.InvalidRequest, "Tuple '" + tupleList.substring(start, end).trim()
+                        + "' of gml:tupleList does not have a value for each of the " + bandTypes.length + " bands.");
+            }
+            int valueEnd = separator;
+            while (valueEnd > position && Character.isWhitespace(tupleList.charAt(valueEnd - 1))) {
+                valueEnd--;
+            }
+            if (position == valueEnd) {
+                throw new WCSException(ExceptionCode.InvalidRequest, "Tuple '" + tupleList.substring(start, end).trim()
+                        + "' of gml:tupleList contains an empty value.");
+            }
+            bandTypes[i].encode(tupleList.substring(position, valueEnd), buffer);
+            position = separator + cs.length();
+        }
+    }
+
+    /**
+     * @return the position of the first character from start which is not a
+     * whitespace or line break, or the separator stopAt
+     */
+    private static int skipWhitespaces(String tupleList, int start, int end, String stopAt) {
+        int position = start;
+        while (position < end && Character.isWhitespace(tupleList.charAt(position))
+               && (stopAt == null || !tupleList.startsWith(stopAt, position))) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Rasdaman cell type of a band, by the suffix of its constants (e.g: c for char).
+     */
+    private enum BandType {
+
+        CHAR(R_Abb_Char, 1, 0, 0xFF),
+        OCTET(R_Abb_Octet, 1, Byte.MIN_VALUE, Byte.MAX_VALUE),
+        SHORT(R_Abb_Short, 2, Short.MIN_VALUE, Short.MAX_VALUE),
+        USHORT(R_Abb_UShort, 2, 0, 0xFFFF),
+        LONG(R_Abb_Long, 4, Integer.MIN_VALUE, Integer.MAX_VALUE),
+        ULONG(R_Abb_ULong, 4, 0, 0xFFFFFFFFL),
+        FLOAT(R_Abb_Float, 4, 0, 0),
+        DOUBLE(R_Abb_Double, 8, 0, 0),
+        // NOTE: as the array constants built before, both parts of complex values are set to the given value
+        CINT16(R_Abb_CInt16, 4, 0, 0),
+        CINT32(R_Abb_CInt32, 8, 0, 0),
+        CFLOAT32(R_Abb_CFloat32, 8, 0, 0),
+        CFLOAT64(R_Abb_CFloat64, 16, 0, 0);
+
+        private final String suffix;
+        private final int size;
+        // range of integer types
+        private final long min;
+        private final long max;
+
+        private BandType(String suffix, int size, long min, long max) {
+            this.suffix = suffix;
+            this.size = size;
+            this.min = min;
+            this.max = max;
+        }
+
+        public static BandType fromSuffix(String suffix) throws WCSException {
+            for (BandType bandType : values()) {
+                if (bandType.suffix.equals(suffix)) {
+                    return bandType;
+                }
+            }
+            throw new WCSException(ExceptionCode.InvalidRequest, "Band type with suffix '" + suffix + "' is not supported in gml:tupleList.");
+        }
+
+        public void encode(String value, ByteBuffer buffer) throws WCSException {
+            switch (this) {
+                case CHAR:
+                case OCTET:
+                    buffer.put((byte) this.parseInteger(value));
+                    break;
+                case SHORT:
+                case USHORT:
+                    buffer.putShort((short) this.parseInteger(value));
+                    break;
+                case LONG:
+                case ULONG:
+                    buffer.putInt((int) this.parseInteger(value));
+                    break;
+                case FLOAT:
+                    buffer.putFloat(parseFloat(value));
+                    break;
+                case DOUBLE:
+                    buffer.putDouble(parseDouble(value));
+                    break;
+                case CINT16:
+                    short shortValue = (short) SHORT.parseInteger(value);
+                    buffer.putShort(shortValue).putShort(shortValue);
+                    break;
+                case CINT32:
+                    int intValue = (int) LONG.parseInteger(value);
+                    buffer.putInt(intValue).putInt(intValue);
+                    break;
+                case CFLOAT32:
+                    float floatValue = parseFloat(value);
+                    buffer.putFloat(floatValue).putFloat(floatValue);
+                    break;
+                default:
+                    double doubleValue = parseDouble(value);
+                    buffer.putDouble(doubleValue).putDouble(doubleValue);
+            }
+        }
+
+        private long parseInteger(String value) throws WCSException {
+            long result = 0;
+            boolean negative = value.charAt(0) == '-';
+            int start = (negative || value.charAt(0) == '+') ? 1 : 0;
+            boolean valid = start < value.length() && value.length() - start <= 18;
+            for (int i = start; valid && i < value.length(); i++) {
+                char c = value.charAt(i);
+                valid = c >= '0' && c <= '9';
+                result = result * 10 + (c - '0');
+            }
+            if (!valid) {
+                // e.g: 1.0 or 1e3
+                try {
+                    result = new BigDecimal(value).longValueExact();
+                } catch (ArithmeticException | NumberFormatException ex) {
+                    throw this.invalidValue(value);
+                }
+            } else if (negative) {
+                result = -result;
+            }
+            if (result < min || result > max) {
+                throw this.invalidValue(value);
+            }
+            return result;
+        }
+
+        private float parseFloat(String value) throws WCSException {
+            Double special = parseSpecialValue(value);
+            if (special != null) {
+                return special.floatValue();
+            }
+            try {
+                return Float.parseFloat(value);
+            } catch (NumberFormatException ex) {
+                throw this.invalidValue(value);
+            }
+        }
+
+        private double parseDouble(String value) throws WCSException {
+            Double special = parseSpecialValue(value);
+            if (special != null) {
+                return special;
+            }
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException ex) {
+                throw this.invalidValue(value);
+            }
+        }
+
+        /**
+         * @return the value of NaN / inf constants of rasdaman (e.g: NaNf,
+         * -inf), null if the value is not one of them
+         */
+        private static Double parseSpecialValue(String value) {
+            String lowerCaseValue = value.toLowerCase();
+            if (lowerCaseValue.endsWith("f") || lowerCaseValue.endsWith("d")) {
+                lowerCaseValue = lowerCaseValue.substring(0, lowerCaseValue.length() - 1);
+            }
+            switch (lowerCaseValue) {
+                case "nan":
+                    return Double.NaN;
+                case "inf":
+                case "+inf":
+                    return Double.POSITIVE_INFINITY;
+                case "-inf":
+                    return Double.NEGATIVE_INFINITY;
+                default:
+                    return null;
+            }
+        }
+
+        private WCSException invalidValue(String value) {
+            return new WCSException(ExceptionCode.InvalidRequest, "Value '" + value + "' of gml:tupleList is not valid for band type with suffix '" + suffix + "'.");
+        }
+    }
+}
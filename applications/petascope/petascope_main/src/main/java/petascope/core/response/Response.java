@@ -21,8 +21,13 @@
  */
 package petascope.core.response;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import petascope.exceptions.ExceptionCode;
+import petascope.exceptions.PetascopeException;
 import petascope.util.MIMEUtil;
+import petascope.util.ras.RasStreamedResult;
 
 /**
  * Holds the response from executing a request operation.
@@ -42,10 +47,30 @@ public class Response {
     private String formatType = MIMEUtil.MIME_GML;
     // if formatType is not text (gml, xml, text) then it needs a file name from coverageID to set when download WCS, WCPS result
     private String coverageID = DEFAULT_COVERAGE_ID;
+    // Single result which is streamed from rasdaman to the client instead of being stored in datas
+    private RasStreamedResult streamedData;
+    // Parts of a multipart result which are produced while being written to the client instead of being stored in datas
+    private StreamedResponseParts streamedParts;
+    // Identifier of the version of a cached single result (e.g: GetCapabilities) for the HTTP ETag header
+    private String entityTag;
+    // gzip compressed copy of a cached single result, which can be sent to clients accepting it
+    private byte[] gzippedData;
 
     public Response() {
     }
     
+    public Response(RasStreamedResult streamedData, String formatType, String coverageID) {
+        this.streamedData = streamedData;
+        this.formatType = formatType;
+        this.coverageID = coverageID;
+    }
+    
+    public Response(StreamedResponseParts streamedParts, String formatType, String coverageID) {
+        this.streamedParts = streamedParts;
+        this.formatType = formatType;
+        this.coverageID = coverageID;
+    }
+    
     public Response(List<byte[]> datas, String formatType) {
         this.datas = datas;
         this.formatType = formatType;
@@ -62,20 +87,79 @@ public class Response {
     }
 
     public void setDatas(List<byte[]> datas) {
+        this.closeStreamedData();
         this.datas = datas;
+        // the cached result is replaced (e.g: enclosed in SOAP envelope)
+        this.entityTag = null;
+        this.gzippedData = null;
     }
     
     // data (NOTE: in case of multipart, this can contain mixing of text: gml and binary: e.g: tiff and so on)
-    public List<byte[]> getDatas() {
+    public List<byte[]> getDatas() throws PetascopeException {
+        if (streamedData != null) {
+            // the consumer needs the result in memory, so read the streamed data completely
+            try {
+                datas = new ArrayList<>();
+                datas.add(streamedData.toByteArray());
+            } catch (IOException ex) {
+                throw new PetascopeException(ExceptionCode.InternalComponentError, 
+                        "Failed reading result of query '" + streamedData.getQuery() + "' from rasdaman. Reason: " + ex.getMessage(), ex);
+            } finally {
+                this.closeStreamedData();
+            }
+        } else if (streamedParts != null) {
+            try {
+                datas = new ArrayList<>();
+                byte[] part;
+                while ((part = streamedParts.next()) != null) {
+                    datas.add(part);
+                }
+            } finally {
+                this.closeStreamedData();
+            }
+        }
         return datas;
     }
     
     public boolean hasDatas() {
-        return datas != null && !datas.isEmpty();
+        return streamedData != null || streamedParts != null || (datas != null && !datas.isEmpty());
+    }
+    
+    /**
+     * @return true if the result is not in memory yet, but can be written directly to the client 
+     * with getStreamedData() (single part) or getStreamedParts() (multipart).
+     */
+    public boolean isStreamed() {
+        return streamedData != null || streamedParts != null;
+    }
+    
+    public RasStreamedResult getStreamedData() {
+        return streamedData;
+    }
+    
+    public StreamedResponseParts getStreamedParts() {
+        return streamedParts;
+    }
+    
+    /**
+     * Release the rasdaman connection of a streamed result which was not read completely.
+     */
+    public void closeStreamedData() {
+        if (streamedData != null) {
+            streamedData.close();
+            streamedData = null;
+        }
+        if (streamedParts != null) {
+            streamedParts.close();
+            streamedParts = null;
+        }
     }
     
     public boolean isMultipart() {
-        return hasDatas() && datas.size() > 1;
+        if (streamedParts != null) {
+            return true;
+        }
+        return streamedData == null && hasDatas() && datas.size() > 1;
     }
     
     public void setFormatType(String formatType) {
@@ -104,4 +188,20 @@ public class Response {
     public void setCoverageID(String coverageID) {
         this.coverageID = coverageID;
     }
+
+    public String getEntityTag() {
+        return entityTag;
+    }
+
+    public void setEntityTag(String entityTag) {
+        this.entityTag = entityTag;
+    }
+
+    public byte[] getGzippedData() {
+        return gzippedData;
+    }
+
+    public void setGzippedData(byte[] gzippedData) {
+        this.gzippedData = gzippedData;
+    }
 }
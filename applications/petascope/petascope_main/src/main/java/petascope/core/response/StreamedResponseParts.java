@@ -0,0 +1,43 @@
+/*
+ * This file is part of rasdaman community.
+ *
+ * Rasdaman community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Rasdaman community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU  General Public License for more details.
+ *
+ * You should have received a copy of the GNU  General Public License
+ * along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2003 - 2018 Peter Baumann / rasdaman GmbH.
+ *
+ * For more information please see <http://www.rasdaman.org>
+ * or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+package petascope.core.response;
+
+import java.io.Closeable;
+import petascope.exceptions.PetascopeException;
+
+/**
+ * Parts of a multipart response which are produced one by one while the
+ * response is written, so that only the current part has to be in memory.
+ */
+public interface StreamedResponseParts extends Closeable {
+
+    /**
+     * @return the next part, or null if all parts have been returned
+     */
+    byte[] next() throws PetascopeException;
+
+    /**
+     * Release the resources of the parts which were not returned yet.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,196 @@
+/*
+ * This file is part of rasdaman community.
+ *
+ * Rasdaman community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Rasdaman community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU  General Public License for more details.
+ *
+ * You should have received a copy of the GNU  General Public License
+ * along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2003 - 2017 Peter Baumann / rasdaman GmbH.
+ *
+ * For more information please see <http://www.rasdaman.org>
+ * or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+package petascope.core.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+import org.rasdaman.config.ConfigManager;
+import org.rasdaman.repository.service.CoverageRepositoryService;
+import org.rasdaman.repository.service.OWSMetadataRepostioryService;
+import org.rasdaman.repository.service.WMSRepostioryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import petascope.core.response.Response;
+import petascope.exceptions.ExceptionCode;
+import petascope.exceptions.PetascopeException;
+import petascope.exceptions.SecoreException;
+import petascope.exceptions.WMSException;
+import petascope.util.MIMEUtil;
+
+/**
+ * Cache of the serialized WCS and WMS GetCapabilities documents per service
+ * and version. A document is rebuilt only when a coverage, a WMS layer / style
+ * or the OWS service metadata was changed since it was built; its ETag is
+ * derived from these versions, so clients can revalidate it with
+ * If-None-Match instead of downloading it again.
+ */
+@Service
+public class GetCapabilitiesCacheService {
+
+    private static final Logger log = LoggerFactory.getLogger(GetCapabilitiesCacheService.class);
+
+    // ETags must change when petascope is restarted, as the versions start from 0 again
+    private static final long START_TIME = System.currentTimeMillis();
+
+    // service:version (e.g: WCS:2.0.1) -> serialized document
+    private final ConcurrentMap<String, CachedDocument> documents = new ConcurrentHashMap<>();
+    // service:version -> lock, so a document is built only once by concurrent requests
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public GetCapabilitiesCacheService() {
+
+    }
+
+    /**
+     * Builds the GetCapabilities document of a service in a specific version.
+     */
+    public interface DocumentBuilder {
+
+        String build() throws PetascopeException, SecoreException, WMSException;
+
+        /**
+         * @return false if the document just built is incomplete (e.g: WGS84 bounding boxes
+         * are missing as SECORE was not reachable), so it must be built again for the next request.
+         */
+        boolean isCacheable();
+    }
+
+    /**
+     * Return the cached GetCapabilities document of a service and version, it
+     * is built with documentBuilder if it does not exist or is outdated.
+     */
+    public Response getResponse(String service, String version, DocumentBuilder documentBuilder) throws PetascopeException, SecoreException, WMSException {
+        String key = service + ":" + version;
+        String state = this.getCurrentState();
+
+        CachedDocument document = documents.get(key);
+        if (document != null && document.state.equals(state)) {
+            hits.incrementAndGet();
+            return document.toResponse();
+        }
+
+        Object lock = locks.get(key);
+        if (lock == null) {
+            locks.putIfAbsent(key, new Object());
+            lock = locks.get(key);
+        }
+        synchronized (lock) {
+            // another request may have built it meanwhile
+            state = this.getCurrentState();
+            document = documents.get(key);
+            if (document != null && document.state.equals(state)) {
+                hits.incrementAndGet();
+                return document.toResponse();
+            }
+
+            misses.incrementAndGet();
+            long start = System.currentTimeMillis();
+            // NOTE: if something changes while building, the document is labeled with the older state and rebuilt by the next request
+            byte[] data = documentBuilder.build().getBytes();
+            if (!documentBuilder.isCacheable()) {
+                // no ETag, as the next request may get a different document with the same state
+                documents.remove(key);
+                log.debug("Built incomplete " + service + " " + version + " GetCapabilities document, it is not cached.");
+                return new Response(Arrays.asList(data), MIMEUtil.MIME_GML);
+            }
+            String entityTag = service + "-" + version + "-" + START_TIME + "-" + state;
+            byte[] gzippedData = ConfigManager.GZIP_GET_CAPABILITIES ? gzip(data) : null;
+            document = new CachedDocument(state, data, gzippedData, entityTag);
+            documents.put(key, document);
+
+            log.debug("Built " + service + " " + version + " GetCapabilities document (" + data.length + " bytes) in "
+                      + (System.currentTimeMillis() - start) + " ms. " + this.toString());
+        }
+
+        return document.toResponse();
+    }
+
+    /**
+     * Versions of all the data which a GetCapabilities document is built from.
+     */
+    private String getCurrentState() {
+        return CoverageRepositoryService.getLatestCoverageVersion() + "."
+               + WMSRepostioryService.getLayersVersion() + "."
+               + OWSMetadataRepostioryService.getMetadataVersion();
+    }
+
+    private static byte[] gzip(byte[] data) throws PetascopeException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(data);
+        } catch (IOException ex) {
+            throw new PetascopeException(ExceptionCode.InternalComponentError,
+                    "Cannot compress GetCapabilities document. Reason: " + ex.getMessage(), ex);
+        }
+        return outputStream.toByteArray();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "GetCapabilities cache: documents=" + documents.size() + ", hits=" + hits.get() + ", misses=" + misses.get();
+    }
+
+    /**
+     * A serialized document with the state of the data it was built from.
+     */
+    private static class CachedDocument {
+
+        private final String state;
+        private final byte[] data;
+        private final byte[] gzippedData;
+        private final String entityTag;
+
+        public CachedDocument(String state, byte[] data, byte[] gzippedData, String entityTag) {
+            this.state = state;
+            this.data = data;
+            this.gzippedData = gzippedData;
+            this.entityTag = entityTag;
+        }
+
+        /**
+         * NOTE: the byte arrays are shared between responses, they must not be modified.
+         */
+        public Response toResponse() {
+            Response response = new Response(Arrays.asList(data), MIMEUtil.MIME_GML);
+            response.setEntityTag(entityTag);
+            response.setGzippedData(gzippedData);
+            return response;
+        }
+    }
+}
@@ -36,6 +36,7 @@ import petascope.exceptions.WCSException;
 import petascope.core.KVPSymbols;
 import petascope.exceptions.WMSException;
 import petascope.util.MIMEUtil;
+import petascope.wcps.parser.WcpsQueryBuilder.EncodedQuery;
 import static petascope.wcs2.handlers.kvp.KVPWCSGetCoverageHandler.ENCODE_FORMAT;
 import petascope.wcs2.handlers.kvp.KVPWCSProcessCoverageHandler;
 
@@ -62,7 +63,7 @@ public class ResponseService {
      * @param responses
      * @return
      */
-    public Response buildResponse(List<Response> responses) {
+    public Response buildResponse(List<Response> responses) throws PetascopeException {
         // If only 1 response so just return this one
         if (responses.size() == 1) {
             return responses.get(0);
@@ -93,7 +94,52 @@ public class ResponseService {
     public Response handleWCPSResponse(Map<String, String[]> kvpParameters, String wcpsQuery, String encodeFormat) throws PetascopeException, WCSException, SecoreException, WMSException {
         
         Response response = null;
-        // e.g: mediaType=multipart/related        
+        String firstWcpsQuery, secondWcpsQuery;
+        if (this.isMultipart(kvpParameters)) {
+            firstWcpsQuery = wcpsQuery.replace(ENCODE_FORMAT, MIMEUtil.ENCODE_GML);
+            secondWcpsQuery = wcpsQuery.replace(ENCODE_FORMAT, encodeFormat);
+            log.debug("Generated a mutlipart WCPS query from WCS request: " + firstWcpsQuery);
+            Response firstResponse = processCoverageHandler.processQuery(firstWcpsQuery);
+            Response secondResponse = processCoverageHandler.processQuery(secondWcpsQuery);
+
+            response = this.buildMultipartResponse(firstResponse, secondResponse);
+        } else {
+            firstWcpsQuery = wcpsQuery.replace(ENCODE_FORMAT, encodeFormat);
+            log.debug("Generated a single WCPS query from WCS request: " + firstWcpsQuery);
+            response = processCoverageHandler.processQuery(firstWcpsQuery);
+        }
+
+        return response;
+    }
+
+    /**
+     * Same as handleWCPSResponse() with a WCPS query string, but the query is
+     * built directly without parsing (in GML first and in encodeFormat later
+     * if the request is WCS multipart request).
+     *
+     * @param kvpParameters
+     * @param encodedQuery
+     * @param encodeFormat
+     */
+    public Response handleWCPSResponse(Map<String, String[]> kvpParameters, EncodedQuery encodedQuery, String encodeFormat) throws PetascopeException, WCSException, SecoreException, WMSException {
+        
+        Response response = null;
+        if (this.isMultipart(kvpParameters)) {
+            Response firstResponse = processCoverageHandler.processResult(encodedQuery.build(MIMEUtil.ENCODE_GML));
+            Response secondResponse = processCoverageHandler.processResult(encodedQuery.build(encodeFormat));
+
+            response = this.buildMultipartResponse(firstResponse, secondResponse);
+        } else {
+            response = processCoverageHandler.processResult(encodedQuery.build(encodeFormat));
+        }
+
+        return response;
+    }
+
+    /**
+     * Check if the WCS request asks for a multipart result, e.g: mediaType=multipart/related
+     */
+    private boolean isMultipart(Map<String, String[]> kvpParameters) throws WCSException {
         boolean isMultipart = false;
         if (kvpParameters.get(KVPSymbols.KEY_MEDIATYPE) != null) {
             if (!kvpParameters.get(KVPSymbols.KEY_MEDIATYPE)[0].equals(KVPSymbols.VALUE_MULTIPART_RELATED)) {
@@ -108,28 +154,18 @@ public class ResponseService {
                 }
             }
         }
+        return isMultipart;
+    }
 
-        String firstWcpsQuery, secondWcpsQuery;
-        if (isMultipart == true) {
-            firstWcpsQuery = wcpsQuery.replace(ENCODE_FORMAT, MIMEUtil.ENCODE_GML);
-            secondWcpsQuery = wcpsQuery.replace(ENCODE_FORMAT, encodeFormat);
-            log.debug("Generated a mutlipart WCPS query from WCS request: " + firstWcpsQuery);
-            Response firstResponse = processCoverageHandler.processQuery(firstWcpsQuery);
-            Response secondResponse = processCoverageHandler.processQuery(secondWcpsQuery);
-
-            List<byte[]> datas = new ArrayList<>();
-            datas.addAll(firstResponse.getDatas());
-            datas.addAll(secondResponse.getDatas());
-
-            // Then need to combine the byte[] data from first and second response
-            response = new Response(datas, secondResponse.getFormatType(), secondResponse.getCoverageID());
-        } else {
-            firstWcpsQuery = wcpsQuery.replace(ENCODE_FORMAT, encodeFormat);
-            log.debug("Generated a single WCPS query from WCS request: " + firstWcpsQuery);
-            response = processCoverageHandler.processQuery(firstWcpsQuery);
-        }
+    /**
+     * Combine the byte[] data from the GML and the encoded response of a WCS multipart request
+     */
+    private Response buildMultipartResponse(Response firstResponse, Response secondResponse) throws PetascopeException {
+        List<byte[]> datas = new ArrayList<>();
+        datas.addAll(firstResponse.getDatas());
+        datas.addAll(secondResponse.getDatas());
 
-        return response;
+        return new Response(datas, secondResponse.getFormatType(), secondResponse.getCoverageID());
     }
 }
 
@@ -23,8 +23,8 @@ package petascope.wcps.metadata.model;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import petascope.core.CoefficientList;
 import petascope.core.CrsDefinition;
 import petascope.exceptions.PetascopeException;
 import static petascope.core.AxisTypes.T_AXIS;
@@ -41,7 +41,7 @@ import petascope.wcps.exception.processing.IrregularAxisTrimmingCoefficientNotFo
 public class IrregularAxis extends Axis {
 
     // list of coefficients for irregular axis
-    private List<BigDecimal> directPositions;
+    private CoefficientList directPositions;
     
     public IrregularAxis(String label, NumericSubset geoBounds, NumericSubset originalGridBounds, NumericSubset gridBounds,
             String crsUri, CrsDefinition crsDefinition,
@@ -55,23 +55,23 @@ public class IrregularAxis extends Axis {
             String axisType, String axisUoM,
             int rasdamanOrder, BigDecimal origin, BigDecimal resolution, List<BigDecimal> directPositions, NumericSubset originalGeoBounds) {
         super(label, geoBounds, originalGridBounds, gridBounds, crsUri, crsDefinition, axisType, axisUoM, rasdamanOrder, origin, resolution, originalGeoBounds);
-        this.directPositions = directPositions;
+        this.directPositions = CoefficientList.valueOf(directPositions);
 
     }
 
-    public List<BigDecimal> getDirectPositions() {
+    public CoefficientList getDirectPositions() {
         return directPositions;
     }
 
     public void setDirectPositions(List<BigDecimal> directPositions) {
-        this.directPositions = directPositions;
+        this.directPositions = CoefficientList.valueOf(directPositions);
     }
 
     /**
      * Get the fixed first slice (0) imported coefficient's index from list of directPositions
      */
     public int getIndexOfCoefficientZero() {
-        int i = Collections.binarySearch(this.directPositions, BigDecimal.ZERO);        
+        int i = this.directPositions.binarySearch(BigDecimal.ZERO);
         return i;
     }
     
@@ -79,7 +79,7 @@ public class IrregularAxis extends Axis {
      * Return the index of input coefficient in list of directions
      */
     public int getIndexOfCoefficient(BigDecimal coefficient) throws PetascopeException {
-        int i = Collections.binarySearch(this.directPositions, coefficient);
+        int i = this.directPositions.binarySearch(coefficient);
         
         return i;
     }
@@ -160,7 +160,6 @@ public class IrregularAxis extends Axis {
         
         Long minIndex = null;
         Long maxIndex = null;
-        boolean foundMinIndex = false;
         
         BigDecimal coefficientLowerBound = this.directPositions.get(0);
         BigDecimal coefficientUpperBound = this.directPositions.get(this.directPositions.size() - 1);
@@ -175,25 +174,15 @@ public class IrregularAxis extends Axis {
                                                     + "' of irregular axis '" + this.getLabel() + "'.");
         }
         
-        Long i = Long.valueOf("0");
-
-        // coefficient in numbers for legacy coverages
-        for (BigDecimal coefficient : directPositions) {
-            // find the min number which >= minInput
-            if (!foundMinIndex && coefficient.compareTo(minInput) >= 0) {
-                minIndex = i;
-                foundMinIndex = true;
-            }
-            // find the max number which <= maxInput (as it is ascending list, so don't stop until coefficent > maxInput
-            if (coefficient.compareTo(maxInput) <= 0) {
-                maxIndex = i;
-            }
-            // stop as it should find the minIndex and maxIndex already
-            if (coefficient.compareTo(maxInput) >= 0) {
-                break;
-            }
-
-            i++;
+        // find the min number which >= minInput
+        int index = this.directPositions.ceilingIndex(minInput);
+        if (index < this.directPositions.size()) {
+            minIndex = Long.valueOf(index);
+        }
+        // find the max number which <= maxInput
+        index = this.directPositions.floorIndex(maxInput);
+        if (index >= 0) {
+            maxIndex = Long.valueOf(index);
         }
 
         Pair<Long, Long> gridBoundsPair = new Pair<>(minIndex, maxIndex);
@@ -211,14 +200,8 @@ public class IrregularAxis extends Axis {
         if (gridIndices.fst.compareTo(gridIndices.snd) > 0) {
             throw new IrregularAxisTrimmingCoefficientNotFoundException(this.getLabel(), minInput.toPlainString(), maxInput.toPlainString());
         }
-        List<BigDecimal> coefficients = new ArrayList<>();
-        
-        for (Long i = gridIndices.fst; i <= gridIndices.snd; i++) {
-            BigDecimal coefficient = this.directPositions.get((int)(i.intValue()));
-            coefficients.add(coefficient);
-        }
 
-        return coefficients;
+        return this.directPositions.subList(gridIndices.fst.intValue(), gridIndices.snd.intValue() + 1);
     }
 
     /**
@@ -92,4 +92,8 @@ public class AxisIteratorAliasRegistry {
         rasqlAxisIterators.add(rasqlSubset);
     }
 
+    public boolean isEmpty() {
+        return axisIteratorMappings.isEmpty() && rasqlAxisIterators.isEmpty();
+    }
+
 }
@@ -50,6 +50,10 @@ public class CollectionAliasRegistry {
         return aliasMap;
     }
 
+    public boolean isEmpty() {
+        return aliasMap.isEmpty();
+    }
+
     public void update(String aliasName, String rasdamanCollectionName) {
         aliasMap.put(aliasName, rasdamanCollectionName);
     }
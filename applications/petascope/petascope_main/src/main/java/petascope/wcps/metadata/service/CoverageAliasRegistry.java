@@ -62,6 +62,10 @@ public class CoverageAliasRegistry {
     public void clear() {
         coverageMappings = new LinkedHashMap<>();
     }
+    
+    public boolean isEmpty() {
+        return coverageMappings.isEmpty();
+    }
    
     public void updateCoverageMapping(String coverageAlias, String coverageName, String rasdamanCollectionName) {
         List<Pair<String, String>> values = coverageMappings.get(coverageAlias);
@@ -75,4 +75,8 @@ public class LetClauseAliasRegistry {
     public WcpsResult get(String variableName) {
         return this.variablesMap.get(variableName);
     }
+    
+    public boolean isEmpty() {
+        return this.variablesMap.isEmpty();
+    }
 }
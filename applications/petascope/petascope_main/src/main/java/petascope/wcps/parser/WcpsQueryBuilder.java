@@ -0,0 +1,213 @@
+/*
+ * This file is part of rasdaman community.
+ *
+ * Rasdaman community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Rasdaman community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU  General Public License for more details.
+ *
+ * You should have received a copy of the GNU  General Public License
+ * along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2003 - 2017 Peter Baumann / rasdaman GmbH.
+ *
+ * For more information please see <http://www.rasdaman.org>
+ * or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+package petascope.wcps.parser;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import petascope.exceptions.PetascopeException;
+import petascope.exceptions.SecoreException;
+import petascope.exceptions.WCPSException;
+import petascope.wcps.handler.CoverageVariableNameHandler;
+import petascope.wcps.handler.EncodeCoverageHandler;
+import petascope.wcps.handler.ForClauseHandler;
+import petascope.wcps.handler.ForClauseListHandler;
+import petascope.wcps.handler.RangeConstructorHandler;
+import petascope.wcps.handler.RangeSubsettingHandler;
+import petascope.wcps.handler.ReturnClauseHandler;
+import petascope.wcps.handler.SubsetExpressionHandler;
+import petascope.wcps.handler.WcpsQueryHandler;
+import petascope.wcps.result.VisitorResult;
+import petascope.wcps.result.WcpsResult;
+import petascope.wcps.subset_axis.model.DimensionIntervalList;
+import petascope.wcps.subset_axis.model.WcpsSliceSubsetDimension;
+import petascope.wcps.subset_axis.model.WcpsSubsetDimension;
+import petascope.wcps.subset_axis.model.WcpsTrimSubsetDimension;
+import static petascope.wcs2.parsers.subsets.AbstractSubsetDimension.ASTERISK;
+import static petascope.wcs2.parsers.subsets.AbstractSubsetDimension.QUOTED_SUBSET;
+
+/**
+ * Builds the translation tree of a WCPS query programmatically, by invoking
+ * the same handlers as WcpsEvaluator does for the corresponding WCPS
+ * expressions, but without generating a WCPS query string which has to be
+ * parsed again (e.g: for WCS GetCoverage requests).
+ *
+ * e.g: for c in (test_mr) return encode(c[i(0:10), j(0:20)], "png") is built by
+ * <code>
+ * WcpsResult forClause = builder.forClause("c", "test_mr");
+ * WcpsResult subset = builder.subset(builder.coverageVariable("c"), subsetDimensions);
+ * VisitorResult result = builder.query(forClause, builder.encode(subset, "png", ""));
+ * </code>
+ */
+@Service
+public class WcpsQueryBuilder {
+
+    // e.g: 20, -20.5, 2e-3 which are parsed as number by the WCPS grammar
+    private static final String NUMBER_LITERAL = "^-?[0-9]+(\\.[0-9]*)?([eE][+-]?[0-9]+)?$";
+
+    @Autowired
+    private ForClauseHandler forClauseHandler;
+    @Autowired
+    private ForClauseListHandler forClauseListHandler;
+    @Autowired
+    private CoverageVariableNameHandler coverageVariableNameHandler;
+    @Autowired
+    private SubsetExpressionHandler subsetExpressionHandler;
+    @Autowired
+    private RangeSubsettingHandler rangeSubsettingHandler;
+    @Autowired
+    private RangeConstructorHandler rangeConstructorHandler;
+    @Autowired
+    private EncodeCoverageHandler encodeCoverageHandler;
+    @Autowired
+    private ReturnClauseHandler returnClauseHandler;
+    @Autowired
+    private WcpsQueryHandler wcpsQueryHandler;
+
+    public WcpsQueryBuilder() {
+
+    }
+
+    /**
+     * A WCPS query which is encoded in the format given when it is built, e.g:
+     * the same query is built twice for the GML and the binary part of a
+     * multipart response.
+     */
+    public interface EncodedQuery {
+
+        VisitorResult build(String encodeFormat) throws PetascopeException, SecoreException;
+    }
+
+    /**
+     * e.g: c in (test_mr), it must be built before the coverage variable is
+     * used in the other expressions.
+     */
+    public WcpsResult forClause(String coverageVariable, String coverageId) throws PetascopeException {
+        return forClauseHandler.handle(coverageVariable, Arrays.asList(coverageId));
+    }
+
+    /**
+     * e.g: c
+     */
+    public WcpsResult coverageVariable(String coverageVariable) throws PetascopeException, SecoreException {
+        return coverageVariableNameHandler.handle(coverageVariable);
+    }
+
+    /**
+     * e.g: c[i(0:10), j(0)]
+     */
+    public WcpsResult subset(WcpsResult coverageExpression, List<WcpsSubsetDimension> subsetDimensions) throws PetascopeException {
+        if (subsetDimensions.isEmpty()) {
+            return coverageExpression;
+        }
+        return subsetExpressionHandler.handle(coverageExpression, new DimensionIntervalList(subsetDimensions));
+    }
+
+    /**
+     * e.g: c.red
+     */
+    public WcpsResult rangeSubset(WcpsResult coverageExpression, String fieldName) {
+        return rangeSubsettingHandler.handle(fieldName, coverageExpression);
+    }
+
+    /**
+     * e.g: {red: c.red; blue: c.blue}
+     */
+    public WcpsResult rangeConstructor(Map<String, WcpsResult> fieldStructure) {
+        return rangeConstructorHandler.handle(fieldStructure);
+    }
+
+    /**
+     * e.g: encode(c, "png", "nodata=0")
+     */
+    public WcpsResult encode(WcpsResult coverageExpression, String format, String extraParams) {
+        WcpsResult result = null;
+        try {
+            result = encodeCoverageHandler.handle(coverageExpression, format, extraParams);
+            result.setWithCoordinates(coverageExpression.withCoordinates());
+        } catch (PetascopeException | SecoreException | JsonProcessingException ex) {
+            String errorMessage = "Error processing encode() operator expression. Reason: " + ex.getMessage() + ".";
+            throw new WCPSException(errorMessage, ex);
+        }
+
+        return result;
+    }
+
+    /**
+     * e.g: for c in (test_mr) return processingExpression
+     */
+    public WcpsResult query(WcpsResult forClause, WcpsResult processingExpression) throws PetascopeException {
+        List<WcpsResult> forClauses = new ArrayList<>();
+        forClauses.add(forClause);
+        WcpsResult forClauseList = forClauseListHandler.handle(forClauses);
+        WcpsResult returnClause = returnClauseHandler.handle(processingExpression);
+
+        return wcpsQueryHandler.handle(forClauseList, null, returnClause);
+    }
+
+    /**
+     * e.g: i(0:10) or Lat:"http://.../4326"(20:30), the bounds are WCPS
+     * literals (numbers, quoted timestamps or *).
+     */
+    public static WcpsTrimSubsetDimension trimSubset(String axisName, String crs, String lowerBound, String upperBound) {
+        WcpsTrimSubsetDimension trimSubsetDimension = new WcpsTrimSubsetDimension(axisName, crs,
+                                                                                  translateBound(lowerBound), translateBound(upperBound));
+        if (lowerBound.startsWith("\"") || upperBound.startsWith("\"")) {
+            trimSubsetDimension.setTemporal(true);
+        }
+        return trimSubsetDimension;
+    }
+
+    /**
+     * e.g: i(0) or ansi("2008-01-01"), the bound is a WCPS literal.
+     */
+    public static WcpsSliceSubsetDimension sliceSubset(String axisName, String crs, String bound) {
+        WcpsSliceSubsetDimension sliceSubsetDimension = new WcpsSliceSubsetDimension(axisName, crs == null ? "" : crs, translateBound(bound));
+        if (bound.startsWith("\"")) {
+            sliceSubsetDimension.setTemporal(true);
+        }
+        return sliceSubsetDimension;
+    }
+
+    /**
+     * Check if a subset bound can be used without parsing it as WCPS
+     * expression, i.e: it is a number, a quoted timestamp or *.
+     */
+    public static boolean isLiteralBound(String bound) {
+        return bound.equals(ASTERISK) || bound.matches(QUOTED_SUBSET) || bound.matches(NUMBER_LITERAL);
+    }
+
+    /**
+     * Translate a bound as WcpsEvaluator does, i.e: quotes of timestamps are
+     * removed.
+     */
+    private static String translateBound(String bound) {
+        if (bound.matches(QUOTED_SUBSET)) {
+            return bound.substring(1, bound.length() - 1);
+        }
+        return bound;
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * This file is part of rasdaman community.
+ *
+ * Rasdaman community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Rasdaman community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU  General Public License for more details.
+ *
+ * You should have received a copy of the GNU  General Public License
+ * along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2003 - 2017 Peter Baumann / rasdaman GmbH.
+ *
+ * For more information please see <http://www.rasdaman.org>
+ * or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+package petascope.wcps.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.rasdaman.config.ConfigManager;
+import org.rasdaman.repository.service.CoverageRepositoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import petascope.core.Pair;
+import petascope.wcps.result.VisitorResult;
+import petascope.wcps.result.WcpsMetadataResult;
+import petascope.wcps.result.WcpsResult;
+
+/**
+ * Cache of translated WCPS queries, keyed by the normalized query text.
+ * 
+ * The cache is bounded by ConfigManager.MAX_WCPS_TRANSLATION_CACHE_SIZE entries;
+ * when it is full, the least recently used translations are evicted first.
+ * A translation is valid only as long as none of the coverages it references
+ * was saved or deleted (see CoverageRepositoryService.getCoverageVersion()).
+ */
+@Service
+public class WcpsTranslationCache {
+
+    private static final Logger log = LoggerFactory.getLogger(WcpsTranslationCache.class);
+    // log the cache statistics after this number of lookups
+    private static final long STATISTICS_LOG_INTERVAL = 1000;
+    // upper bounds (in ms) of the translation time histogram buckets, the last bucket is unbounded
+    private static final long[] HISTOGRAM_BOUNDS = {1, 5, 10, 50, 100, 500, 1000};
+
+    // normalized WCPS query -> translation, in order of access (least recently used first)
+    private final LinkedHashMap<String, CachedTranslation> translationsMap = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLongArray hitTimes = new AtomicLongArray(HISTOGRAM_BOUNDS.length + 1);
+    private final AtomicLongArray missTimes = new AtomicLongArray(HISTOGRAM_BOUNDS.length + 1);
+
+    public WcpsTranslationCache() {
+
+    }
+
+    public boolean isEnabled() {
+        return ConfigManager.MAX_WCPS_TRANSLATION_CACHE_SIZE > 0;
+    }
+
+    /**
+     * Return the cached translation of a normalized WCPS query, or null if it
+     * is not cached or one of its coverages has changed since.
+     */
+    public synchronized CachedTranslation get(String normalizedQuery) {
+        CachedTranslation translation = translationsMap.get(normalizedQuery);
+        if (translation != null && !translation.isValid()) {
+            translationsMap.remove(normalizedQuery);
+            invalidations.incrementAndGet();
+            translation = null;
+        }
+
+        if (translation != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        if ((hits.get() + misses.get()) % STATISTICS_LOG_INTERVAL == 0) {
+            log.info(this.toString());
+        }
+        return translation;
+    }
+
+    public synchronized void put(String normalizedQuery, CachedTranslation translation) {
+        translationsMap.put(normalizedQuery, translation);
+        while (translationsMap.size() > ConfigManager.MAX_WCPS_TRANSLATION_CACHE_SIZE) {
+            String eldest = translationsMap.keySet().iterator().next();
+            translationsMap.remove(eldest);
+            evictions.incrementAndGet();
+        }
+    }
+
+    public synchronized void clear() {
+        translationsMap.clear();
+    }
+
+    public synchronized int size() {
+        return translationsMap.size();
+    }
+
+    /**
+     * Record the time to translate a query, either from the cache (hit) or
+     * by parsing and evaluating it.
+     */
+    public void recordTranslationTime(long milliseconds, boolean hit) {
+        AtomicLongArray histogram = hit ? hitTimes : missTimes;
+        int bucket = 0;
+        while (bucket < HISTOGRAM_BOUNDS.length && milliseconds >= HISTOGRAM_BOUNDS[bucket]) {
+            bucket++;
+        }
+        histogram.incrementAndGet(bucket);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * @return ratio of hits to all lookups, 0 if there was no lookup yet
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * @return the number of translations per time bucket, e.g. "<1ms: 10, <5ms: 2, ..., >=1000ms: 0"
+     */
+    public String getTranslationTimeHistogram(boolean hit) {
+        AtomicLongArray histogram = hit ? hitTimes : missTimes;
+        List<String> buckets = new ArrayList<>();
+        for (int i = 0; i < HISTOGRAM_BOUNDS.length; i++) {
+            buckets.add("<" + HISTOGRAM_BOUNDS[i] + "ms: " + histogram.get(i));
+        }
+        buckets.add(">=" + HISTOGRAM_BOUNDS[HISTOGRAM_BOUNDS.length - 1] + "ms: " + histogram.get(HISTOGRAM_BOUNDS.length));
+        return buckets.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "WCPS translation cache: " + this.size() + " entries, " + hits.get() + " hits, " + misses.get() + " misses, "
+               + evictions.get() + " evictions, " + invalidations.get() + " invalidations; "
+               + "translation times of hits " + this.getTranslationTimeHistogram(true)
+               + ", of misses " + this.getTranslationTimeHistogram(false);
+    }
+
+    /**
+     * Normalize a WCPS query, so that queries differing only in whitespace
+     * (outside of string literals) share the same cached translation.
+     */
+    public static String normalize(String wcpsQuery) {
+        StringBuilder result = new StringBuilder(wcpsQuery.length());
+        boolean inString = false;
+        boolean pendingSpace = false;
+        for (int i = 0; i < wcpsQuery.length(); i++) {
+            char c = wcpsQuery.charAt(i);
+            if (!inString && Character.isWhitespace(c)) {
+                pendingSpace = result.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                result.append(' ');
+                pendingSpace = false;
+            }
+            if (c == '"') {
+                inString = !inString;
+            }
+            result.append(c);
+        }
+        return result.toString();
+    }
+
+    /**
+     * A translated WCPS query together with the coverage aliases registered
+     * while translating it, which are needed to rewrite multipart queries.
+     */
+    public static class CachedTranslation {
+
+        private final VisitorResult result;
+        private final LinkedHashMap<String, List<Pair<String, String>>> coverageMappings;
+        private final Map<String, String> collectionAliases;
+        // coverage id -> version of its metadata when the query was translated
+        private final Map<String, Long> coverageVersions;
+
+        /**
+         * @return null if the result cannot be cached
+         */
+        public static CachedTranslation create(VisitorResult result, LinkedHashMap<String, List<Pair<String, String>>> coverageMappings,
+                                               Map<String, String> collectionAliases) {
+            VisitorResult copy = copyResult(result);
+            if (copy == null) {
+                return null;
+            }
+            LinkedHashMap<String, List<Pair<String, String>>> mappings = new LinkedHashMap<>();
+            Map<String, Long> versions = new HashMap<>();
+            for (Map.Entry<String, List<Pair<String, String>>> entry : coverageMappings.entrySet()) {
+                mappings.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+                for (Pair<String, String> pair : entry.getValue()) {
+                    versions.put(pair.fst, CoverageRepositoryService.getCoverageVersion(pair.fst));
+                }
+            }
+            return new CachedTranslation(copy, mappings, new LinkedHashMap<>(collectionAliases), versions);
+        }
+
+        private CachedTranslation(VisitorResult result, LinkedHashMap<String, List<Pair<String, String>>> coverageMappings,
+                                  Map<String, String> collectionAliases, Map<String, Long> coverageVersions) {
+            this.result = result;
+            this.coverageMappings = coverageMappings;
+            this.collectionAliases = collectionAliases;
+            this.coverageVersions = coverageVersions;
+        }
+
+        private boolean isValid() {
+            for (Map.Entry<String, Long> entry : coverageVersions.entrySet()) {
+                if (CoverageRepositoryService.getCoverageVersion(entry.getKey()) != entry.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return a copy of the cached result, which the caller can modify
+         */
+        public VisitorResult getResult() {
+            return copyResult(result);
+        }
+
+        public LinkedHashMap<String, List<Pair<String, String>>> getCoverageMappings() {
+            return coverageMappings;
+        }
+
+        public Map<String, String> getCollectionAliases() {
+            return collectionAliases;
+        }
+
+        private static VisitorResult copyResult(VisitorResult result) {
+            if (result instanceof WcpsResult) {
+                return new WcpsResult((WcpsResult) result);
+            } else if (result instanceof WcpsMetadataResult) {
+                return new WcpsMetadataResult((WcpsMetadataResult) result);
+            }
+            return null;
+        }
+    }
+}
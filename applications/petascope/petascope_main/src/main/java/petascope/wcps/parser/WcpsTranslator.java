@@ -23,19 +23,38 @@ package petascope.wcps.parser;
 
 import petascope.wcps.exception.syntax.ParserErrorHandler;
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
+import org.apache.commons.io.IOUtils;
+import org.rasdaman.repository.service.CoverageRepositoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import petascope.exceptions.ExceptionCode;
 import petascope.exceptions.PetascopeException;
 import petascope.exceptions.WCSException;
 import petascope.exceptions.WCPSException;
+import petascope.core.Pair;
+import petascope.wcps.metadata.service.AxisIteratorAliasRegistry;
+import petascope.wcps.metadata.service.CollectionAliasRegistry;
+import petascope.wcps.metadata.service.CoverageAliasRegistry;
+import petascope.wcps.metadata.service.LetClauseAliasRegistry;
+import petascope.wcps.parser.WcpsTranslationCache.CachedTranslation;
 import petascope.wcps.result.VisitorResult;
 
 /**
  * Class to translate a wcps query into a rasql query using the antlr generated
- * parser and the translation classes in this package
+ * parser and the translation classes in this package; translations are cached
+ * in WcpsTranslationCache.
  *
  * @author <a href="mailto:alex@flanche.net">Alex Dumitru</a>
  * @author <a href="mailto:vlad@flanche.net">Vlad Merticariu</a>
@@ -43,8 +62,24 @@ import petascope.wcps.result.VisitorResult;
 @Service
 public class WcpsTranslator {
 
+    private static final Logger log = LoggerFactory.getLogger(WcpsTranslator.class);
+
+    // representative queries parsed at startup to fill the parser's shared DFA cache
+    private static final String WARMUP_QUERIES_RESOURCE = "/wcps/warmup_queries.txt";
+    private static final String WARMUP_COMMENT_PREFIX = "#";
+
     @Autowired
     private WcpsEvaluator wcpsEvaluator;
+    @Autowired
+    private WcpsTranslationCache wcpsTranslationCache;
+    @Autowired
+    private CoverageAliasRegistry coverageAliasRegistry;
+    @Autowired
+    private CollectionAliasRegistry collectionAliasRegistry;
+    @Autowired
+    private LetClauseAliasRegistry letClauseAliasRegistry;
+    @Autowired
+    private AxisIteratorAliasRegistry axisIteratorAliasRegistry;
 
     public WcpsTranslator() {
 
@@ -59,11 +94,55 @@ public class WcpsTranslator {
      * @throws petascope.exceptions.PetascopeException
      */
     public VisitorResult translate(String wcpsQuery) throws WCPSException, PetascopeException {
-        //create a evaluator object.
+        if (!this.isCacheable()) {
+            //create a evaluator object.
+            VisitorResult result = getTranslationTree(wcpsQuery);
+            return result;
+        }
+
+        long start = System.currentTimeMillis();
+        String normalizedQuery = WcpsTranslationCache.normalize(wcpsQuery);
+        CachedTranslation cachedTranslation = wcpsTranslationCache.get(normalizedQuery);
+        if (cachedTranslation != null) {
+            // restore the aliases as if the query was evaluated, they are needed e.g. to rewrite multipart queries
+            for (Map.Entry<String, List<Pair<String, String>>> entry : cachedTranslation.getCoverageMappings().entrySet()) {
+                for (Pair<String, String> pair : entry.getValue()) {
+                    coverageAliasRegistry.addCoverageMapping(entry.getKey(), pair.fst, pair.snd);
+                }
+            }
+            for (Map.Entry<String, String> entry : cachedTranslation.getCollectionAliases().entrySet()) {
+                collectionAliasRegistry.add(entry.getKey(), entry.getValue());
+            }
+            VisitorResult result = cachedTranslation.getResult();
+            wcpsTranslationCache.recordTranslationTime(System.currentTimeMillis() - start, true);
+            return result;
+        }
+
+        long coverageVersion = CoverageRepositoryService.getLatestCoverageVersion();
         VisitorResult result = getTranslationTree(wcpsQuery);
+        // don't cache the translation if a coverage was changed meanwhile, it may be based on outdated metadata
+        if (coverageVersion == CoverageRepositoryService.getLatestCoverageVersion()) {
+            cachedTranslation = CachedTranslation.create(result, coverageAliasRegistry.getCoverageMappings(), 
+                                                         collectionAliasRegistry.getAliasMap());
+            if (cachedTranslation != null) {
+                wcpsTranslationCache.put(normalizedQuery, cachedTranslation);
+            }
+        }
+        wcpsTranslationCache.recordTranslationTime(System.currentTimeMillis() - start, false);
         return result;
     }
 
+    /**
+     * A translation can be cached only if the query is evaluated with empty
+     * alias registries, otherwise its result may depend on previous queries 
+     * in the same request.
+     */
+    private boolean isCacheable() {
+        return wcpsTranslationCache.isEnabled()
+               && coverageAliasRegistry.isEmpty() && collectionAliasRegistry.isEmpty()
+               && letClauseAliasRegistry.isEmpty() && axisIteratorAliasRegistry.isEmpty();
+    }
+
     /**
      * Converts the wcps query into a translation tree that can be used to
      * generate a rasql query
@@ -72,20 +151,12 @@ public class WcpsTranslator {
      * @return a translation tree
      */
     private VisitorResult getTranslationTree(String wcpsQuery) throws PetascopeException {
-        ANTLRInputStream input = new ANTLRInputStream(wcpsQuery);
-        wcpsLexer lexer = new wcpsLexer(input);
-        CommonTokenStream tokenStream = new CommonTokenStream(lexer);
-        wcpsParser parser = new wcpsParser(tokenStream);
-        parser.removeErrorListeners();
-        // Add a listener to throw WCPSProcessingError when parsing is error
-        parser.addErrorListener(new ParserErrorHandler());
         VisitorResult translationTree = null;
         ParseTree parseTree = null;
 
-
         // If query cannot be parsed, it is SyntaxError Exception (needed for OGC CITE test)
         try {
-            parseTree = parser.wcpsQuery();
+            parseTree = this.parse(wcpsQuery);
         } catch (WCPSException ex) {
             throw new PetascopeException(ExceptionCode.SyntaxError, ex.getMessage(), ex);
         }
@@ -103,4 +174,78 @@ public class WcpsTranslator {
         }
         return translationTree;
     }
+
+    /**
+     * Parses the wcps query in two stages: first with the faster SLL prediction
+     * mode which bails out on the first error, and only if this fails again
+     * with the full LL prediction mode. SLL can fail on valid queries, but when
+     * it succeeds the parse tree is the same as with LL, so the second stage
+     * decides whether the query is really invalid and reports the error as
+     * before.
+     *
+     * @param wcpsQuery the query to be parsed
+     * @return the parse tree of the query
+     * @throws WCPSException if the query has a syntax error
+     */
+    private ParseTree parse(String wcpsQuery) throws WCPSException {
+        ANTLRInputStream input = new ANTLRInputStream(wcpsQuery);
+        wcpsLexer lexer = new wcpsLexer(input);
+        CommonTokenStream tokenStream = new CommonTokenStream(lexer);
+        wcpsParser parser = new wcpsParser(tokenStream);
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        try {
+            return parser.wcpsQuery();
+        } catch (ParseCancellationException | WCPSException ex) {
+            log.trace("SLL parsing of WCPS query failed, retrying with LL prediction mode.");
+        }
+
+        // rewinds the token stream as well
+        parser.reset();
+        parser.setErrorHandler(new DefaultErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        // Add a listener to throw WCPSProcessingError when parsing is error
+        parser.addErrorListener(new ParserErrorHandler());
+        return parser.wcpsQuery();
+    }
+
+    /**
+     * Parses (without evaluating) the representative queries in
+     * WARMUP_QUERIES_RESOURCE, so that the DFA shared by all parser instances
+     * is populated before the first requests arrive.
+     */
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        InputStream inputStream = this.getClass().getResourceAsStream(WARMUP_QUERIES_RESOURCE);
+        if (inputStream == null) {
+            log.warn("WCPS parser warm-up queries resource '" + WARMUP_QUERIES_RESOURCE + "' not found.");
+            return;
+        }
+
+        List<String> lines;
+        try {
+            lines = IOUtils.readLines(inputStream, "UTF-8");
+        } catch (IOException ex) {
+            log.warn("Cannot read WCPS parser warm-up queries. Reason: " + ex.getMessage(), ex);
+            return;
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+
+        int parsedQueries = 0;
+        for (String line : lines) {
+            String wcpsQuery = line.trim();
+            if (wcpsQuery.isEmpty() || wcpsQuery.startsWith(WARMUP_COMMENT_PREFIX)) {
+                continue;
+            }
+            try {
+                this.parse(wcpsQuery);
+                parsedQueries++;
+            } catch (Exception ex) {
+                log.debug("Cannot parse WCPS parser warm-up query '" + wcpsQuery + "'. Reason: " + ex.getMessage());
+            }
+        }
+        log.info("WCPS parser warmed up with " + parsedQueries + " queries in " + (System.currentTimeMillis() - start) + " ms.");
+    }
 }
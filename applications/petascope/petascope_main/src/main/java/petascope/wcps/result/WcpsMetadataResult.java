@@ -34,6 +34,16 @@ public class WcpsMetadataResult extends VisitorResult {
         this.metadata = metadata;
         this.result = result;
     }
+    
+    /**
+     * Shallow copy of a result, e.g. to reuse a cached translation;
+     * the metadata is shared, so it must not be modified.
+     */
+    public WcpsMetadataResult(WcpsMetadataResult wcpsMetadataResult) {
+        this.metadata = wcpsMetadataResult.metadata;
+        this.result = wcpsMetadataResult.result;
+        this.mimeType = wcpsMetadataResult.mimeType;
+    }
 
     @Override
     public String getMimeType() {
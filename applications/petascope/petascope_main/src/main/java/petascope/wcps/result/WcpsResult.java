@@ -59,6 +59,20 @@ public class WcpsResult extends VisitorResult {
     public WcpsResult(DimensionIntervalList dimensionIntervalList) {
         this.dimensionIntervalList = dimensionIntervalList;
     }
+    
+    /**
+     * Shallow copy of a result, e.g. to reuse a cached translation;
+     * the metadata is shared, so it must not be modified.
+     */
+    public WcpsResult(WcpsResult wcpsResult) {
+        this.rasql = wcpsResult.rasql;
+        this.metadata = wcpsResult.metadata;
+        this.result = wcpsResult.result;
+        this.mimeType = wcpsResult.mimeType;
+        this.dimensionIntervalList = wcpsResult.dimensionIntervalList;
+        this.collectionAliasRegistry = wcpsResult.collectionAliasRegistry;
+        this.withCoordinates = wcpsResult.withCoordinates;
+    }
 
     // Used when create a new rasql query for multipart purpose
     public void setRasql(String rasql) {
@@ -0,0 +1,223 @@
+/*
+ * This file is part of rasdaman community.
+ *
+ * Rasdaman community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Rasdaman community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU  General Public License for more details.
+ *
+ * You should have received a copy of the GNU  General Public License
+ * along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2003 - 2018 Peter Baumann / rasdaman GmbH.
+ *
+ * For more information please see <http://www.rasdaman.org>
+ * or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+package petascope.wcps.result.executor;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import org.rasdaman.config.ConfigManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import petascope.core.response.StreamedResponseParts;
+import petascope.exceptions.ExceptionCode;
+import petascope.exceptions.PetascopeException;
+import petascope.exceptions.SecoreException;
+import petascope.util.ras.RasUtil;
+import petascope.wcps.result.WcpsResult;
+
+/**
+ * Execute the rasql queries of a multipart WCPS query (one per coverage),
+ * running up to ConfigManager.MAX_PARALLEL_MULTIPART_QUERIES of them
+ * concurrently; the limit is shared by all requests. The queries are run
+ * with RasUtil.getRasqlResultAsBytesAsync(), so that no thread is blocked
+ * for each running query.
+ *
+ * Only the rasql queries run asynchronously; their results are
+ * post-processed in the request thread while the response is written,
+ * which may need request scoped beans.
+ */
+@Service
+public class WcpsMultipartExecutor {
+
+    @Autowired
+    private WcpsRasqlExecutor wcpsRasqlExecutor;
+
+    // permits for the running queries of all requests
+    private volatile Semaphore runningQueries;
+
+    public WcpsMultipartExecutor() {
+    }
+
+    /**
+     * Execute the rasql queries of wcpsResult. The queries are submitted in
+     * order, at most MAX_PARALLEL_MULTIPART_QUERIES ahead of the part which is
+     * currently written, so that memory stays bounded by that many parts.
+     *
+     * The first part is awaited here, so that errors in the query (which
+     * usually fail for all parts) are reported before the response is sent.
+     *
+     * @return the results in the order of rasqlQueries; must be closed by the caller
+     */
+    public StreamedResponseParts execute(WcpsResult wcpsResult, List<String> rasqlQueries) throws PetascopeException {
+        MultipartQueryParts parts = new MultipartQueryParts(wcpsResult, rasqlQueries);
+        try {
+            parts.fetchFirst();
+        } catch (PetascopeException | RuntimeException ex) {
+            parts.close();
+            throw ex;
+        }
+        return parts;
+    }
+
+    /**
+     * Results of the rasql queries of a multipart WCPS query, which are
+     * executed asynchronously and post-processed when they are returned.
+     */
+    private class MultipartQueryParts implements StreamedResponseParts {
+
+        private final WcpsResult wcpsResult;
+        private final List<String> rasqlQueries;
+        // queries submitted but whose results are not returned yet, in order
+        private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        private int nextToSubmit = 0;
+        private int nextToReturn = 0;
+        private byte[] first;
+
+        private MultipartQueryParts(WcpsResult wcpsResult, List<String> rasqlQueries) {
+            this.wcpsResult = wcpsResult;
+            this.rasqlQueries = rasqlQueries;
+        }
+
+        private void fetchFirst() throws PetascopeException {
+            first = this.next();
+        }
+
+        @Override
+        public byte[] next() throws PetascopeException {
+            if (first != null) {
+                byte[] ret = first;
+                first = null;
+                return ret;
+            }
+            if (nextToReturn >= rasqlQueries.size()) {
+                return null;
+            }
+            String rasql = rasqlQueries.get(nextToReturn);
+            byte[] arrayData;
+            try {
+                this.submitQueries();
+                arrayData = getResult(pending.removeFirst(), rasql);
+                nextToReturn++;
+                this.submitQueries();
+                wcpsResult.setRasql(rasql);
+                return wcpsRasqlExecutor.processResult(wcpsResult, arrayData);
+            } catch (PetascopeException | RuntimeException ex) {
+                // a failed part cancels the rest
+                this.close();
+                throw ex;
+            } catch (SecoreException ex) {
+                this.close();
+                throw new PetascopeException(ExceptionCode.InternalComponentError,
+                        "Failed processing result of rasql query '" + rasql + "'. Reason: " + ex.getMessage(), ex);
+            }
+        }
+
+        private void submitQueries() throws PetascopeException {
+            final Semaphore permits = getRunningQueries();
+            while (nextToSubmit < rasqlQueries.size() && pending.size() < ConfigManager.MAX_PARALLEL_MULTIPART_QUERIES) {
+                String rasql = rasqlQueries.get(nextToSubmit);
+                // wait for a permit only when nothing of this request is running,
+                // otherwise the query is submitted when the next part is returned
+                if (pending.isEmpty()) {
+                    try {
+                        permits.acquire();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new PetascopeException(ExceptionCode.InternalComponentError,
+                                "Interrupted while waiting to execute rasql query '" + rasql + "'.", ex);
+                    }
+                } else if (!permits.tryAcquire()) {
+                    return;
+                }
+
+                ListenableFuture<byte[]> future;
+                try {
+                    future = RasUtil.getRasqlResultAsBytesAsync(rasql);
+                } catch (PetascopeException | RuntimeException ex) {
+                    permits.release();
+                    throw ex;
+                }
+                future.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        permits.release();
+                    }
+                }, MoreExecutors.directExecutor());
+                pending.addLast(future);
+                nextToSubmit++;
+            }
+        }
+
+        @Override
+        public void close() {
+            // no-op for finished queries; a running query is cancelled, which
+            // aborts its transaction and releases its rasdaman connection
+            for (Future<byte[]> future : pending) {
+                future.cancel(false);
+            }
+            pending.clear();
+            nextToSubmit = rasqlQueries.size();
+            nextToReturn = rasqlQueries.size();
+            first = null;
+        }
+    }
+
+    private byte[] getResult(Future<byte[]> future, String rasql) throws PetascopeException, SecoreException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            // the request thread was interrupted while the query was still running, e.g: the servlet container is stopped
+            Thread.currentThread().interrupt();
+            throw new PetascopeException(ExceptionCode.InternalComponentError,
+                    "Interrupted while waiting for the result of rasql query '" + rasql + "'.", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof PetascopeException) {
+                throw (PetascopeException) cause;
+            } else if (cause instanceof SecoreException) {
+                throw (SecoreException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new PetascopeException(ExceptionCode.InternalComponentError,
+                    "Failed executing rasql query '" + rasql + "'. Reason: " + cause.getMessage(), (Exception) cause);
+        }
+    }
+
+    private Semaphore getRunningQueries() {
+        if (runningQueries == null) {
+            synchronized (this) {
+                if (runningQueries == null) {
+                    runningQueries = new Semaphore(ConfigManager.MAX_PARALLEL_MULTIPART_QUERIES);
+                }
+            }
+        }
+        return runningQueries;
+    }
+}
@@ -21,16 +21,19 @@
  */
 package petascope.wcps.result.executor;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
-import nu.xom.Element;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import petascope.exceptions.PetascopeException;
 import petascope.exceptions.SecoreException;
+import petascope.util.ras.RasStreamedResult;
 import petascope.util.ras.RasUtil;
 import petascope.wcps.metadata.model.WcpsCoverageMetadata;
 import petascope.wcps.result.WcpsResult;
@@ -39,10 +42,8 @@ import petascope.exceptions.ExceptionCode;
 import petascope.util.CrsUtil;
 import petascope.util.ListUtil;
 import petascope.util.TimeUtil;
+import petascope.core.gml.GMLCoverageTemplate;
 import petascope.core.gml.GMLWCSRequestResultBuilder;
-import petascope.util.XMLUtil;
-import static petascope.util.ras.RasConstants.RASQL_OPEN_SUBSETS;
-import static petascope.util.ras.RasConstants.RASQL_CLOSE_SUBSETS;
 import static petascope.wcps.handler.ClipWKTExpressionHandler.WITH_COORDINATES;
 import petascope.wcps.metadata.model.Axis;
 import petascope.wcps.metadata.model.IrregularAxis;
@@ -66,10 +67,18 @@ public class WcpsRasqlExecutor implements WcpsExecutor<WcpsResult> {
 
     @Override
     public byte[] execute(WcpsResult wcpsResult) throws PetascopeException, SecoreException {
-        // mimeType is a full mime, e.g: application/gml+xml, image/png,...
-        String mimeType = wcpsResult.getMimeType();
         // Return the result of rasql query as array of bytes
         byte[] arrayData = RasUtil.getRasqlResultAsBytes(wcpsResult.getRasql());
+        return this.processResult(wcpsResult, arrayData);
+    }
+
+    /**
+     * Post-process the result of the rasql query of a WCPS result, e.g. build
+     * a GML coverage from it; other results are returned as they are.
+     */
+    public byte[] processResult(WcpsResult wcpsResult, byte[] arrayData) throws PetascopeException, SecoreException {
+        // mimeType is a full mime, e.g: application/gml+xml, image/png,...
+        String mimeType = wcpsResult.getMimeType();
         // If encoding is gml so build the GML Coverage with the tupleList contains the rasql result values
         if (mimeType != null) {
             if (wcpsResult.withCoordinates()) {
@@ -86,6 +95,35 @@ public class WcpsRasqlExecutor implements WcpsExecutor<WcpsResult> {
         return arrayData;
     }
     
+    /**
+     * Check if the result of a WCPS query can be written to the client directly as
+     * returned by rasdaman, i.e. it does not need to be post-processed by petascope.
+     */
+    public boolean isStreamable(WcpsResult wcpsResult) {
+        String mimeType = wcpsResult.getMimeType();
+        if (mimeType != null && mimeType.equals(MIMEUtil.MIME_GML)) {
+            // the GML coverage is written around the result while it is streamed
+            return !wcpsResult.withCoordinates() && wcpsResult.getMetadata() != null;
+        }
+        return mimeType != null && !wcpsResult.withCoordinates();
+    }
+
+    /**
+     * Execute the Rasql query of a streamable WCPS result and return its result
+     * without reading it in memory; the returned result must be closed by the caller.
+     */
+    public RasStreamedResult executeStreamed(WcpsResult wcpsResult) throws PetascopeException, SecoreException {
+        GMLCoverageTemplate template = null;
+        if (wcpsResult.getMimeType().equals(MIMEUtil.MIME_GML)) {
+            // built before running the query, so that errors are reported before the response is sent
+            template = this.gmlWCSRequestResultBuilder.buildGetCoverageResultTemplate(wcpsResult.getMetadata());
+        }
+        RasStreamedResult streamedResult = RasUtil.executeRasqlQueryStreamed(wcpsResult.getRasql());
+        streamedResult.setEncoder(template);
+        
+        return streamedResult;
+    }
+    
     /**
      * Translate grid to geo coordinates for encode(clip(c, LineString()) with coordinates, "csv/json").
      * The result is 1D array as string.
@@ -174,33 +212,19 @@ public class WcpsRasqlExecutor implements WcpsExecutor<WcpsResult> {
     }
 
     /**
-     * Build a GML coverage in application/gml+xml as a GetCoverage request
+     * Build a GML coverage in application/gml+xml as a GetCoverage request, the rasql result
+     * values are converted to the tupleList while they are copied in the GML coverage.
      */
     private byte[] buildGmlCovResult(WcpsCoverageMetadata wcpsCoverageMetadata, byte[] arrayData) throws PetascopeException, SecoreException {
-        // Run the rasql query to get the data and put in <tupleList ts="," cs="> ... </tupleList>        
-        String tupleList = new String(arrayData);
-        tupleList = this.rasJsonToTupleList(tupleList);
-
-        Element gmlGetCoverageElement = this.gmlWCSRequestResultBuilder.buildGetCoverageResult(wcpsCoverageMetadata, tupleList);
-        String gml = gmlGetCoverageElement.toXML();
-                
-        // format the output with indentation
-        gml = XMLUtil.formatXML(gml);
-
-        return gml.getBytes();
-    }
+        GMLCoverageTemplate template = this.gmlWCSRequestResultBuilder.buildGetCoverageResultTemplate(wcpsCoverageMetadata);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(arrayData.length + 4096);
+        try (OutputStream tupleListStream = template.encode(outputStream)) {
+            tupleListStream.write(arrayData);
+        } catch (IOException ex) {
+            throw new PetascopeException(ExceptionCode.InternalComponentError, 
+                    "Failed building GML coverage from rasql result. Reason: " + ex.getMessage(), ex);
+        }
 
-    /**
-     * Transforms a JSON output (http://rasdaman.org/ticket/1578) returned by rasdaman server into a JSON format
-     * accepted by the gml:tupleList according to section 19.3.8 of the OGC GML
-     * standard version 3.2.1
-     *
-     * @param json - a JSON input like [b1 b2 ... bn, b1 b2 ... bn, ...], [...]
-     * where each [...] represents a dimension and each sequence b1 ... bn n
-     * bands
-     * @return JSON string of form b1 b2 .. bn, b1 b2 ... bn, ...
-     */
-    private String rasJsonToTupleList(String json) {
-        return json.replace(RASQL_OPEN_SUBSETS, "").replace(RASQL_CLOSE_SUBSETS, "").replace("\"", "");
+        return outputStream.toByteArray();
     }
 }
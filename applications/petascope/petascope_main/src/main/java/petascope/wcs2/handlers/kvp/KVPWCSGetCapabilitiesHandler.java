@@ -22,11 +22,14 @@
 package petascope.wcs2.handlers.kvp;
 
 import petascope.core.response.Response;
+import petascope.core.service.GetCapabilitiesCacheService;
+import petascope.core.service.GetCapabilitiesCacheService.DocumentBuilder;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
 import nu.xom.Element;
 import org.rasdaman.config.VersionManager;
+import org.rasdaman.repository.service.CoverageRepositoryService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -61,6 +64,8 @@ public class KVPWCSGetCapabilitiesHandler extends KVPWCSAbstractHandler {
     
     @Autowired
     private GMLWCSRequestResultBuilder gmlWCSRequestResultBuilder;
+    @Autowired
+    private GetCapabilitiesCacheService getCapabilitiesCacheService;
 
     public KVPWCSGetCapabilitiesHandler() {
 
@@ -95,22 +100,29 @@ public class KVPWCSGetCapabilitiesHandler extends KVPWCSAbstractHandler {
             }
         }
         
-        String gml = "";
-
         // The first supported version will return GetCapabilities result (e.g: acceptVersions=2.0.1,2.1) then it returns 2.0.1 GetCapabilities
         String[] versions = kvpParameters.get(KEY_VERSION);        
-        for (String version : versions) {
+        for (final String version : versions) {
             if (VersionManager.getAllSupportedVersions(KVPSymbols.WCS_SERVICE).contains(version)) {
-                Element capabilitiesElement = this.gmlWCSRequestResultBuilder.buildGetCapabilitiesResult(version);
+                // The serialized document is cached until a coverage or the OWS service metadata is changed
+                return this.getCapabilitiesCacheService.getResponse(KVPSymbols.WCS_SERVICE, version, new DocumentBuilder() {
+                    @Override
+                    public String build() throws PetascopeException, SecoreException {
+                        Element capabilitiesElement = gmlWCSRequestResultBuilder.buildGetCapabilitiesResult(version);
+
+                        // format XML to have indentation
+                        return XMLUtil.formatXML(capabilitiesElement.toXML());
+                    }
 
-                // format XML to have indentation
-                gml = XMLUtil.formatXML(capabilitiesElement.toXML());
-                
-                break;
+                    @Override
+                    public boolean isCacheable() {
+                        return !CoverageRepositoryService.hasUnknownCoveragesExtents();
+                    }
+                });
             }
         }
 
         // GetCapabilities only returns 1 XML string                
-        return new Response(Arrays.asList(gml.getBytes()), MIMEUtil.MIME_GML);
+        return new Response(Arrays.asList("".getBytes()), MIMEUtil.MIME_GML);
     }
 }
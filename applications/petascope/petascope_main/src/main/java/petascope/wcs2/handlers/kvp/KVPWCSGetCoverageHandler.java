@@ -35,6 +35,7 @@ import petascope.exceptions.ExceptionCode;
 import petascope.exceptions.PetascopeException;
 import petascope.exceptions.SecoreException;
 import petascope.exceptions.WCSException;
+import petascope.exceptions.WCPSException;
 import petascope.core.KVPSymbols;
 import static petascope.core.KVPSymbols.KEY_CLIP;
 import static petascope.core.KVPSymbols.KEY_COVERAGEID;
@@ -62,15 +63,24 @@ import petascope.util.JSONUtil;
 import petascope.util.ListUtil;
 import petascope.util.MIMEUtil;
 import petascope.util.SetUtil;
+import petascope.wcps.exception.processing.DuplcateRangeNameException;
 import petascope.wcps.metadata.model.Axis;
+import petascope.wcps.metadata.model.RangeField;
 import petascope.wcps.metadata.model.WcpsCoverageMetadata;
 import petascope.wcps.metadata.service.WcpsCoverageMetadataTranslator;
+import petascope.wcps.parser.WcpsQueryBuilder;
+import petascope.wcps.parser.WcpsQueryBuilder.EncodedQuery;
+import petascope.wcps.result.VisitorResult;
+import petascope.wcps.result.WcpsResult;
+import petascope.wcps.subset_axis.model.WcpsSubsetDimension;
 import petascope.wcs2.handlers.kvp.service.KVPWCSGetCoverageInterpolationService;
 import petascope.wcs2.handlers.kvp.service.KVPWCSGetCoverageRangeSubsetService;
 import petascope.wcs2.handlers.kvp.service.KVPWCSGetCoverageScalingService;
 import petascope.wcs2.handlers.kvp.service.KVPWCSGetCoverageSubsetDimensionService;
 import petascope.wcs2.handlers.kvp.service.KVPWCSGetcoverageClipService;
 import petascope.wcs2.parsers.subsets.AbstractSubsetDimension;
+import petascope.wcs2.parsers.subsets.SlicingSubsetDimension;
+import petascope.wcs2.parsers.subsets.TrimmingSubsetDimension;
 import static petascope.util.ras.RasConstants.RASQL_OPEN_SUBSETS;
 import static petascope.util.ras.RasConstants.RASQL_CLOSE_SUBSETS;
 
@@ -85,6 +95,8 @@ public class KVPWCSGetCoverageHandler extends KVPWCSAbstractHandler {
 
     @Autowired
     private WcpsCoverageMetadataTranslator wcpsCoverageMetadataTranslator;
+    @Autowired
+    private WcpsQueryBuilder wcpsQueryBuilder;
 
     // Services for GetCoverageKVP
     @Autowired
@@ -183,21 +195,6 @@ public class KVPWCSGetCoverageHandler extends KVPWCSAbstractHandler {
                 kvpGetCoverageRangeSubsetService.handleRangeSubsets(wcpsCoverageMetadata, rangeSubsets.trim().split(","));
             }
 
-            // Generate the WCPS query from the translated WcpsCoverageMetadata
-            String generateCoverageExpression = this.generateCoverageExpression(kvpParameters,
-                    wcpsCoverageMetadata, subsetDimensions, interpolationType);
-
-            // The main content of WCPS query
-            String queryContent;
-            // Range constructor handlers for singleband and multibands coverages
-
-            // e.g: test_mr covearge with only 1 band
-            queryContent = kvpGetCoverageRangeSubsetService.generateRangeConstructorWCPS(wcpsCoverageMetadata,
-                    generateCoverageExpression, rangeSubsets);
-
-            // Scale extension
-            queryContent = kvpGetCoverageScalingService.handleScaleExtension(queryContent, kvpParameters);
-
             // Output format
             String requestedMime = MIMEUtil.MIME_GML;
             if (kvpParameters.get(KVPSymbols.KEY_FORMAT) != null) {
@@ -213,21 +210,134 @@ public class KVPWCSGetCoverageHandler extends KVPWCSAbstractHandler {
             String options = "";
             if (extraOptions.size() > 0) {
                 options = JSONUtil.serializeObjectToJSONStringNoIndentation(extraOptions);
-                options = JSONUtil.escapeQuote(options);
             }
             
-            wcpsQuery = WCPS_QUERY_TEMPLATE.replace("$coverageId", coverageId)
-                                           .replace("$queryContent", queryContent)
-                                           .replace(EXTRA_OPTIONS, options);
+            Response responseTmp;
+            if (this.canBuildWcpsQueryDirectly(kvpParameters, subsetDimensions)) {
+                // Simple requests (only subsets and range subsets) are translated without generating and parsing a WCPS query
+                EncodedQuery encodedQuery = this.createEncodedQuery(coverageId, wcpsCoverageMetadata, subsetDimensions, rangeSubsets != null, options);
+                responseTmp = responseService.handleWCPSResponse(kvpParameters, encodedQuery, requestedMime);
+            } else {
+                // Generate the WCPS query from the translated WcpsCoverageMetadata
+                String generateCoverageExpression = this.generateCoverageExpression(kvpParameters,
+                        wcpsCoverageMetadata, subsetDimensions, interpolationType);
+
+                // The main content of WCPS query
+                String queryContent;
+                // Range constructor handlers for singleband and multibands coverages
 
-            // Handle multipart for WCS (WCPS) request if any or non multipart            
-            Response responseTmp = responseService.handleWCPSResponse(kvpParameters, wcpsQuery, requestedMime);
+                // e.g: test_mr covearge with only 1 band
+                queryContent = kvpGetCoverageRangeSubsetService.generateRangeConstructorWCPS(wcpsCoverageMetadata,
+                        generateCoverageExpression, rangeSubsets);
+
+                // Scale extension
+                queryContent = kvpGetCoverageScalingService.handleScaleExtension(queryContent, kvpParameters);
+
+                wcpsQuery = WCPS_QUERY_TEMPLATE.replace("$coverageId", coverageId)
+                                               .replace("$queryContent", queryContent)
+                                               .replace(EXTRA_OPTIONS, JSONUtil.escapeQuote(options));
+
+                // Handle multipart for WCS (WCPS) request if any or non multipart            
+                responseTmp = responseService.handleWCPSResponse(kvpParameters, wcpsQuery, requestedMime);
+            }
             responses.add(responseTmp);
         }
 
         return responseService.buildResponse(responses);
     }
 
+    /**
+     * Check if the request can be translated with WcpsQueryBuilder, i.e: it
+     * contains only subsets with literal bounds and range subsets, and not
+     * the CRS, clipping or scaling extensions.
+     */
+    private boolean canBuildWcpsQueryDirectly(Map<String, String[]> kvpParameters, List<AbstractSubsetDimension> subsetDimensions) {
+        if (AbstractController.getValueByKeyAllowNull(kvpParameters, KEY_SUBSETTING_CRS) != null
+            || AbstractController.getValueByKeyAllowNull(kvpParameters, KEY_OUTPUT_CRS) != null
+            || kvpParameters.get(KVPSymbols.KEY_CLIP) != null) {
+            return false;
+        }
+        for (String key : kvpParameters.keySet()) {
+            if (key.toLowerCase().contains(KVPSymbols.KEY_SCALE_PREFIX)) {
+                return false;
+            }
+        }
+        for (AbstractSubsetDimension subsetDimension : subsetDimensions) {
+            if (subsetDimension instanceof TrimmingSubsetDimension) {
+                TrimmingSubsetDimension trimmingSubsetDimension = (TrimmingSubsetDimension) subsetDimension;
+                if (!WcpsQueryBuilder.isLiteralBound(trimmingSubsetDimension.getLowerBound())
+                    || !WcpsQueryBuilder.isLiteralBound(trimmingSubsetDimension.getUpperBound())) {
+                    return false;
+                }
+            } else if (!WcpsQueryBuilder.isLiteralBound(((SlicingSubsetDimension) subsetDimension).getBound())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create the query which is equivalent to the WCPS query generated from
+     * WCPS_QUERY_TEMPLATE, e.g: for c in (test_mr) return encode(c[i(0:20)], "png", "")
+     * or with range subsets: encode({ b1: c[i(0:20)].b1; b2: c[i(0:20)].b2 }, "png", "")
+     */
+    private EncodedQuery createEncodedQuery(final String coverageId, final WcpsCoverageMetadata wcpsCoverageMetadata,
+                                            final List<AbstractSubsetDimension> subsetDimensions,
+                                            final boolean hasRangeSubsets, final String extraParams) {
+        return new EncodedQuery() {
+            @Override
+            public VisitorResult build(String encodeFormat) throws PetascopeException, SecoreException {
+                try {
+                    WcpsResult forClause = wcpsQueryBuilder.forClause(WCPS_COVERAGE_ALIAS, coverageId);
+                    WcpsResult queryContent;
+                    if (!hasRangeSubsets) {
+                        queryContent = buildCoverageExpression(wcpsCoverageMetadata, subsetDimensions);
+                    } else {
+                        Map<String, WcpsResult> fieldStructure = new LinkedHashMap<>();
+                        for (RangeField rangeField : wcpsCoverageMetadata.getRangeFields()) {
+                            if (fieldStructure.containsKey(rangeField.getName())) {
+                                throw new DuplcateRangeNameException(rangeField.getName());
+                            }
+                            WcpsResult coverageExpression = buildCoverageExpression(wcpsCoverageMetadata, subsetDimensions);
+                            fieldStructure.put(rangeField.getName(), wcpsQueryBuilder.rangeSubset(coverageExpression, rangeField.getName()));
+                        }
+                        queryContent = wcpsQueryBuilder.rangeConstructor(fieldStructure);
+                    }
+
+                    return wcpsQueryBuilder.query(forClause, wcpsQueryBuilder.encode(queryContent, encodeFormat, extraParams));
+                } catch (WCPSException ex) {
+                    // Same as errors when evaluating a WCPS query
+                    throw new WCSException(ex.getExceptionCode(), ex.getMessage(), ex);
+                }
+            }
+        };
+    }
+
+    /**
+     * Build a subsetted coverage expression (e.g: c[i(0:20)]), it is equivalent
+     * to generateCoverageExpression() without the CRS and clipping extensions.
+     */
+    private WcpsResult buildCoverageExpression(WcpsCoverageMetadata wcpsCoverageMetadata, 
+                                               List<AbstractSubsetDimension> subsetDimensions) throws PetascopeException, SecoreException {
+        List<WcpsSubsetDimension> wcpsSubsetDimensions = new ArrayList<>();
+        for (AbstractSubsetDimension subsetDimension : subsetDimensions) {
+            Axis axis = wcpsCoverageMetadata.getAxisByName(subsetDimension.getDimensionName());
+            // Only add the axis which is requested with subset parameter
+            if (axis != null) {
+                if (subsetDimension instanceof TrimmingSubsetDimension) {
+                    TrimmingSubsetDimension trimmingSubsetDimension = (TrimmingSubsetDimension) subsetDimension;
+                    wcpsSubsetDimensions.add(WcpsQueryBuilder.trimSubset(axis.getLabel(), subsetDimension.getCrs(),
+                                             trimmingSubsetDimension.getLowerBound(), trimmingSubsetDimension.getUpperBound()));
+                } else {
+                    wcpsSubsetDimensions.add(WcpsQueryBuilder.sliceSubset(axis.getLabel(), subsetDimension.getCrs(),
+                                             ((SlicingSubsetDimension) subsetDimension).getBound()));
+                }
+            }
+        }
+
+        return wcpsQueryBuilder.subset(wcpsQueryBuilder.coverageVariable(WCPS_COVERAGE_ALIAS), wcpsSubsetDimensions);
+    }
+
     /**
      * Generate a coverage expression (e.g: c[i(0:20)])
      *
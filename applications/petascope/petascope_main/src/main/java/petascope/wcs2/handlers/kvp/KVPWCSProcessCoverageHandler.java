@@ -25,10 +25,13 @@ import petascope.wcps.metadata.service.CoverageAliasRegistry;
 import petascope.wcps.metadata.service.RasqlRewriteMultipartQueriesService;
 import petascope.exceptions.WCSException;
 import petascope.core.response.Response;
+import petascope.core.response.StreamedResponseParts;
 import org.slf4j.LoggerFactory;
 import petascope.exceptions.*;
 import petascope.wcps.result.executor.WcpsExecutor;
 import petascope.wcps.result.executor.WcpsExecutorFactory;
+import petascope.wcps.result.executor.WcpsMultipartExecutor;
+import petascope.wcps.result.executor.WcpsRasqlExecutor;
 import petascope.wcps.parser.WcpsTranslator;
 import petascope.wcps.result.VisitorResult;
 
@@ -40,6 +43,7 @@ import java.util.Stack;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import petascope.core.KVPSymbols;
+import petascope.util.ras.RasStreamedResult;
 import petascope.wcps.result.WcpsMetadataResult;
 import petascope.wcps.result.WcpsResult;
 
@@ -62,6 +66,8 @@ public class KVPWCSProcessCoverageHandler extends KVPWCSAbstractHandler {
     private RasqlRewriteMultipartQueriesService rasqlRewriteMultipartQueriesService;
     @Autowired
     private CoverageAliasRegistry coverageAliasRegistry;
+    @Autowired
+    private WcpsMultipartExecutor wcpsMultipartExecutor;
 
     public KVPWCSProcessCoverageHandler() {
     }
@@ -81,9 +87,20 @@ public class KVPWCSProcessCoverageHandler extends KVPWCSAbstractHandler {
         // Validate before handling the request
         this.validate(kvpParameters);
 
-        String coverageID = null;
         String wcpsQuery = kvpParameters.get(KVPSymbols.KEY_QUERY)[0];
         VisitorResult visitorResult = wcpsTranslator.translate(wcpsQuery);
+
+        return this.processResult(visitorResult);
+    }
+
+    /**
+     * Executes the translation tree of a WCPS query, which is translated from a
+     * WCPS query string or built directly by WcpsQueryBuilder.
+     *
+     * @return the result of the processing as a Response object
+     */
+    public Response processResult(VisitorResult visitorResult) throws PetascopeException, WCSException, SecoreException, WMSException {
+        String coverageID = null;
         WcpsExecutor executor = wcpsExecutorFactory.getExecutor(visitorResult);
 
         List<byte[]> results = new ArrayList<>();
@@ -97,11 +114,30 @@ public class KVPWCSProcessCoverageHandler extends KVPWCSAbstractHandler {
             }
             // create multiple rasql queries from a Rasql query result (if it is multipart)
             Stack<String> rasqlQueries = rasqlRewriteMultipartQueriesService.rewriteQuery(wcpsResult.getRasql());
-            // Run all the Rasql queries and get result
+            if (rasqlQueries.size() == 1 && executor instanceof WcpsRasqlExecutor
+                && ((WcpsRasqlExecutor) executor).isStreamable(wcpsResult)) {
+                // Single encoded result is streamed from rasdaman to the client without reading it in memory
+                wcpsResult.setRasql(rasqlQueries.pop());
+                RasStreamedResult streamedResult = ((WcpsRasqlExecutor) executor).executeStreamed(wcpsResult);
+                coverageAliasRegistry.clear();
+                
+                return new Response(streamedResult, visitorResult.getMimeType(), coverageID);
+            }
+            List<String> rasqls = new ArrayList<>(rasqlQueries.size());
             while (!rasqlQueries.isEmpty()) {
-                // Execute multiple Rasql queries with different coverageIDs to get List of byte arrays
-                String rasql = rasqlQueries.pop();
-                ((WcpsResult) visitorResult).setRasql(rasql);
+                rasqls.add(rasqlQueries.pop());
+            }
+            if (rasqls.size() > 1 && executor instanceof WcpsRasqlExecutor) {
+                // Execute multiple Rasql queries with different coverageIDs concurrently, 
+                // each result is written to the client as soon as it is available
+                StreamedResponseParts streamedParts = wcpsMultipartExecutor.execute(wcpsResult, rasqls);
+                coverageAliasRegistry.clear();
+
+                return new Response(streamedParts, visitorResult.getMimeType(), coverageID);
+            }
+            // Run all the Rasql queries and get result
+            for (String rasql : rasqls) {
+                wcpsResult.setRasql(rasql);
                 results.add(executor.execute(visitorResult));
             }
         }
@@ -52,6 +52,7 @@ import petascope.util.StringUtil;
 import petascope.core.XMLSymbols;
 import petascope.util.XMLUtil;
 import petascope.util.ras.TypeResolverUtil;
+import rasj.RasGMArray;
 import petascope.core.response.Response;
 import petascope.core.Templates;
 import petascope.core.gml.cis.service.GMLCISParserService;
@@ -232,7 +233,8 @@ public class InsertCoverageHandler {
 
             // e.g: us, d, f,...
             List<String> typeSuffixes = collectionTypePair.snd;
-            String rasdamanValues = GMLCIS10ParserService.parseGMLTupleList(dataBlock, indexAxes, typeSuffixes);
+            String mddType = TypeResolverUtil.getMddTypeForCollectionType(rasCollectionType);
+            RasGMArray rasdamanValues = GMLCIS10ParserService.parseGMLTupleList(dataBlock, indexAxes, typeSuffixes, mddType);
             start = System.currentTimeMillis();
             rasdamanCollectionCreator = new RasdamanDefaultCollectionCreator(collectionName, rasCollectionType);
 
@@ -39,6 +39,7 @@ import nu.xom.Element;
 import org.slf4j.LoggerFactory;
 import petascope.util.*;
 import petascope.util.ras.TypeResolverUtil;
+import rasj.RasGMArray;
 import petascope.core.service.CrsComputerService;
 import petascope.core.response.Response;
 import petascope.wcst.helpers.decodeparameters.RangeParametersConvertor;
@@ -52,8 +53,8 @@ import petascope.wcs2.parsers.subsets.SlicingSubsetDimension;
 import petascope.wcs2.parsers.subsets.AbstractSubsetDimension;
 import petascope.wcs2.parsers.subsets.TrimmingSubsetDimension;
 import petascope.wcst.parsers.UpdateCoverageRequest;
+import petascope.wms.handlers.service.WMSGetMapCachingService;
 
-import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.MathContext;
@@ -111,6 +112,8 @@ public class UpdateCoverageHandler {
     private CoverageMetadataService coverageMetadataService;
     @Autowired
     private CoverageRepositoryService coverageRepostioryService;
+    @Autowired
+    private WMSGetMapCachingService wmsGetMapCachingService;
    
     private static final String FILE_PROTOCOL = "file://";
 
@@ -147,6 +150,9 @@ public class UpdateCoverageHandler {
         
         // Now, we can persist the updated current coverage from input slice
         persistedCoverageService.save(currentCoverage);
+        
+        // The cached GetMap responses of this layer are outdated now
+        wmsGetMapCachingService.removeLayerGetMapInCache(coverageId);
 
         Response response = new Response();
         response.setCoverageID(coverageId);
@@ -201,37 +207,47 @@ public class UpdateCoverageHandler {
                 XMLSymbols.NAMESPACE_GML);
         if (dataBlockElements.size() != 0) {
             //tuple list given explicitly
-            String values = getReplacementValuesFromTupleList(currentCoverage, rangeSet, request.getPixelDataType());
+            RasGMArray values = getReplacementValuesFromTupleList(currentCoverage, rangeSet, request.getPixelDataType());
             updater = rasdamanUpdaterFactory.getUpdater(affectedCollectionName, affectedDomain, values, shiftDomain, username, password);                
             updater.updateWithFile();                
         } else {
             //tuple list given as file
             //retrieve the file, if needed
-            boolean isLocal = false;
-            byte[] bytes = null;
+            RemoteCoverageUtil.FetchedFile remoteFile = null;
             String fileUrl = GMLCIS10ParserService.parseFilePath(rangeSet);
             if (isLocalFile(fileUrl)) {
                 fileUrl = fileUrl.replace(FILE_PROTOCOL, "");
-                isLocal = true;
             } else {
-                // remote file, get it as bytes
-                bytes = getReplacementValuesFromFileAsBytes(rangeSet);
+                // remote file, get it as bytes if it is small enough, otherwise as temporary file
+                remoteFile = fetchReplacementValuesFile(fileUrl);
             }
-            String mimetype = GMLCIS10ParserService.parseMimeType(rangeSet);
-            // e.g: netCDF test_eobstest: "{"variables": ["tg"]}",
-            String rangeParameters = GMLCIS10ParserService.parseRangeParameters(rangeSet);
+            // rasdaman decodes a local file directly from its path, a remote file is sent to it
+            boolean isLocal = remoteFile == null;
+
+            try {
+                String mimetype = GMLCIS10ParserService.parseMimeType(rangeSet);
+                // e.g: netCDF test_eobstest: "{"variables": ["tg"]}",
+                String rangeParameters = GMLCIS10ParserService.parseRangeParameters(rangeSet);
 
-            //process the range parameters
-            RangeParametersConvertor convertor = rangeParametersConvertorFactory.getConvertor(mimetype, rangeParameters, currentCoverage);
-            String decodeParameters = convertor.toRasdamanDecodeParameters();
+                //process the range parameters
+                RangeParametersConvertor convertor = rangeParametersConvertorFactory.getConvertor(mimetype, rangeParameters, currentCoverage);
+                String decodeParameters = convertor.toRasdamanDecodeParameters();
 
                 updater = rasdamanUpdaterFactory.getUpdater(affectedCollectionName,
                                                             affectedDomain, fileUrl, mimetype, shiftDomain, decodeParameters, username, password,
-							    isLocal);
-            if (isLocal) {
-                updater.updateWithFile();
-            } else {
-                updater.updateWithBytes(bytes);                    
+                                                            isLocal);
+                if (isLocal) {
+                    updater.updateWithFile();
+                } else if (remoteFile.isInMemory()) {
+                    updater.updateWithBytes(remoteFile.getBytes());
+                } else {
+                    // NOTE: uploaded by the rasql client, as rasdaman may run on another machine
+                    updater.updateWithUploadedFile(remoteFile.getFile().getAbsolutePath());
+                }
+            } finally {
+                if (remoteFile != null) {
+                    remoteFile.delete();
+                }
             }
         }
 
@@ -546,10 +562,10 @@ public class UpdateCoverageHandler {
 
                     if (coefficientStatus == coefficientStatus.APPEND_TO_TOP) {
                         // add coefficient to top
-                        currentIrregularAxis.getDirectPositions().add(normalizedCoefficient.toPlainString());
+                        currentIrregularAxis.addCoefficientToTop(normalizedCoefficient);
                     } else if (coefficientStatus == coefficientStatus.APPEND_TO_BOTTOM) {
                         // add coefficient to bottom
-                        currentIrregularAxis.getDirectPositions().add(0, normalizedCoefficient.toPlainString());
+                        currentIrregularAxis.addCoefficientToBottom(normalizedCoefficient);
                     }
                 }
             }
@@ -920,11 +936,10 @@ public class UpdateCoverageHandler {
      *
      * @param coverage the coverage providing the values.
      * @param rangeSet the rangeSet element.
-     * @return string representations of the values clause, as rasdaman array
-     * constant.
+     * @return the array of the values clause, which is bound to the query.
      * @throws PetascopeException
      */
-    private String getReplacementValuesFromTupleList(Coverage coverage, Element rangeSet, String pixelDataType) throws PetascopeException {
+    private RasGMArray getReplacementValuesFromTupleList(Coverage coverage, Element rangeSet, String pixelDataType) throws PetascopeException {
         Element dataBlock = GMLCIS10ParserService.parseDataBlock(rangeSet);
         String collectionName = coverage.getCoverageId();
         Pair<String, List<String>> collectionType = TypeResolverUtil.guessCollectionType(collectionName, coverage.getNumberOfBands(), coverage.getNumberOfDimensions(),
@@ -932,39 +947,23 @@ public class UpdateCoverageHandler {
 
         // Only support GeneralGridCoverage now
         List<IndexAxis> indexAxes = ((GeneralGridCoverage) coverage).getIndexAxes();
-        String values = GMLCIS10ParserService.parseGMLTupleList(dataBlock, indexAxes, collectionType.snd);
+        // the MDD type of the band types the values are encoded with
+        String mddType = TypeResolverUtil.getMddTypeForCollectionType(collectionType.fst);
+        RasGMArray values = GMLCIS10ParserService.parseGMLTupleList(dataBlock, indexAxes, collectionType.snd, mddType);
 
         return values;
     }
 
     /**
-     * Gets the file to be used in the values clause of the rasdaman update
-     * query, when the values are given as file ref.
-     *
-     * @param rangeSet the rangeSet element.
-     * @return file containing values for update.
-     * @throws IOException
-     * @throws WCSException
+     * Fetch the remote file of the values to be used to update a rasdaman
+     * collection, in memory or, if it is larger than
+     * ConfigManager.MAX_WCST_IN_MEMORY_FILE_SIZE, as temporary file.
      */
-    private File getReplacementValuesFromFile(Element rangeSet) throws IOException, WCSException, PetascopeException {
-        //tuple list given as file
-        String fileUrl = GMLCIS10ParserService.parseFilePath(rangeSet);
-        //save in a temporary file to pass to gdal and rasdaman
-        File tmpFile = RemoteCoverageUtil.copyFileLocally(fileUrl);
-
-        return tmpFile;
-    }
-    
-    
-    /**
-     * Get the bytes array of input file to be used to update a rasdaman collection
-     */
-    private byte[] getReplacementValuesFromFileAsBytes(Element rangeSet) throws IOException, WCSException, PetascopeException {
-        //tuple list given as file
-        String fileUrl = GMLCIS10ParserService.parseFilePath(rangeSet);
-        //save in a temporary file to pass to gdal and rasdaman
-        byte[] bytes = RemoteCoverageUtil.getBytesFromRemoteFile(fileUrl);
-
-        return bytes;
+    private RemoteCoverageUtil.FetchedFile fetchReplacementValuesFile(String fileUrl) throws PetascopeException {
+        try {
+            return RemoteCoverageUtil.fetchRemoteFile(fileUrl, ConfigManager.MAX_WCST_IN_MEMORY_FILE_SIZE);
+        } catch (IOException ex) {
+            throw new PetascopeException(ExceptionCode.IOConnectionError, "Cannot fetch file from '" + fileUrl + "'. Reason: " + ex.getMessage(), ex);
+        }
     }
 }
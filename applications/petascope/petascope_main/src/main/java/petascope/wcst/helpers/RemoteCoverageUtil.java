@@ -26,6 +26,12 @@ import org.apache.commons.io.FileUtils;
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
 import org.apache.commons.io.IOUtils;
 import org.rasdaman.config.ConfigManager;
 import org.slf4j.LoggerFactory;
@@ -81,24 +87,133 @@ public class RemoteCoverageUtil {
     }
     
     /**
-     * Return bytes array from a remote file.
+     * Fetch a remote file in one pass: if it is not larger than
+     * maxInMemorySize bytes, its content is kept in memory, otherwise it is
+     * streamed to a temporary file, so that e.g. a file of some GB does not
+     * need as much heap. The size is taken from the response header if the
+     * protocol provides it, otherwise (e.g: chunked HTTP response) the file is
+     * read into memory until it exceeds maxInMemorySize.
+     *
+     * @param fileUrl the url of the file
+     * @param maxInMemorySize the maximum size of a file to be kept in memory
+     * @return the fetched file, which must be deleted by the caller when it is
+     * not needed anymore
      */
-    public static byte[] getBytesFromRemoteFile(String fileURL) throws IOException {
-        InputStream inputStream = new URL(fileURL).openStream();
-        byte[] bytes = IOUtils.toByteArray(inputStream);
-        
-        return bytes;
+    public static FetchedFile fetchRemoteFile(String fileUrl, long maxInMemorySize) throws IOException, PetascopeException {
+        URLConnection connection = new URL(fileUrl).openConnection();
+        long contentLength = connection.getContentLengthLong();
+        try (PushbackInputStream inputStream = new PushbackInputStream(connection.getInputStream(), 1)) {
+            if (contentLength > maxInMemorySize) {
+                return new FetchedFile(null, copyToTempFile(null, 0, inputStream));
+            }
+
+            byte[] bytes = new byte[(int) (contentLength >= 0 ? contentLength : Math.min(maxInMemorySize, BUFFER_SIZE))];
+            int count = 0;
+            while (true) {
+                if (count == bytes.length) {
+                    // check if there is more data before growing the array
+                    int next = inputStream.read();
+                    if (next < 0) {
+                        break;
+                    }
+                    inputStream.unread(next);
+                    if (count >= maxInMemorySize) {
+                        return new FetchedFile(null, copyToTempFile(bytes, count, inputStream));
+                    }
+                    bytes = Arrays.copyOf(bytes, (int) Math.min(maxInMemorySize, Math.max(2L * count, BUFFER_SIZE)));
+                }
+                int length = inputStream.read(bytes, count, bytes.length - count);
+                if (length < 0) {
+                    break;
+                }
+                count += length;
+            }
+
+            return new FetchedFile(count == bytes.length ? bytes : Arrays.copyOf(bytes, count), null);
+        }
     }
 
     public static File copyFileLocally(String fileUrl) throws IOException, PetascopeException {
-        String filePath = TEMP_FILE_PATH_PREFIX + java.util.UUID.randomUUID().toString();
-        File tmpFile = new File(filePath);        
-        FileUtils.copyURLToFile(new URL(fileUrl), tmpFile);
+        try (InputStream inputStream = new URL(fileUrl).openStream()) {
+            return copyToTempFile(null, 0, inputStream);
+        }
+    }
+
+    /**
+     * Write the first headLength bytes of head (if any) and then the rest of
+     * the input stream to a new temporary file. The stream is copied through
+     * a small temporary buffer, so that the file is never held in the heap.
+     */
+    private static File copyToTempFile(byte[] head, int headLength, InputStream inputStream) throws IOException, PetascopeException {
+        File tmpFile = new File(TEMP_FILE_PATH_PREFIX + java.util.UUID.randomUUID().toString());
+        try (FileChannel fileChannel = new FileOutputStream(tmpFile).getChannel();
+             ReadableByteChannel inputChannel = Channels.newChannel(inputStream)) {
+            if (head != null) {
+                ByteBuffer headBuffer = ByteBuffer.wrap(head, 0, headLength);
+                while (headBuffer.hasRemaining()) {
+                    fileChannel.write(headBuffer);
+                }
+            }
+            long position = headLength;
+            long length;
+            // NOTE: a blocking channel transfers 0 bytes only at the end of the stream
+            while ((length = fileChannel.transferFrom(inputChannel, position, TRANSFER_CHUNK_SIZE)) > 0) {
+                position += length;
+            }
+        } catch (IOException ex) {
+            FileUtils.deleteQuietly(tmpFile);
+            throw ex;
+        }
         IOUtil.setPathFullPermissions(tmpFile);
         return tmpFile;
     }
 
+    /**
+     * Content of a remote file, either in memory or in a temporary file.
+     */
+    public static class FetchedFile {
+
+        private final byte[] bytes;
+        private final File file;
+
+        private FetchedFile(byte[] bytes, File file) {
+            this.bytes = bytes;
+            this.file = file;
+        }
+
+        public boolean isInMemory() {
+            return bytes != null;
+        }
+
+        /**
+         * @return the content of the file, null if it is not in memory
+         */
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return the temporary file, null if the content is in memory
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Delete the temporary file, if any.
+         */
+        public void delete() {
+            if (file != null) {
+                FileUtils.deleteQuietly(file);
+            }
+        }
+    }
+
     //indicates where to save a file passed as xlink inside the gml coverage
     private static final String TEMP_FILE_PATH_PREFIX = ConfigManager.WCST_TMP_DIR + "/wcst-";
     private static final String HTTP_URL_PROTOCOL = "http";
+    // initial size of the array for a file of unknown size
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // maximum number of bytes requested from transferFrom() at once
+    private static final long TRANSFER_CHUNK_SIZE = 8 * 1024 * 1024;
 }
@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 import petascope.exceptions.PetascopeException;
 import petascope.rasdaman.exceptions.RasdamanException;
 import petascope.util.ras.RasUtil;
+import rasj.RasGMArray;
 
 
 /**
@@ -38,17 +39,17 @@ public class RasdamanValuesInserter extends AbstractRasdamanInserter {
 
     String collectionName;
     String collectionType;
-    String values;
+    RasGMArray values;
     String tiling;
 
     /**
      * Class constructor.
      * @param collectionName: the collection name to be inserted.
      * @param collectionType: the collection type.
-     * @param values: the values clause in rasdaman format.
+     * @param values: the array to insert, bound to the query as $1.
      * @param tiling: the tiling clause in rasdaman format.
      */
-    public RasdamanValuesInserter(String collectionName, String collectionType, String values, String tiling, String userName, String passWord) {
+    public RasdamanValuesInserter(String collectionName, String collectionType, RasGMArray values, String tiling, String userName, String passWord) {
         this.collectionName = collectionName;
         this.collectionType = collectionType;
         this.values = values;
@@ -62,7 +63,7 @@ public class RasdamanValuesInserter extends AbstractRasdamanInserter {
     public void insert() throws RasdamanException, PetascopeException {
         try {
             //insert the values
-            RasUtil.executeInsertStatement(collectionName, values, tiling, username, password);
+            RasUtil.executeInsertArrayStatement(collectionName, values, tiling, username, password);
         } catch (RasdamanException ex) {
             log.error("Rasdaman error when inserting into collection " + collectionName + ". Error message: " + ex.getMessage());
             throw ex;
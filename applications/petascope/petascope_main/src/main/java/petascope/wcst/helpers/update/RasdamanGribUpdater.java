@@ -71,16 +71,27 @@ public class RasdamanGribUpdater extends RasdamanUpdater {
     
     @Override
     public void updateWithBytes(byte[] bytes) throws PetascopeException {
+        RasUtil.executeUpdateBytesStatement(this.getUpdateWithBytesQuery(), bytes, this.username, this.password);
+    }
+
+    @Override
+    public void updateWithUploadedFile(String filePath) throws PetascopeException {
+        RasUtil.executeUpdateUploadedFileStatement(this.getUpdateWithBytesQuery(), filePath, this.username, this.password);
+    }
+
+    /**
+     * @return the update query which decodes the file bound as $1
+     */
+    private String getUpdateWithBytesQuery() {
         String templateStr = UPDATE_TEMPLATE_WITH_BYTES;
         if (!this.needShiftDomain(shiftDomain)) {
             templateStr = UPDATE_TEMPLATE_WITH_BYTES_NO_SHIFT;
         }
         
-        String queryString = templateStr.replace("$collection", affectedCollectionName)
-                             .replace("$domain", affectedDomain)
-                             .replace("$shiftDomain", shiftDomain)
-                             .replace("$gribMessages", rangeParameters);
-        RasUtil.executeUpdateBytesStatement(queryString, bytes, this.username, this.password);
+        return templateStr.replace("$collection", affectedCollectionName)
+                          .replace("$domain", affectedDomain)
+                          .replace("$shiftDomain", shiftDomain)
+                          .replace("$gribMessages", rangeParameters);
     }
 
     // sample query
@@ -50,6 +50,13 @@ public abstract class RasdamanUpdater {
      * It will use the bytes of the file to update.
      */
     public abstract void updateWithBytes(byte bytes[]) throws PetascopeException;
+
+    /**
+     * Like updateWithBytes(), but the file on this machine is uploaded by the
+     * rasql client (--file), so it is not read into memory by petascope and
+     * rasdaman does not need to be able to read it.
+     */
+    public abstract void updateWithUploadedFile(String filePath) throws PetascopeException;
     
     /**
      * Check if it needs to add shift() in Rasql query to update collection.
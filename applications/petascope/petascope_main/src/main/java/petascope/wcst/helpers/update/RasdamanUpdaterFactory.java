@@ -24,6 +24,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import petascope.util.IOUtil;
+import rasj.RasGMArray;
 
 import java.io.IOException;
 import org.springframework.stereotype.Service;
@@ -40,7 +41,7 @@ public class RasdamanUpdaterFactory {
     public RasdamanUpdaterFactory() {
     }
 
-    public RasdamanUpdater getUpdater(String collectionName, String domain, String values, String shiftDomain, String username, String password) {
+    public RasdamanUpdater getUpdater(String collectionName, String domain, RasGMArray values, String shiftDomain, String username, String password) {
         return new RasdamanValuesUpdater(collectionName, domain, values, shiftDomain, username, password);
     }
 
@@ -26,6 +26,7 @@ import org.springframework.stereotype.Service;
 import petascope.exceptions.PetascopeException;
 import petascope.rasdaman.exceptions.RasdamanException;
 import petascope.util.ras.RasUtil;
+import rasj.RasGMArray;
 
 /**
  * Class for updating when values are received as tuple list.
@@ -37,7 +38,7 @@ public class RasdamanValuesUpdater extends RasdamanUpdater {
 
     String affectedCollectionName;
     String affectedDomain;
-    String values;
+    RasGMArray values;
     String shiftDomain;
     
     public RasdamanValuesUpdater() {
@@ -48,10 +49,10 @@ public class RasdamanValuesUpdater extends RasdamanUpdater {
      * Class constructor.
      * @param affectedCollectionName the name of the rasdaman collection corresponding to the coverage.
      * @param affectedDomain the rasdaman domain over which the update is executed.
-     * @param values the values clause in the rasdaman update operation.
+     * @param values the array in the values clause of the rasdaman update operation, bound to the query as $1.
      * @param shiftDomain the domain with which the rasdaman array in the values clause must be shifted.
      */
-    public RasdamanValuesUpdater(String affectedCollectionName, String affectedDomain, String values, String shiftDomain, String username, String password) {
+    public RasdamanValuesUpdater(String affectedCollectionName, String affectedDomain, RasGMArray values, String shiftDomain, String username, String password) {
         this.affectedCollectionName = affectedCollectionName;
         this.affectedDomain = affectedDomain;
         this.values = values;
@@ -65,9 +66,9 @@ public class RasdamanValuesUpdater extends RasdamanUpdater {
     public void updateWithFile() throws RasdamanException, PetascopeException {
         String queryString = UPDATE_TEMPLATE_VALUES.replace("$collection", affectedCollectionName)
                              .replace("$domain", affectedDomain)
-                             .replace("$values", values)
+                             .replace("$values", RasUtil.BOUND_ARRAY)
                              .replace("$shiftDomain", shiftDomain);
-        RasUtil.executeRasqlQuery(queryString, this.username, this.password, true);
+        RasUtil.executeUpdateBytesStatement(queryString, values, this.username, this.password);
     }
 
     private static final String UPDATE_TEMPLATE_VALUES = "UPDATE $collection SET $collection$domain ASSIGN shift($values, $shiftDomain)";
@@ -75,4 +76,8 @@ public class RasdamanValuesUpdater extends RasdamanUpdater {
     @Override
     public void updateWithBytes(byte[] bytes) throws PetascopeException {
     }
+
+    @Override
+    public void updateWithUploadedFile(String filePath) throws PetascopeException {
+    }
 }
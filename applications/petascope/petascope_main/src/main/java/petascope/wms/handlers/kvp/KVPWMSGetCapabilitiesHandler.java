@@ -23,13 +23,13 @@ package petascope.wms.handlers.kvp;
 
 import java.util.ArrayList;
 import petascope.core.response.Response;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import nu.xom.Attribute;
 import nu.xom.Element;
 import org.apache.commons.lang3.StringUtils;
 import org.rasdaman.config.ConfigManager;
+import org.rasdaman.config.VersionManager;
 import org.rasdaman.domain.cis.Coverage;
 import org.rasdaman.domain.owsmetadata.Address;
 import org.rasdaman.domain.owsmetadata.OwsServiceMetadata;
@@ -52,6 +52,8 @@ import petascope.core.KVPSymbols;
 import petascope.core.Templates;
 import petascope.core.XMLSymbols;
 import petascope.core.gml.GMLGetCapabilitiesBuilder;
+import petascope.core.service.GetCapabilitiesCacheService;
+import petascope.core.service.GetCapabilitiesCacheService.DocumentBuilder;
 import petascope.exceptions.PetascopeException;
 import petascope.exceptions.SecoreException;
 import petascope.util.MIMEUtil;
@@ -79,6 +81,8 @@ public class KVPWMSGetCapabilitiesHandler extends KVPWMSAbstractHandler {
     private GMLGetCapabilitiesBuilder wcsGMLGetCapabilitiesBuild;
     @Autowired
     private CoverageRepositoryService coverageRepositoryService;
+    @Autowired
+    private GetCapabilitiesCacheService getCapabilitiesCacheService;
 
     private OwsServiceMetadata owsServiceMetadata;
 
@@ -107,6 +111,24 @@ public class KVPWMSGetCapabilitiesHandler extends KVPWMSAbstractHandler {
         // Validate before handling the request
         this.validate(kvpParameters);
 
+        // The serialized document is cached until a coverage, a layer, a style or the OWS service metadata is changed
+        return this.getCapabilitiesCacheService.getResponse(KVPSymbols.WMS_SERVICE, VersionManager.WMS_VERSION_13, new DocumentBuilder() {
+            @Override
+            public String build() throws PetascopeException, SecoreException, WMSException {
+                return buildGetCapabilitiesDocument();
+            }
+
+            @Override
+            public boolean isCacheable() {
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Build the GetCapabilities document (only returns 1 XML string)
+     */
+    private String buildGetCapabilitiesDocument() throws PetascopeException, SecoreException, WMSException {
         owsServiceMetadata = this.persistedOwsServiceMetadataService.read();
         // Build ows:ServiceIdentification element
         String service = this.buildServiceElement().toXML();
@@ -123,8 +145,7 @@ public class KVPWMSGetCapabilitiesHandler extends KVPWMSAbstractHandler {
         // format XML to have indentation
         getCapabilitiesTemplate = XMLUtil.formatXML(getCapabilitiesTemplate);
 
-        // GetCapabilities only returns 1 XML string                
-        return new Response(Arrays.asList(getCapabilitiesTemplate.getBytes()), MIMEUtil.MIME_GML);
+        return getCapabilitiesTemplate;
     }
 
     /**
@@ -42,7 +42,6 @@ import petascope.exceptions.WMSException;
 import petascope.util.CrsProjectionUtil;
 import petascope.util.ListUtil;
 import petascope.util.MIMEUtil;
-import petascope.util.StringUtil;
 import petascope.wms.exception.WMSInvalidBoundingBoxExcpetion;
 import petascope.wms.exception.WMSInvalidCrsUriException;
 import petascope.wms.exception.WMSInvalidHeight;
@@ -182,11 +181,6 @@ public class KVPWMSGetMapHandler extends KVPWMSAbstractHandler {
         int width = 256;
         int height = 256;
         try {
-            // NOTE: If first query returns success, then just fetch it from cache
-            String queryString = StringUtil.buildQueryString(kvpParameters);
-            if (WMSGetMapCachingService.responseCachingMap.containsKey(queryString)) {
-                return wmsGetMapCachingService.getResponseFromCache(queryString);
-            }
             // Validate before handling the request
             this.validate(kvpParameters);
 
@@ -270,6 +264,14 @@ public class KVPWMSGetMapHandler extends KVPWMSAbstractHandler {
             } else {
                 interpolation = WMSGetMapService.DEFAULT_INTERPOLATION;
             }
+            
+            // NOTE: If an equivalent query returned success before, then just fetch it from cache
+            String queryString = WMSGetMapCachingService.createCacheKey(layerNames, styleNames, outputCRS, bbox, 
+                                                                        width, height, format, transparent, dimSubsetsMap, interpolation);
+            Response cachedResponse = wmsGetMapCachingService.getResponseFromCache(queryString);
+            if (cachedResponse != null) {
+                return cachedResponse;
+            }
 
             wmsGetMapService.setLayerNames(layerNames);
             wmsGetMapService.setStyleNames(styleNames);
@@ -284,7 +286,7 @@ public class KVPWMSGetMapHandler extends KVPWMSAbstractHandler {
 
             response = wmsGetMapService.createGetMapResponse();
             // Add the successful result to the cache
-            wmsGetMapCachingService.addResponseToCache(queryString, response);
+            wmsGetMapCachingService.addResponseToCache(queryString, layerNames, styleNames, response);
         } catch (Exception ex) {
             if (exceptionsFormat.equalsIgnoreCase(KVPWMSGetCapabilitiesHandler.EXCEPTION_XML)) {
                 throw ex;
@@ -115,9 +115,10 @@ public class WMSGetMapBBoxService {
 
         // NOTE: GDAL transform returns to XY order (e.g: EPSG:3857 (XY) -> EPSG:4326 (also XY))        
         double[] minXY = new double[]{minX, minY};
-        List<BigDecimal> minValues = CrsProjectionUtil.transform(sourceCrs, targetCrs, minXY);
         double[] maxXY = new double[]{maxX, maxY};
-        List<BigDecimal> maxValues = CrsProjectionUtil.transform(sourceCrs, targetCrs, maxXY);
+        List<List<BigDecimal>> values = CrsProjectionUtil.transformPoints(sourceCrs, targetCrs, minXY, maxXY);
+        List<BigDecimal> minValues = values.get(0);
+        List<BigDecimal> maxValues = values.get(1);
 
         bboxTmp.setXMin(minValues.get(0));
         bboxTmp.setYMin(minValues.get(1));
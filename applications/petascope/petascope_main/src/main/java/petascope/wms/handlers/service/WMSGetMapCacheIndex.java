@@ -0,0 +1,122 @@
+/*
+  *  This file is part of rasdaman community.
+  * 
+  *  Rasdaman community is free software: you can redistribute it and/or modify
+  *  it under the terms of the GNU General Public License as published by
+  *  the Free Software Foundation, either version 3 of the License, or
+  *  (at your option) any later version.
+  * 
+  *  Rasdaman community is distributed in the hope that it will be useful,
+  *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+  *  See the GNU  General Public License for more details.
+  * 
+  *  You should have received a copy of the GNU  General Public License
+  *  along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+  * 
+  *  Copyright 2003 - 2018 Peter Baumann / rasdaman GmbH.
+  * 
+  *  For more information please see <http://www.rasdaman.org>
+  *  or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+package petascope.wms.handlers.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index from layer names and layer styles to the cached GetMap requests containing them,
+ * used to invalidate cached responses when a layer or style changes.
+ * 
+ * NOTE: not thread-safe, it must be guarded by the cache which owns it.
+ */
+class WMSGetMapCacheIndex {
+
+    // layer name -> GetMap requests containing this layer
+    private final Map<String, Set<String>> layerIndex = new HashMap<>();
+    // layer name and style name -> GetMap requests containing this layer with this style
+    private final Map<String, Set<String>> styleIndex = new HashMap<>();
+
+    /**
+     * Create the keys of the styles used by a GetMap request (empty if only default styles are used).
+     */
+    public static List<String> createStyleKeys(List<String> layerNames, List<String> styleNames) {
+        List<String> styleKeys = new ArrayList<>();
+        for (int i = 0; i < styleNames.size() && i < layerNames.size(); i++) {
+            styleKeys.add(createStyleKey(layerNames.get(i), styleNames.get(i)));
+        }
+        return styleKeys;
+    }
+
+    public static String createStyleKey(String layerName, String styleName) {
+        return layerName + ":" + styleName;
+    }
+
+    public void add(String queryString, List<String> layerNames, List<String> styleKeys) {
+        for (String layerName : layerNames) {
+            addToIndex(layerIndex, layerName, queryString);
+        }
+        for (String styleKey : styleKeys) {
+            addToIndex(styleIndex, styleKey, queryString);
+        }
+    }
+
+    public void remove(String queryString, List<String> layerNames, List<String> styleKeys) {
+        for (String layerName : layerNames) {
+            removeFromIndex(layerIndex, layerName, queryString);
+        }
+        for (String styleKey : styleKeys) {
+            removeFromIndex(styleIndex, styleKey, queryString);
+        }
+    }
+
+    /**
+     * @return a copy of the GetMap requests containing the layer
+     */
+    public List<String> getByLayer(String layerName) {
+        return getFromIndex(layerIndex, layerName);
+    }
+
+    /**
+     * @return a copy of the GetMap requests containing the layer with the style
+     */
+    public List<String> getByStyle(String layerName, String styleName) {
+        return getFromIndex(styleIndex, createStyleKey(layerName, styleName));
+    }
+
+    public void clear() {
+        layerIndex.clear();
+        styleIndex.clear();
+    }
+
+    private static List<String> getFromIndex(Map<String, Set<String>> index, String key) {
+        Set<String> queryStrings = index.get(key);
+        if (queryStrings == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(queryStrings);
+    }
+
+    private static void addToIndex(Map<String, Set<String>> index, String key, String queryString) {
+        Set<String> queryStrings = index.get(key);
+        if (queryStrings == null) {
+            queryStrings = new HashSet<>();
+            index.put(key, queryStrings);
+        }
+        queryStrings.add(queryString);
+    }
+
+    private static void removeFromIndex(Map<String, Set<String>> index, String key, String queryString) {
+        Set<String> queryStrings = index.get(key);
+        if (queryStrings != null) {
+            queryStrings.remove(queryString);
+            if (queryStrings.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
@@ -21,61 +21,154 @@
  */
 package petascope.wms.handlers.service;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
 import org.rasdaman.config.ConfigManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import petascope.core.BoundingBox;
 import petascope.core.KVPSymbols;
 import petascope.core.response.Response;
+import petascope.exceptions.PetascopeException;
+import petascope.util.ListUtil;
 
 /**
  * Only GetMap request needs to cache the response if it is not exception.
+ * 
+ * The cache is bounded by ConfigManager.MAX_WMS_CACHE_SIZE bytes; when it is full,
+ * the least recently used responses are evicted first. Cached requests are indexed
+ * by their layers and styles, so that they can be removed when these change.
+ * 
+ * If ConfigManager.WMS_DISK_CACHE_DIR is configured, responses are also stored on disk
+ * (see WMSGetMapDiskCache), so that the cache survives a restart of petascope.
  *
  * @author <a href="mailto:b.phamhuu@jacobs-university.de">Bang Pham Huu</a>
  */
 @Service
 public class WMSGetMapCachingService {
 
+    private static final Logger log = LoggerFactory.getLogger(WMSGetMapCachingService.class);
+    // log the cache statistics after this number of GetMap requests
+    private static final long STATISTICS_LOG_INTERVAL = 1000;
+    // version of the keys created by createCacheKey(), to be incremented when they change,
+    // so that the responses cached on disk with keys of the previous version are removed
+    private static final int CACHE_KEY_VERSION = 1;
+
+    // GetMap request -> cached response, in order of access (least recently used first)
+    private final LinkedHashMap<String, CacheEntry> responseCachingMap = new LinkedHashMap<>(16, 0.75f, true);
+    private final WMSGetMapCacheIndex index = new WMSGetMapCacheIndex();
+    // sum of the sizes of all cached responses
     private long totalCachedSize = 0;
-    public static final Map<String, Response> responseCachingMap = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // null if responses are only cached in memory
+    private WMSGetMapDiskCache diskCache;
 
     public WMSGetMapCachingService() {
 
     }
 
+    @PostConstruct
+    private void initDiskCache() {
+        if (!ConfigManager.WMS_DISK_CACHE_DIR.isEmpty()) {
+            try {
+                diskCache = new WMSGetMapDiskCache(ConfigManager.WMS_DISK_CACHE_DIR, ConfigManager.MAX_WMS_DISK_CACHE_SIZE,
+                                                   CACHE_KEY_VERSION);
+            } catch (IOException ex) {
+                log.error("Cannot use directory '" + ConfigManager.WMS_DISK_CACHE_DIR + "' to cache WMS GetMap responses, "
+                        + "responses will be cached only in memory. Reason: " + ex.getMessage(), ex);
+            }
+        }
+    }
+
     /**
      * Add a successful response to cache if the GetMap query string is not
      * cached yet.
      *
-     * @param queryString
+     * @param queryString the GetMap request
+     * @param layerNames the layers requested by the GetMap request
+     * @param styleNames the styles of the requested layers (empty for default styles)
      * @param response
      */
-    public void addResponseToCache(String queryString, Response response) {
+    public void addResponseToCache(String queryString, List<String> layerNames, List<String> styleNames,
+                                   Response response) throws PetascopeException {
         byte[] bytes = response.getDatas().get(0);
-        // Check if cache's size is greater than the maximum configuration
-        if (!(totalCachedSize + bytes.length <= ConfigManager.MAX_WMS_CACHE_SIZE)) {
-            // Remove all the less received cached objects until there is enough bytes for the new cache response    
-            Iterator<Map.Entry<String, Response>> iterator = responseCachingMap.entrySet().iterator();
-            long removedBytes = 0;
-            while (iterator.hasNext()) {
-                removedBytes += iterator.next().getValue().getDatas().get(0).length;
-                // Continue to remove older bytes
-                if (removedBytes < bytes.length) {
-                    iterator.remove();
-                } else {
-                    // removed enough
-                    break;
-                }
-            }
+        List<String> styleKeys = WMSGetMapCacheIndex.createStyleKeys(layerNames, styleNames);
+        this.addResponseToMemoryCache(queryString, new CacheEntry(response, bytes.length, new ArrayList<>(layerNames), styleKeys));
+        if (diskCache != null) {
+            diskCache.put(queryString, layerNames, styleKeys, response, bytes);
         }
-        // In case of the response is much bigger than the maximum of cache, no store anything.
-        totalCachedSize += bytes.length;
-        if (totalCachedSize <= ConfigManager.MAX_WMS_CACHE_SIZE) {
-            // then add the new bytes[] to cached
-            this.responseCachingMap.put(queryString, response);
+    }
+
+    private synchronized void addResponseToMemoryCache(String queryString, CacheEntry entry) {
+        if (entry.size > ConfigManager.MAX_WMS_CACHE_SIZE) {
+            // In case of the response is much bigger than the maximum of cache, no store anything.
+            return;
+        }
+
+        this.removeEntry(queryString);
+        // Remove the least recently used responses until there is enough space for the new response
+        Iterator<Map.Entry<String, CacheEntry>> iterator = responseCachingMap.entrySet().iterator();
+        while (totalCachedSize + entry.size > ConfigManager.MAX_WMS_CACHE_SIZE && iterator.hasNext()) {
+            Map.Entry<String, CacheEntry> evictedEntry = iterator.next();
+            iterator.remove();
+            this.unindexEntry(evictedEntry.getKey(), evictedEntry.getValue());
+            evictions.incrementAndGet();
+        }
+
+        responseCachingMap.put(queryString, entry);
+        totalCachedSize += entry.size;
+        index.add(queryString, entry.layerNames, entry.styleKeys);
+    }
+
+    /**
+     * Create the key of a GetMap request in the cache from its parsed parameters, so that
+     * equivalent requests (e.g: with parameters in different order, different formatting of
+     * the bounding box numbers or additional vendor parameters) share the same cached response.
+     */
+    public static String createCacheKey(List<String> layerNames, List<String> styleNames, String outputCRS, BoundingBox bbox,
+                                        int width, int height, String format, boolean transparent,
+                                        Map<String, String> dimSubsetsMap, String interpolation) {
+        StringBuilder key = new StringBuilder();
+        key.append(KVPSymbols.KEY_WMS_LAYERS).append("=").append(ListUtil.join(layerNames, ","));
+        key.append("&").append(KVPSymbols.KEY_WMS_STYLES).append("=").append(ListUtil.join(styleNames, ","));
+        key.append("&").append(KVPSymbols.KEY_WMS_CRS).append("=").append(outputCRS.trim());
+        key.append("&").append(KVPSymbols.KEY_WMS_BBOX).append("=")
+           .append(normalizeNumber(bbox.getXMin())).append(",").append(normalizeNumber(bbox.getYMin())).append(",")
+           .append(normalizeNumber(bbox.getXMax())).append(",").append(normalizeNumber(bbox.getYMax()));
+        key.append("&").append(KVPSymbols.KEY_WMS_WIDTH).append("=").append(width);
+        key.append("&").append(KVPSymbols.KEY_WMS_HEIGHT).append("=").append(height);
+        key.append("&").append(KVPSymbols.KEY_WMS_FORMAT).append("=").append(format.trim());
+        key.append("&").append(KVPSymbols.KEY_WMS_TRANSPARENT).append("=").append(transparent);
+        key.append("&").append(KVPSymbols.KEY_WMS_INTERPOLATION).append("=").append(interpolation);
+        // sort the dimension subsets by axis name
+        for (Map.Entry<String, String> entry : new TreeMap<>(dimSubsetsMap).entrySet()) {
+            key.append("&").append(entry.getKey()).append("=").append(entry.getValue());
         }
 
+        return key.toString();
+    }
+
+    /**
+     * e.g: 10.500, 1.05E+1 -> 10.5
+     */
+    private static String normalizeNumber(BigDecimal number) {
+        if (number.signum() == 0) {
+            return "0";
+        }
+        return number.stripTrailingZeros().toPlainString();
     }
 
     /**
@@ -83,10 +176,34 @@ public class WMSGetMapCachingService {
      * which takes longer time.
      *
      * @param queryString
-     * @return
+     * @return the cached response or null if the request is not cached
      */
-    public Response getResponseFromCache(String queryString) {
-        return this.responseCachingMap.get(queryString);
+    public Response getResponseFromCache(String queryString) throws PetascopeException {
+        CacheEntry entry;
+        synchronized (this) {
+            // NOTE: get() also marks the entry as most recently used
+            entry = this.responseCachingMap.get(queryString);
+        }
+        if (entry != null) {
+            this.countHit();
+            return entry.response;
+        }
+
+        this.countMiss();
+        if (diskCache != null) {
+            Response response = diskCache.get(queryString);
+            if (response != null) {
+                // keep it in memory for the next requests
+                byte[] bytes = response.getDatas().get(0);
+                List<String> layerNames = diskCache.getLayerNames(queryString);
+                List<String> styleKeys = diskCache.getStyleKeys(queryString);
+                if (layerNames != null && styleKeys != null) {
+                    this.addResponseToMemoryCache(queryString, new CacheEntry(response, bytes.length, layerNames, styleKeys));
+                }
+                return response;
+            }
+        }
+        return null;
     }
     
     /**
@@ -95,22 +212,14 @@ public class WMSGetMapCachingService {
      * @param layerName 
      */
     public void removeLayerGetMapInCache(String layerName) {
-        Iterator<Map.Entry<String, Response>> iterator = responseCachingMap.entrySet().iterator();
-        while (iterator.hasNext()) {
-            String requestQuery = iterator.next().getKey();
-            String[] keyValues = requestQuery.split("&");
-            
-            for (String keyValue : keyValues) {
-                String[] tmp = keyValue.split("=");
-                if (tmp[0].equalsIgnoreCase(KVPSymbols.KEY_WMS_LAYERS)) {
-                    if (tmp[1].contains(layerName)) {
-                        // A GetMap request which contains the removed layerName, then remove it from cache
-                        iterator.remove();
-                        break;
-                    }
-                }
+        synchronized (this) {
+            for (String queryString : index.getByLayer(layerName)) {
+                this.removeEntry(queryString);
             }
         }
+        if (diskCache != null) {
+            diskCache.removeLayer(layerName);
+        }
     }
     
     
@@ -121,35 +230,116 @@ public class WMSGetMapCachingService {
      * @param styleName 
      */
     public void removeStyleGetMapInCache(String layerName, String styleName) {
-        Iterator<Map.Entry<String, Response>> iterator = responseCachingMap.entrySet().iterator();
-        while (iterator.hasNext()) {
-            String requestQuery = iterator.next().getKey();
-            String[] keyValues = requestQuery.split("&");
-            
-            String layers = null;
-            String styles = null;
-            for (String keyValue : keyValues) {
-                String[] tmp = keyValue.split("=");
-                if (tmp[0].equalsIgnoreCase(KVPSymbols.KEY_WMS_LAYERS)) {
-                    if (tmp.length > 1) {
-                        layers = tmp[1];
-                    }
-                }
-                if (tmp[0].equalsIgnoreCase(KVPSymbols.KEY_WMS_STYLES)) {
-                    if (tmp.length > 1) {
-                        styles = tmp[1];
-                    }
-                }         
-                
-                if (layers != null && styles != null) {
-                    break;
-                }
-            }
-            
-            if (layers != null && layers.contains(layerName) && styles != null && styles.contains(styleName)) {
-                // Remove the cache for this layer's style
-                iterator.remove();
+        synchronized (this) {
+            for (String queryString : index.getByStyle(layerName, styleName)) {
+                this.removeEntry(queryString);
             }
         }
+        if (diskCache != null) {
+            diskCache.removeStyle(layerName, styleName);
+        }
+    }
+
+    /**
+     * Remove all the cached responses.
+     */
+    public void clearCache() {
+        synchronized (this) {
+            responseCachingMap.clear();
+            index.clear();
+            totalCachedSize = 0;
+        }
+        if (diskCache != null) {
+            diskCache.clear();
+        }
+    }
+
+    public synchronized int getNumberOfCachedResponses() {
+        return responseCachingMap.size();
+    }
+
+    public synchronized long getTotalCachedSize() {
+        return totalCachedSize;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the ratio of GetMap requests found in the memory cache (0 if no request was received)
+     */
+    public double getHitRate() {
+        long currentHits = getHits();
+        long total = currentHits + getMisses();
+        return total == 0 ? 0 : (double) currentHits / total;
+    }
+
+    private void countHit() {
+        this.logStatistics(hits.incrementAndGet() + misses.get());
+    }
+
+    private void countMiss() {
+        this.logStatistics(hits.get() + misses.incrementAndGet());
+    }
+
+    private void logStatistics(long requests) {
+        if (requests % STATISTICS_LOG_INTERVAL == 0) {
+            log.info(this.toString());
+        }
+    }
+
+    @Override
+    public String toString() {
+        String result = "WMS GetMap cache: " + getNumberOfCachedResponses() + " responses, " + getTotalCachedSize() + " bytes"
+                + " (maximum " + ConfigManager.MAX_WMS_CACHE_SIZE + " bytes), hits " + getHits()
+                + ", misses " + getMisses() + ", hit rate " + String.format("%.2f", getHitRate())
+                + ", evictions " + getEvictions() + ".";
+        if (diskCache != null) {
+            result += " " + diskCache.toString();
+        }
+        return result;
+    }
+
+    /**
+     * Remove a cached response and its references in the layer and style indexes.
+     */
+    private void removeEntry(String queryString) {
+        CacheEntry entry = responseCachingMap.remove(queryString);
+        if (entry != null) {
+            this.unindexEntry(queryString, entry);
+        }
+    }
+
+    private void unindexEntry(String queryString, CacheEntry entry) {
+        totalCachedSize -= entry.size;
+        index.remove(queryString, entry.layerNames, entry.styleKeys);
+        log.debug("Removed GetMap request '" + queryString + "' from cache.");
+    }
+
+    /**
+     * A cached response with the layers and styles of its GetMap request.
+     */
+    private static class CacheEntry {
+
+        private final Response response;
+        private final long size;
+        private final List<String> layerNames;
+        private final List<String> styleKeys;
+
+        public CacheEntry(Response response, long size, List<String> layerNames, List<String> styleKeys) {
+            this.response = response;
+            this.size = size;
+            this.layerNames = layerNames;
+            this.styleKeys = styleKeys;
+        }
     }
 }
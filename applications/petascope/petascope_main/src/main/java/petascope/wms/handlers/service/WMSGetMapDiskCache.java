@@ -0,0 +1,496 @@
+/*
+  *  This file is part of rasdaman community.
+  * 
+  *  Rasdaman community is free software: you can redistribute it and/or modify
+  *  it under the terms of the GNU General Public License as published by
+  *  the Free Software Foundation, either version 3 of the License, or
+  *  (at your option) any later version.
+  * 
+  *  Rasdaman community is distributed in the hope that it will be useful,
+  *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+  *  See the GNU  General Public License for more details.
+  * 
+  *  You should have received a copy of the GNU  General Public License
+  *  along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+  * 
+  *  Copyright 2003 - 2018 Peter Baumann / rasdaman GmbH.
+  * 
+  *  For more information please see <http://www.rasdaman.org>
+  *  or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+package petascope.wms.handlers.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import petascope.core.response.Response;
+
+/**
+ * Second tier of the WMS GetMap cache which stores responses in files under a
+ * directory, so that they survive a restart of petascope. Each response is
+ * stored in its own file named by the hash of the GetMap request; the file
+ * starts with the request, its layers and styles, so that the index can be
+ * rebuilt on startup without reading the images.
+ * 
+ * The cache is bounded by a maximum size in bytes and evicts the least
+ * recently used responses first.
+ * 
+ * Only the index in memory is guarded by the lock of this object; files are
+ * read, written and deleted outside of it, so that requests reading cached
+ * responses do not wait for other requests writing or evicting them. Every
+ * stored response gets a new file, which is written to a temporary file first
+ * and then renamed, so a file is complete when it becomes visible and is never
+ * overwritten while it is read.
+ * 
+ * The directory contains a version file with the version of the keys of the
+ * cached requests; when the keys are created differently, the stored responses
+ * can never be requested again and are removed on startup.
+ */
+public class WMSGetMapDiskCache {
+
+    private static final Logger log = LoggerFactory.getLogger(WMSGetMapDiskCache.class);
+
+    private static final int FILE_MAGIC = 0x574d5343;
+    // 2: strings are written as length-prefixed UTF-8 bytes
+    private static final int FILE_VERSION = 2;
+    private static final String FILE_EXTENSION = ".cache";
+    private static final String TMP_FILE_EXTENSION = ".tmp";
+    private static final String KEY_VERSION_FILE_NAME = "key.version";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final File directory;
+    private final long maxSize;
+    private final int keyVersion;
+
+    // GetMap request -> cached file, in order of access (least recently used first)
+    private final LinkedHashMap<String, DiskEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final WMSGetMapCacheIndex index = new WMSGetMapCacheIndex();
+    private long totalCachedSize = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param keyVersion version of the keys of the cached requests, to be
+     * changed when the keys are created differently
+     */
+    public WMSGetMapDiskCache(String directoryPath, long maxSize, int keyVersion) throws IOException {
+        this.directory = new File(directoryPath);
+        this.maxSize = maxSize;
+        this.keyVersion = keyVersion;
+        FileUtils.forceMkdir(this.directory);
+        this.checkKeyVersion();
+        this.loadEntries();
+    }
+
+    /**
+     * Remove the files stored with keys of another version (or before the
+     * version file was written), which would otherwise never be requested
+     * again but count against the maximum size until they are evicted.
+     */
+    private void checkKeyVersion() throws IOException {
+        File versionFile = new File(directory, KEY_VERSION_FILE_NAME);
+        String storedKeyVersion = versionFile.exists() ? FileUtils.readFileToString(versionFile, "UTF-8").trim() : null;
+        if (String.valueOf(keyVersion).equals(storedKeyVersion)) {
+            return;
+        }
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            int removedFiles = 0;
+            for (File file : files) {
+                if (file.getName().endsWith(FILE_EXTENSION) || file.getName().endsWith(TMP_FILE_EXTENSION)) {
+                    FileUtils.deleteQuietly(file);
+                    removedFiles++;
+                }
+            }
+            if (removedFiles > 0) {
+                log.info("Removed " + removedFiles + " cached WMS GetMap responses of key version " + storedKeyVersion
+                        + " from directory '" + directory.getAbsolutePath() + "', current key version is " + keyVersion + ".");
+            }
+        }
+        FileUtils.writeStringToFile(versionFile, String.valueOf(keyVersion), "UTF-8");
+    }
+
+    /**
+     * Read the headers of the files stored by a previous run, in order of their last access.
+     */
+    private void loadEntries() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File file1, File file2) {
+                return Long.compare(file1.lastModified(), file2.lastModified());
+            }
+        });
+
+        List<DiskEntry> removedEntries = new ArrayList<>();
+        synchronized (this) {
+            for (File file : files) {
+                if (file.getName().endsWith(TMP_FILE_EXTENSION)) {
+                    // left over from an interrupted write
+                    FileUtils.deleteQuietly(file);
+                } else if (file.getName().endsWith(FILE_EXTENSION)) {
+                    try {
+                        DiskEntry entry = readHeader(file);
+                        // a response stored again replaces the older file
+                        this.removeEntry(entry.queryString, removedEntries);
+                        this.addEntry(entry);
+                    } catch (IOException ex) {
+                        log.warn("Removing invalid WMS cache file '" + file.getAbsolutePath() + "'. Reason: " + ex.getMessage());
+                        FileUtils.deleteQuietly(file);
+                    }
+                }
+            }
+            this.evictEntries(0, removedEntries);
+        }
+        deleteFiles(removedEntries);
+
+        log.info("Loaded " + getNumberOfCachedResponses() + " cached WMS GetMap responses (" + getTotalCachedSize()
+                + " bytes) from directory '" + directory.getAbsolutePath() + "'.");
+    }
+
+    /**
+     * Return the cached response or null if the request is not cached.
+     */
+    public Response get(String queryString) {
+        DiskEntry entry;
+        synchronized (this) {
+            entry = entries.get(queryString);
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(entry.file)));
+            readHeader(in);
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            // keep the order of access after a restart
+            entry.file.setLastModified(System.currentTimeMillis());
+
+            hits.incrementAndGet();
+            return new Response(Arrays.asList(bytes), entry.formatType, entry.coverageID);
+        } catch (IOException ex) {
+            // e.g: the file was evicted in the meantime
+            log.debug("Failed reading WMS cache file '" + entry.file.getAbsolutePath() + "'. Reason: " + ex.getMessage());
+            List<DiskEntry> removedEntries = new ArrayList<>();
+            synchronized (this) {
+                // only if it was not replaced by a new response in the meantime
+                if (entries.get(queryString) == entry) {
+                    this.removeEntry(queryString, removedEntries);
+                }
+            }
+            deleteFiles(removedEntries);
+            misses.incrementAndGet();
+            return null;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Store a response in a new file; the file is written completely before it becomes visible.
+     */
+    public void put(String queryString, List<String> layerNames, List<String> styleKeys,
+                    Response response, byte[] bytes) {
+        if (bytes.length > maxSize) {
+            return;
+        }
+        File file = new File(directory, hash(queryString) + "-" + UUID.randomUUID().toString() + FILE_EXTENSION);
+        File tmpFile = new File(directory, file.getName() + TMP_FILE_EXTENSION);
+        DiskEntry entry = new DiskEntry(file, queryString, response.getFormatType(), response.getCoverageID(),
+                                        Collections.unmodifiableList(new ArrayList<>(layerNames)),
+                                        Collections.unmodifiableList(new ArrayList<>(styleKeys)));
+
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            writeHeader(out, entry);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.close();
+            out = null;
+
+            if (!tmpFile.renameTo(file)) {
+                throw new IOException("Cannot rename file '" + tmpFile.getAbsolutePath() + "' to '" + file.getAbsolutePath() + "'.");
+            }
+        } catch (IOException ex) {
+            log.warn("Failed writing WMS cache file '" + file.getAbsolutePath() + "'. Reason: " + ex.getMessage());
+            FileUtils.deleteQuietly(tmpFile);
+            return;
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+
+        entry.size = file.length();
+        List<DiskEntry> removedEntries = new ArrayList<>();
+        synchronized (this) {
+            this.removeEntry(queryString, removedEntries);
+            this.evictEntries(entry.size, removedEntries);
+            this.addEntry(entry);
+        }
+        deleteFiles(removedEntries);
+    }
+
+    /**
+     * @return the layers of a cached GetMap request, null if it is not cached
+     */
+    public synchronized List<String> getLayerNames(String queryString) {
+        DiskEntry entry = entries.get(queryString);
+        return entry == null ? null : entry.layerNames;
+    }
+
+    /**
+     * @return the styles of a cached GetMap request, null if it is not cached
+     */
+    public synchronized List<String> getStyleKeys(String queryString) {
+        DiskEntry entry = entries.get(queryString);
+        return entry == null ? null : entry.styleKeys;
+    }
+
+    public void removeLayer(String layerName) {
+        List<DiskEntry> removedEntries = new ArrayList<>();
+        synchronized (this) {
+            for (String queryString : index.getByLayer(layerName)) {
+                this.removeEntry(queryString, removedEntries);
+            }
+        }
+        deleteFiles(removedEntries);
+    }
+
+    public void removeStyle(String layerName, String styleName) {
+        List<DiskEntry> removedEntries = new ArrayList<>();
+        synchronized (this) {
+            for (String queryString : index.getByStyle(layerName, styleName)) {
+                this.removeEntry(queryString, removedEntries);
+            }
+        }
+        deleteFiles(removedEntries);
+    }
+
+    public void clear() {
+        List<DiskEntry> removedEntries = new ArrayList<>();
+        synchronized (this) {
+            for (String queryString : new ArrayList<>(entries.keySet())) {
+                this.removeEntry(queryString, removedEntries);
+            }
+        }
+        deleteFiles(removedEntries);
+    }
+
+    public synchronized int getNumberOfCachedResponses() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalCachedSize() {
+        return totalCachedSize;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "WMS GetMap disk cache: " + getNumberOfCachedResponses() + " responses, " + getTotalCachedSize() + " bytes"
+                + " (maximum " + maxSize + " bytes), hits " + getHits()
+                + ", misses " + getMisses() + ", evictions " + getEvictions() + ".";
+    }
+
+    private void addEntry(DiskEntry entry) {
+        entries.put(entry.queryString, entry);
+        index.add(entry.queryString, entry.layerNames, entry.styleKeys);
+        totalCachedSize += entry.size;
+    }
+
+    /**
+     * Remove a request from the index; its file is added to removedEntries, to
+     * be deleted after the lock is released.
+     */
+    private void removeEntry(String queryString, List<DiskEntry> removedEntries) {
+        DiskEntry entry = entries.remove(queryString);
+        if (entry != null) {
+            index.remove(queryString, entry.layerNames, entry.styleKeys);
+            totalCachedSize -= entry.size;
+            removedEntries.add(entry);
+        }
+    }
+
+    /**
+     * Remove the least recently used files until there is space for the given number of bytes.
+     */
+    private void evictEntries(long neededSize, List<DiskEntry> removedEntries) {
+        Iterator<String> iterator = new ArrayList<>(entries.keySet()).iterator();
+        while (totalCachedSize + neededSize > maxSize && iterator.hasNext()) {
+            this.removeEntry(iterator.next(), removedEntries);
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static void deleteFiles(List<DiskEntry> removedEntries) {
+        for (DiskEntry entry : removedEntries) {
+            FileUtils.deleteQuietly(entry.file);
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out, DiskEntry entry) throws IOException {
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(FILE_VERSION);
+        writeString(out, entry.queryString);
+        writeString(out, entry.formatType);
+        writeString(out, entry.coverageID);
+        writeStrings(out, entry.layerNames);
+        writeStrings(out, entry.styleKeys);
+    }
+
+    private static DiskEntry readHeader(File file) throws IOException {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            DiskEntry entry = readHeader(in);
+            int dataSize = in.readInt();
+            if (file.length() < dataSize) {
+                throw new IOException("File is truncated.");
+            }
+            return new DiskEntry(file, entry, file.length());
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private static DiskEntry readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+            throw new IOException("Not a WMS cache file.");
+        }
+        String queryString = readString(in);
+        String formatType = readString(in);
+        String coverageID = readString(in);
+        List<String> layerNames = readStrings(in);
+        List<String> styleKeys = readStrings(in);
+        return new DiskEntry(null, queryString, formatType, coverageID, layerNames, styleKeys);
+    }
+
+    /**
+     * Write a string as length-prefixed UTF-8 bytes; unlike writeUTF(), it is not limited to 64 KB.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        // NOTE: available() returns the remaining bytes of a file, so a corrupted length is not allocated
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Invalid number of values: " + size);
+        }
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * File names start with the SHA-1 hashes of the GetMap requests in hexadecimal.
+     */
+    private static String hash(String queryString) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
+            byte[] digest = messageDigest.digest(queryString.getBytes("UTF-8"));
+            StringBuilder result = new StringBuilder();
+            for (byte b : digest) {
+                result.append(String.format("%02x", b));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException | IOException ex) {
+            // both are always supported by the JVM
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * A cached response stored in a file.
+     */
+    private static class DiskEntry {
+
+        private final File file;
+        private final String queryString;
+        private final String formatType;
+        private final String coverageID;
+        private final List<String> layerNames;
+        private final List<String> styleKeys;
+        private long size;
+
+        public DiskEntry(File file, String queryString, String formatType, String coverageID,
+                         List<String> layerNames, List<String> styleKeys) {
+            this.file = file;
+            this.queryString = queryString;
+            this.formatType = formatType;
+            this.coverageID = coverageID;
+            this.layerNames = layerNames;
+            this.styleKeys = styleKeys;
+        }
+
+        public DiskEntry(File file, DiskEntry header, long size) {
+            this(file, header.queryString, header.formatType, header.coverageID, header.layerNames, header.styleKeys);
+            this.size = size;
+        }
+    }
+}
@@ -410,8 +410,9 @@ public class WMSGetMapService {
         double[] sourceCoordinatesMax = {this.originalRequestBBox.getXMax().doubleValue(), this.originalRequestBBox.getYMax().doubleValue()};
         
         // e.g: EPSG:4326 request BBox to native layer's CRS EPSG:32632
-        List<BigDecimal> mins = CrsProjectionUtil.transform(this.outputCRS, nativeCRS, sourceCoordinatesMin);
-        List<BigDecimal> maxs = CrsProjectionUtil.transform(this.outputCRS, nativeCRS, sourceCoordinatesMax);
+        List<List<BigDecimal>> values = CrsProjectionUtil.transformPoints(this.outputCRS, nativeCRS, sourceCoordinatesMin, sourceCoordinatesMax);
+        List<BigDecimal> mins = values.get(0);
+        List<BigDecimal> maxs = values.get(1);
         
         this.originalRequestBBoxNativeCRS = new BoundingBox(mins.get(0), mins.get(1), maxs.get(0), maxs.get(1));
     }
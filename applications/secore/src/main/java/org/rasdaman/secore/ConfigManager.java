@@ -75,6 +75,10 @@ public class ConfigManager {
     private final static String KEY_SECORE_ADMIN_USER = "secore_admin_user";
     private final static String KEY_SECORE_ADMIN_PASSWORD = "secore_admin_pass";
 
+    // maximum number of entries in each of the query and resolved URI caches
+    private final static String KEY_CACHE_MAX_ENTRIES = "cache.max_entries";
+    public final static int DEFAULT_CACHE_MAX_ENTRIES = 10000;
+
     // singleton
     private static ConfigManager instance;
     private static Properties props;
@@ -271,6 +275,28 @@ public class ConfigManager {
         return get(KEY_CODESPACE);
     }
 
+    /**
+     * The maximum number of entries in each cache (cache.max_entries), or
+     * DEFAULT_CACHE_MAX_ENTRIES if not set or invalid.
+     */
+    public int getCacheMaxEntries() {
+        String value = props.getProperty(KEY_CACHE_MAX_ENTRIES, "").trim();
+        if (value.isEmpty()) {
+            return DEFAULT_CACHE_MAX_ENTRIES;
+        }
+        try {
+            int ret = Integer.parseInt(value);
+            if (ret > 0) {
+                return ret;
+            }
+        } catch (NumberFormatException ex) {
+            // handled below
+        }
+        log.warn("Invalid value '" + value + "' for setting " + KEY_CACHE_MAX_ENTRIES
+                 + ", expected a positive integer; using the default " + DEFAULT_CACHE_MAX_ENTRIES + ".");
+        return DEFAULT_CACHE_MAX_ENTRIES;
+    }
+
     public String getGMLDirectory() {
         return gmlDir;
     }
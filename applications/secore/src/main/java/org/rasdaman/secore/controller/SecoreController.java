@@ -23,8 +23,8 @@ package org.rasdaman.secore.controller;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -40,6 +40,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.rasdaman.secore.util.StringUtil;
+import org.rasdaman.secore.db.CollectionCache;
 import org.rasdaman.secore.db.DbManager;
 import static org.rasdaman.secore.Constants.NEW_LINE;
 import static org.rasdaman.secore.Constants.XML_DECL;
@@ -59,9 +60,10 @@ public class SecoreController {
 
     private static final String CONTENT_TYPE = "text/xml; charset=utf-8";
     /**
-     * cached the request and the result of the request
+     * Log the cache statistics every so many requests.
      */
-    private static Map<String, String> cache = new HashMap<String, String>();
+    private static final long STATISTICS_LOG_INTERVAL = 1000;
+    private static final AtomicLong requestCount = new AtomicLong();
     
     /**
      * NOTE: Any rest, kvp requests which will not return .jsp files will be handled in this method
@@ -82,24 +84,29 @@ public class SecoreController {
         long start = System.currentTimeMillis();
         
         try {
-            // Check if last query modified the baseX (insert/update/delete definitions) then it have to clear cache both in BaseX and on Servlet
-            if (DbManager.getNeedToClearCache()) {
-                cache = new HashMap<>();
-                DbManager.clearedCache();
-                log.debug("Cleared cache on servlet.");
-            }
-
-            // NOTE: use the cache instead of querying collections if URI does exist in the cache
-            String result;
-            if (cache.containsKey(uri)) {
+            // NOTE: use the cache instead of querying collections if URI does exist in the cache;
+            // entries are invalidated by DbManager when a collection they were resolved from is modified
+            CollectionCache cache = DbManager.getResolvedCache();
+            String result = cache.get(uri);
+            if (result != null) {
                 log.debug("Query data from *cache* for URI request: {}", uri);
-                result = cache.get(uri);
             } else {
-                ResolveRequest request = new ResolveRequest(uri);
-                ResolveResponse res = Resolver.resolve(request);
-                result = res.getData();
-                log.debug("Query data from *collections* for URI request: {}", uri);                
-                cache.put(uri, result);
+                long generation = cache.getGeneration();
+                DbManager.startRecordingCollections();
+                Set<String> collectionNames;
+                try {
+                    ResolveRequest request = new ResolveRequest(uri);
+                    ResolveResponse res = Resolver.resolve(request);
+                    result = res.getData();
+                } finally {
+                    collectionNames = DbManager.stopRecordingCollections();
+                }
+                log.debug("Query data from *collections* for URI request: {}", uri);
+                cache.put(uri, result, collectionNames, generation);
+            }
+            if (requestCount.incrementAndGet() % STATISTICS_LOG_INTERVAL == 0) {
+                log.info(cache.toString());
+                log.info(DbManager.getQueryCache().toString());
             }
 
             long end = System.currentTimeMillis();
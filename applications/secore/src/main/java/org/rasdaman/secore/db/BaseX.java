@@ -24,6 +24,11 @@ package org.rasdaman.secore.db;
 import org.rasdaman.secore.util.SecoreException;
 import org.rasdaman.secore.util.ExceptionCode;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.basex.core.BaseXException;
 import org.basex.core.Command;
 import org.basex.core.Context;
@@ -42,7 +47,6 @@ import static org.rasdaman.secore.Constants.BASEX_OPTION_PREFIX;
 import static org.rasdaman.secore.Constants.BASEX_PATH_PROPERTY;
 import static org.rasdaman.secore.Constants.DBPATH_BASEX_PROPERTY;
 import org.rasdaman.secore.util.IOUtil;
-import org.rasdaman.secore.util.Pair;
 import org.rasdaman.secore.util.StringUtil;
 
 /**
@@ -58,6 +62,52 @@ public class BaseX implements Database {
     private Context context;
     // collection name -> absolute path to initalization file
     private java.util.Set<DbCollection> collections;
+    // collection name -> context in which the collection stays open
+    private final ConcurrentMap<String, Session> sessions = new ConcurrentHashMap<String, Session>();
+
+    /**
+     * A collection kept open in its own context, derived from the main
+     * context. Queries share the read lock; an update takes the write lock and
+     * reopens the collection afterwards.
+     */
+    private static class Session {
+
+        private final String collectionName;
+        private final Context context;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        // guarded by lock
+        private boolean open = false;
+
+        private Session(String collectionName, Context mainContext) {
+            this.collectionName = collectionName;
+            this.context = new Context(mainContext);
+        }
+
+        /**
+         * Open the collection if needed; the caller holds the write lock.
+         */
+        private void open() throws BaseXException {
+            if (!open) {
+                new Open(collectionName).execute(context);
+                open = true;
+                log.debug("Opened database session for collection " + collectionName + ".");
+            }
+        }
+
+        /**
+         * Close the collection; the caller holds the write lock.
+         */
+        private void close() {
+            if (open) {
+                open = false;
+                try {
+                    new Close().execute(context);
+                } catch (BaseXException ex) {
+                    log.error("Cannot close BaseX session for collection " + collectionName, ex);
+                }
+            }
+        }
+    }
     
     /**
      * Return the target GML file to be loaded by a collection name (e.g: gml_0)
@@ -147,36 +197,67 @@ public class BaseX implements Database {
         }
     }
 
+    private Session getSession(String collectionName) {
+        Session session = sessions.get(collectionName);
+        if (session == null) {
+            Session newSession = new Session(collectionName, context);
+            session = sessions.putIfAbsent(collectionName, newSession);
+            if (session == null) {
+                session = newSession;
+            }
+        }
+        return session;
+    }
+
+    /**
+     * Close all open sessions, they are reopened on the next query.
+     */
+    private void closeSessions() {
+        for (Session session : sessions.values()) {
+            session.lock.writeLock().lock();
+            try {
+                session.close();
+            } finally {
+                session.lock.writeLock().unlock();
+            }
+        }
+    }
+
     /**
      * Query query with DB Name
      *
      * @param query Xquery
      * @param collectionName the database name of the collection should be
      * queried (e.g: gml_85 or userdb)
+     * @param update true if the query modifies the collection
      * @return String
      * @throws SecoreException
      */
-    private String query(String query, String collectionName) throws SecoreException {
+    private String query(String query, String collectionName, boolean update) throws SecoreException {
+        DbManager.recordCollection(collectionName);
+        String ret = null;
+        if (!update) {
+            ret = DbManager.getCached(query, collectionName);
+            if (ret != null) {
+                return ret;
+            }
+        }
+
+        long generation = DbManager.getQueryCacheGeneration();
+        Session session = getSession(collectionName);
         try {
             long start = System.currentTimeMillis();
-            new Open(collectionName).execute(context);
-            String ret = null;
-            // to know which database is used in cache.
-            boolean cached = false;
-
-            if (DbManager.cacheContains(query, collectionName)) {
-                Pair<String, String> tmp = DbManager.getCached(query);
-                ret = tmp.fst;
-                cached = true;
+            if (update) {
+                ret = executeUpdate(session, query);
             } else {
-                ret = new XQuery(query).execute(context); // error here when update with empty value in query
+                ret = executeRead(session, query);
             }
             long end = System.currentTimeMillis();
             if (!StringUtil.emptyQueryResult(ret)) {
                 log.trace("Query successfully executed in " + (end - start) + "ms");
                 log.trace("Result (trimmed to first 300 characters):\n" + ret.substring(0, Math.min(300, ret.length())));
-                if (!cached) {
-                    DbManager.updateCache(query, ret, collectionName);
+                if (!update) {
+                    DbManager.updateCache(query, ret, collectionName, generation);
                 }
             }
             return ret;
@@ -184,8 +265,42 @@ public class BaseX implements Database {
             String error = "Failed at querying the database, detail: " + e.getMessage();
             error = error + " Check collection name and version are valid first.";
             throw new SecoreException(ExceptionCode.InternalComponentError, error, e);
+        }
+    }
+
+    private String executeRead(Session session, String query) throws BaseXException {
+        while (true) {
+            session.lock.readLock().lock();
+            try {
+                if (session.open) {
+                    return new XQuery(query).execute(session.context); // error here when update with empty value in query
+                }
+            } finally {
+                session.lock.readLock().unlock();
+            }
+            // not open yet or closed by an update in the meantime
+            session.lock.writeLock().lock();
+            try {
+                session.open();
+            } finally {
+                session.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private String executeUpdate(Session session, String query) throws BaseXException {
+        Lock writeLock = session.lock.writeLock();
+        writeLock.lock();
+        try {
+            session.open();
+            try {
+                return new XQuery(query).execute(session.context);
+            } finally {
+                // reopen, so that subsequent queries see the updated collection
+                session.close();
+            }
         } finally {
-            close();
+            writeLock.unlock();
         }
     }
 
@@ -229,11 +344,11 @@ public class BaseX implements Database {
         // in here should check if identifier is existing in GmlDictionary or UserDictionary then update query correspond with DB name
         String ret = Constants.EMPTY;
         if (collectionName.equals(DbManager.USER_DB)) {
-            ret = queryUser(query, DbManager.FIX_USER_VERSION_NUMBER);
+            ret = queryUser(query, DbManager.FIX_USER_VERSION_NUMBER, true);
         } else {
             // it is EPSG database, then it need the versionNumber (e.g: 8.5)
             String versionNumber = DbManager.getCollectionVersionNumber(collectionName);
-            ret = queryEpsg(query, versionNumber);
+            ret = queryEpsg(query, versionNumber, true);
         }
         
         return ret;
@@ -249,6 +364,10 @@ public class BaseX implements Database {
      */
     @Override
     public String queryEpsg(String query, String versionNumber) throws SecoreException {
+        return queryEpsg(query, versionNumber, false);
+    }
+
+    private String queryEpsg(String query, String versionNumber, boolean update) throws SecoreException {
         String ret = null;
         if (query == null) {
             return Constants.EMPTY;
@@ -277,7 +396,7 @@ public class BaseX implements Database {
         // NOTE: if query has used version number then need to change here to version number.
         query = query.replaceAll(Constants.VERSION_NUMBER, versionNumber);
         log.debug("Executing query against the EPSG database: " + query);
-        ret = query(query, collectionName);
+        ret = query(query, collectionName, update);
 
         return ret;
     }
@@ -291,6 +410,10 @@ public class BaseX implements Database {
      */
     @Override
     public String queryUser(String query, String versionNumber) throws SecoreException {
+        return queryUser(query, versionNumber, false);
+    }
+
+    private String queryUser(String query, String versionNumber, boolean update) throws SecoreException {
         String ret = null;
         if (StringUtil.emptyQueryResult(query)) {
             return Constants.EMPTY;
@@ -299,7 +422,7 @@ public class BaseX implements Database {
         // NOTE: if query has used version number then need to change here to the fix userdb version.
         query = query.replaceAll(Constants.VERSION_NUMBER, versionNumber);
         log.trace("Executing query against the USER database: " + query);
-        ret = query(query, DbManager.USER_DB);
+        ret = query(query, DbManager.USER_DB, update);
 
         return ret;
     }
@@ -318,10 +441,11 @@ public class BaseX implements Database {
         if (StringUtil.emptyQueryResult(query)) {
             return Constants.EMPTY;
         }
-        ret = query(query, DbManager.USER_DB);
+        // the query may modify userdb, so it is run exclusively
+        ret = query(query, DbManager.USER_DB, clearCache);
         // if insert, delete, update in userdb, then it need to reload the cache after changed.
         if (clearCache) {
-            DbManager.clearCache();
+            DbManager.clearCache(DbManager.USER_DB);
         }
 
         return ret;
@@ -336,11 +460,15 @@ public class BaseX implements Database {
      */
     public Object executeCommand(Command cmd) throws SecoreException {
         Object ret = null;
+        // the command may replace or drop a collection, so release the open sessions first
+        closeSessions();
         try {
             ret = cmd.execute(context);
         } catch (BaseXException ex) {
             throw new SecoreException(ExceptionCode.InternalComponentError,
                     "Failed executing BaseX command: " + cmd.toString(), ex);
+        } finally {
+            DbManager.clearCache();
         }
         
         return ret;
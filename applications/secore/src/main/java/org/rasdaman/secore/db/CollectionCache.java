@@ -0,0 +1,217 @@
+/*
+ * This file is part of rasdaman community.
+ *
+ * Rasdaman community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Rasdaman community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2003 - 2017 Peter Baumann / rasdaman GmbH.
+ *
+ * For more information please see <http://www.rasdaman.org>
+ * or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+package org.rasdaman.secore.db;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe cache with a maximum number of entries; the least recently used
+ * entry is evicted when the limit is reached. Each entry records the
+ * collections (e.g: userdb, gml_8.5) its value was computed from, so that an
+ * update of one collection only invalidates the entries depending on it.
+ *
+ * A single lock guards the map: lookups are cheap compared to a BaseX query,
+ * so a finer grained scheme is not needed here.
+ */
+public class CollectionCache {
+
+    private final String name;
+    private final int maxEntries;
+    private final LinkedHashMap<String, CacheEntry> entries;
+    // incremented on every invalidation, guarded by entries
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * @param name name of the cache, used only in the statistics
+     * @param maxEntries maximum number of entries kept in the cache
+     */
+    public CollectionCache(String name, int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Maximum number of cache entries must be positive, given: " + maxEntries);
+        }
+        this.name = name;
+        this.maxEntries = maxEntries;
+        // access order, so the eldest entry is the least recently used one
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                boolean evict = size() > CollectionCache.this.maxEntries;
+                if (evict) {
+                    evictions.incrementAndGet();
+                }
+                return evict;
+            }
+        };
+    }
+
+    /**
+     * @return the cached value for key, or null if it is not cached
+     */
+    public String get(String key) {
+        CacheEntry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * @return the cached value for key if it was computed from the given
+     * collection, or null otherwise
+     */
+    public String get(String key, String collectionName) {
+        CacheEntry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null || !entry.collectionNames.contains(collectionName)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * @return the current generation of the cache, to be passed to put() once
+     * the value is computed
+     */
+    public long getGeneration() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    public void put(String key, String value, String collectionName, long generation) {
+        put(key, value, Collections.singleton(collectionName), generation);
+    }
+
+    /**
+     * Cache value for key, unless the cache was invalidated since generation
+     * was obtained, as the value may then be computed from outdated data.
+     *
+     * @param collectionNames the collections the value was computed from
+     * @param generation result of getGeneration() before computing the value
+     */
+    public void put(String key, String value, Set<String> collectionNames, long generation) {
+        CacheEntry entry = new CacheEntry(value, new HashSet<String>(collectionNames));
+        synchronized (entries) {
+            if (generation == this.generation) {
+                entries.put(key, entry);
+            }
+        }
+    }
+
+    /**
+     * Remove all entries computed from the given collection.
+     */
+    public void invalidate(String collectionName) {
+        int removed = 0;
+        synchronized (entries) {
+            generation++;
+            Iterator<CacheEntry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().collectionNames.contains(collectionName)) {
+                    it.remove();
+                    removed++;
+                }
+            }
+        }
+        invalidations.addAndGet(removed);
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        synchronized (entries) {
+            generation++;
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * @return ratio of hits to all lookups, 0 if there was no lookup yet
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return name + " cache: " + size() + "/" + maxEntries + " entries, "
+               + hits.get() + " hits, " + misses.get() + " misses, "
+               + evictions.get() + " evictions, " + invalidations.get() + " invalidations";
+    }
+
+    private static class CacheEntry {
+
+        private final String value;
+        private final Set<String> collectionNames;
+
+        private CacheEntry(String value, Set<String> collectionNames) {
+            this.value = value;
+            this.collectionNames = collectionNames;
+        }
+    }
+}
@@ -26,7 +26,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -41,7 +41,6 @@ import org.rasdaman.secore.ConfigManager;
 import org.rasdaman.secore.Constants;
 import org.rasdaman.secore.util.ExceptionCode;
 import org.rasdaman.secore.util.IOUtil;
-import org.rasdaman.secore.util.Pair;
 import org.rasdaman.secore.util.SecoreException;
 import org.rasdaman.secore.util.StringUtil;
 
@@ -87,13 +86,9 @@ public class DbManager {
     private static DbManager instance;
 
     /**
-     * To notify Servlet when should clear the cache (i.e: when BaseX update/delete/insert definitions) then need to clear cache from BaseX query and also on Servlet.
+     * Collections queried by the current thread, see startRecordingCollections().
      */
-    private static boolean needToClearCache = false;
-
-    // Cache query, (return and boolean) - version to know this query is from EPSG dictionary or User dictionary.
-    private static final Map<String, Pair<String, String>> cache =
-        new HashMap<String, Pair<String, String>>();
+    private static final ThreadLocal<Set<String>> queriedCollections = new ThreadLocal<Set<String>>();
 
     /**
      * NOTE: collection name in XQuery cannot have ".".
@@ -394,34 +389,90 @@ public class DbManager {
     /*
      * Cache maintenance
      */
-    public static void clearCache() {
-        cache.clear();
-        // servlet need to clear cache as well
-        needToClearCache = true;
+
+    /**
+     * Created on first use, i.e. after ConfigManager is initialized.
+     */
+    private static class Caches {
+
+        // XQuery -> result, tagged with the collection it was run on
+        private static final CollectionCache QUERY =
+            new CollectionCache("XQuery", ConfigManager.getInstance().getCacheMaxEntries());
+        // request URI -> resolved definition, tagged with all collections queried while resolving it
+        private static final CollectionCache RESOLVED =
+            new CollectionCache("Resolved URI", ConfigManager.getInstance().getCacheMaxEntries());
+    }
+
+    /**
+     * Invalidate all cached results depending on the given collection, e.g.
+     * after a definition was inserted/updated/deleted in userdb; results from
+     * other collections (e.g: gml_8.5) are kept.
+     */
+    public static void clearCache(String collectionName) {
+        Caches.QUERY.invalidate(collectionName);
+        Caches.RESOLVED.invalidate(collectionName);
+        log.debug("Cleared cached results of collection: " + collectionName);
     }
 
     /**
-     *  Servlet already clear its cache
+     * Invalidate all cached results.
      */
-    public static void clearedCache() {
-        needToClearCache = false;
+    public static void clearCache() {
+        Caches.QUERY.clear();
+        Caches.RESOLVED.clear();
+        log.debug("Cleared all cached results.");
     }
 
-    public static boolean getNeedToClearCache() {
-        return needToClearCache;
+    public static long getQueryCacheGeneration() {
+        return Caches.QUERY.getGeneration();
     }
 
-    public static void updateCache(String key, String value, String version) {
+    public static void updateCache(String key, String value, String collectionName, long generation) {
         if (value != null && !value.equals(Constants.EMPTY_XML)) {
-            cache.put(key, Pair.of(value, version));
+            Caches.QUERY.put(key, value, collectionName, generation);
         }
     }
 
-    public static Pair<String, String> getCached(String key) {
-        return cache.get(key);
+    /**
+     * @return the cached result of query key on the collection, or null if not cached
+     */
+    public static String getCached(String key, String collectionName) {
+        return Caches.QUERY.get(key, collectionName);
+    }
+
+    public static CollectionCache getQueryCache() {
+        return Caches.QUERY;
     }
 
-    public static boolean cacheContains(String key, String version) {
-        return cache.containsKey(key) && cache.get(key).snd.equals(version);
+    /**
+     * Cache of resolved definitions by request URI, used by the servlet.
+     */
+    public static CollectionCache getResolvedCache() {
+        return Caches.RESOLVED;
+    }
+
+    /**
+     * Start recording the collections queried by the current thread, so that
+     * a result computed from several queries can be cached with all of them.
+     */
+    public static void startRecordingCollections() {
+        queriedCollections.set(new HashSet<String>());
+    }
+
+    /**
+     * @return the collections queried by the current thread since
+     * startRecordingCollections(), and stop recording
+     */
+    public static Set<String> stopRecordingCollections() {
+        Set<String> ret = queriedCollections.get();
+        queriedCollections.remove();
+        return ret == null ? new HashSet<String>() : ret;
+    }
+
+    static void recordCollection(String collectionName) {
+        Set<String> collectionNames = queriedCollections.get();
+        if (collectionNames != null) {
+            collectionNames.add(collectionName);
+        }
     }
 }
@@ -177,9 +177,8 @@ public class DbSecoreVersion {
                        "                    <" + this.SECORE_VERSION + ">0</" + this.SECORE_VERSION + " > " +
                        "               </" + this.SECORE_DB + "> " +
                        "   into $x";
-        String output = baseX.queryUser(query, DbManager.FIX_USER_VERSION_NUMBER);
         // if not clear cache the version number is kept as old number when select.
-        DbManager.clearCache();
+        String output = baseX.queryUser(query, true);
         log.debug("Inserted new version number: 0 to Secoredb.");
         return output;
     }
@@ -194,9 +193,8 @@ public class DbSecoreVersion {
     public String updateVersion(String version) throws SecoreException {
         String query = "let $x := collection('" + DbManager.USER_DB + "')//" + this.SECORE_VERSION + "//text() " +
                        "return replace node $x with " + version;
-        String output = baseX.queryUser(query, DbManager.FIX_USER_VERSION_NUMBER);
         // if not clear cache the version number is kept as old number when select.
-        DbManager.clearCache();
+        String output = baseX.queryUser(query, true);
         log.debug("Updated Secoredb's version number to: " + version);
         return output;
     }
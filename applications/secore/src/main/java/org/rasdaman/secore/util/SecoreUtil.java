@@ -64,12 +64,13 @@ public class SecoreUtil {
                            + "return insert node <dictionaryEntry xmlns=\"" + NAMESPACE_GML + "\">"
                            + newd
                            + "</dictionaryEntry> into $x";
-            DbManager.clearCache();
             try {
                 DbManager.getInstance().getDb().updateQuery(query, DbManager.USER_DB); // Only allow user to add in userdb
             } catch (SecoreException e) {
                 StringUtil.printStackTraceWhenEditDB("adding", e);
                 error = e.getMessage();
+            } finally {
+                DbManager.clearCache(DbManager.USER_DB);
             }
         } else {
             // If user try to insert but with same identifier then update the existing definition.
@@ -96,12 +97,13 @@ public class SecoreUtil {
                        + "return replace node $x with " + mod;
 
         String error = Constants.EMPTY;
-        DbManager.clearCache();
         try {
             DbManager.getInstance().getDb().updateQuery(query, collectionName);
         } catch (SecoreException e) {
             StringUtil.printStackTraceWhenEditDB("updating", e);
             error = e.getMessage();
+        } finally {
+            DbManager.clearCache(collectionName);
         }
         return error;
     }
@@ -336,10 +338,11 @@ public class SecoreUtil {
         String error = Constants.EMPTY;
         try {
             DbManager.getInstance().getDb().updateQuery(query, DbManager.USER_DB); // only allow to delete inside "userdb"
-            DbManager.clearCache();
         } catch (SecoreException e) {
             StringUtil.printStackTraceWhenEditDB("deleting", e);
             error = e.getMessage();
+        } finally {
+            DbManager.clearCache(DbManager.USER_DB);
         }
         return error;
     }
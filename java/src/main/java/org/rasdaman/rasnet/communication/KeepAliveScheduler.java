@@ -0,0 +1,79 @@
+/*
+ * This file is part of rasdaman community.
+ *
+ * Rasdaman community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Rasdaman community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2003 - 2017 Peter Baumann / rasdaman GmbH.
+ *
+ * For more information please see <http://www.rasdaman.org>
+ * or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+
+package org.rasdaman.rasnet.communication;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the keep alive messages of all rasnet clients in this JVM from a few
+ * shared daemon threads, instead of one thread per client.
+ */
+final class KeepAliveScheduler {
+
+    private static final ScheduledThreadPoolExecutor executor = createExecutor();
+
+    private KeepAliveScheduler() {
+    }
+
+    /**
+     * Run the given keep alive task repeatedly, starting after the first interval.
+     *
+     * @param task                      The task sending one keep alive message.
+     * @param aliveIntervalMilliseconds The number of milliseconds between each heart beat.
+     * @return The future with which the task is cancelled.
+     */
+    static ScheduledFuture<?> schedule(Runnable task, long aliveIntervalMilliseconds) {
+        return executor.scheduleWithFixedDelay(task, aliveIntervalMilliseconds,
+                                               aliveIntervalMilliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return The number of threads sending keep alive messages at the moment.
+     */
+    static int getThreadCount() {
+        return executor.getPoolSize();
+    }
+
+    private static ScheduledThreadPoolExecutor createExecutor() {
+        // a keep alive call blocks up to Constants.SERVICE_CALL_TIMEOUT when a server
+        // does not answer, so more than one thread keeps the other clients on time
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        ScheduledThreadPoolExecutor result = new ScheduledThreadPoolExecutor(threads, new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "rasnet-keepalive-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        // stopped clients must not stay in the queue until their next heart beat
+        result.setRemoveOnCancelPolicy(true);
+        return result;
+    }
+}
@@ -22,6 +22,11 @@
 
 package org.rasdaman.rasnet.communication;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.protobuf.*;
 import io.grpc.ManagedChannel;
 import io.grpc.StatusRuntimeException;
@@ -45,11 +50,20 @@ import java.io.*;
 import java.nio.ByteBuffer;
 import java.util.NoSuchElementException;
 import java.util.StringTokenizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class RasRasnetImplementation implements RasImplementationInterface, RasCommDefs, RasGlobalDefs {
+public class RasRasnetImplementation implements RasImplementationInterface, RasStreamingImplementationInterface,
+    RasAsyncImplementationInterface, RasCommDefs, RasGlobalDefs {
 
     private RasmgrClientServiceGrpc.RasmgrClientServiceBlockingStub rasmgService;
     private ClientRassrvrServiceGrpc.ClientRassrvrServiceBlockingStub rasServerService;
+    private ClientRassrvrServiceGrpc.ClientRassrvrServiceFutureStub rasServerFutureService;
     private HealthServiceGrpc.HealthServiceBlockingStub rasmgrHealthService;
     private HealthServiceGrpc.HealthServiceBlockingStub rasserverHealthService;
     private ManagedChannel rasmgrServiceChannel;
@@ -136,6 +150,15 @@ public class RasRasnetImplementation implements RasImplementationInterface, RasC
         return errorStatus;
     }
 
+    /**
+     * Check if the database session of this client can still be used, i.e. the database is open
+     * and the keep alive messages to the rasserver did not fail.
+     */
+    public boolean isConnectionAlive() {
+        RasserverKeepAlive keepAlive = this.rasserverKeepAlive;
+        return this.dbIsOpen == 1 && keepAlive != null && keepAlive.isRunning();
+    }
+
     @Override
     public Transaction newTransaction() {
         transaction = new RasTransaction(this);
@@ -388,6 +411,49 @@ public class RasRasnetImplementation implements RasImplementationInterface, RasC
 
     @Override
     public Object queryRequest(String parameters) throws RasQueryExecutionFailedException {
+        return readResult(this.queryStreamRequest(parameters));
+    }
+
+    /**
+     * Read a streamed result completely and close it.
+     */
+    private Object readResult(RasStreamedQueryResult streamedResult) throws RasQueryExecutionFailedException {
+        try {
+            if (!streamedResult.isMDDCollection()) {
+                return streamedResult.getResult();
+            }
+
+            // Initialize return-set and read each MDD completely
+            DBag resultBag = new RasBag();
+            RasStreamedMDD mdd;
+            while ((mdd = streamedResult.nextMDD()) != null) {
+                resultBag.add(createMArray(mdd));
+            }
+
+            Debug.leaveVerbose("RasNetImplementation.getResponse: done. result=" + resultBag);
+            return resultBag;
+        } catch (IOException e) {
+            Debug.talkCritical("RasNetImplementation.getResponse: " + e.getMessage());
+            Debug.leaveVerbose("RasNetImplementation.getResponse: done, communication exception.");
+            throw new RasClientInternalException("RasNetImplementation", "getResponse()", e.getMessage());
+        } catch (RasResultIsNoIntervalException e) {
+            Debug.talkCritical("RasNetImplementation.getResponse: " + e.getMessage());
+            Debug.leaveVerbose("RasNetImplementation.getResponse: done, result not an interval.");
+            throw new RasClientInternalException("RasNetImplementation", "getResponse()", e.getMessage());
+        } catch (StatusRuntimeException ex) {
+            throw GrpcUtils.convertStatusToRuntimeException(ex.getStatus());
+        } finally {
+            closeQuietly(streamedResult);
+        }
+    }
+
+    /**
+     * Execute a query and return its result without materializing MDDs in memory: their
+     * binary data is read from the rasserver chunk by chunk while the caller consumes it.
+     * Errors reported by the server are thrown by this method already.
+     */
+    @Override
+    public RasStreamedQueryResult queryStreamRequest(String parameters) throws RasQueryExecutionFailedException {
         try {
             byte[] bytes = parameters.getBytes("8859_1");
 
@@ -396,370 +462,390 @@ public class RasRasnetImplementation implements RasImplementationInterface, RasC
                     .setData(ByteString.copyFrom(bytes))
                     .build();
 
-            StreamedHttpQueryRepl streamedHttpQueryRepl = 
+            StreamedHttpQueryRepl streamedHttpQueryRepl =
                     this.getRasServerService().beginStreamedHttpQuery(
                             beginStreamedHttpQueryReq);
-            long bytesLeft = streamedHttpQueryRepl.getBytesLeft();
-            String requestUUID = streamedHttpQueryRepl.getUuid();
-
-            Debug.enterVerbose("RasNetImplementation.getResponse: start.");
-
-            Object result = null;
-            byte[] currentChunk = streamedHttpQueryRepl.getData().toByteArray();
-            int currentChunkSize = currentChunk.length;
-            ByteArrayInputStream dataByteStream = new ByteArrayInputStream(currentChunk);
-            DataInputStream in = new DataInputStream(dataByteStream);
-            
-            byte[] b1 = new byte[1];
-            byte[] b4 = new byte[4];
-            byte[] b8 = new byte[8];
-            byte endianess = 0;
-            String collType = null;
-            int numberOfResults = 0;
-            int arraySize = 0;
-            byte[] arrayData = null;
-            int totalReadBytes = 0;
-            int currentlyReadBytes = 0;
-            DBag resultBag;
-            RasGMArray res = null;
-            try {
-                currentChunkSize -= in.read(b1);
-                int resultType = b1[0];
-                switch (resultType) {
-                    case RESPONSE_OK:
-                    case RESPONSE_OK_NEGATIVE:
-                        //Nothing todo
-                        break;
-
-                    // +++++++++++++++++++++++++++++++++++++++++++++++++
-                    case RESPONSE_MDDS:
-                        // read Endianess
-                        while (in.read(b1) == 0) ;
-                        --currentChunkSize;
-                        endianess = b1[0];
-
-                        // read Collection Type
-                        collType = RasUtils.readString(in);
-                        currentChunkSize -= (collType.length() + 1);
-
-                        // read NumberOfResults
-                        while (in.available() < 4) ;
-                        currentChunkSize -= in.read(b4);
-                        numberOfResults = RasUtils.ubytesToInt(b4, endianess);
-
-                        // Initialize return-set and parameters
-                        resultBag = new RasBag();
-                        String mddBaseType = null;
-                        String domain = null;
-                        String oid = "";
-                        RasOID roid = null;
-
-                        // do this for each result
-                        for (int x = 0; x < numberOfResults; x++) {
-                            //read mddBaseType
-                            mddBaseType = RasUtils.readString(in);
-                            currentChunkSize -= (mddBaseType.length() + 1);
-
-                            // read spatialDomain
-                            domain = RasUtils.readString(in);
-                            currentChunkSize -= (domain.length() + 1);
-
-                            // read OID
-                            oid = RasUtils.readString(in);
-                            currentChunkSize -= (oid.length() + 1);
-                            roid = new RasOID(oid);
-
-                            // read size of binData
-                            while (in.available() < 8) ;
-                            currentChunkSize -= in.read(b8);
-
-                            long tmpArraySize = RasUtils.ubytesToLong(b8, endianess);
-                            if (tmpArraySize > Integer.MAX_VALUE) {
-                                String msg = "Cannot handle array result from rasdaman of size " + tmpArraySize +
-                                        " bytes; maximum supported size is " + Integer.MAX_VALUE + " bytes";
-                                Debug.talkCritical("RasNetImplementation.queryRequest: " + msg);
-                                Debug.leaveVerbose("RasNetImplementation.queryRequest: " + msg);
-                                throw new RasClientInternalException("RasNetImplementation", "queryRequest()", msg);
-                            }
-
-                            arraySize = (int) tmpArraySize;
-                            arrayData = new byte[arraySize];
-                            totalReadBytes = 0;
-                            currentlyReadBytes = 0;
-
-                            while (totalReadBytes < arraySize) {
-                                int bytesToReadFromChunk = Math.min(currentChunkSize, arraySize - totalReadBytes);
-                                currentlyReadBytes = in.read(arrayData, totalReadBytes, bytesToReadFromChunk);
-                                if (currentlyReadBytes == -1) {
-                                    break;
-                                }
-                                totalReadBytes += currentlyReadBytes;
-                                currentChunkSize -= currentlyReadBytes;
-                                
-                                // read next chunk if the current is fully processed already
-                                if (currentChunkSize == 0 && bytesLeft > 0) {
-                                    GetNextStreamedHttpQueryReq nextStreamedHttpQueryReq
-                                            = GetNextStreamedHttpQueryReq.newBuilder()
-                                                    .setUuid(requestUUID).build();
-                                    StreamedHttpQueryRepl nextStreamedHttpQueryRepl
-                                            = this.getRasServerService().getNextStreamedHttpQuery(
-                                                    nextStreamedHttpQueryReq);
-                                    bytesLeft = nextStreamedHttpQueryRepl.getBytesLeft();
-                                    in.close();
-                                    currentChunk = nextStreamedHttpQueryRepl.getData().toByteArray();
-                                    currentChunkSize = currentChunk.length;
-                                    in = new DataInputStream(new ByteArrayInputStream(currentChunk));
-                                    System.gc();
-                                }
-                            }
-                            
-                            // to make sure it doesn't happen that we go into the next loop with a bit too small
-                            // chunk, that cannot cover reading the base type, spatial domain, oid and data size,
-                            // we extend the current chunk if it's smaller than 1000 bytes.
-                            if (bytesLeft > 0 && currentChunkSize < 1000) {
-                                GetNextStreamedHttpQueryReq nextStreamedHttpQueryReq
-                                        = GetNextStreamedHttpQueryReq.newBuilder()
-                                                .setUuid(requestUUID).build();
-                                StreamedHttpQueryRepl nextStreamedHttpQueryRepl
-                                        = this.getRasServerService().getNextStreamedHttpQuery(
-                                                nextStreamedHttpQueryReq);
-                                bytesLeft = nextStreamedHttpQueryRepl.getBytesLeft();
-                                // get next chunk data
-                                ByteString nextChunk = nextStreamedHttpQueryRepl.getData();
-                                int nextChunkSize = nextChunk.size();
-                                // set up new chunk, combined from current and next chunks
-                                int newChunkSize = currentChunkSize + nextChunkSize;
-                                currentChunk = new byte[newChunkSize];
-                                // in first half read the current chunk
-                                in.read(currentChunk, 0, currentChunkSize);
-                                in.close();
-                                // in second half read the next chunk
-                                nextChunk.copyTo(currentChunk, currentChunkSize);
-                                currentChunkSize = newChunkSize;
-                                in = new DataInputStream(new ByteArrayInputStream(currentChunk));
-                                System.gc();
-                            }
-
-                            RasType rType = RasType.getAnyType(mddBaseType);
-                            RasBaseType rb = null;
-
-                            if (rType.getClass().getName().equals("rasj.RasMArrayType")) {
-                                RasMArrayType tmp = (RasMArrayType) rType;
-                                rb = tmp.getBaseType();
-                            } else {
-                                Debug.talkCritical("RasNetImplementation.getResponse: collection element is no MArray.");
-                                Debug.leaveVerbose("RasNetImplementation.getResponse: done, with exception.");
-                                throw new RasClientInternalException("RasHttpRequest", 
-                                        "execute()", "element of MDD Collection is no MArray");
-                            }
-                            if (rb.isBaseType()) {
-                                if (rb.isStructType()) {
-                                    RasStructureType sType = (RasStructureType) rb;
-                                    res = new RasGMArray(new RasMInterval(domain), 0, false);
-                                    res.setTypeLength(rb.getSize());
-                                    res.setArraySize(arraySize);
-                                    res.setArray(arrayData);
-                                    res.setTypeStructure(mddBaseType);
-                                    //insert into result set
-                                    resultBag.add(res);
-                                } else {
-                                    // It is a primitiveType
-                                    RasPrimitiveType pType = (RasPrimitiveType) rb;
-                                    switch (pType.getTypeID()) {
-                                        case RAS_BOOLEAN:
-                                        case RAS_BYTE:
-                                        case RAS_CHAR:
-                                            res = new RasMArrayByte(new RasMInterval(domain), false);
-                                            break;
-                                        case RAS_SHORT:
-                                            res = new RasMArrayShort(new RasMInterval(domain), false);
-                                            break;
-
-                                        case RAS_USHORT:
-                                            byte[] tmData = new byte[arraySize * 2];
-                                            for (int i = 0; i < arraySize * 2;) {
-                                                tmData[i] = 0;
-                                                tmData[i + 1] = 0;
-                                                tmData[i + 2] = arrayData[i / 2];
-                                                tmData[i + 3] = arrayData[i / 2 + 1];
-                                                i = i + SIZE_OF_INTEGER;
-                                            }
-                                            arrayData = tmData;
-                                            res = new RasMArrayInteger(new RasMInterval(domain), false);
-                                            break;
-
-                                        case RAS_INT:
-                                        case RAS_LONG:
-                                            res = new RasMArrayInteger(new RasMInterval(domain), false);
-                                            break;
-                                        case RAS_ULONG:
-                                            byte[] tmpData = new byte[arraySize * 2];
-                                            for (int i = 0; i < arraySize * 2;) {
-                                                tmpData[i] = 0;
-                                                tmpData[i + 1] = 0;
-                                                tmpData[i + 2] = 0;
-                                                tmpData[i + 3] = 0;
-                                                tmpData[i + 4] = arrayData[i / 2];
-                                                tmpData[i + 5] = arrayData[i / 2 + 1];
-                                                tmpData[i + 6] = arrayData[i / 2 + 2];
-                                                tmpData[i + 7] = arrayData[i / 2 + 3];
-                                                i = i + SIZE_OF_LONG;
-                                            }
-                                            arrayData = tmpData;
-                                            res = new RasMArrayLong(new RasMInterval(domain), false);
-                                            break;
-                                        case RAS_FLOAT:
-                                            res = new RasMArrayFloat(new RasMInterval(domain), false);
-                                            break;
-                                        case RAS_DOUBLE:
-                                            res = new RasMArrayDouble(new RasMInterval(domain), false);
-                                            break;
-                                        default:
-                                            res = new RasGMArray(new RasMInterval(domain), pType.getSize(), false);
-                                    }
-                                    res.setArray(arrayData);
-                                    res.setOID(roid);
-                                    res.setTypeStructure(mddBaseType);
-                                    resultBag.add(res);
-                                }
-                            } else {
-                                Debug.talkCritical("RasNetImplementation.getResponse: type is not base type.");
-                                Debug.leaveVerbose("RasNetImplementation.getResponse: done, type is not base type.");
-                                throw new RasClientInternalException("RasHttpRequest", "execute()", "Type of MDD is no Base Type");
-                            }
-                        } // for
-
-                        result = resultBag;
-                        in.close();
-
-                        break;
 
-                    // ++++++++++++++++++++++++++++++++++++++++++++++++++++++++
-                    case RESPONSE_SKALARS:
-                        // read Endianess
-                        while (in.read(b1) == 0) ;
-                        endianess = b1[0];
-                        // read Collection Type
-                        collType = RasUtils.readString(in);
-                        RasType rt = new RasType();
-                        try {
-                            rt = rt.getAnyType(collType);
-                        } catch (Exception e) {
-                            Debug.talkCritical("RasNetImplementation.getResponse: type not supported: " + rt);
-                            Debug.leaveVerbose("RasNetImplementation.getResponse: done, unsupported type");
-                            throw new RasTypeNotSupportedException(rt + " as RasCollectionType");
-                        }
-                        if (rt.getTypeID() != RasGlobalDefs.RAS_COLLECTION) {
-                            Debug.leaveCritical("RasNetImplementation.getResponse: done. type not supported: " + rt);
-                            throw new RasTypeNotSupportedException(rt + " as RasCollectionType");
-                        }
+            return openResult(streamedHttpQueryRepl);
+
+        } catch (IOException e) {
+            Debug.talkCritical("RasNetImplementation.executeQueryRequest: " + e.getMessage());
+            Debug.leaveVerbose("RasNetImplementation.executeQueryRequest: done, " + e.getMessage());
+            throw new RasClientInternalException("RasNetImplementation", "executeQueryRequest()", e.getMessage());
+        } catch (StatusRuntimeException ex) {
+            throw GrpcUtils.convertStatusToRuntimeException(ex.getStatus());
+        }
+    }
+
+    /**
+     * Execute a query without blocking the calling thread: the chunks of the result are
+     * requested one after the other with the future stub of the rasserver, and the result
+     * is decoded like in queryRequest() once all of them were received.
+     */
+    @Override
+    public ListenableFuture<Object> queryRequestAsync(String parameters) {
+        return queryRequestAsync(parameters, DecodeExecutorHolder.EXECUTOR);
+    }
+
+    /**
+     * Like queryRequestAsync(String), decoding the result on the given executor, so that
+     * the threads of gRPC are not blocked by decoding large results.
+     */
+    @Override
+    public ListenableFuture<Object> queryRequestAsync(String parameters, Executor executor) {
+        AsyncQuery query = new AsyncQuery(executor);
+        try {
+            byte[] bytes = parameters.getBytes("8859_1");
+
+            BeginStreamedHttpQueryReq beginStreamedHttpQueryReq = BeginStreamedHttpQueryReq.newBuilder()
+                    .setClientUuid(this.clientUUID)
+                    .setData(ByteString.copyFrom(bytes))
+                    .build();
+
+            query.receive(this.getRasServerFutureService().beginStreamedHttpQuery(beginStreamedHttpQueryReq));
+        } catch (IOException e) {
+            Debug.talkCritical("RasNetImplementation.queryRequestAsync: " + e.getMessage());
+            query.result.setException(new RasClientInternalException("RasNetImplementation", "queryRequestAsync()", e.getMessage()));
+        } catch (RuntimeException ex) {
+            query.result.setException(ex);
+        }
+        return query.result;
+    }
+
+    /**
+     * A query executed by queryRequestAsync(), receiving the chunks of its result.
+     */
+    private class AsyncQuery implements FutureCallback<StreamedHttpQueryRepl>, Runnable {
+        private final SettableFuture<Object> result = SettableFuture.create();
+        private final Executor decodeExecutor;
+        private volatile ListenableFuture<StreamedHttpQueryRepl> pendingCall;
+        // received chunks, joined only once the last chunk has arrived
+        private final List<ByteString> chunks = new ArrayList<ByteString>();
+
+        private AsyncQuery(Executor decodeExecutor) {
+            this.decodeExecutor = decodeExecutor;
+            result.addListener(this, MoreExecutors.directExecutor());
+        }
+
+        /**
+         * Continue with the given call once its reply has arrived.
+         */
+        private void receive(ListenableFuture<StreamedHttpQueryRepl> call) {
+            pendingCall = call;
+            // the result may have been cancelled before pendingCall was set, so that run() did not see this call
+            if (result.isCancelled()) {
+                call.cancel(true);
+                return;
+            }
+            Futures.addCallback(call, this, MoreExecutors.directExecutor());
+        }
+
+        /**
+         * Abort the pending call when the result was cancelled; the rasserver drops the
+         * chunks which were not requested yet when the transaction is committed or aborted.
+         */
+        @Override
+        public void run() {
+            ListenableFuture<StreamedHttpQueryRepl> call = pendingCall;
+            if (result.isCancelled() && call != null) {
+                call.cancel(true);
+            }
+        }
 
-                        // read NumberOfResults
-                        while (in.available() < 4)
-                    ;
-                        in.read(b4);
-                        numberOfResults = RasUtils.ubytesToInt(b4, endianess);
-
-                        // Initailize return-list
-                        resultBag = new RasBag();
-
-                        // do this for each result
-                        for (int x = 0; x < numberOfResults; x++) {
-                            // read elementType
-                            String elementType = RasUtils.readString(in);
-                            RasType et = new RasType();
-                            et = ((RasCollectionType) rt).getElementType();
-                            // read size of binData
-                            while (in.available() < 4)
-                        ;
-                            in.read(b4);
-                            arraySize = RasUtils.ubytesToInt(b4, endianess);
-                            // read binData
-                            arrayData = new byte[arraySize];
-                            totalReadBytes = 0;
-                            currentlyReadBytes = 0;
-                            while ((currentlyReadBytes != -1) && (totalReadBytes < arraySize)) {
-                                currentlyReadBytes = in.read(arrayData, totalReadBytes, arraySize - totalReadBytes);
-                                totalReadBytes += currentlyReadBytes;
-                            }
-
-                            ByteArrayInputStream bis = new ByteArrayInputStream(arrayData);
-                            DataInputStream dis = new DataInputStream(bis);
-                            // ++++++++++++++++++++++++++++++++++++++++++++++++++++++++
-                            resultBag.add(getElement(dis, et, arrayData));
+        @Override
+        public void onSuccess(StreamedHttpQueryRepl reply) {
+            if (result.isCancelled()) {
+                return;
+            }
+            try {
+                chunks.add(reply.getData());
+                if (reply.getBytesLeft() > 0) {
+                    GetNextStreamedHttpQueryReq nextStreamedHttpQueryReq = GetNextStreamedHttpQueryReq.newBuilder()
+                            .setUuid(reply.getUuid()).build();
+                    receive(getRasServerFutureService().getNextStreamedHttpQuery(nextStreamedHttpQueryReq));
+                } else {
+                    final StreamedHttpQueryRepl wholeReply = StreamedHttpQueryRepl.newBuilder()
+                            .setUuid(reply.getUuid()).setData(ByteString.copyFrom(chunks)).setBytesLeft(0).build();
+                    chunks.clear();
+                    decodeExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            decode(wholeReply);
                         }
-                        result = resultBag;
-                        // close stream
-                        in.close();
-                        break;
-
-                    //++++++++++++++++++++++++++++++++++++++++++++++++++++++++
-                    case RESPONSE_ERROR:
-                        // read Endianess
-                        while (in.read(b1) == 0) ;
-                        endianess = b1[0];
-                        // read Error Number
-                        while (in.available() < 4) ;
-                        in.read(b4);
-                        int errNo = RasUtils.ubytesToInt(b4, endianess);
-                        // read Line Number
-                        while (in.available() < 4) ;
-                        in.read(b4);
-                        int lineNo = RasUtils.ubytesToInt(b4, endianess);
-                        // read Column Number
-                        while (in.available() < 4) ;
-                        in.read(b4);
-                        int colNo = RasUtils.ubytesToInt(b4, endianess);
-                        // read token
-                        String token = RasUtils.readString(in);
-                        Debug.leaveCritical("RasNetImplementation.getResponse: query failed, errNo=" + errNo + ", lineNo=" + lineNo + ", colNo=" + colNo + ", token=" + token);
-                        throw new RasQueryExecutionFailedException(errNo, lineNo, colNo, token);
-                    //+++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
-                    case RESPONSE_INT:
-                        // read Integer Value
-                        while (in.available() < 4)
-                    ;
-                        in.read(b4);
-                        result = new Integer(RasUtils.ubytesToInt(b4, endianess));
-                        break;
-
-                    //+++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
-                    case RESPONSE_OID:
-                        // read Values
-                        String sys = RasUtils.readString(in);
-                        String base = RasUtils.readString(in);
-                        double d = in.readDouble();
-                        resultBag = new RasBag();
-                        resultBag.add(new RasOID(sys, base, d));
-                        result = resultBag;
-                        // close stream
-                        in.close();
-                        break;
-                    default:
-                        break;
+                    });
                 }
-            } catch (IOException e) {
-                Debug.talkCritical("RasNetImplementation.getResponse: " + e.getMessage());
-                Debug.leaveVerbose("RasNetImplementation.getResponse: done, communication exception.");
-                throw new RasClientInternalException("RasNetImplementation", "getResponse()", e.getMessage());
-            } catch (RasResultIsNoIntervalException e) {
-                Debug.talkCritical("RasNetImplementation.getResponse: " + e.getMessage());
-                Debug.leaveVerbose("RasNetImplementation.getResponse: done, result not an interval.");
-                throw new RasClientInternalException("RasNetImplementation", "getResponse()", e.getMessage());
+            } catch (Exception ex) {
+                result.setException(ex);
             }
+        }
 
-            Debug.leaveVerbose("RasNetImplementation.getResponse: done. result=" + result);
-            return result;
+        private void decode(StreamedHttpQueryRepl wholeReply) {
+            if (result.isCancelled()) {
+                return;
+            }
+            try {
+                result.set(readResult(openResult(wholeReply)));
+            } catch (Exception ex) {
+                result.setException(ex);
+            }
+        }
 
+        @Override
+        public void onFailure(Throwable t) {
+            if (t instanceof StatusRuntimeException) {
+                t = GrpcUtils.convertStatusToRuntimeException(((StatusRuntimeException) t).getStatus());
+            }
+            result.setException(t);
+        }
+    }
+
+    /**
+     * Decode the response header of a streamed http query, given its first chunk.
+     */
+    private RasnetStreamedQueryResult openResult(StreamedHttpQueryRepl streamedHttpQueryRepl)
+            throws RasQueryExecutionFailedException {
+        Debug.enterVerbose("RasNetImplementation.getResponse: start.");
+
+        StreamedHttpQueryInputStream stream = new StreamedHttpQueryInputStream(this, streamedHttpQueryRepl);
+        RasnetStreamedQueryResult result = null;
+        try {
+            result = decodeResponse(stream, new DataInputStream(stream));
         } catch (IOException e) {
-            Debug.talkCritical("RasNetImplementation.executeQueryRequest: " + e.getMessage());
-            Debug.leaveVerbose("RasNetImplementation.executeQueryRequest: done, " + e.getMessage());
-            throw new RasClientInternalException("RasNetImplementation", "executeQueryRequest()", e.getMessage());
+            Debug.talkCritical("RasNetImplementation.getResponse: " + e.getMessage());
+            Debug.leaveVerbose("RasNetImplementation.getResponse: done, communication exception.");
+            throw new RasClientInternalException("RasNetImplementation", "getResponse()", e.getMessage());
+        } catch (RasResultIsNoIntervalException e) {
+            Debug.talkCritical("RasNetImplementation.getResponse: " + e.getMessage());
+            Debug.leaveVerbose("RasNetImplementation.getResponse: done, result not an interval.");
+            throw new RasClientInternalException("RasNetImplementation", "getResponse()", e.getMessage());
+        } finally {
+            if (result == null) {
+                closeQuietly(stream);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Request the next chunk of a streamed http query.
+     */
+    StreamedHttpQueryRepl getNextStreamedHttpQuery(String requestUUID) throws IOException {
+        try {
+            GetNextStreamedHttpQueryReq nextStreamedHttpQueryReq = GetNextStreamedHttpQueryReq.newBuilder()
+                    .setUuid(requestUUID).build();
+            return this.getRasServerService().getNextStreamedHttpQuery(nextStreamedHttpQueryReq);
         } catch (StatusRuntimeException ex) {
             throw GrpcUtils.convertStatusToRuntimeException(ex.getStatus());
         }
     }
 
+    /**
+     * Decode the response header; a collection of MDDs is returned undecoded
+     * so that the MDDs can be read one by one from the stream.
+     */
+    private RasnetStreamedQueryResult decodeResponse(StreamedHttpQueryInputStream stream, DataInputStream in)
+            throws IOException, RasQueryExecutionFailedException, RasResultIsNoIntervalException {
+        byte endianess = 0;
+        String collType = null;
+        int numberOfResults = 0;
+        Object result = null;
+        byte[] b4 = new byte[4];
+        DBag resultBag;
+
+        int resultType = in.readByte();
+        switch (resultType) {
+            case RESPONSE_OK:
+            case RESPONSE_OK_NEGATIVE:
+                //Nothing todo
+                break;
+
+            // +++++++++++++++++++++++++++++++++++++++++++++++++
+            case RESPONSE_MDDS:
+                // read Endianess
+                endianess = in.readByte();
+                // read Collection Type
+                collType = RasUtils.readString(in);
+                // read NumberOfResults
+                in.readFully(b4);
+                numberOfResults = RasUtils.ubytesToInt(b4, endianess);
+
+                // the MDDs are read by the caller
+                return RasnetStreamedQueryResult.createMDDResult(stream, in, endianess, numberOfResults);
+
+            // ++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+            case RESPONSE_SKALARS:
+                // read Endianess
+                endianess = in.readByte();
+                // read Collection Type
+                collType = RasUtils.readString(in);
+                RasType rt = new RasType();
+                try {
+                    rt = rt.getAnyType(collType);
+                } catch (Exception e) {
+                    Debug.talkCritical("RasNetImplementation.getResponse: type not supported: " + rt);
+                    Debug.leaveVerbose("RasNetImplementation.getResponse: done, unsupported type");
+                    throw new RasTypeNotSupportedException(rt + " as RasCollectionType");
+                }
+                if (rt.getTypeID() != RasGlobalDefs.RAS_COLLECTION) {
+                    Debug.leaveCritical("RasNetImplementation.getResponse: done. type not supported: " + rt);
+                    throw new RasTypeNotSupportedException(rt + " as RasCollectionType");
+                }
+
+                // read NumberOfResults
+                in.readFully(b4);
+                numberOfResults = RasUtils.ubytesToInt(b4, endianess);
+
+                // Initailize return-list
+                resultBag = new RasBag();
+
+                // do this for each result
+                for (int x = 0; x < numberOfResults; x++) {
+                    // read elementType
+                    String elementType = RasUtils.readString(in);
+                    RasType et = ((RasCollectionType) rt).getElementType();
+                    // read size of binData
+                    in.readFully(b4);
+                    int arraySize = RasUtils.ubytesToInt(b4, endianess);
+                    // read binData
+                    byte[] arrayData = new byte[arraySize];
+                    in.readFully(arrayData);
+
+                    ByteArrayInputStream bis = new ByteArrayInputStream(arrayData);
+                    DataInputStream dis = new DataInputStream(bis);
+                    // ++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+                    resultBag.add(getElement(dis, et, arrayData));
+                }
+                result = resultBag;
+                break;
+
+            //++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+            case RESPONSE_ERROR:
+                // read Endianess
+                endianess = in.readByte();
+                // read Error Number
+                in.readFully(b4);
+                int errNo = RasUtils.ubytesToInt(b4, endianess);
+                // read Line Number
+                in.readFully(b4);
+                int lineNo = RasUtils.ubytesToInt(b4, endianess);
+                // read Column Number
+                in.readFully(b4);
+                int colNo = RasUtils.ubytesToInt(b4, endianess);
+                // read token
+                String token = RasUtils.readString(in);
+                Debug.leaveCritical("RasNetImplementation.getResponse: query failed, errNo=" + errNo + ", lineNo=" + lineNo + ", colNo=" + colNo + ", token=" + token);
+                throw new RasQueryExecutionFailedException(errNo, lineNo, colNo, token);
+            //+++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+            case RESPONSE_INT:
+                // read Integer Value
+                in.readFully(b4);
+                result = new Integer(RasUtils.ubytesToInt(b4, endianess));
+                break;
+
+            //+++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+            case RESPONSE_OID:
+                // read Values
+                String sys = RasUtils.readString(in);
+                String base = RasUtils.readString(in);
+                double d = in.readDouble();
+                resultBag = new RasBag();
+                resultBag.add(new RasOID(sys, base, d));
+                result = resultBag;
+                break;
+            default:
+                break;
+        }
+
+        Debug.leaveVerbose("RasNetImplementation.getResponse: done. result=" + result);
+        return RasnetStreamedQueryResult.createDecodedResult(stream, result);
+    }
+
+    /**
+     * Read the data of a streamed MDD into a RasGMArray of the corresponding base type.
+     */
+    private static RasGMArray createMArray(RasStreamedMDD mdd) throws IOException, RasResultIsNoIntervalException {
+        String mddBaseType = mdd.getTypeStructure();
+        String domain = mdd.getDomain();
+        RasOID roid = mdd.getOID();
+
+        RasType rType = RasType.getAnyType(mddBaseType);
+        RasBaseType rb = null;
+
+        if (rType.getClass().getName().equals("rasj.RasMArrayType")) {
+            RasMArrayType tmp = (RasMArrayType) rType;
+            rb = tmp.getBaseType();
+        } else {
+            Debug.talkCritical("RasNetImplementation.getResponse: collection element is no MArray.");
+            Debug.leaveVerbose("RasNetImplementation.getResponse: done, with exception.");
+            throw new RasClientInternalException("RasHttpRequest",
+                    "execute()", "element of MDD Collection is no MArray");
+        }
+        if (!rb.isBaseType()) {
+            Debug.talkCritical("RasNetImplementation.getResponse: type is not base type.");
+            Debug.leaveVerbose("RasNetImplementation.getResponse: done, type is not base type.");
+            throw new RasClientInternalException("RasHttpRequest", "execute()", "Type of MDD is no Base Type");
+        }
+
+        byte[] arrayData = mdd.readFully();
+        int arraySize = arrayData.length;
+        RasGMArray res = null;
+
+        if (rb.isStructType()) {
+            RasStructureType sType = (RasStructureType) rb;
+            res = new RasGMArray(new RasMInterval(domain), 0, false);
+            res.setTypeLength(rb.getSize());
+            res.setArraySize(arraySize);
+            res.setArray(arrayData);
+            res.setTypeStructure(mddBaseType);
+        } else {
+            // It is a primitiveType
+            RasPrimitiveType pType = (RasPrimitiveType) rb;
+            switch (pType.getTypeID()) {
+                case RAS_BOOLEAN:
+                case RAS_BYTE:
+                case RAS_CHAR:
+                    res = new RasMArrayByte(new RasMInterval(domain), false);
+                    break;
+                case RAS_SHORT:
+                    res = new RasMArrayShort(new RasMInterval(domain), false);
+                    break;
+
+                case RAS_USHORT:
+                    res = new RasMArrayUShort(new RasMInterval(domain), false);
+                    break;
+
+                case RAS_INT:
+                case RAS_LONG:
+                    res = new RasMArrayInteger(new RasMInterval(domain), false);
+                    break;
+                case RAS_ULONG:
+                    res = new RasMArrayULong(new RasMInterval(domain), false);
+                    break;
+                case RAS_FLOAT:
+                    res = new RasMArrayFloat(new RasMInterval(domain), false);
+                    break;
+                case RAS_DOUBLE:
+                    res = new RasMArrayDouble(new RasMInterval(domain), false);
+                    break;
+                default:
+                    res = new RasGMArray(new RasMInterval(domain), pType.getSize(), false);
+            }
+            res.setArray(arrayData);
+            res.setOID(roid);
+            res.setTypeStructure(mddBaseType);
+        }
+        return res;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ex) {
+            Debug.talkWarning("RasNetImplementation: failed closing query result stream: " + ex.getMessage());
+        }
+    }
+
     @Override
     public String getTypeStructure(String typename, int typetype) {
         try {
@@ -802,6 +888,7 @@ public class RasRasnetImplementation implements RasImplementationInterface, RasC
         if (this.rasServerService == null) {
             this.rasServerServiceChannel = this.serviceFactory.createChannel(this.rasServerHost, this.rasServerPort);
             this.rasServerService = this.serviceFactory.createClientRasServerService(this.rasServerServiceChannel);
+            this.rasServerFutureService = this.serviceFactory.createClientRasServerFutureService(this.rasServerServiceChannel);
             this.rasserverHealthService = this.serviceFactory.createHealthService(this.rasServerServiceChannel);
         }
     }
@@ -816,6 +903,12 @@ public class RasRasnetImplementation implements RasImplementationInterface, RasC
         return this.rasServerService;
     }
 
+    private synchronized ClientRassrvrServiceGrpc.ClientRassrvrServiceFutureStub getRasServerFutureService() {
+        this.initRasserverServices();
+
+        return this.rasServerFutureService;
+    }
+
     private void disconnectClient() {
         try {
             DisconnectReq disconnectReq = DisconnectReq.newBuilder()
@@ -839,7 +932,8 @@ public class RasRasnetImplementation implements RasImplementationInterface, RasC
             this.rasmgService = null;
 
             try {
-                this.rasmgrServiceChannel.shutdown();
+                this.serviceFactory.releaseChannel(this.rasmgrServiceChannel);
+                this.rasmgrServiceChannel = null;
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
@@ -849,11 +943,13 @@ public class RasRasnetImplementation implements RasImplementationInterface, RasC
     private synchronized void closeRasServerService() {
         if (this.rasServerService != null) {
             this.rasServerService = null;
+            this.rasServerFutureService = null;
             this.rasServerHost = null;
             this.rasServerPort = -1;
 
             try {
-                this.rasServerServiceChannel.shutdown();
+                this.serviceFactory.releaseChannel(this.rasServerServiceChannel);
+                this.rasServerServiceChannel = null;
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
@@ -986,4 +1082,21 @@ public class RasRasnetImplementation implements RasImplementationInterface, RasC
         this.rasserverKeepAlive = null;
     }
 
+    /**
+     * Shared daemon threads decoding the results of queryRequestAsync(String), created
+     * only when the first asynchronous query is executed.
+     */
+    private static class DecodeExecutorHolder {
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                    private final AtomicInteger threadCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "rasj-async-decode-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
 }
@@ -29,19 +29,18 @@ import org.rasdaman.rasnet.util.Constants;
 import org.rasdaman.rasnet.util.GrpcUtils;
 import rasj.global.Debug;
 
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class RasmgrKeepAlive {
     private volatile boolean isKeepAliveRunning = false;
     private final Lock keepAliveLock = new ReentrantLock();
-    private final Condition isKeepAliveRunningCond = keepAliveLock.newCondition();
     private final RasmgrClientServiceGrpc.RasmgrClientServiceBlockingStub rasmgrService;
     private final String clientUUID;
     private final long aliveIntervalMilliseconds;
-    private Thread runnerThread;
+    private ScheduledFuture<?> keepAliveTask;
 
     /**
      * Create a new RasmgrKeepAlive object that, when started, connects throw the given
@@ -59,7 +58,7 @@ public class RasmgrKeepAlive {
     }
 
     /**
-     * Creates and starts a thread that will send KeepAlive messages to the server.
+     * Schedules the sending of KeepAlive messages to the server on the threads shared by all clients.
      * After this method is called, stop must be called.
      * This method can be called only once.
      */
@@ -73,21 +72,20 @@ public class RasmgrKeepAlive {
 
             this.isKeepAliveRunning = true;
             //Start the keep alive
-            this.runnerThread = new Thread(new KeepAliveRunner(this.clientUUID));
-            this.runnerThread.start();
+            this.keepAliveTask = KeepAliveScheduler.schedule(new KeepAliveRunner(this.clientUUID), this.aliveIntervalMilliseconds);
 
         } catch (Exception ex) {
             Debug.talkCritical("Failed to start keep alive thread:" + ex.getMessage());
             //If an exception is throw, we must restore the invariants
             this.isKeepAliveRunning = false;
-            this.runnerThread = null;
+            this.keepAliveTask = null;
         } finally {
             this.keepAliveLock.unlock();
         }
     }
 
     /**
-     * Check if the worker thread is running.
+     * Check if KeepAlive messages are being sent.
      *
      * @return
      */
@@ -102,21 +100,18 @@ public class RasmgrKeepAlive {
     }
 
     /**
-     * Stop the thread that is sending KeepAlive messages to the server.
+     * Stop sending KeepAlive messages to the server.
      */
     public void stop() {
         this.keepAliveLock.lock();
         try {
             this.isKeepAliveRunning = false;
-            this.isKeepAliveRunningCond.signal();
+            if (this.keepAliveTask != null) {
+                this.keepAliveTask.cancel(false);
+                this.keepAliveTask = null;
+            }
         } finally {
             this.keepAliveLock.unlock();
-
-            try {
-                this.runnerThread.join();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
         }
     }
 
@@ -132,29 +127,24 @@ public class RasmgrKeepAlive {
 
         @Override
         public void run() {
-            keepAliveLock.lock();
+            if (!isKeepAliveRunning) {
+                return;
+            }
 
             try {
-                while (isKeepAliveRunning) {
-                    if (!isKeepAliveRunningCond.await(aliveIntervalMilliseconds, TimeUnit.MILLISECONDS)) {
-                        //The time expired
-                        RasmgrClientServiceOuterClass.KeepAliveReq keepAliveReq = RasmgrClientServiceOuterClass.KeepAliveReq.newBuilder()
-                                .setClientUUID(clientUUID)
-                                .build();
-
-                        //If this throws an exception, let it fail.
-                        rasmgrService.withDeadlineAfter(Constants.SERVICE_CALL_TIMEOUT, TimeUnit.MILLISECONDS)
-                        .keepAlive(keepAliveReq);
-                    }
-                }
-            } catch (InterruptedException ex) {
-                Debug.talkCritical("The worker thread was interrupted:" + ex.getMessage());
+                RasmgrClientServiceOuterClass.KeepAliveReq keepAliveReq = RasmgrClientServiceOuterClass.KeepAliveReq.newBuilder()
+                        .setClientUUID(clientUUID)
+                        .build();
+
+                rasmgrService.withDeadlineAfter(Constants.SERVICE_CALL_TIMEOUT, TimeUnit.MILLISECONDS)
+                .keepAlive(keepAliveReq);
             } catch (StatusRuntimeException ex) {
-                Exception actualException = GrpcUtils.convertStatusToRuntimeException(ex.getStatus());
-                Debug.talkCritical(actualException.getMessage());
-            } finally {
-                isKeepAliveRunning = false;
-                keepAliveLock.unlock();
+                // a call still running when the client was stopped may fail on the released channel
+                if (isKeepAliveRunning) {
+                    Exception actualException = GrpcUtils.convertStatusToRuntimeException(ex.getStatus());
+                    Debug.talkCritical(actualException.getMessage());
+                }
+                stop();
             }
         }
     }
@@ -25,6 +25,13 @@ public interface RasnetServiceFactory {
      */
     ClientRassrvrServiceGrpc.ClientRassrvrServiceBlockingStub createClientRasServerService(Channel channel);
 
+    /**
+     * Create a communication service between client and rasserver whose calls return futures instead of blocking.
+     * @param channel Channel holing the connection between the client and rasserver.
+     * @return A grpc service.
+     */
+    ClientRassrvrServiceGrpc.ClientRassrvrServiceFutureStub createClientRasServerFutureService(Channel channel);
+
     /**
      * Create a health service uses to check the liveliness between a server (rasmgr or rasserver) and the client.
      * @param channel Channel holing the connection between the client and rasserver.
@@ -33,10 +40,17 @@ public interface RasnetServiceFactory {
     HealthServiceGrpc.HealthServiceBlockingStub createHealthService(Channel channel);
 
     /**
-     * Create a channel for connecting to a server.
+     * Create a channel for connecting to a server. The channel may be shared with other clients
+     * connected to the same server, so it must be given back with releaseChannel instead of shutting it down.
      * @param host The server host.
      * @param port The server port.
      * @return A channel.
      */
     ManagedChannel createChannel(String host, int port);
+
+    /**
+     * Release a channel returned by createChannel; it is shut down when no client uses it anymore.
+     * @param channel The channel which is not used by the client anymore.
+     */
+    void releaseChannel(ManagedChannel channel);
 }
@@ -7,11 +7,21 @@ import org.rasdaman.rasnet.service.ClientRassrvrServiceGrpc;
 import org.rasdaman.rasnet.service.HealthServiceGrpc;
 import org.rasdaman.rasnet.service.RasmgrClientServiceGrpc;
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
 /**
  * Implementation for creating rasnet services and channels.
  */
 public class RasnetServiceFactoryImpl implements RasnetServiceFactory {
 
+    /**
+     * Channels shared by all clients of this JVM, by host:port of the server; gRPC multiplexes
+     * the calls of all clients over the connection of a channel.
+     */
+    private static final Map<String, SharedChannel> sharedChannels = new HashMap<String, SharedChannel>();
+
     @Override
     public RasmgrClientServiceGrpc.RasmgrClientServiceBlockingStub createRasmgrClientService(Channel channel) {
         return RasmgrClientServiceGrpc.newBlockingStub(channel);
@@ -22,6 +32,11 @@ public class RasnetServiceFactoryImpl implements RasnetServiceFactory {
         return ClientRassrvrServiceGrpc.newBlockingStub(channel);
     }
 
+    @Override
+    public ClientRassrvrServiceGrpc.ClientRassrvrServiceFutureStub createClientRasServerFutureService(Channel channel) {
+        return ClientRassrvrServiceGrpc.newFutureStub(channel);
+    }
+
     @Override
     public HealthServiceGrpc.HealthServiceBlockingStub createHealthService(Channel channel) {
         return HealthServiceGrpc.newBlockingStub(channel);
@@ -29,6 +44,56 @@ public class RasnetServiceFactoryImpl implements RasnetServiceFactory {
 
     @Override
     public ManagedChannel createChannel(String host, int port) {
-        return NettyChannelBuilder.forAddress(host, port).usePlaintext(true).maxMessageSize(Integer.MAX_VALUE).build();
+        String address = host + ":" + port;
+        synchronized (sharedChannels) {
+            SharedChannel sharedChannel = sharedChannels.get(address);
+            if (sharedChannel == null || sharedChannel.channel.isShutdown()) {
+                sharedChannel = new SharedChannel(
+                    NettyChannelBuilder.forAddress(host, port).usePlaintext(true).maxMessageSize(Integer.MAX_VALUE).build());
+                sharedChannels.put(address, sharedChannel);
+            }
+            sharedChannel.references++;
+            return sharedChannel.channel;
+        }
+    }
+
+    @Override
+    public void releaseChannel(ManagedChannel channel) {
+        synchronized (sharedChannels) {
+            Iterator<SharedChannel> it = sharedChannels.values().iterator();
+            while (it.hasNext()) {
+                SharedChannel sharedChannel = it.next();
+                if (sharedChannel.channel == channel) {
+                    sharedChannel.references--;
+                    if (sharedChannel.references > 0) {
+                        return;
+                    }
+                    it.remove();
+                    break;
+                }
+            }
+        }
+        channel.shutdown();
+    }
+
+    /**
+     * @return The number of channels open to servers at the moment.
+     */
+    static int getSharedChannelCount() {
+        synchronized (sharedChannels) {
+            return sharedChannels.size();
+        }
+    }
+
+    private static class SharedChannel {
+        private final ManagedChannel channel;
+        /**
+         * The number of clients using the channel.
+         */
+        private int references = 0;
+
+        SharedChannel(ManagedChannel channel) {
+            this.channel = channel;
+        }
     }
 }
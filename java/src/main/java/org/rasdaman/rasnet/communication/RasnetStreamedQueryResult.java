@@ -0,0 +1,118 @@
+/*
+ * This file is part of rasdaman community.
+ *
+ * Rasdaman community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Rasdaman community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2003, 2004, 2005, 2006, 2007, 2008, 2009, 2010, 2011, 2012, 2013, 2014 Peter Baumann / rasdaman GmbH.
+ *
+ * For more information please see <http://www.rasdaman.org>
+ * or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+
+package org.rasdaman.rasnet.communication;
+
+import rasj.RasStreamedMDD;
+import rasj.RasStreamedQueryResult;
+import rasj.clientcommhttp.RasUtils;
+import rasj.odmg.RasOID;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * Query result received through a streamed http query. A collection of MDDs is decoded
+ * lazily: the header of an MDD is read when it is requested and its binary data is
+ * read directly from the received chunks by the caller.
+ */
+class RasnetStreamedQueryResult implements RasStreamedQueryResult {
+
+    private final StreamedHttpQueryInputStream stream;
+    private final DataInputStream in;
+    private final byte endianess;
+    private final int numberOfMDDs;
+    private final Object result;
+
+    private int numberOfReadMDDs = 0;
+    private RasStreamedMDD currentMDD = null;
+
+    private RasnetStreamedQueryResult(StreamedHttpQueryInputStream stream, DataInputStream in,
+                                      byte endianess, int numberOfMDDs, Object result) {
+        this.stream = stream;
+        this.in = in;
+        this.endianess = endianess;
+        this.numberOfMDDs = numberOfMDDs;
+        this.result = result;
+    }
+
+    /**
+     * Result of numberOfMDDs MDDs, the stream is positioned at the header of the first MDD.
+     */
+    static RasnetStreamedQueryResult createMDDResult(StreamedHttpQueryInputStream stream, DataInputStream in,
+                                                     byte endianess, int numberOfMDDs) {
+        return new RasnetStreamedQueryResult(stream, in, endianess, numberOfMDDs, null);
+    }
+
+    /**
+     * Result which was already fully decoded (scalars, OIDs, ...).
+     */
+    static RasnetStreamedQueryResult createDecodedResult(StreamedHttpQueryInputStream stream, Object result) {
+        return new RasnetStreamedQueryResult(stream, null, (byte) 0, 0, result);
+    }
+
+    @Override
+    public boolean isMDDCollection() {
+        return in != null;
+    }
+
+    @Override
+    public int getNumberOfMDDs() {
+        return numberOfMDDs;
+    }
+
+    @Override
+    public Object getResult() {
+        return result;
+    }
+
+    @Override
+    public RasStreamedMDD nextMDD() throws IOException {
+        if (!isMDDCollection()) {
+            return null;
+        }
+        if (currentMDD != null) {
+            currentMDD.skipRemaining();
+            currentMDD = null;
+        }
+        if (numberOfReadMDDs >= numberOfMDDs) {
+            return null;
+        }
+
+        String mddBaseType = RasUtils.readString(in);
+        String domain = RasUtils.readString(in);
+        String oid = RasUtils.readString(in);
+
+        byte[] b8 = new byte[8];
+        in.readFully(b8);
+        long size = RasUtils.ubytesToLong(b8, endianess);
+
+        ++numberOfReadMDDs;
+        currentMDD = new RasStreamedMDD(mddBaseType, domain, new RasOID(oid), size, in);
+        return currentMDD;
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+}
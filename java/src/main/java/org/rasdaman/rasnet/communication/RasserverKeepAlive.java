@@ -29,20 +29,19 @@ import org.rasdaman.rasnet.util.Constants;
 import org.rasdaman.rasnet.util.GrpcUtils;
 import rasj.global.Debug;
 
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class RasserverKeepAlive {
     private volatile boolean isKeepAliveRunning = false;
     private final Lock keepAliveLock = new ReentrantLock();
-    private final Condition isKeepAliveRunningCond = keepAliveLock.newCondition();
     private final ClientRassrvrServiceGrpc.ClientRassrvrServiceBlockingStub rasserverService;
     private final String clientUUID;
     private final String sessionId;
     private final long aliveIntervalMilliseconds;
-    private Thread runnerThread;
+    private ScheduledFuture<?> keepAliveTask;
 
     /**
      * Create a new RasserverKeepAlive object that, when started, connects throw the given
@@ -64,7 +63,7 @@ public class RasserverKeepAlive {
     }
 
     /**
-     * Creates and starts a thread that will send KeepAlive messages to the server.
+     * Schedules the sending of KeepAlive messages to the server on the threads shared by all clients.
      * After this method is called, stop must be called.
      */
     public void start() {
@@ -77,21 +76,20 @@ public class RasserverKeepAlive {
 
             this.isKeepAliveRunning = true;
             //Start the keep alive
-            this.runnerThread = new Thread(new KeepAliveRunner(this.clientUUID, this.sessionId));
-            this.runnerThread.start();
+            this.keepAliveTask = KeepAliveScheduler.schedule(new KeepAliveRunner(this.clientUUID, this.sessionId), this.aliveIntervalMilliseconds);
 
         } catch (Exception ex) {
             Debug.talkCritical("Failed to start keep alive thread:" + ex.getMessage());
             //If an exception is throw, we must restore the invariants
             this.isKeepAliveRunning = false;
-            this.runnerThread = null;
+            this.keepAliveTask = null;
         } finally {
             this.keepAliveLock.unlock();
         }
     }
 
     /**
-     * Check if the worker thread is running.
+     * Check if KeepAlive messages are being sent.
      *
      * @return
      */
@@ -106,21 +104,18 @@ public class RasserverKeepAlive {
     }
 
     /**
-     * Stop the thread that is sending KeepAlive messages to the server.
+     * Stop sending KeepAlive messages to the server.
      */
     public void stop() {
         this.keepAliveLock.lock();
         try {
             this.isKeepAliveRunning = false;
-            this.isKeepAliveRunningCond.signal();
+            if (this.keepAliveTask != null) {
+                this.keepAliveTask.cancel(false);
+                this.keepAliveTask = null;
+            }
         } finally {
             this.keepAliveLock.unlock();
-
-            try {
-                this.runnerThread.join();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
         }
     }
 
@@ -142,30 +137,25 @@ public class RasserverKeepAlive {
 
         @Override
         public void run() {
-            keepAliveLock.lock();
+            if (!isKeepAliveRunning) {
+                return;
+            }
 
             try {
-                while (isKeepAliveRunning) {
-                    if (!isKeepAliveRunningCond.await(aliveIntervalMilliseconds, TimeUnit.MILLISECONDS)) {
-                        //The time expired
-                        ClientRassrvrServiceOuterClass.KeepAliveRequest keepAliveReq = ClientRassrvrServiceOuterClass.KeepAliveRequest.newBuilder()
-                                .setClientUuid(this.clientUUID)
-                                .setSessionId(this.sessionId)
-                                .build();
-
-                        //If this throws an exception, let it fail.
-                        rasserverService.withDeadlineAfter(Constants.SERVICE_CALL_TIMEOUT, TimeUnit.MILLISECONDS)
-                        .keepAlive(keepAliveReq);
-                    }
-                }
-            } catch (InterruptedException ex) {
-                Debug.talkCritical("Keep alive thread has failed:" + ex.getMessage());
+                ClientRassrvrServiceOuterClass.KeepAliveRequest keepAliveReq = ClientRassrvrServiceOuterClass.KeepAliveRequest.newBuilder()
+                        .setClientUuid(this.clientUUID)
+                        .setSessionId(this.sessionId)
+                        .build();
+
+                rasserverService.withDeadlineAfter(Constants.SERVICE_CALL_TIMEOUT, TimeUnit.MILLISECONDS)
+                .keepAlive(keepAliveReq);
             } catch (StatusRuntimeException ex) {
-                Exception actualException = GrpcUtils.convertStatusToRuntimeException(ex.getStatus());
-                Debug.talkCritical("Keep alive thread has failed:" + actualException.getMessage());
-            } finally {
-                isKeepAliveRunning = false;
-                keepAliveLock.unlock();
+                // a call still running when the client was stopped may fail on the released channel
+                if (isKeepAliveRunning) {
+                    Exception actualException = GrpcUtils.convertStatusToRuntimeException(ex.getStatus());
+                    Debug.talkCritical("Keep alive has failed:" + actualException.getMessage());
+                }
+                stop();
             }
         }
     }
@@ -0,0 +1,131 @@
+/*
+ * This file is part of rasdaman community.
+ *
+ * Rasdaman community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Rasdaman community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2003, 2004, 2005, 2006, 2007, 2008, 2009, 2010, 2011, 2012, 2013, 2014 Peter Baumann / rasdaman GmbH.
+ *
+ * For more information please see <http://www.rasdaman.org>
+ * or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+
+package org.rasdaman.rasnet.communication;
+
+import com.google.protobuf.ByteString;
+import org.rasdaman.rasnet.service.ClientRassrvrServiceOuterClass.StreamedHttpQueryRepl;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Presents the chunks of a streamed http query (BeginStreamedHttpQuery, followed by
+ * GetNextStreamedHttpQuery calls) as one continuous InputStream. A chunk is only
+ * requested from the rasserver when the previous one was fully consumed, and no
+ * reference to consumed chunks is kept, so memory use is bounded by the chunk size.
+ */
+class StreamedHttpQueryInputStream extends InputStream {
+
+    private final RasRasnetImplementation rasnetImplementation;
+    private final String requestUUID;
+    private ByteString chunk;
+    private int position;
+    private long bytesLeft;
+    private boolean closed = false;
+
+    StreamedHttpQueryInputStream(RasRasnetImplementation rasnetImplementation, StreamedHttpQueryRepl firstReply) {
+        this.rasnetImplementation = rasnetImplementation;
+        this.requestUUID = firstReply.getUuid();
+        this.chunk = firstReply.getData();
+        this.position = 0;
+        this.bytesLeft = firstReply.getBytesLeft();
+    }
+
+    /**
+     * Make sure that the current chunk has unread data, requesting the next chunks if needed.
+     *
+     * @return false if the end of the result was reached
+     */
+    private boolean ensureData() throws IOException {
+        if (closed) {
+            throw new IOException("Stream of query " + requestUUID + " is closed.");
+        }
+        while (position >= chunk.size()) {
+            if (bytesLeft <= 0) {
+                return false;
+            }
+            // drop the consumed chunk before the next one is received
+            chunk = ByteString.EMPTY;
+            position = 0;
+            StreamedHttpQueryRepl reply = rasnetImplementation.getNextStreamedHttpQuery(requestUUID);
+            chunk = reply.getData();
+            bytesLeft = reply.getBytesLeft();
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        }
+        return chunk.byteAt(position++) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureData()) {
+            return -1;
+        }
+        int n = Math.min(len, chunk.size() - position);
+        chunk.copyTo(b, position, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0 || !ensureData()) {
+            return 0;
+        }
+        int skipped = (int) Math.min(n, chunk.size() - position);
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return closed ? 0 : chunk.size() - position;
+    }
+
+    /**
+     * @return true if all chunks of the result were received and consumed.
+     */
+    boolean isFinished() {
+        return bytesLeft <= 0 && position >= chunk.size();
+    }
+
+    /**
+     * Release the current chunk. Chunks which were not consumed yet are not fetched anymore;
+     * the rasserver drops them when the transaction is committed or aborted.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        chunk = ByteString.EMPTY;
+        position = 0;
+    }
+}
@@ -0,0 +1,57 @@
+package rasj;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.concurrent.Executor;
+
+/*
+* This file is part of rasdaman community.
+*
+* Rasdaman community is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* Rasdaman community is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+*
+* Copyright 2003 - 2017 Peter Baumann / rasdaman GmbH.
+*
+* For more information please see <http://www.rasdaman.org>
+* or contact Peter Baumann via <baumann@rasdaman.com>.
+*/
+/** ***********************************************************
+ * <pre>
+ *
+ * PURPOSE:
+ *  Implemented by the client/server protocols that can execute a query
+ *  without blocking the calling thread until the result arrived.
+ *
+ *
+ * COMMENTS:
+ *
+ * </pre>
+ *********************************************************** */
+
+
+public interface RasAsyncImplementationInterface {
+
+    /**
+     * Execute a query asynchronously; the returned future completes with the same result as
+     * queryRequest(), or fails with its exception. Cancelling the future aborts the call waiting
+     * for the server and no further chunks of the result are fetched; the server drops the rest
+     * of the result when the transaction is committed or aborted. The result is decoded on a
+     * shared pool of daemon threads.
+     */
+    ListenableFuture<Object> queryRequestAsync(String parameters);
+
+    /**
+     * Same as queryRequestAsync(String), but the received result is decoded on the given
+     * executor instead of the shared one.
+     */
+    ListenableFuture<Object> queryRequestAsync(String parameters, Executor executor);
+}
@@ -46,7 +46,7 @@ public class RasBaseType extends RasType {
     /**
      * Stores the size of type in bytes
      **/
-    protected long typeSize;
+    protected final long typeSize;
 
     /**
      * Default constructor.
@@ -66,6 +66,17 @@ public class RasBaseType extends RasType {
         typeSize = newSize;
     }
 
+    /**
+     * Constructor getting name, id and size of basetype.
+     * @param newTypeName name of the new base type
+     * @param newTypeID id of the new base type
+     * @param newSize size of the new base type
+     **/
+    protected RasBaseType(String newTypeName, int newTypeID, long newSize) {
+        super(newTypeName, newTypeID);
+        typeSize = newSize;
+    }
+
     /**
      * Retrieves the id of the type.
      * @return the id of the type
@@ -43,7 +43,7 @@ rasdaman GmbH.
 
 public class RasCollectionType extends RasType {
     
-    private RasType elementType;
+    private final RasType elementType;
 
     /**
      * Simple constructor.
@@ -58,8 +58,7 @@ public class RasCollectionType extends RasType {
      * @param type the element type of the new collection type
      **/
     public RasCollectionType(RasType type) {
-        super("RAS_COLLECTION");
-        typeID = RasGlobalDefs.RAS_COLLECTION;
+        super("RAS_COLLECTION", RasGlobalDefs.RAS_COLLECTION);
         elementType = type;
     }
 
@@ -5,6 +5,8 @@ import rasj.odmg.*;
 import rasj.global.*;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 /*
 * This file is part of rasdaman community.
@@ -71,6 +73,9 @@ public class RasGMArray extends RasObject implements RasGlobalDefs {
     /** storage layout object */
     protected RasStorageLayout storageLayout;
 
+    /** byte order of the cells in the byte array, the server sends them in big endian to Java clients */
+    protected ByteOrder byteOrder = ByteOrder.BIG_ENDIAN;
+
     /**
      * Default constructor.
      **/
@@ -168,6 +173,7 @@ public class RasGMArray extends RasObject implements RasGlobalDefs {
         typeLength = obj.typeLength;
         currentFormat = obj.currentFormat;
         storageLayout = new RasStorageLayout(obj.storageLayout);
+        byteOrder = obj.byteOrder;
         if (obj.typeLength != 0) {
             currentCell = new byte[(int)obj.typeLength];
         }
@@ -206,6 +212,7 @@ public class RasGMArray extends RasObject implements RasGlobalDefs {
             domain        = mArray.domain;
             typeLength    = mArray.typeLength;
             currentFormat = mArray.currentFormat;
+            byteOrder     = mArray.byteOrder;
         }
         return this;
     }
@@ -319,6 +326,22 @@ public class RasGMArray extends RasObject implements RasGlobalDefs {
         return data;
     }
 
+    /**
+     * Gets the byte order of the cells in the internal representation.
+     * @return the byte order, big endian by default
+     **/
+    public final ByteOrder getByteOrder() {
+        return byteOrder;
+    }
+
+    /**
+     * Gets the internal representation wrapped in a buffer in the byte order of the cells.
+     * @return a buffer over the byte array, which is not copied
+     **/
+    protected ByteBuffer getDataBuffer() {
+        return ByteBuffer.wrap(data).order(byteOrder);
+    }
+
     /**
      * Gets the size of the internal representation of this GMArray (in bytes).
      * @return the size of this GMArray
@@ -363,6 +386,20 @@ public class RasGMArray extends RasObject implements RasGlobalDefs {
         objectData = null;
     }
 
+    /**
+     * Sets the byte order of the cells in the internal representation, e.g. if
+     * an array is set which is in little endian order, so the typed arrays do
+     * not need to swap the bytes.
+     * @param newByteOrder the byte order of the byte array
+     **/
+    public void setByteOrder(ByteOrder newByteOrder) {
+        if (objectData != null) {
+            // encoded again in the new byte order by getArray()
+            data = null;
+        }
+        byteOrder = newByteOrder;
+    }
+
     /**
      * Sets the size of the internal representation (in bytes).
      * @param newValue the size of the internal representation (the byte array)
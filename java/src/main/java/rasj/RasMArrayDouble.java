@@ -4,7 +4,8 @@ import rasj.*;
 import rasj.odmg.*;
 import rasj.global.*;
 
-import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
 
 /*
 * This file is part of rasdaman community.
@@ -115,21 +116,12 @@ public class RasMArrayDouble extends RasGMArray {
      */
     public byte[] getCell(RasPoint point)
     throws RasDimensionMismatchException, RasIndexOutOfBoundsException {
-        double cellValue;
-        long tmp;
-
         //first test dimensionality
         if (point.dimension() != domain.dimension()) {
             throw new RasDimensionMismatchException(point.dimension(), domain.dimension());
         }
 
-        cellValue = ((double[])objectData)[(int)domain.cellOffset(point)];
-        for (int i = 0; i < SIZE_OF_DOUBLE; i++) {
-            tmp = Double.doubleToRawLongBits(cellValue);
-            tmp >>>= (((SIZE_OF_DOUBLE - 1) - i) * 8);
-            currentCell[i] = (byte)tmp;
-        }
-
+        ByteBuffer.wrap(currentCell).order(byteOrder).putDouble(((double[])objectData)[(int)domain.cellOffset(point)]);
         return currentCell;
     }
 
@@ -148,41 +140,40 @@ public class RasMArrayDouble extends RasGMArray {
     }
 
     /**
-     * get the internal representation of the array
+     * get the internal representation of the array; the cells are decoded from
+     * the byte array in bulk, which is released afterwards
      */
     public double[] getDoubleArray() {
         if (objectData == null) {
-            ByteArrayInputStream bis = new ByteArrayInputStream(data);
-            DataInputStream dis = new DataInputStream(bis);
-            objectData = new double[data.length / SIZE_OF_DOUBLE];
-            try {
-                for (int j = 0; j < data.length / SIZE_OF_DOUBLE; j++) {
-                    ((double[])objectData)[j] = dis.readDouble();
-                }
-            } catch (IOException e) {
-                throw new RasClientInternalException("RasMArrayDouble", "getDoubleArray()",
-                                                     "IOException while converting data to objectData array " + e.getMessage());
-            }
+            double[] values = new double[data.length / SIZE_OF_DOUBLE];
+            getDataBuffer().asDoubleBuffer().get(values);
+            objectData = values;
+            // getArray() encodes the values again if needed
+            data = null;
         }
         return (double[])objectData;
     }
 
+    /**
+     * get a read-only view of the cells without copying them, either over the
+     * double array or over the byte array in its byte order (see getByteOrder())
+     */
+    public DoubleBuffer getDoubleBuffer() {
+        if (objectData != null) {
+            return DoubleBuffer.wrap((double[])objectData).asReadOnlyBuffer();
+        }
+        return getDataBuffer().asDoubleBuffer().asReadOnlyBuffer();
+    }
+
     /** get the internal representation of the array in bytes,
      *  please use getDoubleArray()
      */
     public byte[] getArray() {
         if (data == null) {
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            DataOutputStream dos = new DataOutputStream(bos);
-            try {
-                for (int j = 0; j < ((double[])objectData).length; j++) {
-                    dos.writeDouble(((double[])objectData)[j]);
-                }
-            } catch (IOException e) {
-                throw new RasClientInternalException("RasMArrayDouble", "getArray()",
-                                                     "IOException while converting objectData to data array " + e.getMessage());
-            }
-            data = bos.toByteArray();
+            double[] values = (double[])objectData;
+            byte[] bytes = new byte[values.length * SIZE_OF_DOUBLE];
+            ByteBuffer.wrap(bytes).order(byteOrder).asDoubleBuffer().put(values);
+            data = bytes;
         }
         return data;
     }
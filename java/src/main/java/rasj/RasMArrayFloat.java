@@ -3,7 +3,8 @@ package rasj;
 import rasj.*;
 import rasj.odmg.*;
 import rasj.global.*;
-import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
 
 /*
 * This file is part of rasdaman community.
@@ -114,23 +115,13 @@ public class RasMArrayFloat extends RasGMArray {
      */
     public byte[] getCell(RasPoint point)
     throws RasDimensionMismatchException, RasIndexOutOfBoundsException {
-        float cellValue;
-        int tmp;
-
         //first test dimensionality
         if (point.dimension() != domain.dimension()) {
             throw new RasDimensionMismatchException(point.dimension(), domain.dimension());
         }
 
-        cellValue = ((float[])objectData)[(int)domain.cellOffset(point)];
-        for (int i = 0; i < SIZE_OF_FLOAT; i++) {
-            tmp = Float.floatToRawIntBits(cellValue);
-            tmp >>>= (((SIZE_OF_FLOAT - 1) - i) * 8);
-            currentCell[i] = (byte)tmp;
-        }
-
+        ByteBuffer.wrap(currentCell).order(byteOrder).putFloat(((float[])objectData)[(int)domain.cellOffset(point)]);
         return currentCell;
-
     }
 
     /** subscript operator for read access of a cell. The cell value is returned as
@@ -148,41 +139,40 @@ public class RasMArrayFloat extends RasGMArray {
     }
 
     /**
-     *  get the internal representation of the array
+     * get the internal representation of the array; the cells are decoded from
+     * the byte array in bulk, which is released afterwards
      */
     public float[] getFloatArray() {
         if (objectData == null) {
-            ByteArrayInputStream bis = new ByteArrayInputStream(data);
-            DataInputStream dis = new DataInputStream(bis);
-            objectData = new float[data.length / SIZE_OF_FLOAT];
-            try {
-                for (int j = 0; j < data.length / SIZE_OF_FLOAT; j++) {
-                    ((float[])objectData)[j] = dis.readFloat();
-                }
-            } catch (IOException e) {
-                throw new RasClientInternalException("RasMArrayFloat", "getFloatArray()",
-                                                     "IOException while converting data to objectData array " + e.getMessage());
-            }
+            float[] values = new float[data.length / SIZE_OF_FLOAT];
+            getDataBuffer().asFloatBuffer().get(values);
+            objectData = values;
+            // getArray() encodes the values again if needed
+            data = null;
         }
         return (float[])objectData;
     }
 
+    /**
+     * get a read-only view of the cells without copying them, either over the
+     * float array or over the byte array in its byte order (see getByteOrder())
+     */
+    public FloatBuffer getFloatBuffer() {
+        if (objectData != null) {
+            return FloatBuffer.wrap((float[])objectData).asReadOnlyBuffer();
+        }
+        return getDataBuffer().asFloatBuffer().asReadOnlyBuffer();
+    }
+
     /** get the internal representation of the array in bytes,
      *  please use getFloatArray()
      */
     public byte[] getArray() {
         if (data == null) {
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            DataOutputStream dos = new DataOutputStream(bos);
-            try {
-                for (int j = 0; j < ((float[])objectData).length; j++) {
-                    dos.writeFloat(((float[])objectData)[j]);
-                }
-            } catch (IOException e) {
-                throw new RasClientInternalException("RasMArrayFloat", "getArray()",
-                                                     "IOException while converting objectData to data array " + e.getMessage());
-            }
-            data = bos.toByteArray();
+            float[] values = (float[])objectData;
+            byte[] bytes = new byte[values.length * SIZE_OF_FLOAT];
+            ByteBuffer.wrap(bytes).order(byteOrder).asFloatBuffer().put(values);
+            data = bytes;
         }
         return data;
     }
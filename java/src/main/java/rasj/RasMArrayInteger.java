@@ -3,7 +3,8 @@ package rasj;
 import rasj.*;
 import rasj.odmg.*;
 import rasj.global.*;
-import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 
 /*
 * This file is part of rasdaman community.
@@ -34,7 +35,8 @@ rasdaman GmbH.
  *  This class represents a MArray with base type Integer.
  *  @version $Revision: 1.11 $
  *  for ODMG type UShort(2 bytes, due to ODMG standard) you can use RasMArrayInteger,
- *  but only values up to 2^16 (performance loss because of convertion 4 bytes-> 2 bytes!);
+ *  but only values up to 2^16 (performance loss because of convertion 4 bytes-> 2 bytes!),
+ *  RasMArrayUShort keeps the cells in 2 bytes;
  *  method intersectionWith(RasMInterval) uses byte array and is not optimized for special data arrays
  *
  *
@@ -116,23 +118,13 @@ public class RasMArrayInteger extends RasGMArray {
      */
     public byte[] getCell(RasPoint point)
     throws RasDimensionMismatchException, RasIndexOutOfBoundsException {
-        int cellValue;
-        int tmp;
-
         //first test dimensionality
         if (point.dimension() != domain.dimension()) {
             throw new RasDimensionMismatchException(point.dimension(), domain.dimension());
         }
 
-        cellValue = ((int[])objectData)[(int)domain.cellOffset(point)];
-        for (int i = 0; i < SIZE_OF_INTEGER; i++) {
-            tmp = cellValue;
-            tmp >>>= (((SIZE_OF_INTEGER - 1) - i) * 8);
-            currentCell[i] = (byte)tmp;
-        }
-
+        ByteBuffer.wrap(currentCell).order(byteOrder).putInt(((int[])objectData)[(int)domain.cellOffset(point)]);
         return currentCell;
-
     }
 
     /** subscript operator for read access of a cell. The cell value is returned as
@@ -150,41 +142,40 @@ public class RasMArrayInteger extends RasGMArray {
     }
 
     /**
-     * get the internal representation of the array
+     * get the internal representation of the array; the cells are decoded from
+     * the byte array in bulk, which is released afterwards
      */
     public int[] getIntArray() {
         if (objectData == null) {
-            ByteArrayInputStream bis = new ByteArrayInputStream(data);
-            DataInputStream dis = new DataInputStream(bis);
-            objectData = new int[data.length / SIZE_OF_INTEGER];
-            try {
-                for (int j = 0; j < data.length / SIZE_OF_INTEGER; j++) {
-                    ((int[])objectData)[j] = dis.readInt();
-                }
-            } catch (IOException e) {
-                throw new RasClientInternalException("RasMArrayInteger", "getIntArray()",
-                                                     "IOException while converting data to objectData array " + e.getMessage());
-            }
+            int[] values = new int[data.length / SIZE_OF_INTEGER];
+            getDataBuffer().asIntBuffer().get(values);
+            objectData = values;
+            // getArray() encodes the values again if needed
+            data = null;
         }
         return (int[])objectData;
     }
 
+    /**
+     * get a read-only view of the cells without copying them, either over the
+     * int array or over the byte array in its byte order (see getByteOrder())
+     */
+    public IntBuffer getIntBuffer() {
+        if (objectData != null) {
+            return IntBuffer.wrap((int[])objectData).asReadOnlyBuffer();
+        }
+        return getDataBuffer().asIntBuffer().asReadOnlyBuffer();
+    }
+
     /** get the internal representation of the array in bytes,
      *  please use getIntArray()
      */
     public byte[] getArray() {
         if (data == null) {
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            DataOutputStream dos = new DataOutputStream(bos);
-            try {
-                for (int j = 0; j < ((int[])objectData).length; j++) {
-                    dos.writeInt(((int[])objectData)[j]);
-                }
-            } catch (IOException e) {
-                throw new RasClientInternalException("RasMArrayInteger", "getArray()",
-                                                     "IOException while converting objectData to data array " + e.getMessage());
-            }
-            data = bos.toByteArray();
+            int[] values = (int[])objectData;
+            byte[] bytes = new byte[values.length * SIZE_OF_INTEGER];
+            ByteBuffer.wrap(bytes).order(byteOrder).asIntBuffer().put(values);
+            data = bytes;
         }
         return data;
     }
@@ -3,7 +3,8 @@ package rasj;
 import rasj.*;
 import rasj.odmg.*;
 import rasj.global.*;
-import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
 
 /*
 * This file is part of rasdaman community.
@@ -35,7 +36,8 @@ rasdaman GmbH.
  *  @version $Revision: 1.7 $
  *  for ODMG type Long(4 bytes, due to ODMG standard) please use RasMArrayInteger,
  *  for ODMG type ULong(4 bytes, due to ODMG standard) you can use RasMArrayLong,
- *  but only values up to 2^32 (performance loss because of convertion 8 bytes-> 4 bytes!);
+ *  but only values up to 2^32 (performance loss because of convertion 8 bytes-> 4 bytes!),
+ *  RasMArrayULong keeps the cells in 4 bytes;
  *  method intersectionWith(RasMInterval) uses byte array and is not optimized for special data arrays
  *
  *
@@ -118,23 +120,13 @@ public class RasMArrayLong extends RasGMArray {
      */
     public byte[] getCell(RasPoint point)
     throws RasDimensionMismatchException, RasIndexOutOfBoundsException {
-        long cellValue;
-        long tmp;
-
         //first test dimensionality
         if (point.dimension() != domain.dimension()) {
             throw new RasDimensionMismatchException(point.dimension(), domain.dimension());
         }
 
-        cellValue = ((long[])objectData)[(int)domain.cellOffset(point)];
-        for (int i = 0; i < SIZE_OF_LONG; i++) {
-            tmp = cellValue;
-            tmp >>>= (((SIZE_OF_LONG - 1) - i) * SIZE_OF_LONG);
-            currentCell[i] = (byte)tmp;
-        }
-
+        ByteBuffer.wrap(currentCell).order(byteOrder).putLong(((long[])objectData)[(int)domain.cellOffset(point)]);
         return currentCell;
-
     }
 
     /** subscript operator for read access of a cell. The cell value is returned as
@@ -152,41 +144,40 @@ public class RasMArrayLong extends RasGMArray {
     }
 
     /**
-     * get the internal representation of the array
+     * get the internal representation of the array; the cells are decoded from
+     * the byte array in bulk, which is released afterwards
      */
     public long[] getLongArray() {
         if (objectData == null) {
-            ByteArrayInputStream bis = new ByteArrayInputStream(data);
-            DataInputStream dis = new DataInputStream(bis);
-            objectData = new long[data.length / SIZE_OF_LONG];
-            try {
-                for (int j = 0; j < data.length / SIZE_OF_LONG; j++) {
-                    ((long[])objectData)[j] = dis.readLong();
-                }
-            } catch (IOException e) {
-                throw new RasClientInternalException("RasMArrayLong", "getLongArray()",
-                                                     "IOException while converting data to objectData array " + e.getMessage());
-            }
+            long[] values = new long[data.length / SIZE_OF_LONG];
+            getDataBuffer().asLongBuffer().get(values);
+            objectData = values;
+            // getArray() encodes the values again if needed
+            data = null;
         }
         return (long[])objectData;
     }
 
+    /**
+     * get a read-only view of the cells without copying them, either over the
+     * long array or over the byte array in its byte order (see getByteOrder())
+     */
+    public LongBuffer getLongBuffer() {
+        if (objectData != null) {
+            return LongBuffer.wrap((long[])objectData).asReadOnlyBuffer();
+        }
+        return getDataBuffer().asLongBuffer().asReadOnlyBuffer();
+    }
+
     /** get the internal representation of the array in bytes,
      *  please use getLongArray()
      */
     public byte[] getArray() {
         if (data == null) {
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            DataOutputStream dos = new DataOutputStream(bos);
-            try {
-                for (int j = 0; j < ((long[])objectData).length; j++) {
-                    dos.writeLong(((long[])objectData)[j]);
-                }
-            } catch (IOException e) {
-                throw new RasClientInternalException("RasMArrayLong", "getArray()",
-                                                     "IOException while converting objectData to data array " + e.getMessage());
-            }
-            data = bos.toByteArray();
+            long[] values = (long[])objectData;
+            byte[] bytes = new byte[values.length * SIZE_OF_LONG];
+            ByteBuffer.wrap(bytes).order(byteOrder).asLongBuffer().put(values);
+            data = bytes;
         }
         return data;
     }
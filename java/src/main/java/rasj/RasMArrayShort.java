@@ -3,7 +3,8 @@ package rasj;
 import rasj.*;
 import rasj.odmg.*;
 import rasj.global.*;
-import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
 
 /*
 * This file is part of rasdaman community.
@@ -114,23 +115,13 @@ public class RasMArrayShort extends RasGMArray {
      */
     public byte[] getCell(RasPoint point)
     throws RasDimensionMismatchException, RasIndexOutOfBoundsException {
-        short cellValue;
-        short tmp;
-
         //first test dimensionality
         if (point.dimension() != domain.dimension()) {
             throw new RasDimensionMismatchException(point.dimension(), domain.dimension());
         }
 
-        cellValue = ((short[])objectData)[(int)domain.cellOffset(point)];
-        for (int i = 0; i < SIZE_OF_SHORT; i++) {
-            tmp = cellValue;
-            tmp >>>= (((SIZE_OF_SHORT - 1) - i) * 8);
-            currentCell[i] = (byte)tmp;
-        }
-
+        ByteBuffer.wrap(currentCell).order(byteOrder).putShort(((short[])objectData)[(int)domain.cellOffset(point)]);
         return currentCell;
-
     }
 
     /** subscript operator for read access of a cell. The cell value is returned as
@@ -148,41 +139,40 @@ public class RasMArrayShort extends RasGMArray {
     }
 
     /**
-     * get the internal representation of the array
+     * get the internal representation of the array; the cells are decoded from
+     * the byte array in bulk, which is released afterwards
      */
     public short[] getShortArray() {
         if (objectData == null) {
-            ByteArrayInputStream bis = new ByteArrayInputStream(data);
-            DataInputStream dis = new DataInputStream(bis);
-            objectData = new short[data.length / SIZE_OF_SHORT];
-            try {
-                for (int j = 0; j < data.length / SIZE_OF_SHORT; j++) {
-                    ((short[])objectData)[j] = dis.readShort();
-                }
-            } catch (IOException e) {
-                throw new RasClientInternalException("RasMArrayShort", "getShortArray()",
-                                                     "IOException while converting data to objectData array " + e.getMessage());
-            }
+            short[] values = new short[data.length / SIZE_OF_SHORT];
+            getDataBuffer().asShortBuffer().get(values);
+            objectData = values;
+            // getArray() encodes the values again if needed
+            data = null;
         }
         return (short[])objectData;
     }
 
+    /**
+     * get a read-only view of the cells without copying them, either over the
+     * short array or over the byte array in its byte order (see getByteOrder())
+     */
+    public ShortBuffer getShortBuffer() {
+        if (objectData != null) {
+            return ShortBuffer.wrap((short[])objectData).asReadOnlyBuffer();
+        }
+        return getDataBuffer().asShortBuffer().asReadOnlyBuffer();
+    }
+
     /** get the internal representation of the array in bytes,
     *  please use getShortArray()
     */
     public byte[] getArray() {
         if (data == null) {
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            DataOutputStream dos = new DataOutputStream(bos);
-            try {
-                for (int j = 0; j < ((short[])objectData).length; j++) {
-                    dos.writeShort(((short[])objectData)[j]);
-                }
-            } catch (IOException e) {
-                throw new RasClientInternalException("RasMArrayShort", "getArray()",
-                                                     "IOException while converting objectData to data array " + e.getMessage());
-            }
-            data = bos.toByteArray();
+            short[] values = (short[])objectData;
+            byte[] bytes = new byte[values.length * SIZE_OF_SHORT];
+            ByteBuffer.wrap(bytes).order(byteOrder).asShortBuffer().put(values);
+            data = bytes;
         }
         return data;
     }
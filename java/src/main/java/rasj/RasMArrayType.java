@@ -44,7 +44,7 @@ rasdaman GmbH.
 
 public class RasMArrayType extends RasType {
     
-    private RasBaseType baseType;
+    private final RasBaseType baseType;
 
     /**
      * Default constructor.
@@ -59,8 +59,7 @@ public class RasMArrayType extends RasType {
      * @param newBaseType the type of the new MArray
      **/
     public RasMArrayType(RasBaseType newBaseType) {
-        super("RAS_MARRAY");
-        typeID = RasGlobalDefs.RAS_MARRAY;
+        super("RAS_MARRAY", RasGlobalDefs.RAS_MARRAY);
         baseType = newBaseType;
     }
 
@@ -0,0 +1,172 @@
+package rasj;
+
+import rasj.*;
+import rasj.odmg.*;
+import rasj.global.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/*
+* This file is part of rasdaman community.
+*
+* Rasdaman community is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* Rasdaman community is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+*
+* Copyright 2003 - 2017 Peter Baumann / rasdaman GmbH.
+*
+* For more information please see <http://www.rasdaman.org>
+* or contact Peter Baumann via <baumann@rasdaman.com>.
+*/
+/** ***********************************************************
+ * <pre>
+ *
+ * PURPOSE:
+ *  This class represents a MArray with base type ULong. The cells are kept
+ *  in their original 4 bytes layout as received from the server; they are
+ *  widened to long values only when getLongArray() is called, so a result does
+ *  not need twice its size to be received.
+ *  As subclass of RasMArrayLong it can be used instead of it, e.g.
+ *  getLong() returns the unsigned cell value.
+ *
+ *
+ * COMMENTS:
+ *
+ * </pre>
+ *********************************************************** */
+
+public class RasMArrayULong extends RasMArrayLong {
+
+    /** default constructor */
+    public RasMArrayULong() {
+        super();
+        setTypeLength(SIZE_OF_RAS_ULONG);
+    }
+
+    /**
+     * constructor for uninitialized MDD objects
+     * @param initDomain The initial Domain of the MArray
+     * */
+    public RasMArrayULong(final RasMInterval initDomain) {
+        this(initDomain, true);
+    }
+
+    /**
+     * constructor for uninitialized MDD objects
+     * @param initDomain The initial Domain of the MArray
+     * @param allocateData control whether to allocate the data or not
+     * */
+    public RasMArrayULong(final RasMInterval initDomain, boolean allocateData) {
+        super(initDomain, false);
+        setTypeLength(SIZE_OF_RAS_ULONG);
+        dataSize = dataSize / SIZE_OF_LONG * SIZE_OF_RAS_ULONG;
+        if (allocateData)
+            data = new byte[(int)dataSize];
+    }
+
+    /**
+     * subscript operator for read access of a cell. The cell value is returned
+     * as a byte[SIZE_OF_RAS_ULONG] array in the byte order of the array.
+     * The user has to take care that each Cell value is stored, before getting the next Cell.
+     */
+    public byte[] getCell(RasPoint point)
+    throws RasDimensionMismatchException, RasIndexOutOfBoundsException {
+        //first test dimensionality
+        if (point.dimension() != domain.dimension()) {
+            throw new RasDimensionMismatchException(point.dimension(), domain.dimension());
+        }
+
+        ByteBuffer.wrap(currentCell).order(byteOrder).putInt((int)getValue((int)domain.cellOffset(point)));
+        return currentCell;
+    }
+
+    /** subscript operator for read access of a cell. The unsigned cell value is
+     * returned as a long; the array is not widened for this.
+     */
+    public long getLong(final RasPoint point)
+    throws RasDimensionMismatchException, RasIndexOutOfBoundsException {
+        // first test dimensionality
+        if (point.dimension() != domain.dimension()) {
+            throw new RasDimensionMismatchException(point.dimension(), domain.dimension());
+        }
+
+        return getValue((int)domain.cellOffset(point));
+    }
+
+    private long getValue(int offset) {
+        if (objectData != null) {
+            return ((long[])objectData)[offset];
+        }
+        return getDataBuffer().getInt(offset * SIZE_OF_RAS_ULONG) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * get the unsigned cell values as long array; the cells are widened from
+     * the byte array, which is released afterwards
+     */
+    public long[] getLongArray() {
+        if (objectData == null) {
+            IntBuffer cells = getDataBuffer().asIntBuffer();
+            long[] values = new long[cells.remaining()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = cells.get(i) & 0xFFFFFFFFL;
+            }
+            objectData = values;
+            // getArray() encodes the values again if needed
+            data = null;
+        }
+        return (long[])objectData;
+    }
+
+    /**
+     * get a read-only view of the unsigned cell values; as the cells are stored
+     * in 4 bytes, this needs the long array of getLongArray(), please use
+     * getIntBuffer() to read the cells without widening them
+     */
+    public LongBuffer getLongBuffer() {
+        return LongBuffer.wrap(getLongArray()).asReadOnlyBuffer();
+    }
+
+    /**
+     * get a read-only view of the cells without copying them; the values are
+     * signed, so each value v must be read as (v &amp; 0xFFFFFFFFL)
+     */
+    public IntBuffer getIntBuffer() {
+        return ByteBuffer.wrap(getArray()).order(byteOrder).asIntBuffer().asReadOnlyBuffer();
+    }
+
+    /** get the internal representation of the array in bytes, 4 bytes per cell
+     */
+    public byte[] getArray() {
+        if (data == null) {
+            long[] values = (long[])objectData;
+            byte[] bytes = new byte[values.length * SIZE_OF_RAS_ULONG];
+            IntBuffer cells = ByteBuffer.wrap(bytes).order(byteOrder).asIntBuffer();
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] < 0 || values[i] > 0xFFFFFFFFL) {
+                    throw new RasIllegalULongValueException(values[i]);
+                }
+                cells.put(i, (int)values[i]);
+            }
+            data = bytes;
+        }
+        return data;
+    }
+
+    /** set the unsigned cell values, which must be between 0 and 2^32-1 */
+    public void setArray(long[] newData) {
+        objectData = newData;
+        data = null;
+        dataSize = newData.length * SIZE_OF_RAS_ULONG;
+    }
+}
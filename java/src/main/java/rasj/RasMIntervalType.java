@@ -1,6 +1,7 @@
 package rasj;
 
 import rasj.*;
+import rasj.global.*;
 import java.util.*;
 
 /*
@@ -42,6 +43,8 @@ rasdaman GmbH.
 
 
 public class RasMIntervalType extends RasType {
-    
 
+    public RasMIntervalType() {
+        super("", RasGlobalDefs.RAS_MINTERVAL);
+    }
 }
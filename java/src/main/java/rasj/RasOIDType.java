@@ -1,6 +1,7 @@
 package rasj;
 
 import rasj.*;
+import rasj.global.*;
 import java.util.*;
 
 /*
@@ -42,6 +43,8 @@ rasdaman GmbH.
 
 
 public class RasOIDType extends RasType {
-    
 
+    public RasOIDType() {
+        super("", RasGlobalDefs.RAS_OID);
+    }
 }
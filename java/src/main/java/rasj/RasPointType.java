@@ -1,6 +1,7 @@
 package rasj;
 
 import rasj.*;
+import rasj.global.*;
 import java.util.*;
 
 /*
@@ -42,6 +43,8 @@ rasdaman GmbH.
 
 
 public class RasPointType extends RasType {
-    
 
+    public RasPointType() {
+        super("", RasGlobalDefs.RAS_POINT);
+    }
 }
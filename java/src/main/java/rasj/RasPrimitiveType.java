@@ -43,56 +43,67 @@ rasdaman GmbH.
 
 public class RasPrimitiveType extends RasBaseType implements RasGlobalDefs {
     
-    private String rasTypeName = null;
+    private final String rasTypeName;
 
     public RasPrimitiveType() {
         super();
+        rasTypeName = null;
     }
 
     public RasPrimitiveType(String name, int type) {
-        super(name, 0);
-        typeID = type;
+        super(name, type, getTypeSize(type));
+        rasTypeName = getRasTypeName(type);
+    }
 
-        switch (typeID) {
+    private static long getTypeSize(int type) {
+        switch (type) {
         case RAS_LONG:
-            typeSize = SIZE_OF_RAS_LONG;
-            rasTypeName = "RAS_LONG";
-            break;
+            return SIZE_OF_RAS_LONG;
         case RAS_ULONG:
-            typeSize = SIZE_OF_RAS_ULONG;
-            rasTypeName = "RAS_ULONG";
-            break;
+            return SIZE_OF_RAS_ULONG;
         case RAS_SHORT:
-            typeSize = SIZE_OF_RAS_SHORT;
-            rasTypeName = "RAS_SHORT";
-            break;
+            return SIZE_OF_RAS_SHORT;
         case RAS_USHORT:
-            typeSize = SIZE_OF_RAS_USHORT;
-            rasTypeName = "RAS_USHORT";
-            break;
+            return SIZE_OF_RAS_USHORT;
         case RAS_BOOLEAN:
-            typeSize = SIZE_OF_RAS_BOOLEAN;
-            rasTypeName = "RAS_BOOLEAN";
-            break;
+            return SIZE_OF_RAS_BOOLEAN;
         case RAS_BYTE:
-            typeSize = SIZE_OF_RAS_BYTE;
-            rasTypeName = "RAS_BYTE";
-            break;
+            return SIZE_OF_RAS_BYTE;
         case RAS_DOUBLE:
-            typeSize = SIZE_OF_RAS_DOUBLE;
-            rasTypeName = "RAS_DOUBLE";
-            break;
+            return SIZE_OF_RAS_DOUBLE;
         case RAS_FLOAT:
-            typeSize = SIZE_OF_RAS_FLOAT;
-            rasTypeName = "RAS_FLOAT";
-            break;
+            return SIZE_OF_RAS_FLOAT;
         case RAS_CHAR:
-            typeSize = SIZE_OF_RAS_CHAR;
-            rasTypeName = "RAS_CHAR";
-            break;
+            return SIZE_OF_RAS_CHAR;
+        default:
+            return 0;
         }
     }
 
+    private static String getRasTypeName(int type) {
+        switch (type) {
+        case RAS_LONG:
+            return "RAS_LONG";
+        case RAS_ULONG:
+            return "RAS_ULONG";
+        case RAS_SHORT:
+            return "RAS_SHORT";
+        case RAS_USHORT:
+            return "RAS_USHORT";
+        case RAS_BOOLEAN:
+            return "RAS_BOOLEAN";
+        case RAS_BYTE:
+            return "RAS_BYTE";
+        case RAS_DOUBLE:
+            return "RAS_DOUBLE";
+        case RAS_FLOAT:
+            return "RAS_FLOAT";
+        case RAS_CHAR:
+            return "RAS_CHAR";
+        default:
+            return null;
+        }
+    }
 
     public int getTypeID() {
         return typeID;
@@ -1,6 +1,7 @@
 package rasj;
 
 import rasj.*;
+import rasj.global.*;
 import java.util.*;
 
 /*
@@ -42,6 +43,8 @@ rasdaman GmbH.
 
 
 public class RasSIntervalType extends RasType {
-    
 
+    public RasSIntervalType() {
+        super("", RasGlobalDefs.RAS_SINTERVAL);
+    }
 }
@@ -0,0 +1,196 @@
+package rasj;
+
+import rasj.odmg.RasOID;
+
+import java.io.*;
+
+/*
+* This file is part of rasdaman community.
+*
+* Rasdaman community is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* Rasdaman community is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+*
+* Copyright 2003, 2004, 2005, 2006, 2007, 2008, 2009 Peter Baumann /
+rasdaman GmbH.
+*
+* For more information please see <http://www.rasdaman.org>
+* or contact Peter Baumann via <baumann@rasdaman.com>.
+*/
+/** ***********************************************************
+ * <pre>
+ *
+ * PURPOSE:
+ *  One MDD of a query result which is read incrementally from the
+ *  server instead of being materialized as a RasGMArray. The binary
+ *  data must be consumed before the next MDD of the result is requested.
+ *
+ *
+ * COMMENTS:
+ *
+ * </pre>
+ *********************************************************** */
+
+
+public class RasStreamedMDD {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final String typeStructure;
+    private final String domain;
+    private final RasOID oid;
+    private final long size;
+    private final BoundedInputStream in;
+
+    /**
+     * @param typeStructure the type structure of the MDD, e.g. marray <char, 1>
+     * @param domain the spatial domain of the MDD
+     * @param oid the object identifier of the MDD
+     * @param size the number of bytes of the MDD binary data
+     * @param in the stream positioned at the start of the binary data
+     */
+    public RasStreamedMDD(String typeStructure, String domain, RasOID oid, long size, InputStream in) {
+        this.typeStructure = typeStructure;
+        this.domain = domain;
+        this.oid = oid;
+        this.size = size;
+        this.in = new BoundedInputStream(in, size);
+    }
+
+    public String getTypeStructure() {
+        return typeStructure;
+    }
+
+    public String getDomain() {
+        return domain;
+    }
+
+    public RasOID getOID() {
+        return oid;
+    }
+
+    /**
+     * @return the number of bytes of the binary data, may be larger than Integer.MAX_VALUE.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return a stream over the binary data of this MDD only; closing it does not close the result.
+     */
+    public InputStream getInputStream() {
+        return in;
+    }
+
+    /**
+     * Copy the (remaining) binary data of this MDD to the given output stream.
+     *
+     * @return the number of bytes written
+     */
+    public long writeTo(OutputStream out) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(COPY_BUFFER_SIZE, Math.max(1, size))];
+        long written = 0;
+        int read;
+        while ((read = in.read(buffer, 0, buffer.length)) != -1) {
+            out.write(buffer, 0, read);
+            written += read;
+        }
+        return written;
+    }
+
+    /**
+     * Read the whole binary data into an array; only possible if it is not larger than Integer.MAX_VALUE.
+     */
+    public byte[] readFully() throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new RasClientInternalException("RasStreamedMDD", "readFully()",
+                    "Cannot handle array result from rasdaman of size " + size +
+                    " bytes; maximum supported size is " + Integer.MAX_VALUE + " bytes");
+        }
+        byte[] data = new byte[(int) size];
+        new DataInputStream(in).readFully(data);
+        return data;
+    }
+
+    /**
+     * Skip the not yet consumed binary data, so that the next MDD can be read.
+     */
+    public void skipRemaining() throws IOException {
+        while (in.getRemaining() > 0) {
+            long skipped = in.skip(in.getRemaining());
+            if (skipped <= 0 && in.read() == -1) {
+                throw new EOFException("Unexpected end of MDD data, " + in.getRemaining() + " bytes missing.");
+            }
+        }
+    }
+
+    /**
+     * Limits the underlying result stream to the data of one MDD.
+     */
+    private static class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long size) {
+            this.in = in;
+            this.remaining = size;
+        }
+
+        long getRemaining() {
+            return remaining;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int result = in.read();
+            if (result == -1) {
+                throw new EOFException("Unexpected end of MDD data, " + remaining + " bytes missing.");
+            }
+            --remaining;
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read == -1) {
+                throw new EOFException("Unexpected end of MDD data, " + remaining + " bytes missing.");
+            }
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        @Override
+        public void close() {
+            // the underlying result stream is closed by the query result
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package rasj;
+
+import java.io.*;
+
+/*
+* This file is part of rasdaman community.
+*
+* Rasdaman community is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* Rasdaman community is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+*
+* Copyright 2003, 2004, 2005, 2006, 2007, 2008, 2009 Peter Baumann /
+rasdaman GmbH.
+*
+* For more information please see <http://www.rasdaman.org>
+* or contact Peter Baumann via <baumann@rasdaman.com>.
+*/
+/** ***********************************************************
+ * <pre>
+ *
+ * PURPOSE:
+ *  Result of a query which is read incrementally from the server.
+ *  If the result is a collection of MDDs, they are returned one by one
+ *  by nextMDD() with their binary data as a stream, so that results do
+ *  not need to fit in memory; any other result (scalars, OIDs, ...) is
+ *  fully decoded and available with getResult().
+ *  The result must be closed after it was consumed. Closing a result which
+ *  was not read completely does not transfer its rest; the server drops it
+ *  when the transaction is finished, which should be aborted in this case.
+ *
+ *
+ * COMMENTS:
+ *
+ * </pre>
+ *********************************************************** */
+
+
+public interface RasStreamedQueryResult extends Closeable {
+
+    /**
+     * @return TRUE if the result is a collection of MDDs that can be read with nextMDD().
+     */
+    boolean isMDDCollection();
+
+    /**
+     * @return the number of MDDs in the result, or 0 if it is not a collection of MDDs.
+     */
+    int getNumberOfMDDs();
+
+    /**
+     * @return the decoded result if it is not a collection of MDDs, null otherwise.
+     */
+    Object getResult();
+
+    /**
+     * Read the header of the next MDD in the result; the data of the previously
+     * returned MDD is skipped if it was not fully consumed.
+     *
+     * @return the next MDD, or null if there are no more MDDs.
+     */
+    RasStreamedMDD nextMDD() throws IOException;
+}
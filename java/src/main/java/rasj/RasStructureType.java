@@ -44,8 +44,8 @@ rasdaman GmbH.
 
 public class RasStructureType extends RasBaseType {
     
-    private RasBaseType[] baseTypes;
-    private String[] attributes;
+    private final RasBaseType[] baseTypes;
+    private final String[] attributes;
 
     public RasStructureType() {
         super();
@@ -54,26 +54,31 @@ public class RasStructureType extends RasBaseType {
     }
 
     public RasStructureType(String name, RasBaseType[] btyp, String[] attr) {
-        super(name, 0);
-        baseTypes = btyp;
-        attributes = attr;
+        super(name, RasGlobalDefs.RAS_STRUCTURE, getTypeSize(btyp));
+        baseTypes = btyp.clone();
+        attributes = attr.clone();
+    }
 
-        for (int i = 0; i < baseTypes.length; i++) {
-            typeSize = typeSize + baseTypes[i].getSize();
+    private static long getTypeSize(RasBaseType[] btyp) {
+        long size = 0;
+        for (int i = 0; i < btyp.length; i++) {
+            size = size + btyp[i].getSize();
         }
-        typeID = RasGlobalDefs.RAS_STRUCTURE;
+        return size;
     }
 
     public int getTypeID() {
         return RasGlobalDefs.RAS_STRUCTURE;
     }
 
+    /** the types of the attributes; a copy is returned as the type is immutable */
     public RasBaseType[] getBaseTypes() {
-        return baseTypes;
+        return baseTypes.clone();
     }
 
+    /** the names of the attributes; a copy is returned as the type is immutable */
     public String[] getAttributes() {
-        return attributes;
+        return attributes.clone();
     }
 
     public boolean isStructType() {
@@ -97,14 +102,14 @@ public class RasStructureType extends RasBaseType {
         boolean result = false;
         if (obj instanceof RasStructureType) {
             RasStructureType struct = (RasStructureType) obj;
-            boolean stillEqual = getAttributes().length == struct.getAttributes().length &&
-                                 getBaseTypes().length == struct.getBaseTypes().length &&
+            boolean stillEqual = attributes.length == struct.attributes.length &&
+                                 baseTypes.length == struct.baseTypes.length &&
                                  (getName() == null ? struct.getName() == null : getName().equals(struct.getName()));
-            for (int i = 0; i < getAttributes().length && stillEqual; ++i) {
-                String thisAttr = getAttributes()[i];
-                String structAttr = struct.getAttributes()[i];
-                RasBaseType thisType = getBaseTypes()[i];
-                RasBaseType structType = struct.getBaseTypes()[i];
+            for (int i = 0; i < attributes.length && stillEqual; ++i) {
+                String thisAttr = attributes[i];
+                String structAttr = struct.attributes[i];
+                RasBaseType thisType = baseTypes[i];
+                RasBaseType structType = struct.baseTypes[i];
                 stillEqual = (thisAttr == null ? structAttr == null : thisAttr.equals(structAttr)) &&
                              (thisType == null ? structType == null : thisType.equals(structType));
             }
@@ -3,6 +3,7 @@ package rasj;
 import rasj.*;
 import rasj.global.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /*
@@ -45,15 +46,20 @@ rasdaman GmbH.
 
 public class RasType {
     
-    protected String typeName;
-    protected int typeID;
+    // types are immutable, so the parsed types can be shared by all connections
+    protected final String typeName;
+    protected final int typeID;
+
+    // types parsed by getAnyType(), keyed by the type string sent by the server
+    private static final int MAX_PARSED_TYPES = 1000;
+    private static final ConcurrentHashMap<String, RasType> parsedTypes =
+        new ConcurrentHashMap<String, RasType>();
 
     /**
      * Default constructor.
      **/
     public RasType() {
-        typeName = "";
-        typeID = 0;
+        this("", 0);
     }
 
     /**
@@ -61,8 +67,17 @@ public class RasType {
      * @param newTypeName the name of the new type
      **/
     public RasType(String newTypeName) {
+        this(newTypeName, 0);
+    }
+
+    /**
+     * Constructor getting the name and id of the new type.
+     * @param newTypeName the name of the new type
+     * @param newTypeID the id of the new type
+     **/
+    protected RasType(String newTypeName, int newTypeID) {
         typeName = newTypeName;
-        typeID = 0;
+        typeID = newTypeID;
     }
 
     /**
@@ -103,6 +118,21 @@ public class RasType {
      * @param typeString the string representation of the type
      **/
     public static RasType getAnyType(String typeString) {
+        RasType returnValue = parsedTypes.get(typeString);
+        if (returnValue == null) {
+            returnValue = parseType(typeString);
+            if (returnValue != null) {
+                // a simple bound: the number of distinct types is small in practice
+                if (parsedTypes.size() >= MAX_PARSED_TYPES) {
+                    parsedTypes.clear();
+                }
+                parsedTypes.put(typeString, returnValue);
+            }
+        }
+        return returnValue;
+    }
+
+    private static RasType parseType(String typeString) {
         StringTokenizer strTok = new StringTokenizer(typeString, "{}[]<>,: ");
         String currentStr = "";
         RasType returnValue = null;
@@ -163,16 +193,12 @@ public class RasType {
                 returnValue = getStructureType(typeTok.nextToken(""));
             } else if (currentStr.equals("interval")) {
                 returnValue = getSIntervalType(typeTok.nextToken(""));
-                returnValue.typeID = RasGlobalDefs.RAS_SINTERVAL;
             } else if (currentStr.equals("minterval")) {
                 returnValue = getMIntervalType(typeTok.nextToken(""));
-                returnValue.typeID = RasGlobalDefs.RAS_MINTERVAL;
             } else if (currentStr.equals("point")) {
                 returnValue = getPointType(typeTok.nextToken(""));
-                returnValue.typeID = RasGlobalDefs.RAS_POINT;
             } else if (currentStr.equals("oid")) {
                 returnValue = getOIDType(typeTok.nextToken(""));
-                returnValue.typeID = RasGlobalDefs.RAS_OID;
             } else {
                 //System.out.println("getPrimitiveType");
                 returnValue = getPrimitiveType(typeStr);
@@ -230,21 +230,16 @@ public class RasHttpRequest implements RasCommDefs, RasGlobalDefs {
 
 
             /* variables for later use */
-            byte[] b1 = new byte[1];
             byte[] b4 = new byte[4];
             byte endianess = 0;
             String collType = null;
             int numberOfResults = 0;
             int dataSize = 0;
             byte[] binData = null;
-            int readBytes = 0;
-            int readBytesTmp = 0;
             DBag resultBag;
             RasGMArray res = null;
 
-            in.read(b1);
-
-            resultType = b1[0];
+            resultType = in.readByte();
             Debug.talkVerbose("RasHttpRequest.execute: resultType=" + resultType);
             switch (resultType) {
             case RESPONSE_OK:
@@ -256,18 +251,14 @@ public class RasHttpRequest implements RasCommDefs, RasGlobalDefs {
             case RESPONSE_MDDS:
                 Debug.talkVerbose("RasHttpRequest.execute: result type is MDD.");
                 // read Endianess
-                while (in.read(b1) == 0)
-                    ;
-                endianess = b1[0];
+                endianess = in.readByte();
 
                 // read Collection Type
                 collType = RasUtils.readString(in);
                 Debug.talkVerbose("RasHttpRequest.execute: colltype=" + collType);
 
                 // read NumberOfResults
-                while (in.available() < 4)
-                    ;
-                in.read(b4);
+                in.readFully(b4);
                 numberOfResults = RasUtils.ubytesToInt(b4, endianess);
                 Debug.talkVerbose("RasHttpRequest.execute: number of results: " + numberOfResults);
 
@@ -293,9 +284,7 @@ public class RasHttpRequest implements RasCommDefs, RasGlobalDefs {
                     roid = new RasOID(oid);
 
                     // read size of binData
-                    while (in.available() < 4)
-                        ;
-                    in.read(b4);
+                    in.readFully(b4);
 
                     dataSize = RasUtils.ubytesToInt(b4, endianess);
 
@@ -303,15 +292,9 @@ public class RasHttpRequest implements RasCommDefs, RasGlobalDefs {
 
                     // read binData
                     binData = new byte[dataSize];
-                    readBytes = 0;
-                    readBytesTmp = 0;
-
-                    while ((readBytesTmp != -1) && (readBytes < dataSize)) {
-                        readBytesTmp = in.read(binData, readBytes, dataSize - readBytes);
-                        readBytes += readBytesTmp;
-                    }
+                    in.readFully(binData);
 
-                    Debug.talkVerbose("RasHttpRequest.execute: read " + readBytes + " bytes.");
+                    Debug.talkVerbose("RasHttpRequest.execute: read " + dataSize + " bytes.");
 
                     RasType rType = RasType.getAnyType(mddBaseType);
                     //System.out.println(rType);
@@ -331,7 +314,7 @@ public class RasHttpRequest implements RasCommDefs, RasGlobalDefs {
                             //System.err.println("It is a structType");
                             RasStructureType sType = (RasStructureType)rb;
                             //System.out.println(sType);
-                            res = new RasGMArray(new RasMInterval(domain), 0);
+                            res = new RasGMArray(new RasMInterval(domain), 0, false);
                             res.setTypeLength(rb.getSize());
                             res.setArraySize(dataSize);
                             res.setArray(binData);
@@ -350,60 +333,38 @@ public class RasHttpRequest implements RasCommDefs, RasGlobalDefs {
                             case RAS_BYTE:
                             case RAS_CHAR:
                                 //System.err.println("It's a byte array!");
-                                res = new RasMArrayByte(new RasMInterval(domain));
+                                res = new RasMArrayByte(new RasMInterval(domain), false);
                                 break;
                             case RAS_SHORT:
                                 //System.err.println("It's a short array!");
-                                res = new RasMArrayShort(new RasMInterval(domain));
+                                res = new RasMArrayShort(new RasMInterval(domain), false);
                                 break;
 
                             case RAS_USHORT:
                                 //System.err.println("It's a ushort array!");
-                                byte[] tmData = new byte[dataSize * 2];
-                                for (int i = 0; i < dataSize * 2;) {
-                                    tmData[i] = 0;
-                                    tmData[i + 1] = 0;
-                                    tmData[i + 2] = binData[i / 2];
-                                    tmData[i + 3] = binData[i / 2 + 1];
-                                    i = i + SIZE_OF_INTEGER;
-                                }
-                                binData = tmData;
-                                res = new RasMArrayInteger(new RasMInterval(domain));
+                                res = new RasMArrayUShort(new RasMInterval(domain), false);
                                 break;
 
                             case RAS_INT:
                             case RAS_LONG:
                                 //System.err.println("It's a integer array!");
-                                res = new RasMArrayInteger(new RasMInterval(domain));
+                                res = new RasMArrayInteger(new RasMInterval(domain), false);
                                 break;
                             case RAS_ULONG:
                                 //System.err.println("It's a ulong array!");
-                                byte[] tmpData = new byte[dataSize * 2];
-                                for (int i = 0; i < dataSize * 2;) {
-                                    tmpData[i] = 0;
-                                    tmpData[i + 1] = 0;
-                                    tmpData[i + 2] = 0;
-                                    tmpData[i + 3] = 0;
-                                    tmpData[i + 4] = binData[i / 2];
-                                    tmpData[i + 5] = binData[i / 2 + 1];
-                                    tmpData[i + 6] = binData[i / 2 + 2];
-                                    tmpData[i + 7] = binData[i / 2 + 3];
-                                    i = i + SIZE_OF_LONG;
-                                }
-                                binData = tmpData;
-                                res = new RasMArrayLong(new RasMInterval(domain));
+                                res = new RasMArrayULong(new RasMInterval(domain), false);
                                 break;
                             case RAS_FLOAT:
                                 //System.err.println("It's a float array!");
-                                res = new RasMArrayFloat(new RasMInterval(domain));
+                                res = new RasMArrayFloat(new RasMInterval(domain), false);
                                 break;
                             case RAS_DOUBLE:
                                 //System.err.println("It's a double array!");
-                                res = new RasMArrayDouble(new RasMInterval(domain));
+                                res = new RasMArrayDouble(new RasMInterval(domain), false);
                                 break;
                             default:
                                 //System.err.println("It's a GMArray!");
-                                res = new RasGMArray(new RasMInterval(domain), pType.getSize());
+                                res = new RasGMArray(new RasMInterval(domain), pType.getSize(), false);
                                 //throw new RasTypeNotSupportedException(pType.getName());
                             }
                             // set array data
@@ -431,8 +392,7 @@ public class RasHttpRequest implements RasCommDefs, RasGlobalDefs {
             case RESPONSE_SKALARS:
                 //System.err.println("Skalar = 2");
                 // read Endianess
-                while (in.read(b1) == 0);
-                endianess = b1[0];
+                endianess = in.readByte();
 
                 // read Collection Type
                 collType = RasUtils.readString(in);
@@ -448,8 +408,7 @@ public class RasHttpRequest implements RasCommDefs, RasGlobalDefs {
                 }
 
                 // read NumberOfResults
-                while (in.available() < 4);
-                in.read(b4);
+                in.readFully(b4);
                 numberOfResults = RasUtils.ubytesToInt(b4, endianess);
                 //System.err.println("Number of results: " + numberOfResults);
 
@@ -465,24 +424,14 @@ public class RasHttpRequest implements RasCommDefs, RasGlobalDefs {
                     //System.err.println("ElementType is " + et);
 
                     // read size of binData
-                    while (in.available() < 4);
-                    in.read(b4);
+                    in.readFully(b4);
                     dataSize = RasUtils.ubytesToInt(b4, endianess);
                     //System.err.print("Size of BinData: ");
                     //System.err.println(dataSize);
 
                     // read binData
                     binData = new byte[dataSize];
-                    readBytes = 0;
-                    readBytesTmp = 0;
-                    while ((readBytesTmp != -1) && (readBytes < dataSize)) {
-                        readBytesTmp = in.read(binData, readBytes, dataSize - readBytes);
-                        readBytes += readBytesTmp;
-                        /*
-                                    System.err.println("Read " + readBytesTmp +" Bytes ("
-                                                       + readBytes + " Bytes overall)");
-                        */
-                    }
+                    in.readFully(binData);
 
                     ByteArrayInputStream bis = new ByteArrayInputStream(binData);
                     DataInputStream dis = new DataInputStream(bis);
@@ -557,26 +506,18 @@ public class RasHttpRequest implements RasCommDefs, RasGlobalDefs {
                 Debug.talkCritical("RasHttpRequest.execute: execution failed. Error = 0");
 
                 // read Endianess
-                while (in.read(b1) == 0)
-                    ;
-                endianess = b1[0];
+                endianess = in.readByte();
 
                 // read Error Number
-                while (in.available() < 4)
-                    ;
-                in.read(b4);
+                in.readFully(b4);
                 int errNo = RasUtils.ubytesToInt(b4, endianess);
 
                 // read Line Number
-                while (in.available() < 4)
-                    ;
-                in.read(b4);
+                in.readFully(b4);
                 int lineNo = RasUtils.ubytesToInt(b4, endianess);
 
                 // read Column Number
-                while (in.available() < 4)
-                    ;
-                in.read(b4);
+                in.readFully(b4);
                 int colNo = RasUtils.ubytesToInt(b4, endianess);
 
                 // read token
@@ -589,8 +530,7 @@ public class RasHttpRequest implements RasCommDefs, RasGlobalDefs {
             case RESPONSE_INT:
                 // read Integer Value
                 //System.err.println("Now reading integer value...");
-                while (in.available() < 4);
-                in.read(b4);
+                in.readFully(b4);
                 result = new Integer(RasUtils.ubytesToInt(b4, endianess));
                 //System.err.println("Int Value is : " + result.getInt());
                 break;
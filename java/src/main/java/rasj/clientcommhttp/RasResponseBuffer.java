@@ -0,0 +1,139 @@
+/*
+* This file is part of rasdaman community.
+*
+* Rasdaman community is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* Rasdaman community is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+*
+* Copyright 2003, 2004, 2005, 2006, 2007, 2008, 2009 Peter Baumann /
+rasdaman GmbH.
+*
+* For more information please see <http://www.rasdaman.org>
+* or contact Peter Baumann via <baumann@rasdaman.com>.
+*/
+/** ***********************************************************
+ * <pre>
+ *
+ * PURPOSE:
+ * Decoder for a query response which is completely available in memory.
+ *
+ *
+ * COMMENTS:
+ * Every read checks that the response contains enough bytes, instead of
+ * waiting for them to become available.
+ *
+ * </pre>
+ *********************************************************** */
+
+package rasj.clientcommhttp;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ *
+ * This class decodes the fields of a query response (as sent by the rasserver
+ * in the http/RNP protocol) from a ByteBuffer. Integers are read in the
+ * endianess announced in the response, see setEndianess().
+ *
+ */
+public class RasResponseBuffer implements RasCommDefs {
+
+    private final ByteBuffer buffer;
+
+    public RasResponseBuffer(byte[] data) {
+        this.buffer = ByteBuffer.wrap(data);
+        this.buffer.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Set the byte order used for reading integers, 0 = big endian, 1 = little endian.
+     */
+    public void setEndianess(byte endianess) {
+        buffer.order(endianess == BIG_ENDIAN ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public int remaining() {
+        return buffer.remaining();
+    }
+
+    public byte readByte() throws EOFException {
+        checkRemaining(1);
+        return buffer.get();
+    }
+
+    /**
+     * Read a 4 bytes integer in the current endianess.
+     */
+    public int readInt() throws EOFException {
+        checkRemaining(4);
+        return buffer.getInt();
+    }
+
+    /**
+     * Read an 8 bytes double; as in DataInputStream.readDouble() it is always big endian.
+     */
+    public double readDouble() throws EOFException {
+        checkRemaining(8);
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        double ret = buffer.getDouble();
+        buffer.order(order);
+        return ret;
+    }
+
+    /**
+     * Read the given number of bytes into a new array.
+     */
+    public byte[] readBytes(int length) throws EOFException {
+        if (length < 0) {
+            throw new EOFException("Invalid length of data in response: " + length);
+        }
+        checkRemaining(length);
+        byte[] ret = new byte[length];
+        buffer.get(ret);
+        return ret;
+    }
+
+    /**
+     * Read characters until a '\0' character is reached.
+     */
+    public String readString() throws EOFException {
+        int start = buffer.position();
+        int end = start;
+        int limit = buffer.limit();
+        byte[] data = buffer.array();
+        int offset = buffer.arrayOffset();
+        while (end < limit && data[offset + end] != 0) {
+            end++;
+        }
+        if (end == limit) {
+            throw new EOFException("Unterminated string in response.");
+        }
+
+        StringBuilder retval = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            retval.append((char) data[offset + i]);
+        }
+        // skip the terminating '\0'
+        buffer.position(end + 1);
+        return retval.toString();
+    }
+
+    private void checkRemaining(int length) throws EOFException {
+        if (buffer.remaining() < length) {
+            throw new EOFException("Premature end of response: expected " + length
+                                   + " more bytes, but only " + buffer.remaining() + " are left.");
+        }
+    }
+}
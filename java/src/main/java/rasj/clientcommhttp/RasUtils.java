@@ -115,22 +115,22 @@ public final class RasUtils implements RasCommDefs {
 
     /**
      * Reads characters from a stream until a '\0' character is reached.
+     * Blocks until the data is available, throws an EOFException if the stream ends before.
      *
      * @param in BufferedInputStream to be read from ( must have been initialized before! )
      */
     public static String readString(InputStream in) throws IOException {
-        byte b = (byte) '\0';
-        byte[] b1 = new byte[1];
-        String retval = "";
+        StringBuilder retval = new StringBuilder();
 
-        while (in.read(b1) == 0);
-        while (b1[0] != b) {
-            retval = retval + (char)b1[0];
-            while (in.read(b1) == 0);
+        int b = in.read();
+        while (b != '\0') {
+            if (b == -1) {
+                throw new EOFException("Premature end of stream while reading a string.");
+            }
+            retval.append((char)(byte) b);
+            b = in.read();
         }
-        return retval;
+        return retval.toString();
     }
 
-
-
 }
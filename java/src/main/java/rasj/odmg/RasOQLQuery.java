@@ -33,6 +33,7 @@ rasdaman GmbH.
  *********************************************************** */
 package rasj.odmg;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import org.odmg.*;
 import rasj.*;
 import rasj.clientcommhttp.*;
@@ -42,6 +43,7 @@ import java.util.*;
 import java.io.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.concurrent.Executor;
 
 /**
  * This class implements the ODMG OQLQuery interface.
@@ -128,117 +130,10 @@ public class RasOQLQuery implements OQLQuery, RasCommDefs {
         BenchmarkTimer rasjQueryTimer = new BenchmarkTimer("rasjQuery");
         rasjQueryTimer.startTimer();
 
-        String mddData = null;
-        String params = null;
-        String dummy = null;
-        //RasHttpRequest request;
-        Object item;
-        StringBuffer buff;
-        int offset;
-        int buffIndex;
         Object result = null;
 
         try {
-            String errorMsg = "Could not execute OQL-Query: ";
-            // test if database is open
-            if (rasImplementation.dbIsOpen() == 0) {
-                Debug.leaveVerbose("RasQOLQuery.execute done. database not open.");
-                throw new DatabaseClosedException(errorMsg + "database not open");
-            }
-
-            // test if we have an open transaction
-            params = "ClientID=" + rasImplementation.getClientID() + "&Command=" + RasODMGGlobal.commIsOpenTA;
-
-            /*
-            request = new RasHttpRequest();
-
-            request.execute(rasImplementation.getRasServer(),params);//RasODMGGlobal.getRasServer(),params);
-            if(request.getResultType() == 98)
-            throw new TransactionNotInProgressException(errorMsg + "no open transaction");
-            */
-            if (rasImplementation.isOpenTA() == false) {
-                Debug.leaveVerbose("RasQOLQuery.execute done. Error: no open transaction.");
-                throw new TransactionNotInProgressException(errorMsg + "no open transaction");
-            }
-
-            // test for correct number of query parameters
-            Matcher matcher = MDD_CONSTANT_PATTERN.matcher(queryString);
-            int counter = 0;
-            while (matcher.find()) {
-                try {
-                    String group = matcher.group(1);
-                    if (Integer.parseInt(group) > counter) {
-                        counter++;
-                    }
-                } catch (NumberFormatException e) {
-                    // should not happen!
-                    Debug.leaveVerbose("RasOQLQuery.execute done. number format exception in query parsing.");
-                    throw new QueryParameterCountInvalidException("There are was a NumberFormatException while parsing the query.");
-                }
-            }
-            if (counter != numberOfParams) {
-                Debug.leaveVerbose("RasOQLQuery.execute done. number of parameters does not match query.");
-                throw new QueryParameterCountInvalidException(counter + " variable(s) in the query string vs. " + numberOfParams + " parameter(s) bound to the query.");
-            }
-
-            // process the parameters
-            dummy = queryString.trim();
-            queryString = dummy;
-            if (numberOfParams > 0) {
-                counter = 0;
-                ListIterator iter = qParams.listIterator(0);
-                while (iter.hasNext()) {
-                    counter++;
-                    item = iter.next();
-                    if (item instanceof RasGMArray) {
-                        // we have a MDD parameter => substitute the $x occurance in
-                        // the query string with #MDDx# and get the transfer encoding of
-                        // the MDDs. The format is specified in the file
-                        // clientcommhttp/RasHttprequest.java.
-                        RasGMArray mdd = (RasGMArray)item;
-                        if (mddData == null) {
-                            mddData = utils.getTransferEncoding(mdd);
-                        } else {
-                            mddData = mddData + utils.getTransferEncoding(mdd);
-                        }
-                        queryString = utils.substitute(queryString, "$" + counter, "#MDD" + counter + "#");
-                    } else {
-                        // no MDD parameter => substitute each occurence of the
-                        // corresponding $ parameter in the query string with the
-                        // value of this parameter
-                        queryString = utils.substitute(queryString, "$" + counter, item.toString());
-                        iter.remove();
-                        numberOfParams--;
-                    }
-                }
-            }
-
-            // what kind of query do we have?
-            // FIXME: this way you don't see it keyword is in comment, and you miss mixed case!! -- PB 2003-jun-15
-            String upper = queryString.toUpperCase();
-            if (upper.startsWith(SELECT_KEYWORD) && !upper.contains(INTO_KEYWORD)) {
-                //select query
-                params = "Command=" + RasODMGGlobal.commQueryExec + "&ClientID=" +
-                         rasImplementation.getClientID() + "&QueryString=" + queryString;
-            } else if (upper.startsWith(INSERT_KEYWORD)) {
-                // insert query
-                params = "Command=" + RasODMGGlobal.commInsertQueryExec + "&ClientID=" +
-                         rasImplementation.getClientID() + "&QueryString=" + queryString +
-                         "&Endianess=" + BIG_ENDIAN + "&NumberOfQueryParameters=" +
-                         numberOfParams;
-                if (numberOfParams > 0) {
-                    params = params + "&BinDataSize=" + mddData.length() + "&BinData=" + mddData;
-                }
-            } else {
-                // update query
-                params = "Command=" + RasODMGGlobal.commUpdateQueryExec + "&ClientID=" +
-                         rasImplementation.getClientID() + "&QueryString=" + queryString +
-                         "&Endianess=" + BIG_ENDIAN + "&NumberOfQueryParameters=" +
-                         numberOfParams;
-                if (numberOfParams > 0) {
-                    params = params + "&BinDataSize=" + mddData.length() + "&BinData=" + mddData;
-                }
-            }
+            String params = getRequestParameters();
 
             //request.execute(rasImplementation.getRasServer(),params);//RasODMGGlobal.getRasServer(),params);
             //return request.getResult();
@@ -258,6 +153,190 @@ public class RasOQLQuery implements OQLQuery, RasCommDefs {
         return result;
     } // execute()
 
+    /**
+     * Execute the OQL query and return its result as a stream, so that large MDD
+     * results can be consumed without holding them in memory. Only supported by
+     * protocols implementing RasStreamingImplementationInterface (rasnet).
+     * The returned result must be closed after it was consumed.
+     */
+    public RasStreamedQueryResult executeStreamed() throws QueryException {
+        Debug.enterVerbose("RasOQLQuery.executeStreamed start.");
+
+        if (!(rasImplementation instanceof RasStreamingImplementationInterface)) {
+            Debug.leaveVerbose("RasOQLQuery.executeStreamed done. streaming not supported.");
+            throw new QueryException("Streaming query results is not supported by the used client/server protocol.");
+        }
+
+        RasStreamedQueryResult result = null;
+        try {
+            String params = getRequestParameters();
+            result = ((RasStreamingImplementationInterface) rasImplementation).queryStreamRequest(params);
+        } catch (RasQueryExecutionFailedException e) {
+            Debug.leaveVerbose("RasOQLQuery.executeStreamed done. query execution failed: " + e.getMessage());
+            throw new QueryException(e.getMessage());
+        } catch (IOException e2) {
+            Debug.leaveVerbose("RasOQLQuery.executeStreamed done. error while generating transfer encoding: " + e2.getMessage());
+            throw new QueryException("Error while generating transfer encoding:\n" + e2.getMessage());
+        }
+
+        Debug.leaveVerbose("RasOQLQuery.executeStreamed done.");
+        return result;
+    } // executeStreamed()
+
+    /**
+     * Execute the OQL query without waiting for its result, so that many queries can be
+     * in flight without a thread blocked for each of them. Only supported by protocols
+     * implementing RasAsyncImplementationInterface (rasnet). The database and transaction
+     * are checked before this method returns; errors of the query execution complete the
+     * returned future exceptionally, e.g. with a RasQueryExecutionFailedException.
+     * Cancelling the returned future only stops fetching the result in this client;
+     * callers must abort the transaction to stop the query on the server.
+     */
+    public ListenableFuture<Object> executeAsync() throws QueryException {
+        return executeAsync(null);
+    } // executeAsync()
+
+    /**
+     * Same as executeAsync(), but the received result is decoded on the given executor
+     * (e.g. the pool which also processes the results) instead of the shared one of rasj.
+     */
+    public ListenableFuture<Object> executeAsync(Executor executor) throws QueryException {
+        Debug.enterVerbose("RasOQLQuery.executeAsync start.");
+
+        if (!(rasImplementation instanceof RasAsyncImplementationInterface)) {
+            Debug.leaveVerbose("RasOQLQuery.executeAsync done. asynchronous execution not supported.");
+            throw new QueryException("Asynchronous query execution is not supported by the used client/server protocol.");
+        }
+
+        ListenableFuture<Object> result = null;
+        try {
+            String params = getRequestParameters();
+            RasAsyncImplementationInterface asyncImplementation = (RasAsyncImplementationInterface) rasImplementation;
+            result = executor == null ? asyncImplementation.queryRequestAsync(params)
+                                      : asyncImplementation.queryRequestAsync(params, executor);
+        } catch (IOException e2) {
+            Debug.leaveVerbose("RasOQLQuery.executeAsync done. error while generating transfer encoding: " + e2.getMessage());
+            throw new QueryException("Error while generating transfer encoding:\n" + e2.getMessage());
+        }
+
+        Debug.leaveVerbose("RasOQLQuery.executeAsync done.");
+        return result;
+    } // executeAsync()
+
+    /**
+     * Check the state of the database and transaction, substitute the query
+     * parameters and build the request sent to the server.
+     */
+    private String getRequestParameters() throws QueryException, IOException {
+        String mddData = null;
+        String params = null;
+        String dummy = null;
+        Object item;
+
+        String errorMsg = "Could not execute OQL-Query: ";
+        // test if database is open
+        if (rasImplementation.dbIsOpen() == 0) {
+            Debug.leaveVerbose("RasQOLQuery.execute done. database not open.");
+            throw new DatabaseClosedException(errorMsg + "database not open");
+        }
+
+        // test if we have an open transaction
+        params = "ClientID=" + rasImplementation.getClientID() + "&Command=" + RasODMGGlobal.commIsOpenTA;
+
+        /*
+        request = new RasHttpRequest();
+
+        request.execute(rasImplementation.getRasServer(),params);//RasODMGGlobal.getRasServer(),params);
+        if(request.getResultType() == 98)
+        throw new TransactionNotInProgressException(errorMsg + "no open transaction");
+        */
+        if (rasImplementation.isOpenTA() == false) {
+            Debug.leaveVerbose("RasQOLQuery.execute done. Error: no open transaction.");
+            throw new TransactionNotInProgressException(errorMsg + "no open transaction");
+        }
+
+        // test for correct number of query parameters
+        Matcher matcher = MDD_CONSTANT_PATTERN.matcher(queryString);
+        int counter = 0;
+        while (matcher.find()) {
+            try {
+                String group = matcher.group(1);
+                if (Integer.parseInt(group) > counter) {
+                    counter++;
+                }
+            } catch (NumberFormatException e) {
+                // should not happen!
+                Debug.leaveVerbose("RasOQLQuery.execute done. number format exception in query parsing.");
+                throw new QueryParameterCountInvalidException("There are was a NumberFormatException while parsing the query.");
+            }
+        }
+        if (counter != numberOfParams) {
+            Debug.leaveVerbose("RasOQLQuery.execute done. number of parameters does not match query.");
+            throw new QueryParameterCountInvalidException(counter + " variable(s) in the query string vs. " + numberOfParams + " parameter(s) bound to the query.");
+        }
+
+        // process the parameters
+        dummy = queryString.trim();
+        queryString = dummy;
+        if (numberOfParams > 0) {
+            counter = 0;
+            ListIterator iter = qParams.listIterator(0);
+            while (iter.hasNext()) {
+                counter++;
+                item = iter.next();
+                if (item instanceof RasGMArray) {
+                    // we have a MDD parameter => substitute the $x occurance in
+                    // the query string with #MDDx# and get the transfer encoding of
+                    // the MDDs. The format is specified in the file
+                    // clientcommhttp/RasHttprequest.java.
+                    RasGMArray mdd = (RasGMArray)item;
+                    if (mddData == null) {
+                        mddData = utils.getTransferEncoding(mdd);
+                    } else {
+                        mddData = mddData + utils.getTransferEncoding(mdd);
+                    }
+                    queryString = utils.substitute(queryString, "$" + counter, "#MDD" + counter + "#");
+                } else {
+                    // no MDD parameter => substitute each occurence of the
+                    // corresponding $ parameter in the query string with the
+                    // value of this parameter
+                    queryString = utils.substitute(queryString, "$" + counter, item.toString());
+                    iter.remove();
+                    numberOfParams--;
+                }
+            }
+        }
+
+        // what kind of query do we have?
+        // FIXME: this way you don't see it keyword is in comment, and you miss mixed case!! -- PB 2003-jun-15
+        String upper = queryString.toUpperCase();
+        if (upper.startsWith(SELECT_KEYWORD) && !upper.contains(INTO_KEYWORD)) {
+            //select query
+            params = "Command=" + RasODMGGlobal.commQueryExec + "&ClientID=" +
+                     rasImplementation.getClientID() + "&QueryString=" + queryString;
+        } else if (upper.startsWith(INSERT_KEYWORD)) {
+            // insert query
+            params = "Command=" + RasODMGGlobal.commInsertQueryExec + "&ClientID=" +
+                     rasImplementation.getClientID() + "&QueryString=" + queryString +
+                     "&Endianess=" + BIG_ENDIAN + "&NumberOfQueryParameters=" +
+                     numberOfParams;
+            if (numberOfParams > 0) {
+                params = params + "&BinDataSize=" + mddData.length() + "&BinData=" + mddData;
+            }
+        } else {
+            // update query
+            params = "Command=" + RasODMGGlobal.commUpdateQueryExec + "&ClientID=" +
+                     rasImplementation.getClientID() + "&QueryString=" + queryString +
+                     "&Endianess=" + BIG_ENDIAN + "&NumberOfQueryParameters=" +
+                     numberOfParams;
+            if (numberOfParams > 0) {
+                params = params + "&BinDataSize=" + mddData.length() + "&BinData=" + mddData;
+            }
+        }
+
+        return params;
+    }
+
 } // RasOQLQuery
 
 /*
@@ -319,7 +398,8 @@ abstract class utils {
         // exceed 2^32, because the server does only store 4 byte ushorts, and
         // convert the java-8-byte-long-array to a java-byte-array containing
         // only the 4 least bytes of each long value.
-        if (mdd instanceof RasMArrayLong) {
+        // RasMArrayULong and RasMArrayUShort keep their cells in 4 and 2 bytes already
+        if (mdd instanceof RasMArrayLong && !(mdd instanceof RasMArrayULong)) {
             int arraySize = (int)mdd.getArraySize();
             byte[] longArray = mdd.getArray();
             // we skip the first 4 bytes of each long => arraySize / 2
@@ -347,7 +427,8 @@ abstract class utils {
         // exceed 2^16, because the server does only store 2 byte ushorts, and
         // convert the java-4-byte-integer-array to a java-byte-array containing
         // only the 2 least bytes of each integer value.
-        else if (mdd instanceof RasMArrayInteger && mdd.getObjectTypeName().regionMatches(0, "UShort", 0, 5)) {
+        else if (mdd instanceof RasMArrayInteger && !(mdd instanceof RasMArrayUShort)
+                 && mdd.getObjectTypeName().regionMatches(0, "UShort", 0, 5)) {
             int arraySize = (int)mdd.getArraySize();
             byte[] intArray = mdd.getArray();
             // we skip the first 2 bytes of each integer => arraySize / 2
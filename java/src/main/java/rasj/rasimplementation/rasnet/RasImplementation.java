@@ -255,6 +255,17 @@ public class RasImplementation implements Implementation {
         imp.closeDB();
     }
 
+    /**
+     * Returns TRUE if the opened database session can still be used. With the rasnet
+     * protocol this also checks that the keep alive messages to the rasserver did not fail.
+     */
+    public boolean isConnectionAlive() {
+        if (imp instanceof RasRasnetImplementation) {
+            return ((RasRasnetImplementation) imp).isConnectionAlive();
+        }
+        return imp.dbIsOpen() == 1;
+    }
+
     /**
      * Begin a transaction.
      */
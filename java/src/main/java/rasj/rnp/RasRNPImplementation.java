@@ -783,21 +783,16 @@ public class RasRNPImplementation extends RnpBaseClientComm implements RasImplem
         Debug.enterVerbose("RasRNPImplementation.getResponse: start.");
 
         Object result = null;
-        DataInputStream in = new DataInputStream(new ByteArrayInputStream(opaqueAnswer));
-        byte[] b1 = new byte[1];
-        byte[] b4 = new byte[4];
+        RasResponseBuffer in = new RasResponseBuffer(opaqueAnswer);
         byte endianess = 0;
         String collType = null;
         int numberOfResults = 0;
         int dataSize = 0;
         byte[] binData = null;
-        int readBytes = 0;
-        int readBytesTmp = 0;
         DBag resultBag;
         RasGMArray res = null;
         try {
-            in.read(b1);
-            int resultType = b1[0];
+            int resultType = in.readByte();
             switch (resultType) {
             case RESPONSE_OK:
             case RESPONSE_OK_NEGATIVE:
@@ -807,16 +802,14 @@ public class RasRNPImplementation extends RnpBaseClientComm implements RasImplem
             // +++++++++++++++++++++++++++++++++++++++++++++++++
             case RESPONSE_MDDS:
                 // read Endianess
-                while (in.read(b1) == 0);
-                endianess = b1[0];
+                endianess = in.readByte();
+                in.setEndianess(endianess);
 
                 // read Collection Type
-                collType = RasUtils.readString(in);
+                collType = in.readString();
 
                 // read NumberOfResults
-                while (in.available() < 4);
-                in.read(b4);
-                numberOfResults = RasUtils.ubytesToInt(b4, endianess);
+                numberOfResults = in.readInt();
 
                 // Initialize return-set and parameters
                 resultBag = new RasBag();
@@ -828,30 +821,20 @@ public class RasRNPImplementation extends RnpBaseClientComm implements RasImplem
                 // do this for each result
                 for (int x = 0; x < numberOfResults; x++) {
                     //read mddBaseType
-                    mddBaseType = RasUtils.readString(in);
+                    mddBaseType = in.readString();
 
                     // read spatialDomain
-                    domain = RasUtils.readString(in);
+                    domain = in.readString();
 
                     // read OID
-                    oid = RasUtils.readString(in);
+                    oid = in.readString();
                     roid = new RasOID(oid);
 
                     // read size of binData
-                    while (in.available() < 4);
-                    in.read(b4);
-
-                    dataSize = RasUtils.ubytesToInt(b4, endianess);
+                    dataSize = in.readInt();
 
                     // read binData
-                    binData = new byte[dataSize];
-                    readBytes = 0;
-                    readBytesTmp = 0;
-
-                    while ((readBytesTmp != -1) && (readBytes < dataSize)) {
-                        readBytesTmp = in.read(binData, readBytes, dataSize - readBytes);
-                        readBytes += readBytesTmp;
-                    }
+                    binData = in.readBytes(dataSize);
 
                     RasType rType = RasType.getAnyType(mddBaseType);
                     RasBaseType rb = null;
@@ -867,7 +850,7 @@ public class RasRNPImplementation extends RnpBaseClientComm implements RasImplem
                     if (rb.isBaseType()) {
                         if (rb.isStructType()) {
                             RasStructureType sType = (RasStructureType)rb;
-                            res = new RasGMArray(new RasMInterval(domain), 0);
+                            res = new RasGMArray(new RasMInterval(domain), 0, false);
                             res.setTypeLength(rb.getSize());
                             res.setArraySize(dataSize);
                             res.setArray(binData);
@@ -881,53 +864,31 @@ public class RasRNPImplementation extends RnpBaseClientComm implements RasImplem
                             case RAS_BOOLEAN:
                             case RAS_BYTE:
                             case RAS_CHAR:
-                                res = new RasMArrayByte(new RasMInterval(domain));
+                                res = new RasMArrayByte(new RasMInterval(domain), false);
                                 break;
                             case RAS_SHORT:
-                                res = new RasMArrayShort(new RasMInterval(domain));
+                                res = new RasMArrayShort(new RasMInterval(domain), false);
                                 break;
 
                             case RAS_USHORT:
-                                byte[] tmData = new byte[dataSize * 2];
-                                for (int i = 0; i < dataSize * 2;) {
-                                    tmData[i] = 0;
-                                    tmData[i + 1] = 0;
-                                    tmData[i + 2] = binData[i / 2];
-                                    tmData[i + 3] = binData[i / 2 + 1];
-                                    i = i + SIZE_OF_INTEGER;
-                                }
-                                binData = tmData;
-                                res = new RasMArrayInteger(new RasMInterval(domain));
+                                res = new RasMArrayUShort(new RasMInterval(domain), false);
                                 break;
 
                             case RAS_INT:
                             case RAS_LONG:
-                                res = new RasMArrayInteger(new RasMInterval(domain));
+                                res = new RasMArrayInteger(new RasMInterval(domain), false);
                                 break;
                             case RAS_ULONG:
-                                byte[] tmpData = new byte[dataSize * 2];
-                                for (int i = 0; i < dataSize * 2;) {
-                                    tmpData[i] = 0;
-                                    tmpData[i + 1] = 0;
-                                    tmpData[i + 2] = 0;
-                                    tmpData[i + 3] = 0;
-                                    tmpData[i + 4] = binData[i / 2];
-                                    tmpData[i + 5] = binData[i / 2 + 1];
-                                    tmpData[i + 6] = binData[i / 2 + 2];
-                                    tmpData[i + 7] = binData[i / 2 + 3];
-                                    i = i + SIZE_OF_LONG;
-                                }
-                                binData = tmpData;
-                                res = new RasMArrayLong(new RasMInterval(domain));
+                                res = new RasMArrayULong(new RasMInterval(domain), false);
                                 break;
                             case RAS_FLOAT:
-                                res = new RasMArrayFloat(new RasMInterval(domain));
+                                res = new RasMArrayFloat(new RasMInterval(domain), false);
                                 break;
                             case RAS_DOUBLE:
-                                res = new RasMArrayDouble(new RasMInterval(domain));
+                                res = new RasMArrayDouble(new RasMInterval(domain), false);
                                 break;
                             default:
-                                res = new RasGMArray(new RasMInterval(domain), pType.getSize());
+                                res = new RasGMArray(new RasMInterval(domain), pType.getSize(), false);
                             }
                             res.setArray(binData);
                             res.setOID(roid);
@@ -942,17 +903,16 @@ public class RasRNPImplementation extends RnpBaseClientComm implements RasImplem
                 } // for
 
                 result = resultBag;
-                in.close();
 
                 break;
 
             // ++++++++++++++++++++++++++++++++++++++++++++++++++++++++
             case RESPONSE_SKALARS:
                 // read Endianess
-                while (in.read(b1) == 0);
-                endianess = b1[0];
+                endianess = in.readByte();
+                in.setEndianess(endianess);
                 // read Collection Type
-                collType = RasUtils.readString(in);
+                collType = in.readString();
                 RasType rt = new RasType();
                 try {
                     rt = rt.getAnyType(collType);
@@ -967,10 +927,7 @@ public class RasRNPImplementation extends RnpBaseClientComm implements RasImplem
                 }
 
                 // read NumberOfResults
-                while (in.available() < 4)
-                    ;
-                in.read(b4);
-                numberOfResults = RasUtils.ubytesToInt(b4, endianess);
+                numberOfResults = in.readInt();
 
                 // Initailize return-list
                 resultBag = new RasBag();
@@ -978,22 +935,13 @@ public class RasRNPImplementation extends RnpBaseClientComm implements RasImplem
                 // do this for each result
                 for (int x = 0; x < numberOfResults; x++) {
                     // read elementType
-                    String elementType = RasUtils.readString(in);
+                    String elementType = in.readString();
                     RasType et = new RasType();
                     et = ((RasCollectionType)rt).getElementType();
                     // read size of binData
-                    while (in.available() < 4)
-                        ;
-                    in.read(b4);
-                    dataSize = RasUtils.ubytesToInt(b4, endianess);
+                    dataSize = in.readInt();
                     // read binData
-                    binData = new byte[dataSize];
-                    readBytes = 0;
-                    readBytesTmp = 0;
-                    while ((readBytesTmp != -1) && (readBytes < dataSize)) {
-                        readBytesTmp = in.read(binData, readBytes, dataSize - readBytes);
-                        readBytes += readBytesTmp;
-                    }
+                    binData = in.readBytes(dataSize);
 
                     ByteArrayInputStream bis = new ByteArrayInputStream(binData);
                     DataInputStream dis = new DataInputStream(bis);
@@ -1001,54 +949,38 @@ public class RasRNPImplementation extends RnpBaseClientComm implements RasImplem
                     resultBag.add(getElement(dis, et, binData));
                 }
                 result = resultBag;
-                // close stream
-                in.close();
                 break;
 
             //++++++++++++++++++++++++++++++++++++++++++++++++++++++++
             case RESPONSE_ERROR:
                 // read Endianess
-                while (in.read(b1) == 0);
-                endianess = b1[0];
+                endianess = in.readByte();
+                in.setEndianess(endianess);
                 // read Error Number
-                while (in.available() < 4)
-                    ;
-                in.read(b4);
-                int errNo = RasUtils.ubytesToInt(b4, endianess);
+                int errNo = in.readInt();
                 // read Line Number
-                while (in.available() < 4)
-                    ;
-                in.read(b4);
-                int lineNo = RasUtils.ubytesToInt(b4, endianess);
+                int lineNo = in.readInt();
                 // read Column Number
-                while (in.available() < 4)
-                    ;
-                in.read(b4);
-                int colNo = RasUtils.ubytesToInt(b4, endianess);
+                int colNo = in.readInt();
                 // read token
-                String token = RasUtils.readString(in);
+                String token = in.readString();
                 Debug.leaveCritical("RasRNPImplementation.getResponse: query failed, errNo=" + errNo + ", lineNo=" + lineNo + ", colNo=" + colNo + ", token=" + token);
                 throw new RasQueryExecutionFailedException(errNo, lineNo, colNo, token);
             //+++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
             case RESPONSE_INT:
                 // read Integer Value
-                while (in.available() < 4)
-                    ;
-                in.read(b4);
-                result = new Integer(RasUtils.ubytesToInt(b4, endianess));
+                result = new Integer(in.readInt());
                 break;
 
             //+++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
             case RESPONSE_OID:
                 // read Values
-                String sys = RasUtils.readString(in);
-                String base = RasUtils.readString(in);
+                String sys = in.readString();
+                String base = in.readString();
                 double d = in.readDouble();
                 resultBag = new RasBag();
                 resultBag.add(new RasOID(sys, base, d));
                 result = resultBag;
-                // close stream
-                in.close();
                 break;
             default:
                 break;
@@ -0,0 +1,119 @@
+/*
+ * This file is part of rasdaman community.
+ *
+ * Rasdaman community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Rasdaman community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2003 - 2015 Peter Baumann / rasdaman GmbH.
+ *
+ * For more information please see <http://www.rasdaman.org>
+ * or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+
+package tests;
+
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import org.junit.Test;
+import org.junit.Assert;
+
+import rasj.RasMArrayDouble;
+import rasj.RasMArrayInteger;
+import rasj.RasMArrayShort;
+import rasj.RasMArrayULong;
+import rasj.RasMArrayUShort;
+import rasj.RasMInterval;
+import rasj.RasIllegalUShortValueException;
+import rasj.RasPoint;
+import rasj.RasResultIsNoIntervalException;
+
+/* Test for converting the cells of typed marrays between bytes and values */
+public class RasMArrayTest {
+    @Test
+    public void testBigEndianShorts() throws RasResultIsNoIntervalException {
+        RasMArrayShort mdd = new RasMArrayShort(new RasMInterval("[0:1]"), false);
+        mdd.setArray(new byte[] {1, 2, -1, -2});
+
+        Assert.assertArrayEquals(new short[] {258, -2}, mdd.getShortArray());
+        Assert.assertArrayEquals(new byte[] {1, 2, -1, -2}, mdd.getArray());
+    }
+
+    @Test
+    public void testLittleEndianInts() throws RasResultIsNoIntervalException {
+        RasMArrayInteger mdd = new RasMArrayInteger(new RasMInterval("[0:1]"), false);
+        mdd.setArray(new byte[] {2, 1, 0, 0, -1, -1, -1, -1});
+        mdd.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+
+        Assert.assertEquals(258, mdd.getIntBuffer().get(0));
+        Assert.assertArrayEquals(new int[] {258, -1}, mdd.getIntArray());
+        // encoded again in the new byte order
+        mdd.setByteOrder(ByteOrder.BIG_ENDIAN);
+        Assert.assertArrayEquals(new byte[] {0, 0, 1, 2, -1, -1, -1, -1}, mdd.getArray());
+    }
+
+    @Test
+    public void testLittleEndianGetCell() throws Exception {
+        RasMArrayInteger mdd = new RasMArrayInteger(new RasMInterval("[0:1]"), false);
+        mdd.setArray(new byte[] {2, 1, 0, 0, -1, -1, -1, -1});
+        mdd.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+        mdd.getIntArray();
+
+        // the cell is returned in the byte order of the array
+        Assert.assertArrayEquals(new byte[] {2, 1, 0, 0}, mdd.getCell(new RasPoint("[0]")));
+    }
+
+    @Test
+    public void testDoubleBufferView() throws RasResultIsNoIntervalException {
+        RasMArrayDouble mdd = new RasMArrayDouble(new RasMInterval("[0:2]"), false);
+        mdd.setArray(new double[] {1.5, -2.25, Double.NaN});
+        byte[] bytes = mdd.getArray();
+
+        RasMArrayDouble result = new RasMArrayDouble(new RasMInterval("[0:2]"), false);
+        result.setArray(bytes);
+        DoubleBuffer buffer = result.getDoubleBuffer();
+        Assert.assertTrue(buffer.isReadOnly());
+        Assert.assertEquals(3, buffer.remaining());
+        Assert.assertEquals(-2.25, buffer.get(1), 0);
+        Assert.assertArrayEquals(new double[] {1.5, -2.25, Double.NaN}, result.getDoubleArray(), 0);
+    }
+
+    @Test
+    public void testUShortKeepsCellSize() throws Exception {
+        RasMArrayUShort mdd = new RasMArrayUShort(new RasMInterval("[0:1]"), false);
+        mdd.setArray(new byte[] {-1, -2, 0, 1});
+
+        Assert.assertEquals(2, mdd.getTypeLength());
+        Assert.assertEquals(65534, mdd.getInt(new RasPoint("[0]")));
+        Assert.assertEquals(-2, mdd.getShortBuffer().get(0));
+        Assert.assertArrayEquals(new int[] {65534, 1}, mdd.getIntArray());
+        Assert.assertArrayEquals(new byte[] {-1, -2, 0, 1}, mdd.getArray());
+    }
+
+    @Test
+    public void testULongKeepsCellSize() throws Exception {
+        RasMArrayULong mdd = new RasMArrayULong(new RasMInterval("[0:0]"), false);
+        mdd.setArray(new byte[] {-1, -1, -1, -2});
+
+        Assert.assertEquals(4, mdd.getArraySize());
+        Assert.assertEquals(4294967294L, mdd.getLong(new RasPoint("[0]")));
+        mdd.setArray(new long[] {4294967295L});
+        Assert.assertArrayEquals(new byte[] {-1, -1, -1, -1}, mdd.getArray());
+    }
+
+    @Test(expected = RasIllegalUShortValueException.class)
+    public void testUShortOutOfRange() throws RasResultIsNoIntervalException {
+        RasMArrayUShort mdd = new RasMArrayUShort(new RasMInterval("[0:0]"), false);
+        mdd.setArray(new int[] {65536});
+        mdd.getArray();
+    }
+}
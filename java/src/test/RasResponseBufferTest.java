@@ -0,0 +1,70 @@
+/*
+ * This file is part of rasdaman community.
+ *
+ * Rasdaman community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Rasdaman community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rasdaman community.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2003 - 2015 Peter Baumann / rasdaman GmbH.
+ *
+ * For more information please see <http://www.rasdaman.org>
+ * or contact Peter Baumann via <baumann@rasdaman.com>.
+ */
+
+package tests;
+
+import java.io.EOFException;
+import org.junit.Test;
+import org.junit.Assert;
+
+import rasj.clientcommhttp.RasCommDefs;
+import rasj.clientcommhttp.RasResponseBuffer;
+
+/* Test for decoding the fields of a query response */
+public class RasResponseBufferTest {
+    @Test
+    public void testLittleEndianMDDHeader() throws EOFException {
+        byte[] data = {
+            RasCommDefs.RESPONSE_MDDS, RasCommDefs.LITTLE_ENDIAN,
+            'a', 'b', 0,
+            2, 1, 0, 0,
+            1, 2, 3
+        };
+        RasResponseBuffer in = new RasResponseBuffer(data);
+
+        Assert.assertEquals(RasCommDefs.RESPONSE_MDDS, in.readByte());
+        in.setEndianess(in.readByte());
+        Assert.assertEquals("ab", in.readString());
+        Assert.assertEquals(258, in.readInt());
+        Assert.assertArrayEquals(new byte[] {1, 2, 3}, in.readBytes(3));
+        Assert.assertEquals(0, in.remaining());
+    }
+
+    @Test
+    public void testBigEndianInt() throws EOFException {
+        RasResponseBuffer in = new RasResponseBuffer(new byte[] {0, 0, 1, 2});
+        in.setEndianess(RasCommDefs.BIG_ENDIAN);
+        Assert.assertEquals(258, in.readInt());
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedData() throws EOFException {
+        RasResponseBuffer in = new RasResponseBuffer(new byte[] {4, 0, 0, 0, 1});
+        in.readBytes(in.readInt());
+    }
+
+    @Test(expected = EOFException.class)
+    public void testUnterminatedString() throws EOFException {
+        RasResponseBuffer in = new RasResponseBuffer(new byte[] {'a', 'b'});
+        in.readString();
+    }
+}
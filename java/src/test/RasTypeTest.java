@@ -27,6 +27,7 @@ import org.junit.Assert;
 
 import rasj.global.RasGlobalDefs;
 import rasj.RasBaseType;
+import rasj.RasMArrayType;
 import rasj.RasPrimitiveType;
 import rasj.RasStructureType;
 import rasj.RasType;
@@ -81,4 +82,17 @@ public class RasTypeTest {
         Assert.assertTrue(result instanceof RasStructureType);
         Assert.assertEquals(expectedResult, (RasStructureType) result);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testParsedTypesAreShared() {
+        String typeString = "marray <struct {char red, char green}, [0:9,0:9]>";
+
+        RasType first = RasType.getAnyType(typeString);
+        RasType second = RasType.getAnyType(typeString);
+
+        Assert.assertSame(first, second);
+        RasStructureType struct = (RasStructureType) ((RasMArrayType) first).getBaseType();
+        struct.getAttributes()[0] = "blue";
+        Assert.assertEquals("red", struct.getAttributes()[0]);
+    }
+}
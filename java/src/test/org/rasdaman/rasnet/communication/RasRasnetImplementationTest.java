@@ -4,8 +4,10 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.odmg.*;
 import rasj.*;
+import rasj.odmg.RasOQLQuery;
 
 import java.util.Locale;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertTrue;
 
@@ -101,4 +103,32 @@ public class RasRasnetImplementationTest {
 
         assertTrue(secodnCreationFailed);
     }
+
+    @Test
+    public void testExecuteAsync() throws Exception {
+        Implementation myApp = new RasImplementation(CONNECT_STRING);
+        ((RasImplementation) myApp).setUserIdentification(RASDAMAN_USER, RASDAMAN_PASSWD);
+        Database myDb = myApp.newDatabase();
+        myDb.open("RASBASE", Database.OPEN_READ_ONLY);
+        Transaction myTa = myApp.newTransaction();
+        myTa.begin();
+        try {
+            RasOQLQuery myQu = (RasOQLQuery) myApp.newOQLQuery();
+            myQu.create("SELECT 1 + 1");
+            Object result = myQu.executeAsync().get();
+
+            assertTrue(result instanceof DBag);
+            Assert.assertEquals(1, ((DBag) result).size());
+
+            // a cancelled query must not prevent the transaction from being finished
+            myQu = (RasOQLQuery) myApp.newOQLQuery();
+            myQu.create("SELECT 1 + 1");
+            Future<Object> cancelled = myQu.executeAsync();
+            cancelled.cancel(true);
+            assertTrue(cancelled.isCancelled());
+        } finally {
+            myTa.abort();
+            myDb.close();
+        }
+    }
 }
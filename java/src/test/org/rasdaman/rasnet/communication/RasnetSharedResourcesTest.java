@@ -0,0 +1,94 @@
+package org.rasdaman.rasnet.communication;
+
+import io.grpc.ManagedChannel;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sets up many concurrent clients and reports the threads and the time it takes.
+ * No server is needed, as the channels connect only on the first call.
+ */
+public class RasnetSharedResourcesTest {
+    private static final int CLIENTS = 200;
+    private static final String HOST = "localhost";
+    private static final int PORT = 7001;
+    // long enough that no keep alive message is sent during the test
+    private static final long HEART_BEAT_INTERVAL = 60 * 1000;
+
+    @Test
+    public void testConcurrentClients() throws Exception {
+        final RasnetServiceFactory factory = new RasnetServiceFactoryImpl();
+        final List<ManagedChannel> channels = new ArrayList<ManagedChannel>();
+        final List<RasmgrKeepAlive> keepAlives = new ArrayList<RasmgrKeepAlive>();
+        final AtomicLong totalSetupNanos = new AtomicLong();
+        final AtomicLong maxSetupNanos = new AtomicLong();
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        int threadsBefore = threadBean.getThreadCount();
+
+        Thread[] clients = new Thread[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            final String clientUUID = "client" + i;
+            clients[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startSignal.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long start = System.nanoTime();
+                    ManagedChannel channel = factory.createChannel(HOST, PORT);
+                    RasmgrKeepAlive keepAlive = new RasmgrKeepAlive(factory.createRasmgrClientService(channel),
+                            clientUUID, HEART_BEAT_INTERVAL);
+                    keepAlive.start();
+                    long setupNanos = System.nanoTime() - start;
+
+                    totalSetupNanos.addAndGet(setupNanos);
+                    long max = maxSetupNanos.get();
+                    while (setupNanos > max && !maxSetupNanos.compareAndSet(max, setupNanos)) {
+                        max = maxSetupNanos.get();
+                    }
+                    synchronized (channels) {
+                        channels.add(channel);
+                        keepAlives.add(keepAlive);
+                    }
+                }
+            });
+            clients[i].start();
+        }
+        startSignal.countDown();
+        for (Thread client : clients) {
+            client.join();
+        }
+
+        int threadsAfter = threadBean.getThreadCount();
+        System.out.println(CLIENTS + " concurrent clients: " + (threadsAfter - threadsBefore) + " additional threads, "
+                           + KeepAliveScheduler.getThreadCount() + " keep alive threads, "
+                           + RasnetServiceFactoryImpl.getSharedChannelCount() + " channels");
+        System.out.println("Connection setup: " + totalSetupNanos.get() / CLIENTS / 1000 + " us on average, "
+                           + maxSetupNanos.get() / 1000 + " us at most");
+
+        assertEquals(CLIENTS, keepAlives.size());
+        assertEquals(1, RasnetServiceFactoryImpl.getSharedChannelCount());
+        assertTrue(KeepAliveScheduler.getThreadCount() <= Math.max(2, Runtime.getRuntime().availableProcessors()));
+        assertTrue(threadsAfter - threadsBefore < CLIENTS);
+
+        for (int i = 0; i < CLIENTS; i++) {
+            keepAlives.get(i).stop();
+            assertEquals(1, RasnetServiceFactoryImpl.getSharedChannelCount());
+            factory.releaseChannel(channels.get(i));
+        }
+        assertEquals(0, RasnetServiceFactoryImpl.getSharedChannelCount());
+        assertTrue(channels.get(0).isShutdown());
+    }
+}